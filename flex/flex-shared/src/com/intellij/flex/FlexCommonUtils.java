@@ -41,6 +41,7 @@ import org.jetbrains.jps.model.serialization.JpsModelSerializationDataService;
 import org.jetbrains.jps.util.JpsPathUtil;
 
 import java.io.*;
+import java.lang.management.ManagementFactory;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.util.*;
@@ -131,6 +132,23 @@ public class FlexCommonUtils {
 
 
   @Nullable
+  /**
+   * How many compiler processes with the given heap size fit into physical memory next to the current process. Total memory is taken,
+   * not free memory, which is mostly page cache on a healthy machine and may be close to zero.
+   *
+   * @return at least 1, {@link Integer#MAX_VALUE} if the size of physical memory is unknown
+   */
+  public static int getMaxCompilerProcessesByMemory(final int heapSizeMb) {
+    final java.lang.management.OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+    if (heapSizeMb <= 0 || !(osBean instanceof com.sun.management.OperatingSystemMXBean)) return Integer.MAX_VALUE;
+
+    final long totalMemory = ((com.sun.management.OperatingSystemMXBean)osBean).getTotalPhysicalMemorySize();
+    if (totalMemory <= 0) return Integer.MAX_VALUE;
+
+    final long availableMb = (totalMemory - Runtime.getRuntime().maxMemory()) / (1024 * 1024);
+    return (int)Math.max(1, Math.min(Integer.MAX_VALUE, availableMb / heapSizeMb));
+  }
+
   public static String getBCSpecifier(final JpsFlexBuildConfiguration bc) {
     if (!bc.isTempBCForCompilation()) return null;
     if (isFlexUnitBC(bc)) return "flexunit";
@@ -5,13 +5,13 @@ import com.intellij.flex.FlexCommonUtils;
 import com.intellij.flex.model.JpsFlexProjectLevelCompilerOptionsExtension;
 import com.intellij.flex.model.bc.*;
 import com.intellij.flex.model.sdk.JpsFlexmojosSdkType;
-import com.intellij.flex.model.sdk.RslUtil;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.JDOMUtil;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.CharsetToolkit;
 import com.intellij.util.PathUtilRt;
 import com.intellij.util.Processor;
 import com.intellij.util.SystemProperties;
@@ -52,12 +52,15 @@ public class CompilerConfigGeneratorRt {
   private final JpsFlexModuleOrProjectCompilerOptions myModuleLevelCompilerOptions;
   private final JpsFlexModuleOrProjectCompilerOptions myProjectLevelCompilerOptions;
   private final ProjectDescriptor myProjectDescriptor;
+  private final SdkConfigFragments mySdkFragments;
 
   private CompilerConfigGeneratorRt(final @NotNull JpsFlexBuildConfiguration bc,
                                     final @NotNull JpsFlexModuleOrProjectCompilerOptions moduleLevelCompilerOptions,
                                     final @NotNull JpsFlexModuleOrProjectCompilerOptions projectLevelCompilerOptions,
-                                    final @NotNull ProjectDescriptor projectDescriptor) throws IOException {
+                                    final @NotNull ProjectDescriptor projectDescriptor,
+                                    final @NotNull SdkConfigFragments sdkFragments) throws IOException {
     myProjectDescriptor = projectDescriptor;
+    mySdkFragments = sdkFragments;
     myModule = bc.getModule();
     myBC = bc;
     myFlexUnit = FlexCommonUtils.isFlexUnitBC(myBC);
@@ -73,12 +76,19 @@ public class CompilerConfigGeneratorRt {
 
   public static File getOrCreateConfigFile(final JpsFlexBuildConfiguration bc,
                                            final ProjectDescriptor projectDescriptor) throws IOException {
+    return getOrCreateConfigFile(bc, projectDescriptor, new SdkConfigFragments());
+  }
+
+  public static File getOrCreateConfigFile(final JpsFlexBuildConfiguration bc,
+                                           final ProjectDescriptor projectDescriptor,
+                                           final SdkConfigFragments sdkFragments) throws IOException {
     final CompilerConfigGeneratorRt generator =
       new CompilerConfigGeneratorRt(bc,
                                     bc.getModule().getProperties().getModuleLevelCompilerOptions(),
                                     JpsFlexProjectLevelCompilerOptionsExtension
                                       .getProjectLevelCompilerOptions(bc.getModule().getProject()),
-                                    projectDescriptor);
+                                    projectDescriptor,
+                                    sdkFragments);
     String text = generator.generateConfigFileText();
 
     if (bc.isTempBCForCompilation()) {
@@ -314,34 +324,12 @@ public class CompilerConfigGeneratorRt {
       addOption(rootElement, info, swcPath);
 
       if (linkageType == LinkageType.RSL) {
-        final List<String> rslUrls = RslUtil.getRslUrls(mySdk.getHomePath(), swcPath);
-        if (rslUrls.isEmpty()) continue;
-
-        final StringBuilder rslBuilder = new StringBuilder();
-        final String firstUrl = rslUrls.get(0);
-        rslBuilder
-          .append(swcPath)
-          .append(CompilerOptionInfo.LIST_ENTRY_PARTS_SEPARATOR)
-          .append(firstUrl)
-          .append(CompilerOptionInfo.LIST_ENTRY_PARTS_SEPARATOR);
-        if (firstUrl.startsWith("http://")) {
-          rslBuilder.append("http://fpdownload.adobe.com/pub/swz/crossdomain.xml");
-        }
-
-        if (rslUrls.size() > 1) {
-          final String secondUrl = rslUrls.get(1);
-          rslBuilder
-            .append(CompilerOptionInfo.LIST_ENTRY_PARTS_SEPARATOR)
-            .append(secondUrl)
-            .append(CompilerOptionInfo.LIST_ENTRY_PARTS_SEPARATOR);
-          if (secondUrl.startsWith("http://")) {
-            rslBuilder.append("http://fpdownload.adobe.com/pub/swz/crossdomain.xml");
-          }
-        }
+        final String rslInfo = mySdkFragments.getRslInfo(mySdk.getHomePath(), swcPath);
+        if (rslInfo == null) continue;
 
         final String swcName = PathUtilRt.getFileName(swcPath);
         final String libName = swcName.substring(0, swcName.length() - ".swc".length());
-        libNameToRslInfo.put(libName, rslBuilder.toString());
+        libNameToRslInfo.put(libName, rslInfo);
       }
     }
 
@@ -740,21 +728,27 @@ public class CompilerConfigGeneratorRt {
     final File tempFolder = new File(FlexCommonUtils.getTempFlexConfigsDirPath());
     final File configFile = new File(tempFolder, fileName);
 
-    /*
+    // keep timestamp of unchanged config file, otherwise compiler may consider its previous output outdated
+    final String digest = FlexCompilerConfigFileUtilBase.getContentDigest(text);
+    if (FlexCompilerConfigFileUtilBase.isConfigFileUpToDate(configFile, digest)) {
+      return configFile;
+    }
+
     try {
-      if (configFile.isFile() && Arrays.equals(textBytes, FileUtil.loadFileBytes(configFile))) {
+      if (configFile.isFile() && text.equals(FileUtil.loadFile(configFile, CharsetToolkit.UTF8))) {
+        FlexCompilerConfigFileUtilBase.rememberConfigFileContent(configFile, digest);
         return configFile;
       }
     }
     catch (IOException ignore) {
     }
-    */
 
     // configFile.isDirectory() check is required because folder could be created by a parallel process
     if (!FileUtil.createDirectory(tempFolder) && !tempFolder.isDirectory()) {
       throw new IOException("Failed to create folder " + configFile.getParent());
     }
     FileUtil.writeToFile(configFile, text);
+    FlexCompilerConfigFileUtilBase.rememberConfigFileContent(configFile, digest);
 
     return configFile;
   }
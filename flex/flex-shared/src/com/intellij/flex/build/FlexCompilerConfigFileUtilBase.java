@@ -1,7 +1,10 @@
 package com.intellij.flex.build;
 
 import com.intellij.openapi.util.JDOMUtil;
+import com.intellij.openapi.util.Trinity;
 import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.CharsetToolkit;
 import com.intellij.util.ArrayUtil;
 import gnu.trove.THashSet;
 import org.jdom.Attribute;
@@ -11,9 +14,13 @@ import org.jdom.Namespace;
 
 import java.io.File;
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class FlexCompilerConfigFileUtilBase {
   public static final String FLEX_CONFIG = "flex-config";
@@ -46,6 +53,33 @@ public class FlexCompilerConfigFileUtilBase {
       "defaults-css-url", "debug", "target-player", "swf-version", "static-link-runtime-shared-libraries",
       "date", "title", "language", "contributor", "creator", "publisher", "description", "manager-class"};
 
+  // generated config file path -> digest of the text written there, file length and timestamp right after writing
+  private static final Map<String, Trinity<String, Long, Long>> ourWrittenConfigFiles = new ConcurrentHashMap<>();
+
+  public static String getContentDigest(final String text) {
+    try {
+      return StringUtil.toHexString(MessageDigest.getInstance("SHA-1").digest(text.getBytes(CharsetToolkit.UTF8_CHARSET)));
+    }
+    catch (NoSuchAlgorithmException e) {
+      return text; // SHA-1 is always available, but the text itself works as well
+    }
+  }
+
+  /**
+   * @return <code>true</code> if the file has been written in this process with the text having the same digest and not changed since
+   */
+  public static boolean isConfigFileUpToDate(final File configFile, final String digest) {
+    final Trinity<String, Long, Long> written = ourWrittenConfigFiles.get(configFile.getPath());
+    return written != null &&
+           written.first.equals(digest) &&
+           written.second == configFile.length() &&
+           written.third == configFile.lastModified();
+  }
+
+  public static void rememberConfigFileContent(final File configFile, final String digest) {
+    ourWrittenConfigFiles.put(configFile.getPath(), Trinity.create(digest, configFile.length(), configFile.lastModified()));
+  }
+
   public static String mergeWithCustomConfigFile(final String generatedConfigText,
                                                  final String additionalConfigFilePath,
                                                  final boolean makeExternalLibsMerged,
@@ -0,0 +1,65 @@
+package com.intellij.flex.build;
+
+import com.intellij.flex.model.bc.CompilerOptionInfo;
+import com.intellij.flex.model.sdk.RslUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Parts of generated compiler config files that depend on the Flex SDK only. One instance is shared by config generators
+ * of all build configurations compiled in one build (possibly in parallel), so it must not outlive the build.
+ */
+public class SdkConfigFragments {
+  private static final String CROSSDOMAIN_XML_URL = "http://fpdownload.adobe.com/pub/swz/crossdomain.xml";
+
+  private final ConcurrentMap<String, String> mySwcPathToRslInfo = new ConcurrentHashMap<>();
+
+  /**
+   * @return value of the <code>runtime-shared-library-path</code> option for the SDK library, or <code>null</code> if it can't be an RSL
+   */
+  @Nullable
+  public String getRslInfo(@NotNull final String sdkHome, @NotNull final String swcPath) {
+    final String key = sdkHome + "|" + swcPath;
+    String rslInfo = mySwcPathToRslInfo.get(key);
+    if (rslInfo == null) {
+      final String computed = computeRslInfo(sdkHome, swcPath);
+      rslInfo = computed == null ? "" : computed;
+      mySwcPathToRslInfo.putIfAbsent(key, rslInfo);
+    }
+    return rslInfo.isEmpty() ? null : rslInfo;
+  }
+
+  @Nullable
+  private static String computeRslInfo(final String sdkHome, final String swcPath) {
+    final List<String> rslUrls = RslUtil.getRslUrls(sdkHome, swcPath);
+    if (rslUrls.isEmpty()) return null;
+
+    final StringBuilder rslBuilder = new StringBuilder();
+    final String firstUrl = rslUrls.get(0);
+    rslBuilder
+      .append(swcPath)
+      .append(CompilerOptionInfo.LIST_ENTRY_PARTS_SEPARATOR)
+      .append(firstUrl)
+      .append(CompilerOptionInfo.LIST_ENTRY_PARTS_SEPARATOR);
+    if (firstUrl.startsWith("http://")) {
+      rslBuilder.append(CROSSDOMAIN_XML_URL);
+    }
+
+    if (rslUrls.size() > 1) {
+      final String secondUrl = rslUrls.get(1);
+      rslBuilder
+        .append(CompilerOptionInfo.LIST_ENTRY_PARTS_SEPARATOR)
+        .append(secondUrl)
+        .append(CompilerOptionInfo.LIST_ENTRY_PARTS_SEPARATOR);
+      if (secondUrl.startsWith("http://")) {
+        rslBuilder.append(CROSSDOMAIN_XML_URL);
+      }
+    }
+
+    return rslBuilder.toString();
+  }
+}
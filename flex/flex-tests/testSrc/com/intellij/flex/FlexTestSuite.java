@@ -1,9 +1,11 @@
 package com.intellij.flex;
 
 import com.intellij.flex.bc.FlexCompilerConfigTest;
+import com.intellij.flex.bc.FlexCompilerDependenciesCacheTest;
 import com.intellij.flex.bc.FlexProjectConfigTest;
 import com.intellij.flex.codeInsight.*;
 import com.intellij.flex.completion.*;
+import com.intellij.flex.debugger.FdbOutputScannerTest;
 import com.intellij.flex.editor.FlexEditorTest;
 import com.intellij.flex.editor.FlexExtendSelectionTest;
 import com.intellij.flex.editor.FlexLiveTemplatesTest;
@@ -11,6 +13,7 @@ import com.intellij.flex.flashBuilder.FlashBuilderImportTest;
 import com.intellij.flex.flexunit.codeInsight.FlexUnitCompletionTest;
 import com.intellij.flex.flexunit.codeInsight.FlexUnitConfigurationTest;
 import com.intellij.flex.flexunit.codeInsight.FlexUnitHighlightingTest;
+import com.intellij.flex.flexunit.codeInsight.FlexUnitTestIndexTest;
 import com.intellij.flex.formatter.ActionScriptFormatterTest;
 import com.intellij.flex.generate.ActionScriptGenerateTest;
 import com.intellij.flex.highlighting.*;
@@ -24,6 +27,7 @@ import com.intellij.flex.parser.ActionScriptParsingTest;
 import com.intellij.flex.parser.FlexImporterTest;
 import com.intellij.flex.projectView.FlexProjectViewTest;
 import com.intellij.flex.refactoring.*;
+import com.intellij.flex.resolver.ActionScriptClassResolverCacheTest;
 import com.intellij.flex.resolver.ActionScriptResolveTest;
 import com.intellij.flex.resolver.FlexCssNavigationTest;
 import com.intellij.flex.uml.FlashUmlTest;
@@ -39,6 +43,7 @@ public class FlexTestSuite extends TestCase {
 
     // com.intellij.flex.bc.*
     testSuite.addTestSuite(FlexCompilerConfigTest.class);
+    testSuite.addTestSuite(FlexCompilerDependenciesCacheTest.class);
     testSuite.addTestSuite(FlexProjectConfigTest.class);
 
     // com.intellij.flex.codeInsight.*
@@ -59,6 +64,9 @@ public class FlexTestSuite extends TestCase {
     testSuite.addTestSuite(FlexCompletionTest.class);
     testSuite.addTestSuite(FlexCssCompletionTest.class);
 
+    // com.intellij.flex.debugger.*
+    testSuite.addTestSuite(FdbOutputScannerTest.class);
+
     //com.intellij.flex.editor.*
     testSuite.addTestSuite(FlexEditorTest.class);
     testSuite.addTestSuite(FlexExtendSelectionTest.class);
@@ -71,6 +79,7 @@ public class FlexTestSuite extends TestCase {
     testSuite.addTestSuite(FlexUnitConfigurationTest.class);
     testSuite.addTestSuite(FlexUnitHighlightingTest.class);
     testSuite.addTestSuite(FlexUnitCompletionTest.class);
+    testSuite.addTestSuite(FlexUnitTestIndexTest.class);
 
     //com.intellij.flex.formatter.*
     testSuite.addTestSuite(ActionScriptFormatterTest.class);
@@ -130,6 +139,7 @@ public class FlexTestSuite extends TestCase {
     testSuite.addTestSuite(FlexRenameTest.class);
 
     //com.intellij.flex.resolver.*
+    testSuite.addTestSuite(ActionScriptClassResolverCacheTest.class);
     testSuite.addTestSuite(ActionScriptResolveTest.class);
     testSuite.addTestSuite(FlexCssNavigationTest.class);
 
@@ -0,0 +1,138 @@
+package com.intellij.flex.bc;
+
+import com.intellij.flex.util.FlexTestUtils;
+import com.intellij.lang.javascript.flex.FlexModuleType;
+import com.intellij.lang.javascript.flex.build.FlexCompilerDependenciesCache;
+import com.intellij.lang.javascript.flex.build.FlexCompilerProjectConfiguration;
+import com.intellij.lang.javascript.flex.projectStructure.model.FlexBuildConfiguration;
+import com.intellij.lang.javascript.flex.projectStructure.model.FlexBuildConfigurationManager;
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleType;
+import com.intellij.openapi.projectRoots.Sdk;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.PlatformTestCase;
+import com.intellij.testFramework.PsiTestUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+public class FlexCompilerDependenciesCacheTest extends PlatformTestCase {
+  private static final String CONFIG_TEXT = "<flex-config><compiler><source-path/></compiler></flex-config>";
+
+  private VirtualFile mySourceRoot;
+  private VirtualFile myConfigFile;
+
+  @Override
+  protected ModuleType getModuleType() {
+    return FlexModuleType.getInstance();
+  }
+
+  @NotNull
+  @Override
+  protected Module createMainModule() throws IOException {
+    final Module module = super.createMainModule();
+    new WriteCommandAction.Simple(myProject) {
+      @Override
+      protected void run() throws Throwable {
+        VirtualFile moduleDir = module.getModuleFile().getParent();
+        mySourceRoot = moduleDir.createChildDirectory(this, "src");
+        PsiTestUtil.addContentRoot(module, moduleDir);
+        PsiTestUtil.addSourceRoot(module, mySourceRoot);
+      }
+    }.execute();
+    return module;
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+
+    final File outputDir = createTempDirectory();
+    FileUtil.writeToFile(new File(outputDir, "Main.swf"), "swf");
+    final File configFile = new File(outputDir, "Main-config.xml");
+    FileUtil.writeToFile(configFile, CONFIG_TEXT);
+    myConfigFile = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(configFile);
+
+    final Sdk sdk = FlexTestUtils.createSdk(FlexTestUtils.getPathToMockFlex(getClass(), getTestName(false)), "3.4.0",
+                                            getTestRootDisposable());
+    FlexTestUtils.modifyBuildConfiguration(myModule, bc -> {
+      FlexTestUtils.setSdk(bc, sdk);
+      bc.setMainClass("Main");
+      bc.setOutputFolder(outputDir.getPath());
+      bc.setOutputFileName("Main.swf");
+    });
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      new FlexCompilerDependenciesCache(myProject).clear();
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  private FlexBuildConfiguration getBC() {
+    return FlexBuildConfigurationManager.getInstance(myModule).getActiveConfiguration();
+  }
+
+  private void compile() {
+    final FlexCompilerDependenciesCache cache = new FlexCompilerDependenciesCache(myProject);
+    cache.cacheBC(myModule, getBC(), Collections.singletonList(myConfigFile), CONFIG_TEXT);
+    cache.save();
+  }
+
+  private boolean isUpToDateAfterRestart() {
+    return new FlexCompilerDependenciesCache(myProject).isNothingChangedSincePreviousCompilation(myModule, getBC(), CONFIG_TEXT);
+  }
+
+  public void testUpToDateAfterRestart() {
+    compile();
+    assertTrue(isUpToDateAfterRestart());
+    assertFalse(new FlexCompilerDependenciesCache(myProject)
+                  .isNothingChangedSincePreviousCompilation(myModule, getBC(), CONFIG_TEXT.replace("<source-path/>", "")));
+  }
+
+  public void testBCAdditionalOptionsChanged() {
+    compile();
+    FlexTestUtils.modifyBuildConfiguration(myModule, bc -> bc.getCompilerOptions().setAdditionalOptions("-debug=true"));
+    assertFalse(isUpToDateAfterRestart());
+
+    compile();
+    assertTrue(isUpToDateAfterRestart());
+  }
+
+  public void testCompilerChanged() {
+    compile();
+    final FlexCompilerProjectConfiguration configuration = FlexCompilerProjectConfiguration.getInstance(myProject);
+    final boolean useMxmlcCompc = configuration.USE_MXMLC_COMPC;
+    try {
+      configuration.USE_MXMLC_COMPC = !useMxmlcCompc;
+      assertFalse(isUpToDateAfterRestart());
+    }
+    finally {
+      configuration.USE_MXMLC_COMPC = useMxmlcCompc;
+    }
+  }
+
+  public void testSourceChangedBeforeRestart() throws IOException {
+    compile();
+    final VirtualFile source = WriteAction.compute(() -> mySourceRoot.createChildData(this, "Main.as"));
+    // what FlexCompilerHandler does on a VFS event
+    new FlexCompilerDependenciesCache(myProject).markModuleDirtyIfInSourceRoot(source);
+    assertFalse(isUpToDateAfterRestart());
+  }
+
+  public void testClearDeletesStore() {
+    compile();
+    new FlexCompilerDependenciesCache(myProject).clear();
+    assertFalse(isUpToDateAfterRestart());
+  }
+}
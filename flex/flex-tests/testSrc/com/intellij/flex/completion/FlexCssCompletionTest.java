@@ -199,6 +199,15 @@ public class FlexCssCompletionTest extends BaseJSCompletionTestCase {
     doTestForFiles(vFiles, "", "css");
   }
 
+  @JSTestOptions({JSTestOption.WithCssSupportLoader, JSTestOption.WithFlexFacet, JSTestOption.WithJsSupportLoader})
+  public void testStylesFilteredByModuleScope() throws Exception {
+    // the class with the same name in a module that isn't a dependency declares another style, it must not be completed
+    FlexTestUtils.createModule(myProject, "module2", getVirtualFile(getBasePath() + getTestName(false) + "_other_module"));
+    String prefix = this.getBasePath() + getTestName(false);
+    final VirtualFile[] vFiles = new VirtualFile[]{getVirtualFile(prefix + "." + "css"), getVirtualFile(prefix + "." + "mxml")};
+    doTestForFiles(vFiles, "", "css");
+  }
+
   @JSTestOptions({JSTestOption.WithJsSupportLoader, JSTestOption.WithFlexFacet})
   public void _testClassReferenceCompletion() throws Exception {
     configureByFiles(null, FlexCompletionTest.BASE_PATH + getTestName(false) + ".css");
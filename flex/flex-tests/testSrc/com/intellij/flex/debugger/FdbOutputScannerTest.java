@@ -0,0 +1,62 @@
+package com.intellij.flex.debugger;
+
+import com.intellij.lang.javascript.flex.debug.FdbOutputScanner;
+import com.intellij.testFramework.PlatformTestUtil;
+import junit.framework.TestCase;
+
+public class FdbOutputScannerTest extends TestCase {
+
+  public void testResponsesSplitByPrompt() {
+    final FdbOutputScanner scanner = new FdbOutputScanner(4);
+    scanner.append("Adobe fdb (Flash Player Debugger)\n(fd");
+    assertNull(scanner.nextResponse(false));
+
+    scanner.append("b) $1 = 10\n(fdb) ");
+    final CharSequence first = scanner.nextResponse(false);
+    assertEquals("Adobe fdb (Flash Player Debugger)\n", String.valueOf(first));
+    assertTrue(scanner.isPromptReached());
+    assertEquals("$1 = 10\n", String.valueOf(scanner.nextResponse(false)));
+    assertNull(scanner.nextResponse(false));
+
+    scanner.append("Do you want to attempt to halt execution? (y or n)");
+    assertEquals("Do you want to attempt to halt execution? ", String.valueOf(scanner.nextResponse(false)));
+    // earlier responses are not affected by buffer reallocation
+    assertEquals("Adobe fdb (Flash Player Debugger)\n", String.valueOf(first));
+  }
+
+  public void testResponseWithoutPrompt() {
+    final FdbOutputScanner scanner = new FdbOutputScanner();
+    scanner.append("[trace] hello");
+    assertNull(scanner.nextResponse(false));
+    assertEquals("[trace] hello", String.valueOf(scanner.nextResponse(true)));
+    assertFalse(scanner.isPromptReached());
+
+    scanner.append("Waiting for Player to connect");
+    assertEquals("Waiting for Player to connect", String.valueOf(scanner.nextResponse(false)));
+  }
+
+  public void testShowFilesTranscriptPerformance() {
+    final StringBuilder transcript = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      transcript.append(i).append(" C:\\work\\flex_projects\\App\\src\\pkg").append(i % 100).append("\\File").append(i)
+        .append(".as, File").append(i).append(".as (Main Thread)\n");
+    }
+    transcript.append("(fdb) ");
+    for (int i = 0; i < 2000; i++) {
+      transcript.append("$").append(i).append(" = [Object 1234").append(i).append(", class='Foo']\n(fdb) ");
+    }
+    final char[] chars = transcript.toString().toCharArray();
+
+    PlatformTestUtil.startPerformanceTest("fdb output scanning", 1000, () -> {
+      for (int iteration = 0; iteration < 10; iteration++) {
+        final FdbOutputScanner scanner = new FdbOutputScanner();
+        int responses = 0;
+        for (int offset = 0; offset < chars.length; offset += 8192) {
+          scanner.append(chars, offset, Math.min(8192, chars.length - offset));
+          while (scanner.nextResponse(false) != null) responses++;
+        }
+        assertEquals(2001, responses);
+      }
+    }).assertTiming();
+  }
+}
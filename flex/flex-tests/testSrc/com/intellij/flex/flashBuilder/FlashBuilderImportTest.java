@@ -981,4 +981,47 @@ public class FlashBuilderImportTest extends IdeaTestCase {
     assertEquals("en_US", bc.getCompilerOptions().getOption("compiler.locale"));
     assertEquals(expectedTheme, bc.getCompilerOptions().getOption("compiler.theme"));
   }
+
+  private File createIoProject(final String relativePath, final String name, final boolean withActionScriptProperties) throws IOException {
+    final File dir = new File(myFlashBuilderProjectDir.getPath(), relativePath);
+    final File dotProjectFile = new File(dir, FlashBuilderImporter.DOT_PROJECT);
+    FileUtil.writeToFile(dotProjectFile, "<projectDescription><name>" + name + "</name></projectDescription>");
+    if (withActionScriptProperties) {
+      FileUtil.writeToFile(new File(dir, FlashBuilderImporter.DOT_ACTION_SCRIPT_PROPERTIES), "<actionScriptProperties/>");
+    }
+    return dotProjectFile;
+  }
+
+  public void testProjectSearchPruning() throws Exception {
+    final File project1 = createIoProject("a", "a", true);
+    createIoProject("a/nested", "nested", true);
+    createIoProject("b/bin-debug/p", "binDebug", true);
+    createIoProject("b/bin-release/p", "binRelease", true);
+    createIoProject("b/node_modules/p", "nodeModules", true);
+    createIoProject(".hidden/p", "hidden", true);
+    createIoProject("e", "noActionScriptProperties", false);
+    final File project2 = createIoProject("c/d", "d", true);
+
+    final List<String> projectPaths = new ArrayList<>();
+    assertTrue(FlashBuilderProjectFinder.collectAllProjectPaths(myProject, projectPaths, myFlashBuilderProjectDir.getPath()));
+    assertOrderedEquals(projectPaths, project1.getPath(), project2.getPath());
+  }
+
+  public void testLoadProjectsKeepsOrder() throws Exception {
+    final List<String> paths = new ArrayList<>();
+    final List<String> expectedNames = new ArrayList<>();
+    for (int i = 9; i >= 0; i--) {
+      paths.add(createIoProject("p" + i, "p" + i, true).getPath());
+      expectedNames.add("p" + i);
+      if (i == 5) {
+        paths.add(new File(myFlashBuilderProjectDir.getPath(), "missing/" + FlashBuilderImporter.DOT_PROJECT).getPath());
+      }
+    }
+
+    final List<String> names = new ArrayList<>();
+    for (FlashBuilderProject project : FlashBuilderProjectLoadUtil.loadProjects(paths, false)) {
+      names.add(project.getName());
+    }
+    assertOrderedEquals(names, expectedNames);
+  }
 }
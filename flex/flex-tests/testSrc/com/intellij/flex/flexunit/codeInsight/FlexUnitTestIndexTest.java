@@ -0,0 +1,204 @@
+package com.intellij.flex.flexunit.codeInsight;
+
+import com.intellij.codeInsight.CodeInsightTestCase;
+import com.intellij.flex.model.bc.LinkageType;
+import com.intellij.flex.model.bc.OutputType;
+import com.intellij.flex.util.FlexTestUtils;
+import com.intellij.flex.util.FlexUnitLibs;
+import com.intellij.javascript.flex.css.FlexStylesIndexableSetContributor;
+import com.intellij.javascript.flex.resolve.ActionScriptClassResolver;
+import com.intellij.lang.javascript.JSTestOption;
+import com.intellij.lang.javascript.JSTestOptions;
+import com.intellij.lang.javascript.flex.FlexModuleType;
+import com.intellij.lang.javascript.flex.flexunit.FlexUnitSupport;
+import com.intellij.lang.javascript.flex.projectStructure.model.ModifiableBuildConfigurationEntry;
+import com.intellij.lang.javascript.flex.projectStructure.model.ModifiableFlexBuildConfiguration;
+import com.intellij.lang.javascript.index.JSPackageIndex;
+import com.intellij.lang.javascript.index.JSPackageIndexInfo;
+import com.intellij.lang.javascript.psi.ecmal4.JSClass;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleType;
+import com.intellij.openapi.roots.ModuleRootModificationUtil;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.newvfs.impl.VfsRootAccess;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.testFramework.PsiTestUtil;
+import gnu.trove.THashMap;
+import gnu.trove.THashSet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import static com.intellij.openapi.vfs.VfsUtilCore.convertFromUrl;
+import static com.intellij.openapi.vfs.VfsUtilCore.urlToPath;
+
+public class FlexUnitTestIndexTest extends CodeInsightTestCase implements FlexUnitLibs {
+
+  @Override
+  protected void setUp() throws Exception {
+    VfsRootAccess.allowRootAccess(getTestRootDisposable(),
+                                  urlToPath(convertFromUrl(FlexStylesIndexableSetContributor.class.getResource("FlexStyles.as"))));
+    super.setUp();
+  }
+
+  @Override
+  protected String getTestDataPath() {
+    return FlexTestUtils.getTestDataPath("flexUnit");
+  }
+
+  @Override
+  protected ModuleType getModuleType() {
+    return FlexModuleType.getInstance();
+  }
+
+  @Override
+  protected void setUpJdk() {
+    FlexTestUtils.setupFlexSdk(myModule, getTestName(false), getClass(), getTestRootDisposable());
+  }
+
+  private void createSources(final Map<String, String> files) throws IOException {
+    createSources(myModule, files);
+  }
+
+  private void createSources(final Module module, final Map<String, String> files) throws IOException {
+    final File root = createTempDirectory();
+    for (Map.Entry<String, String> entry : files.entrySet()) {
+      FileUtil.writeToFile(new File(root, entry.getKey()), entry.getValue());
+    }
+
+    final VirtualFile rootFile = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(root);
+    assertNotNull(rootFile);
+    PsiTestUtil.addSourceRoot(module, rootFile);
+    FlexTestUtils.addFlexUnitLib(getClass(), getTestName(false), module, getTestDataPath(), FLEX_UNIT_0_9_SWC, FLEX_UNIT_4_SWC);
+  }
+
+  private static String classText(final String packageName, final String classHeader, final String body) {
+    return "package " + packageName + " {\n" + classHeader + " {\n" + body + "\n}\n}\n";
+  }
+
+  // test classes found the way FlexUnitPrecompileTask did before FlexUnitTestIndex
+  private Map<String, Set<String>> findTestClassesByResolve(final String packageName, final FlexUnitSupport support) {
+    final GlobalSearchScope scope = GlobalSearchScope.moduleScope(myModule);
+    final Map<String, Set<String>> result = new THashMap<>();
+    JSPackageIndex.processElementsInScopeRecursive(packageName, new JSPackageIndex.PackageQualifiedElementsProcessor() {
+      public boolean process(String qualifiedName, JSPackageIndexInfo.Kind kind, boolean isPublic) {
+        if (kind == JSPackageIndexInfo.Kind.CLASS) {
+          PsiElement clazz = ActionScriptClassResolver.findClassByQNameStatic(qualifiedName, scope);
+          if (clazz instanceof JSClass && support.isTestClass((JSClass)clazz, false)) {
+            Set<String> customRunners = new THashSet<>();
+            support.collectCustomRunners(customRunners, (JSClass)clazz, null);
+            result.put(((JSClass)clazz).getQualifiedName(), customRunners);
+          }
+        }
+        return true;
+      }
+    }, scope, myProject);
+    return result;
+  }
+
+  private Map<String, Set<String>> findTestClassesByIndex(final String packageName, final FlexUnitSupport support) {
+    final Map<String, Set<String>> result = new THashMap<>();
+    for (Pair<String, Set<String>> pair : support.findTestClassesInPackage(packageName, myModule)) {
+      result.put(pair.first, pair.second);
+    }
+    return result;
+  }
+
+  @JSTestOptions({JSTestOption.WithFlexFacet, JSTestOption.WithFlexUnit1, JSTestOption.WithFlexUnit4})
+  public void testSameAsResolve() throws Exception {
+    final Map<String, String> files = new THashMap<>();
+    files.put("foo/Test1.as", classText("foo", "public class Test1", "[Test] public function a():void {}"));
+    files.put("foo/Ignored.as", classText("foo", "public class Ignored", "[Test] [Ignore] public function a():void {}"));
+    files.put("foo/Returns.as", classText("foo", "public class Returns", "[Test] public function a():int { return 0; }"));
+    files.put("foo/StaticTest.as", classText("foo", "public class StaticTest", "[Test] public static function a():void {}"));
+    files.put("foo/WithParams.as",
+              classText("foo", "public class WithParams", "public function WithParams(p:int) {}\n[Test] public function a():void {}"));
+    files.put("foo/Internal.as", classText("foo", "internal class Internal", "[Test] public function a():void {}"));
+    files.put("foo/Runner.as",
+              classText("foo", "[RunWith(\"org.flexunit.runners.Parameterized\")]\npublic class Runner", "public function a():void {}"));
+    files.put("foo/EmptyRunner.as", classText("foo", "[RunWith(\"\")]\npublic class EmptyRunner", "public function a():void {}"));
+    files.put("foo/bar/FlexUnit1.as",
+              classText("foo.bar", "import flexunit.framework.TestCase;\npublic class FlexUnit1 extends TestCase", "public function testA():void {}"));
+    files.put("foo/bar/Plain.as", classText("foo.bar", "public class Plain", "public function a():void {}"));
+    files.put("foo/bar/Suite1.as",
+              classText("foo.bar", "[Suite]\n[RunWith(\"org.flexunit.runners.Suite\")]\npublic class Suite1",
+                        "public var t:foo.Runner;\n[Test] public function a():void {}"));
+    files.put("other/Test2.as", classText("other", "public class Test2", "[Test] public function a():void {}"));
+    createSources(files);
+
+    final FlexUnitSupport support = FlexUnitSupport.getSupport(myModule);
+    assertNotNull(support);
+
+    for (String packageName : new String[]{"foo", "foo.bar", "other", ""}) {
+      final Map<String, Set<String>> expected = findTestClassesByResolve(packageName, support);
+      assertFalse(packageName, expected.isEmpty());
+      assertEquals(packageName, expected, findTestClassesByIndex(packageName, support));
+    }
+  }
+
+  @JSTestOptions({JSTestOption.WithFlexFacet, JSTestOption.WithFlexUnit1})
+  public void testFlexUnit1AncestorInDependency() throws Exception {
+    final Module module2 = FlexTestUtils.createModule(myProject, "module2", null);
+    final Map<String, String> baseFiles = new THashMap<>();
+    baseFiles.put("base/BaseTestCase.as",
+                  classText("base", "import flexunit.framework.TestCase;\npublic class BaseTestCase extends TestCase", "public function testBase():void {}"));
+    createSources(module2, baseFiles);
+
+    final Map<String, String> files = new THashMap<>();
+    files.put("foo/Derived.as",
+              classText("foo", "import base.BaseTestCase;\npublic class Derived extends BaseTestCase", "public function testA():void {}"));
+    files.put("foo/Plain.as", classText("foo", "public class Plain", "public function testA():void {}"));
+    createSources(files);
+
+    ModuleRootModificationUtil.addDependency(myModule, module2);
+    FlexTestUtils.modifyConfigs(myProject, editor -> {
+      final ModifiableFlexBuildConfiguration dependentBc = editor.getConfigurations(myModule)[0];
+      final ModifiableFlexBuildConfiguration dependencyBc = editor.getConfigurations(module2)[0];
+      dependencyBc.setOutputType(OutputType.Library);
+      final ModifiableBuildConfigurationEntry entry = editor.createBcEntry(dependentBc.getDependencies(), dependencyBc, null);
+      entry.getDependencyType().setLinkageType(LinkageType.Merged);
+      dependentBc.getDependencies().getModifiableEntries().add(entry);
+    });
+
+    final FlexUnitSupport support = FlexUnitSupport.getSupport(myModule);
+    assertNotNull(support);
+
+    // the inheritors search has to pass through BaseTestCase, which is not in the module, but test classes of the dependency are not ours
+    final Map<String, Set<String>> expected = findTestClassesByResolve("", support);
+    assertEquals(expected.keySet().toString(), 1, expected.size());
+    assertTrue(expected.containsKey("foo.Derived"));
+    assertEquals(expected, findTestClassesByIndex("", support));
+  }
+
+  @JSTestOptions({JSTestOption.WithFlexFacet, JSTestOption.WithFlexUnit4})
+  public void testPackageDiscoveryPerformance() throws Exception {
+    final int classCount = 3000;
+    final Map<String, String> files = new THashMap<>();
+    for (int i = 0; i < classCount; i++) {
+      final String packageName = "perf.p" + i % 30;
+      final String body = i % 3 == 0
+                          ? "[Test] public function a():void {}\n[Test] public function b():void {}"
+                          : "public function a():void {}\npublic function b():int { return 1; }";
+      files.put(packageName.replace('.', '/') + "/C" + i + ".as", classText(packageName, "public class C" + i, body));
+    }
+    createSources(files);
+
+    final FlexUnitSupport support = FlexUnitSupport.getSupport(myModule);
+    assertNotNull(support);
+    assertEquals(classCount / 3, findTestClassesByIndex("perf", support).size());
+
+    PlatformTestUtil.startPerformanceTest("FlexUnit package test discovery", 500, () -> {
+      final Collection<Pair<String, Set<String>>> classes =
+        support.findTestClassesInPackage("perf", myModule);
+      assertEquals(classCount / 3, classes.size());
+    }).assertTiming();
+  }
+}
@@ -2,13 +2,22 @@ package com.intellij.flex.highlighting;
 
 import com.intellij.flex.util.ActionScriptDaemonAnalyzerTestCase;
 import com.intellij.flex.util.FlexTestUtils;
+import com.intellij.javascript.flex.mxml.schema.CodeContext;
+import com.intellij.javascript.flex.mxml.schema.CodeContextHolder;
 import com.intellij.lang.javascript.JSTestOption;
 import com.intellij.lang.javascript.JSTestOptions;
 import com.intellij.lang.javascript.flex.FlexModuleType;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.module.ModuleType;
 import com.intellij.testFramework.PlatformTestUtil;
 import com.intellij.util.ProfilingUtil;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+
 public class FlexHighlightingPerformanceTest extends ActionScriptDaemonAnalyzerTestCase {
   @Override
   protected void setUpJdk() {
@@ -44,6 +53,58 @@ public class FlexHighlightingPerformanceTest extends ActionScriptDaemonAnalyzerT
     }
   }
 
+  @JSTestOptions({JSTestOption.WithFlexFacet, JSTestOption.WithJsSupportLoader})
+  public void testConcurrentCodeContextLookup() throws Exception {
+    doTestFor(true, "Performance.mxml", "UsingSwcStubs2.swc");
+
+    final CodeContextHolder holder = CodeContextHolder.getInstance(myProject);
+    final Collection<String> namespaces = holder.getNamespaces(myModule);
+    assertFalse(namespaces.isEmpty());
+
+    final int threads = Runtime.getRuntime().availableProcessors() * 2;
+    PlatformTestUtil.startPerformanceTest("Concurrent MXML CodeContext lookup", 3000, () -> {
+      holder.dropContexts();
+      final int buildsBefore = holder.getBuildCount();
+      final CountDownLatch start = new CountDownLatch(1);
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(ApplicationManager.getApplication().executeOnPooledThread(
+          () -> ApplicationManager.getApplication().runReadAction(() -> {
+            try {
+              start.await();
+            }
+            catch (InterruptedException e) {
+              throw new RuntimeException(e);
+            }
+            for (int j = 0; j < 20000; j++) {
+              for (String namespace : namespaces) {
+                final CodeContext context = CodeContext.getContext(namespace, myModule);
+                assertTrue(context.getAllDescriptorsSize() > 0);
+              }
+            }
+          })));
+      }
+      start.countDown();
+      waitFor(futures);
+
+      // each namespace and the standard contexts of the module are built once by the thread that came first; a thread that is
+      // building one namespace builds the standard contexts on its own rather than waits, so these may be built once per namespace
+      final int builds = holder.getBuildCount() - buildsBefore;
+      assertTrue(String.valueOf(builds), builds > 0 && builds <= 2 * namespaces.size() + 1);
+    }).usesAllCPUCores().assertTiming();
+  }
+
+  private static void waitFor(final List<Future<?>> futures) {
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      }
+      catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
   @Override
   protected ModuleType getModuleType() {
     return FlexModuleType.getInstance();
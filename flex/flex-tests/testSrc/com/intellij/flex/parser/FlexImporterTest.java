@@ -11,6 +11,8 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.Arrays;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -69,21 +71,22 @@ public class FlexImporterTest extends TestCase {
     doTestFor("hotbook.swf");
   }
 
-  private void doTestFor(final String fileName) throws IOException {
-    final File file = new File(getTestDataPath() + fileName);
-    final byte[] contents;
-
-    if (file.getName().endsWith(".swc")) {
-      final ZipFile zipFile = new ZipFile(file);
-      final ZipEntry zipEntry = zipFile.getEntry("library.swf");
-      final InputStream inputStream = zipFile.getInputStream(zipEntry);
-      contents = FileUtil.loadBytes(inputStream, (int)zipEntry.getSize());
-      inputStream.close();
-      zipFile.close();
-    }
-    else {
-      contents = FileUtil.loadFileBytes(file);
+  public final void testStreamingOutputOfTruncatedInput() throws Exception {
+    for (String fileName : new String[]{"builtin.abc", "employeedirectory.swf"}) {
+      final byte[] contents = loadContents(fileName);
+      final byte[] truncated = Arrays.copyOf(contents, contents.length / 2);
+      assertEquals(fileName, FlexImporter.buildInterfaceFromStream(new ByteArrayInputStream(truncated)), buildInterfaceStreaming(truncated));
     }
+  }
+
+  private static String buildInterfaceStreaming(final byte[] contents) throws IOException {
+    final StringWriter writer = new StringWriter();
+    final String errorText = FlexImporter.buildInterfaceFromStream(new ByteArrayInputStream(contents), writer);
+    return errorText != null ? errorText : writer.toString();
+  }
+
+  private void doTestFor(final String fileName) throws IOException {
+    final byte[] contents = loadContents(fileName);
 
     String result = FlexImporter.buildInterfaceFromStream(new ByteArrayInputStream(contents));
     String resultFileName = getTestDataPath() + fileName + ".txt";
@@ -93,6 +96,7 @@ public class FlexImporterTest extends TestCase {
         StringUtil.convertLineSeparators(FileUtil.loadFile(new File(resultFileName), CharsetToolkit.UTF8_CHARSET));
 
       assertEquals("interface stubs do not match", expected, result);
+      assertEquals("streamed interface stubs do not match", expected, buildInterfaceStreaming(contents));
 
       result = FlexImporter.dumpContentsFromStream(new ByteArrayInputStream(contents), getName().equals("testAbc"));
       resultFileName = getTestDataPath() + fileName + ".il";
@@ -110,6 +114,24 @@ public class FlexImporterTest extends TestCase {
     }
   }
 
+  private static byte[] loadContents(final String fileName) throws IOException {
+    final File file = new File(getTestDataPath() + fileName);
+    final byte[] contents;
+
+    if (file.getName().endsWith(".swc")) {
+      final ZipFile zipFile = new ZipFile(file);
+      final ZipEntry zipEntry = zipFile.getEntry("library.swf");
+      final InputStream inputStream = zipFile.getInputStream(zipEntry);
+      contents = FileUtil.loadBytes(inputStream, (int)zipEntry.getSize());
+      inputStream.close();
+      zipFile.close();
+    }
+    else {
+      contents = FileUtil.loadFileBytes(file);
+    }
+    return contents;
+  }
+
   public static String getTestDataPath() {
     return FlexTestUtils.getTestDataPath("flex_importer") + "/";
   }
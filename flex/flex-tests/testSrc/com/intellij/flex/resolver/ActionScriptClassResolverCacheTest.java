@@ -0,0 +1,117 @@
+package com.intellij.flex.resolver;
+
+import com.intellij.codeInsight.CodeInsightTestCase;
+import com.intellij.javascript.flex.css.FlexStylesIndexableSetContributor;
+import com.intellij.javascript.flex.resolve.ActionScriptClassResolver;
+import com.intellij.lang.javascript.flex.FlexModuleType;
+import com.intellij.lang.javascript.psi.ecmal4.JSClass;
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.module.ModuleType;
+import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.newvfs.impl.VfsRootAccess;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.testFramework.PsiTestUtil;
+
+import java.io.IOException;
+
+import static com.intellij.openapi.vfs.VfsUtilCore.convertFromUrl;
+import static com.intellij.openapi.vfs.VfsUtilCore.urlToPath;
+
+public class ActionScriptClassResolverCacheTest extends CodeInsightTestCase {
+  private VirtualFile mySourceRoot;
+
+  @Override
+  protected void setUp() throws Exception {
+    VfsRootAccess.allowRootAccess(getTestRootDisposable(),
+                                  urlToPath(convertFromUrl(FlexStylesIndexableSetContributor.class.getResource("FlexStyles.as"))));
+    super.setUp();
+    mySourceRoot = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(createTempDirectory());
+    assertNotNull(mySourceRoot);
+    PsiTestUtil.addSourceRoot(myModule, mySourceRoot);
+  }
+
+  @Override
+  protected ModuleType getModuleType() {
+    return FlexModuleType.getInstance();
+  }
+
+  private VirtualFile createSourceFile(final String relativePath, final String text) throws IOException {
+    return WriteAction.compute(() -> {
+      final int slash = relativePath.lastIndexOf('/');
+      final VirtualFile dir = slash == -1 ? mySourceRoot : VfsUtil.createDirectoryIfMissing(mySourceRoot, relativePath.substring(0, slash));
+      final VirtualFile file = dir.createChildData(this, relativePath.substring(slash + 1));
+      VfsUtil.saveText(file, text);
+      return file;
+    });
+  }
+
+  private GlobalSearchScope getScope() {
+    return GlobalSearchScope.moduleWithDependenciesAndLibrariesScope(myModule);
+  }
+
+  public void testCachedClass() throws Exception {
+    createSourceFile("foo/Foo.as", "package foo { public class Foo {} }");
+
+    final PsiElement clazz = ActionScriptClassResolver.findClassByQNameStatic("foo.Foo", getScope());
+    assertInstanceOf(clazz, JSClass.class);
+    final Ref<PsiElement> cached = ActionScriptClassResolver.getCachedResult("foo.Foo", getScope());
+    assertNotNull(cached);
+    assertSame(clazz, cached.get());
+    assertSame(clazz, ActionScriptClassResolver.findClassByQNameStatic("foo.Foo", getScope()));
+  }
+
+  public void testNotFoundIsCachedUntilClassIsCreated() throws Exception {
+    assertNull(ActionScriptClassResolver.findClassByQNameStatic("foo.Bar", getScope()));
+    final Ref<PsiElement> cached = ActionScriptClassResolver.getCachedResult("foo.Bar", getScope());
+    assertNotNull(cached);
+    assertNull(cached.get());
+
+    createSourceFile("foo/Bar.as", "package foo { public class Bar {} }");
+    assertInstanceOf(ActionScriptClassResolver.findClassByQNameStatic("foo.Bar", getScope()), JSClass.class);
+  }
+
+  public void testClassRenameInvalidatesCache() throws Exception {
+    final VirtualFile file = createSourceFile("foo/Foo.as", "package foo { public class Foo {} }");
+    assertInstanceOf(ActionScriptClassResolver.findClassByQNameStatic("foo.Foo", getScope()), JSClass.class);
+
+    editDocument(file, "package foo {", "package bar {");
+    assertNull(ActionScriptClassResolver.getCachedResult("foo.Foo", getScope()));
+    assertNull(ActionScriptClassResolver.findClassByQNameStatic("foo.Foo", getScope()));
+  }
+
+  public void testMxmlAttributeEditKeepsCache() throws Exception {
+    createSourceFile("foo/Foo.as", "package foo { public class Foo {} }");
+    final VirtualFile mxml = createSourceFile("Main.mxml", "<fx:Object xmlns:fx=\"http://ns.adobe.com/mxml/2009\" label=\"a\"/>");
+    final PsiElement clazz = ActionScriptClassResolver.findClassByQNameStatic("foo.Foo", getScope());
+    assertInstanceOf(clazz, JSClass.class);
+
+    editDocument(mxml, "label=\"a\"", "label=\"ab\"");
+    final Ref<PsiElement> cached = ActionScriptClassResolver.getCachedResult("foo.Foo", getScope());
+    assertNotNull(cached);
+    assertSame(clazz, cached.get());
+  }
+
+  public void testScopeCreatedPerCallIsNotCached() throws Exception {
+    final VirtualFile file = createSourceFile("foo/Foo.as", "package foo { public class Foo {} }");
+    final GlobalSearchScope scope = GlobalSearchScope.fileScope(myProject, file);
+    assertInstanceOf(ActionScriptClassResolver.findClassByQNameStatic("foo.Foo", scope), JSClass.class);
+    assertNull(ActionScriptClassResolver.getCachedResult("foo.Foo", scope));
+  }
+
+  private void editDocument(final VirtualFile file, final String oldText, final String newText) {
+    final Document document = FileDocumentManager.getInstance().getDocument(file);
+    assertNotNull(document);
+    final int offset = document.getText().indexOf(oldText);
+    assertTrue(offset >= 0);
+    WriteCommandAction.runWriteCommandAction(myProject, () -> document.replaceString(offset, offset + oldText.length(), newText));
+    PsiDocumentManager.getInstance(myProject).commitAllDocuments();
+  }
+}
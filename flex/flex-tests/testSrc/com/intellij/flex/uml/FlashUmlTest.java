@@ -4,6 +4,7 @@ import com.intellij.codeInsight.CodeInsightTestCase;
 import com.intellij.codeInsight.TargetElementUtil;
 import com.intellij.diagram.DiagramBuilder;
 import com.intellij.diagram.DiagramDataModel;
+import com.intellij.diagram.DiagramEdge;
 import com.intellij.diagram.DiagramNode;
 import com.intellij.diagram.DiagramProvider;
 import com.intellij.diagram.settings.DiagramConfiguration;
@@ -27,6 +28,10 @@ import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.CommonDataKeys;
 import com.intellij.openapi.actionSystem.DataContext;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.fileEditor.impl.LoadTextUtil;
 import com.intellij.openapi.module.ModuleType;
 import com.intellij.openapi.projectRoots.Sdk;
@@ -37,10 +42,14 @@ import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.util.JDOMUtil;
 import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.newvfs.impl.VfsRootAccess;
+import com.intellij.psi.PsiDocumentManager;
 import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.testFramework.PsiTestUtil;
 import com.intellij.testFramework.SkipInHeadlessEnvironment;
 import com.intellij.uml.UmlGraphBuilderFactory;
 import com.intellij.uml.core.actions.ShowDiagramBase;
@@ -343,6 +352,57 @@ public class FlashUmlTest extends CodeInsightTestCase {
     assertModel("2", provider, originQName, model);
   }
 
+  public void testRefreshAfterEdit() throws Exception {
+    final VirtualFile root = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(createTempDirectory());
+    assertNotNull(root);
+    PsiTestUtil.addSourceRoot(myModule, root);
+    final VirtualFile fileA = createFile(root, "A.as", "package { public class A extends B {} }");
+    createFile(root, "C.as", "package { public class C {} }");
+
+    final FlashUmlProvider provider = (FlashUmlProvider)DiagramProvider.findByID(FlashUmlProvider.ID);
+    final DiagramBuilder builder =
+      UmlGraphBuilderFactory.create(myProject, provider, JSTestUtils.findClassByQName("A", GlobalSearchScope.allScope(myProject)), null);
+    Disposer.register(getTestRootDisposable(), builder);
+    final DiagramDataModel<Object> model = builder.getDataModel();
+    model.setShowDependencies(false);
+    model.refreshDataModel();
+
+    // the super class is created after the subclass was shown
+    createFile(root, "B.as", "package { public class B {} }");
+    model.addElement(JSTestUtils.findClassByQName("B", GlobalSearchScope.allScope(myProject)));
+    model.refreshDataModel();
+    assertTrue(hasEdge(model, "A", "B"));
+
+    final Document document = FileDocumentManager.getInstance().getDocument(fileA);
+    assertNotNull(document);
+    WriteCommandAction.runWriteCommandAction(myProject, () -> document.setText("package { public class A extends C {} }"));
+    PsiDocumentManager.getInstance(myProject).commitAllDocuments();
+    model.addElement(JSTestUtils.findClassByQName("C", GlobalSearchScope.allScope(myProject)));
+    model.refreshDataModel();
+    assertTrue(hasEdge(model, "A", "C"));
+    assertFalse(hasEdge(model, "A", "B"));
+  }
+
+  private VirtualFile createFile(final VirtualFile dir, final String name, final String text) {
+    return WriteAction.compute(() -> {
+      final VirtualFile file = dir.createChildData(this, name);
+      VfsUtil.saveText(file, text);
+      return file;
+    });
+  }
+
+  private static boolean hasEdge(final DiagramDataModel<Object> model, final String sourceQName, final String targetQName) {
+    for (DiagramEdge<Object> edge : model.getEdges()) {
+      final Object source = edge.getSource().getIdentifyingElement();
+      final Object target = edge.getTarget().getIdentifyingElement();
+      if (source instanceof JSClass && sourceQName.equals(((JSClass)source).getQualifiedName()) &&
+          target instanceof JSClass && targetQName.equals(((JSClass)target).getQualifiedName())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private static void collapseNode(final FlashUmlDataModel model, final Object element) {
     model.collapseNode(model.findNode(element));
     model.refreshDataModel();
@@ -0,0 +1,314 @@
+package com.intellij.jps.flex.build;
+
+import com.intellij.flex.FlexCommonUtils;
+import com.intellij.flex.model.sdk.JpsFlexSdkType;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jps.incremental.CompileContext;
+import org.jetbrains.jps.incremental.messages.BuildMessage;
+import org.jetbrains.jps.incremental.messages.CompilerMessage;
+import org.jetbrains.jps.model.JpsProject;
+import org.jetbrains.jps.model.library.sdk.JpsSdk;
+import org.jetbrains.jps.service.SharedThreadPool;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+
+/**
+ * One process of the built-in compiler (<code>com.intellij.flex.compiler.FlexCompiler</code>) running one compilation at a time.
+ * Listener callbacks are called without holding the daemon lock, so that the pool may give the daemon the next compilation right away.
+ */
+class BuiltInFlexCompilerDaemon {
+  private static final Logger LOG = Logger.getInstance(BuiltInFlexCompilerDaemon.class.getName());
+  private static final String CONNECTION_SUCCESSFUL = "Connection successful";
+
+  private final JpsProject myProject;
+  private final JpsSdk<?> mySdk;
+  private final int myId;
+
+  private ServerSocket myServerSocket;
+  private Process myProcess;
+  private DataInputStream myDataInputStream;
+  private DataOutputStream myDataOutputStream;
+
+  private int myCommandNumber = 1;
+  private String myActivePrefix;
+  private JpsBuiltInFlexCompilerHandler.Listener myActiveListener;
+  private Runnable myActiveOnFinished;
+
+  private final long myStartTime = System.nanoTime();
+  private long myCompilationStartTime;
+  private long myBusyTime;
+  private int myCompilationCount;
+
+  BuiltInFlexCompilerDaemon(final JpsProject project, final JpsSdk<?> sdk, final int id) {
+    myProject = project;
+    mySdk = sdk;
+    myId = id;
+  }
+
+  synchronized void start(final CompileContext context, final String compilerName) throws IOException {
+    try {
+      myServerSocket = new ServerSocket(0);
+      myServerSocket.setSoTimeout(10000);
+      final int port = myServerSocket.getLocalPort();
+
+      startCompilerProcess(port, context, compilerName);
+
+      connect(myServerSocket.accept());
+    }
+    catch (IOException e) {
+      stop();
+      throw e;
+    }
+  }
+
+  synchronized void connect(final Socket socket) throws IOException {
+    myDataInputStream = new DataInputStream(socket.getInputStream());
+    myDataOutputStream = new DataOutputStream(socket.getOutputStream());
+    scheduleInputReading();
+  }
+
+  /**
+   * @return command line of the compiler process without the port, daemons started with equal command lines are interchangeable
+   */
+  static List<String> getCommandLine(final JpsProject project, final JpsSdk<?> sdk) {
+    final StringBuilder classpath = new StringBuilder();
+
+    classpath.append(FlexCommonUtils.getPathToBundledJar("idea-flex-compiler-fix.jar"));
+    classpath.append(File.pathSeparatorChar);
+    classpath.append(FlexCommonUtils.getPathToBundledJar("flex-compiler.jar"));
+
+    if (sdk.getSdkType() == JpsFlexSdkType.INSTANCE) {
+      classpath.append(File.pathSeparator).append(FileUtil.toSystemDependentName(sdk.getHomePath() + "/lib/flex-compiler-oem.jar"));
+    }
+
+    return FlexCommonUtils.getCommandLineForSdkTool(project, sdk, classpath.toString(), "com.intellij.flex.compiler.FlexCompiler");
+  }
+
+  private void startCompilerProcess(final int port, final CompileContext context, final String compilerName) throws IOException {
+    final List<String> commandLine = getCommandLine(myProject, mySdk);
+    commandLine.add(String.valueOf(port));
+
+    final ProcessBuilder processBuilder = new ProcessBuilder(commandLine);
+    processBuilder.redirectErrorStream(true);
+    processBuilder.directory(new File(FlexCommonUtils.getFlexCompilerWorkDirPath(myProject)));
+
+    final String plainCommand = StringUtil.join(processBuilder.command(), s -> s.contains(" ") ? "\"" + s + "\"" : s, " ");
+    context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.INFO, "Starting Flex compiler:\n" + plainCommand));
+
+    myProcess = processBuilder.start();
+    readInputStreamUntilConnected(myProcess, context, compilerName);
+  }
+
+  private void readInputStreamUntilConnected(final Process process, final CompileContext context, final String compilerName) {
+    SharedThreadPool.getInstance().executeOnPooledThread(() -> {
+      final InputStreamReader reader = FlexCommonUtils.createInputStreamReader(process.getInputStream());
+
+      try {
+        char[] buf = new char[1024];
+        int read;
+        while ((read = reader.read(buf, 0, buf.length)) >= 0) {
+          final String output = new String(buf, 0, read);
+          if (output.startsWith(CONNECTION_SUCCESSFUL)) {
+            break;
+          }
+          else {
+            closeSocket();
+            context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.ERROR, output));
+          }
+        }
+      }
+      catch (IOException e) {
+        closeSocket();
+        context.processMessage(
+          new CompilerMessage(compilerName, BuildMessage.Kind.ERROR, "Failed to start Flex compiler: " + e.toString()));
+      }
+      finally {
+        try {
+          reader.close();
+        }
+        catch (IOException e) {/*ignore*/}
+      }
+    });
+  }
+
+  private void scheduleInputReading() {
+    final DataInputStream dataInputStream = myDataInputStream;
+    SharedThreadPool.getInstance().executeOnPooledThread(() -> {
+      final StringBuilder buffer = new StringBuilder();
+      while (true) {
+        try {
+          buffer.append(dataInputStream.readUTF());
+
+          int index;
+          while ((index = buffer.indexOf("\n")) > -1) {
+            final String line = buffer.substring(0, index);
+            buffer.delete(0, index + 1);
+            handleInputLine(line);
+          }
+        }
+        catch (IOException e) {
+          synchronized (this) {
+            if (dataInputStream != myDataInputStream) break;
+          }
+          stop();
+          break;
+        }
+      }
+    });
+  }
+
+  private void handleInputLine(final String line) {
+    LOG.debug("RECEIVED: [" + line + "]");
+
+    final int colonPos = line.indexOf(":");
+    if (colonPos <= 0) {
+      LOG.error("Incorrect command: [" + line + "]");
+      return;
+    }
+
+    final String prefix = line.substring(0, colonPos + 1);
+    final String text = line.substring(colonPos + 1);
+    final boolean finished = text.startsWith(JpsBuiltInFlexCompilerHandler.COMPILATION_FINISHED);
+    final JpsBuiltInFlexCompilerHandler.Listener listener;
+    final Runnable onFinished;
+    synchronized (this) {
+      listener = prefix.equals(myActivePrefix) ? myActiveListener : null;
+      onFinished = myActiveOnFinished;
+      if (listener != null && finished) {
+        compilationEnded();
+      }
+    }
+
+    if (listener == null) {
+      LOG.warn("No active listener for input line: [" + line + "]");  // could be message from cancelled compilation
+    }
+    else if (finished) {
+      listener.compilationFinished();
+      onFinished.run();
+    }
+    else {
+      listener.textAvailable(text);
+    }
+  }
+
+  /**
+   * Must be called only for an idle daemon. Listener is not notified if the command can't be sent, the error text is returned instead.
+   *
+   * @param onFinished called after the listener is notified that the compilation finished, not called if the listener is removed
+   */
+  @Nullable
+  synchronized String compile(final String command, final JpsBuiltInFlexCompilerHandler.Listener listener, final Runnable onFinished) {
+    assert myActiveListener == null;
+    if (myDataOutputStream == null) {
+      return "Error: Compiler process is not started.";
+    }
+
+    try {
+      final String prefix = String.valueOf(myCommandNumber++) + ":";
+      final String commandToSend = prefix + command + "\n";
+      LOG.debug("SENDING: [" + commandToSend + "]");
+      myActivePrefix = prefix;
+      myActiveListener = listener;
+      myActiveOnFinished = onFinished;
+      myCompilationStartTime = System.nanoTime();
+      myCompilationCount++;
+      myDataOutputStream.writeUTF(commandToSend);
+      return null;
+    }
+    catch (IOException e) {
+      compilationEnded();
+      closeSocket();
+      return "Error: Can't start compilation: " + e.toString();
+    }
+  }
+
+  private void compilationEnded() {
+    myBusyTime += System.nanoTime() - myCompilationStartTime;
+    myActivePrefix = null;
+    myActiveListener = null;
+    myActiveOnFinished = null;
+  }
+
+  /**
+   * Forgets the listener of the cancelled compilation, the daemon may be given the next one while the cancelled one is still running
+   */
+  synchronized boolean removeListener(final JpsBuiltInFlexCompilerHandler.Listener listener) {
+    if (myActiveListener != listener) return false;
+    compilationEnded();
+    return true;
+  }
+
+  synchronized boolean isBusy() {
+    return myActiveListener != null;
+  }
+
+  synchronized boolean isAlive() {
+    return myDataOutputStream != null && myProcess != null && myProcess.isAlive();
+  }
+
+  synchronized int getCompilationCount() {
+    return myCompilationCount;
+  }
+
+  void stop() {
+    final JpsBuiltInFlexCompilerHandler.Listener listener;
+    final Runnable onFinished;
+    synchronized (this) {
+      listener = myActiveListener;
+      onFinished = myActiveOnFinished;
+      if (listener != null) {
+        compilationEnded();
+      }
+      closeSocket();
+    }
+
+    if (listener != null) {
+      listener.textAvailable("Error: Compilation terminated");
+      listener.compilationFinished();
+      onFinished.run();
+    }
+  }
+
+  private synchronized void closeSocket() {
+    // compiler process exits when socket closes, so it's enough just to close streams
+
+    if (myDataInputStream != null) {
+      try {
+        myDataInputStream.close();
+      }
+      catch (IOException ignored) {/**/}
+    }
+
+    if (myDataOutputStream != null) {
+      try {
+        myDataOutputStream.close();
+      }
+      catch (IOException ignored) {/**/}
+    }
+
+    if (myServerSocket != null) {
+      try {
+        myServerSocket.close();
+      }
+      catch (IOException ignored) {/**/}
+    }
+
+    myServerSocket = null;
+    myDataInputStream = null;
+    myDataOutputStream = null;
+  }
+
+  @Override
+  public synchronized String toString() {
+    final long lifetime = Math.max(1, System.nanoTime() - myStartTime);
+    final long busyTime = myBusyTime + (myActiveListener == null ? 0 : System.nanoTime() - myCompilationStartTime);
+    return "Flex compiler #" + myId + " for " + mySdk.getHomePath() + ": " + myCompilationCount + " compilations, busy " +
+           busyTime / 1000000 + " of " + lifetime / 1000000 + " ms (" + busyTime * 100 / lifetime + "%)";
+  }
+}
@@ -5,6 +5,7 @@ import com.intellij.flex.FlexCommonUtils;
 import com.intellij.flex.build.CompilerConfigGeneratorRt;
 import com.intellij.flex.build.FlexBuildTarget;
 import com.intellij.flex.build.FlexBuildTargetType;
+import com.intellij.flex.build.SdkConfigFragments;
 import com.intellij.flex.model.JpsFlexCompilerProjectExtension;
 import com.intellij.flex.model.JpsFlexProjectLevelCompilerOptionsExtension;
 import com.intellij.flex.model.bc.JpsFlexBuildConfiguration;
@@ -45,7 +46,9 @@ import java.util.List;
 public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTarget> {
 
   private static Logger LOG = Logger.getInstance(FlexBuilder.class.getName());
-  private JpsBuiltInFlexCompilerHandler myBuiltInCompilerHandler;
+  // compiler daemons are kept warm for the next build in this build process
+  private final JpsBuiltInFlexCompilerHandler myBuiltInCompilerHandler = new JpsBuiltInFlexCompilerHandler();
+  private SdkConfigFragments mySdkConfigFragments;
 
   private enum Status {Ok, Failed, Cancelled}
 
@@ -62,15 +65,16 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
   @Override
   public void buildStarted(final CompileContext context) {
     super.buildStarted(context);
-    myBuiltInCompilerHandler = new JpsBuiltInFlexCompilerHandler(context.getProjectDescriptor().getProject());
+    myBuiltInCompilerHandler.buildStarted(context.getProjectDescriptor().getProject());
+    mySdkConfigFragments = new SdkConfigFragments();
   }
 
   @Override
   public void buildFinished(final CompileContext context) {
     LOG.assertTrue(myBuiltInCompilerHandler.getActiveCompilationsNumber() == 0,
                    myBuiltInCompilerHandler.getActiveCompilationsNumber() + " Flex compilation(s) are not finished!");
-    myBuiltInCompilerHandler.stopCompilerProcess();
-    myBuiltInCompilerHandler = null;
+    myBuiltInCompilerHandler.buildFinished();
+    mySdkConfigFragments = null;
 
     FlexCommonUtils.deleteTempFlexConfigFiles(context.getProjectDescriptor().getProject().getName());
 
@@ -134,7 +138,7 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
     }
 
     for (JpsFlexBuildConfiguration bc : bcsToCompile) {
-      final Status status = compileBuildConfiguration(context, bc, myBuiltInCompilerHandler);
+      final Status status = compileBuildConfiguration(context, bc, myBuiltInCompilerHandler, mySdkConfigFragments);
 
       switch (status) {
         case Ok:
@@ -281,13 +285,14 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
 
   private static Status compileBuildConfiguration(final CompileContext context,
                                                   final JpsFlexBuildConfiguration bc,
-                                                  final JpsBuiltInFlexCompilerHandler builtInCompilerHandler) {
+                                                  final JpsBuiltInFlexCompilerHandler builtInCompilerHandler,
+                                                  final SdkConfigFragments sdkConfigFragments) {
     setProgressMessage(context, bc);
 
     final String compilerName = FlexBuilderUtils.getCompilerName(bc);
 
     try {
-      final List<File> configFiles = createConfigFiles(bc, context.getProjectDescriptor());
+      final List<File> configFiles = createConfigFiles(bc, context.getProjectDescriptor(), sdkConfigFragments);
       final String outputFilePath = bc.getActualOutputFilePath();
 
       if (!ensureCanCreateFile(new File(outputFilePath))) {
@@ -327,9 +332,10 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
   }
 
   private static List<File> createConfigFiles(final JpsFlexBuildConfiguration bc,
-                                              final ProjectDescriptor projectDescriptor) throws IOException {
+                                              final ProjectDescriptor projectDescriptor,
+                                              final SdkConfigFragments sdkConfigFragments) throws IOException {
     final ArrayList<File> configFiles = new ArrayList<>(2);
-    configFiles.add(CompilerConfigGeneratorRt.getOrCreateConfigFile(bc, projectDescriptor));
+    configFiles.add(CompilerConfigGeneratorRt.getOrCreateConfigFile(bc, projectDescriptor, sdkConfigFragments));
 
     final String additionalConfigFilePath = bc.getCompilerOptions().getAdditionalConfigFilePath();
     if (!bc.isTempBCForCompilation() && !additionalConfigFilePath.isEmpty()) {
@@ -359,8 +365,7 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
                           (JpsFlexCompilerProjectExtension.getInstance(bc.getModule().getProject()).PREFER_ASC_20 ||
                            FlexCommonUtils.isAirSdkWithoutFlex(sdk));
     final boolean builtIn = !asc20 &&
-                            JpsFlexCompilerProjectExtension.getInstance(bc.getModule().getProject()).USE_BUILT_IN_COMPILER &&
-                            builtInCompilerHandler.canBeUsedForSdk(sdk.getHomePath());
+                            JpsFlexCompilerProjectExtension.getInstance(bc.getModule().getProject()).USE_BUILT_IN_COMPILER;
 
     if (builtIn) {
       return doCompileWithBuiltInCompiler(context, bc, configFiles, compilerName, builtInCompilerHandler);
@@ -398,14 +403,6 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
                                                      final List<File> configFiles,
                                                      final String compilerName,
                                                      final JpsBuiltInFlexCompilerHandler builtInCompilerHandler) {
-    try {
-      builtInCompilerHandler.startCompilerIfNeeded(bc.getSdk(), context, compilerName);
-    }
-    catch (IOException e) {
-      context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.ERROR, e.toString()));
-      return Status.Failed;
-    }
-
     final List<String> mxmlcOrCompc = Collections.singletonList(bc.getOutputType() == OutputType.Library ? "compc" : "mxmlc");
     final List<String> command = buildCommand(mxmlcOrCompc, configFiles, bc);
     final String plainCommand = StringUtil.join(command,
@@ -418,7 +415,7 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
 
     final BuiltInCompilerListener listener = new BuiltInCompilerListener(context, compilerName, () -> semaphore.up());
 
-    builtInCompilerHandler.sendCompilationCommand(plainCommand, listener);
+    builtInCompilerHandler.sendCompilationCommand(bc.getSdk(), context, compilerName, plainCommand, listener);
 
     semaphore.waitFor();
     builtInCompilerHandler.removeListener(listener);
@@ -1,42 +1,40 @@
 package com.intellij.jps.flex.build;
 
 import com.intellij.flex.FlexCommonUtils;
-import com.intellij.flex.model.sdk.JpsFlexSdkType;
+import com.intellij.flex.model.JpsFlexCompilerProjectExtension;
 import com.intellij.openapi.diagnostic.Logger;
-import com.intellij.openapi.util.Comparing;
-import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
-import com.intellij.util.Function;
 import gnu.trove.THashMap;
+import gnu.trove.THashSet;
 import org.jetbrains.jps.incremental.CompileContext;
-import org.jetbrains.jps.incremental.messages.BuildMessage;
-import org.jetbrains.jps.incremental.messages.CompilerMessage;
 import org.jetbrains.jps.model.JpsProject;
 import org.jetbrains.jps.model.library.sdk.JpsSdk;
 import org.jetbrains.jps.service.SharedThreadPool;
 
-import java.io.*;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.List;
-import java.util.Map;
+import java.io.IOException;
+import java.util.*;
 
+/**
+ * Pools of built-in compiler daemons, one pool per compiler command line (SDK and compiler settings). Compilation commands are queued
+ * and given to idle daemons as soon as they are free, new daemons are started in background while the pool is smaller than the limit,
+ * so independent build configurations are compiled at the same time and no thread waits for a daemon here. A daemon is replaced after
+ * {@link #MAX_COMPILATIONS_PER_DAEMON} compilations, because heap of the compiler grows, and when its process dies.
+ * Pools live as long as the build process and stay warm for the next build, pools not used by a build are stopped when it finishes.
+ */
 public class JpsBuiltInFlexCompilerHandler {
 
   private static final Logger LOG = Logger.getInstance(JpsBuiltInFlexCompilerHandler.class.getName());
-  private static final String CONNECTION_SUCCESSFUL = "Connection successful";
   public static final String COMPILATION_FINISHED = "Compilation finished";
 
-  private final JpsProject myProject;
+  private static final int MAX_COMPILATIONS_PER_DAEMON = 30;
 
-  private String mySdkHome;
+  private volatile JpsProject myProject;
+  private int myMaxDaemonsPerSdk;
 
-  private ServerSocket myServerSocket;
-  private DataInputStream myDataInputStream;
-  private DataOutputStream myDataOutputStream;
-
-  private int commandNumber = 1;
-  private Map<String, Listener> myActiveListeners = new THashMap<>();
+  // compiler work dir and command line -> pool
+  private final Map<String, DaemonPool> myPools = new THashMap<>();
+  private final Set<DaemonPool> myPoolsUsedByBuild = new THashSet<>();
+  private int myDaemonCounter;
 
   public interface Listener {
     void textAvailable(String text);
@@ -44,240 +42,283 @@ public class JpsBuiltInFlexCompilerHandler {
     void compilationFinished();
   }
 
-  JpsBuiltInFlexCompilerHandler(final JpsProject project) {
+  public synchronized void buildStarted(final JpsProject project) {
     myProject = project;
+    myMaxDaemonsPerSdk = computeMaxDaemonsPerSdk(JpsFlexCompilerProjectExtension.getInstance(project));
+    myPoolsUsedByBuild.clear();
   }
 
-  public synchronized boolean canBeUsedForSdk(final String sdkHome) {
-    return mySdkHome == null || mySdkHome.equals(sdkHome);
-  }
+  /**
+   * Stops pools not used by the build, daemons of the other ones are kept for the next build
+   */
+  public void buildFinished() {
+    final List<DaemonPool> unusedPools = new ArrayList<>();
+    synchronized (this) {
+      for (Iterator<DaemonPool> iterator = myPools.values().iterator(); iterator.hasNext(); ) {
+        final DaemonPool pool = iterator.next();
+        if (!myPoolsUsedByBuild.contains(pool)) {
+          iterator.remove();
+          unusedPools.add(pool);
+        }
+      }
+      myPoolsUsedByBuild.clear();
+    }
 
-  public synchronized void startCompilerIfNeeded(final JpsSdk<?> sdk,
-                                                 final CompileContext context,
-                                                 final String compilerName) throws IOException {
-    if (!Comparing.equal(sdk.getHomePath(), mySdkHome)) {
-      stopCompilerProcess();
+    for (DaemonPool pool : unusedPools) {
+      pool.stop();
     }
+  }
 
-    if (myServerSocket == null) {
-      try {
-        //context.processMessage(new ProgressMessage("Starting Flex compiler"));
-        myServerSocket = new ServerSocket(0);
-        myServerSocket.setSoTimeout(10000);
-        final int port = myServerSocket.getLocalPort();
-
-        startCompilerProcess(sdk, port, context, compilerName);
-
-        final Socket socket = myServerSocket.accept();
-        myDataInputStream = new DataInputStream(socket.getInputStream());
-        myDataOutputStream = new DataOutputStream(socket.getOutputStream());
-        mySdkHome = sdk.getHomePath();
-        scheduleInputReading();
-      }
-      catch (IOException e) {
-        stopCompilerProcess();
-        throw e;
+  /**
+   * Not more daemons than cores and parallel compilations allowed, and not more than fit into physical memory
+   */
+  private static int computeMaxDaemonsPerSdk(final JpsFlexCompilerProjectExtension settings) {
+    return Math.max(1, Math.min(Math.min(Runtime.getRuntime().availableProcessors(), settings.MAX_PARALLEL_COMPILATIONS),
+                                FlexCommonUtils.getMaxCompilerProcessesByMemory(settings.HEAP_SIZE_MB)));
+  }
+
+  /**
+   * Compilation is started as soon as a daemon for the SDK is free, listener is notified in any case, also if the daemon can't be started
+   */
+  public void sendCompilationCommand(final JpsSdk<?> sdk,
+                                     final CompileContext context,
+                                     final String compilerName,
+                                     final String command,
+                                     final Listener listener) {
+    final DaemonPool pool;
+    synchronized (this) {
+      final String key = FlexCommonUtils.getFlexCompilerWorkDirPath(myProject) + "\n" +
+                         StringUtil.join(BuiltInFlexCompilerDaemon.getCommandLine(myProject, sdk), "\n");
+      DaemonPool existing = myPools.get(key);
+      if (existing == null) {
+        existing = new DaemonPool(sdk);
+        myPools.put(key, existing);
       }
+      myPoolsUsedByBuild.add(existing);
+      pool = existing;
     }
+
+    pool.enqueue(new CompilationRequest(context, compilerName, command, listener));
   }
 
-  private void startCompilerProcess(final JpsSdk<?> sdk,
-                                    final int port,
-                                    final CompileContext context,
-                                    final String compilerName) throws IOException {
-    final StringBuilder classpath = new StringBuilder();
+  public void removeListener(final Listener listener) {
+    for (DaemonPool pool : getPools()) {
+      pool.removeListener(listener);
+    }
+  }
 
-    classpath.append(FlexCommonUtils.getPathToBundledJar("idea-flex-compiler-fix.jar"));
-    classpath.append(File.pathSeparatorChar);
-    classpath.append(FlexCommonUtils.getPathToBundledJar("flex-compiler.jar"));
+  public int getActiveCompilationsNumber() {
+    int result = 0;
+    for (DaemonPool pool : getPools()) {
+      result += pool.getActiveCompilationsNumber();
+    }
+    return result;
+  }
 
-    if (sdk.getSdkType() == JpsFlexSdkType.INSTANCE) {
-      classpath.append(File.pathSeparator).append(FileUtil.toSystemDependentName(sdk.getHomePath() + "/lib/flex-compiler-oem.jar"));
+  public void stopCompilerProcess() {
+    final List<DaemonPool> pools;
+    synchronized (this) {
+      pools = new ArrayList<>(myPools.values());
+      myPools.clear();
+      myPoolsUsedByBuild.clear();
     }
 
-    final List<String> commandLine =
-      FlexCommonUtils.getCommandLineForSdkTool(myProject, sdk, classpath.toString(), "com.intellij.flex.compiler.FlexCompiler");
-    commandLine.add(String.valueOf(port));
+    for (DaemonPool pool : pools) {
+      pool.stop();
+    }
+  }
 
-    final ProcessBuilder processBuilder = new ProcessBuilder(commandLine);
-    processBuilder.redirectErrorStream(true);
-    processBuilder.directory(new File(FlexCommonUtils.getFlexCompilerWorkDirPath(myProject)));
+  private synchronized List<DaemonPool> getPools() {
+    return new ArrayList<>(myPools.values());
+  }
 
-    final String plainCommand = StringUtil.join(processBuilder.command(), s -> s.contains(" ") ? "\"" + s + "\"" : s, " ");
-    context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.INFO, "Starting Flex compiler:\n" + plainCommand));
+  private synchronized int nextDaemonId() {
+    return ++myDaemonCounter;
+  }
 
-    final Process process = processBuilder.start();
-    readInputStreamUntilConnected(process, context, compilerName);
+  private static class CompilationRequest {
+    private final CompileContext myContext;
+    private final String myCompilerName;
+    private final String myCommand;
+    private final Listener myListener;
+
+    private CompilationRequest(final CompileContext context, final String compilerName, final String command, final Listener listener) {
+      myContext = context;
+      myCompilerName = compilerName;
+      myCommand = command;
+      myListener = listener;
+    }
   }
 
-  private void readInputStreamUntilConnected(final Process process, final CompileContext context, final String compilerName) {
-    SharedThreadPool.getInstance().executeOnPooledThread(() -> {
-      final InputStreamReader reader = FlexCommonUtils.createInputStreamReader(process.getInputStream());
+  private class DaemonPool {
+    private final JpsSdk<?> mySdk;
+    private final Deque<CompilationRequest> myQueue = new ArrayDeque<>();
+    private final List<BuiltInFlexCompilerDaemon> myDaemons = new ArrayList<>();
+    private int myStartingDaemons;
+    private boolean myStopped;
 
-      try {
-        char[] buf = new char[1024];
-        int read;
-        while ((read = reader.read(buf, 0, buf.length)) >= 0) {
-          final String output = new String(buf, 0, read);
-          if (output.startsWith(CONNECTION_SUCCESSFUL)) {
-            break;
-          }
-          else {
-            closeSocket();
-            context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.ERROR, output));
-          }
+    private DaemonPool(final JpsSdk<?> sdk) {
+      mySdk = sdk;
+    }
+
+    private void enqueue(final CompilationRequest request) {
+      final boolean stopped;
+      synchronized (this) {
+        stopped = myStopped;
+        if (!stopped) {
+          myQueue.addLast(request);
         }
       }
-      catch (IOException e) {
-        closeSocket();
-        context.processMessage(
-          new CompilerMessage(compilerName, BuildMessage.Kind.ERROR, "Failed to start Flex compiler: " + e.toString()));
-      }
-      finally {
-        try {
-          reader.close();
-        }
-        catch (IOException e) {/*ignore*/}
+
+      if (stopped) {
+        request.myListener.textAvailable("Error: Compilation terminated");
+        request.myListener.compilationFinished();
+        return;
       }
-    });
-  }
 
-  private void scheduleInputReading() {
-    SharedThreadPool.getInstance().executeOnPooledThread(() -> {
-      final StringBuilder buffer = new StringBuilder();
-      while (true) {
-        final DataInputStream dataInputStream = myDataInputStream;
-        if (dataInputStream != null) {
-          try {
-            buffer.append(dataInputStream.readUTF());
-
-            int index;
-            while ((index = buffer.indexOf("\n")) > -1) {
-              final String line = buffer.substring(0, index);
-              buffer.delete(0, index + 1);
-              handleInputLine(line);
-            }
+      dispatch();
+    }
+
+    /**
+     * Gives queued compilations to idle daemons, starts new daemons if all are busy.
+     * Daemon lock is taken only inside the pool lock, listeners are notified outside of both.
+     */
+    private void dispatch() {
+      final List<BuiltInFlexCompilerDaemon> deadDaemons = new ArrayList<>();
+      final List<CompilationRequest> startRequests = new ArrayList<>();
+      final Map<CompilationRequest, String> failedRequests = new LinkedHashMap<>();
+
+      synchronized (this) {
+        if (myStopped) return;
+
+        for (Iterator<BuiltInFlexCompilerDaemon> iterator = myDaemons.iterator(); iterator.hasNext(); ) {
+          final BuiltInFlexCompilerDaemon daemon = iterator.next();
+          if (!daemon.isBusy() && (!daemon.isAlive() || daemon.getCompilationCount() >= MAX_COMPILATIONS_PER_DAEMON)) {
+            iterator.remove();
+            deadDaemons.add(daemon);
           }
-          catch (IOException e) {
-            if (dataInputStream == myDataInputStream) {
-              stopCompilerProcess();
+        }
+
+        for (BuiltInFlexCompilerDaemon daemon : myDaemons) {
+          if (myQueue.isEmpty()) break;
+          if (!daemon.isBusy()) {
+            final CompilationRequest request = myQueue.removeFirst();
+            final String error = daemon.compile(request.myCommand, request.myListener, this::dispatch);
+            if (error != null) {
+              failedRequests.put(request, error);
             }
-            break;
           }
         }
-        else {
-          break;
+
+        final int toStart = Math.min(myQueue.size() - myStartingDaemons, myMaxDaemonsPerSdk - myDaemons.size() - myStartingDaemons);
+        for (int i = 0; i < toStart; i++) {
+          myStartingDaemons++;
+          startRequests.add(myQueue.peekFirst());
         }
       }
-    });
-  }
 
-  private synchronized void handleInputLine(final String line) {
-    LOG.debug("RECEIVED: [" + line + "]");
+      for (BuiltInFlexCompilerDaemon daemon : deadDaemons) {
+        LOG.info("Stopping " + daemon);
+        daemon.stop();
+      }
 
-    final int colonPos = line.indexOf(":");
-    if (colonPos <= 0) {
-      LOG.error("Incorrect command: [" + line + "]");
-      return;
-    }
+      for (Map.Entry<CompilationRequest, String> entry : failedRequests.entrySet()) {
+        entry.getKey().myListener.textAvailable(entry.getValue());
+        entry.getKey().myListener.compilationFinished();
+      }
 
-    final String prefix = line.substring(0, colonPos + 1);
-    final Listener listener = myActiveListeners.get(prefix);
-    if (listener == null) {
-      LOG.warn("No active listener for input line: [" + line + "]");  // could be message from cancelled compilation
+      for (CompilationRequest request : startRequests) {
+        SharedThreadPool.getInstance().executeOnPooledThread(() -> startDaemon(request));
+      }
     }
-    else {
-      final String text = line.substring(colonPos + 1);
-      if (text.startsWith(COMPILATION_FINISHED)) {
-        listener.compilationFinished();
-        myActiveListeners.remove(prefix);
+
+    private void startDaemon(final CompilationRequest request) {
+      final BuiltInFlexCompilerDaemon daemon = new BuiltInFlexCompilerDaemon(myProject, mySdk, nextDaemonId());
+      IOException error = null;
+      try {
+        daemon.start(request.myContext, request.myCompilerName);
       }
-      else {
-        listener.textAvailable(text);
+      catch (IOException e) {
+        error = e;
       }
-    }
-  }
 
-  public synchronized void sendCompilationCommand(final String command, final Listener listener) {
-    if (myDataOutputStream == null) {
-      listener.textAvailable("Error: Compiler process is not started.");
-      listener.compilationFinished();
-      return;
-    }
+      final List<CompilationRequest> failedRequests = new ArrayList<>();
+      boolean stop = false;
+      synchronized (this) {
+        myStartingDaemons--;
+        if (myStopped) {
+          stop = true;
+        }
+        else if (error == null) {
+          myDaemons.add(daemon);
+        }
+        else if (myDaemons.isEmpty() && myStartingDaemons == 0) {
+          // nobody else would compile them
+          failedRequests.addAll(myQueue);
+          myQueue.clear();
+        }
+      }
 
-    try {
-      final String prefix = String.valueOf(commandNumber++) + ":";
-      final String commandToSend = prefix + command + "\n";
-      LOG.debug("SENDING: [" + commandToSend + "]");
-      myDataOutputStream.writeUTF(commandToSend);
-      myActiveListeners.put(prefix, listener);
-    }
-    catch (IOException e) {
-      listener.textAvailable("Error: Can't start compilation: " + e.toString());
-      listener.compilationFinished();
-    }
-  }
+      if (stop) {
+        daemon.stop();
+        return;
+      }
 
-  private synchronized void cancelAllCompilations(final boolean reportError) {
-    for (final Listener listener : myActiveListeners.values()) {
-      if (reportError) {
-        listener.textAvailable("Error: Compilation terminated");
+      for (CompilationRequest failedRequest : failedRequests) {
+        failedRequest.myListener.textAvailable("Error: " + error.toString());
+        failedRequest.myListener.compilationFinished();
       }
-      listener.compilationFinished();
+      dispatch();
     }
-    myActiveListeners.clear();
-  }
-
-  public synchronized void stopCompilerProcess() {
-    cancelAllCompilations(true);
-    closeSocket();
-  }
 
-  private synchronized void closeSocket() {
-    // compiler process exits when socket closes, so it's enough just to close streams
-
-    if (myDataInputStream != null) {
-      try {
-        myDataInputStream.close();
+    private void removeListener(final Listener listener) {
+      final List<BuiltInFlexCompilerDaemon> daemons;
+      synchronized (this) {
+        for (Iterator<CompilationRequest> iterator = myQueue.iterator(); iterator.hasNext(); ) {
+          if (iterator.next().myListener == listener) {
+            iterator.remove();
+            return;
+          }
+        }
+        daemons = new ArrayList<>(myDaemons);
       }
-      catch (IOException ignored) {/**/}
-    }
 
-    if (myDataOutputStream != null) {
-      try {
-        myDataOutputStream.close();
+      for (BuiltInFlexCompilerDaemon daemon : daemons) {
+        if (daemon.removeListener(listener)) {
+          dispatch();
+          return;
+        }
       }
-      catch (IOException ignored) {/**/}
     }
 
-    if (myServerSocket != null) {
-      try {
-        myServerSocket.close();
+    private synchronized int getActiveCompilationsNumber() {
+      int result = myQueue.size();
+      for (BuiltInFlexCompilerDaemon daemon : myDaemons) {
+        if (daemon.isBusy()) result++;
       }
-      catch (IOException ignored) {/**/}
+      return result;
     }
 
-    myServerSocket = null;
-    myDataInputStream = null;
-    myDataOutputStream = null;
-  }
+    private void stop() {
+      final List<BuiltInFlexCompilerDaemon> daemons;
+      final List<CompilationRequest> requests;
+      synchronized (this) {
+        myStopped = true;
+        daemons = new ArrayList<>(myDaemons);
+        myDaemons.clear();
+        requests = new ArrayList<>(myQueue);
+        myQueue.clear();
+      }
 
-  public synchronized void removeListener(final Listener listener) {
-    String toRemove = null;
-    for (final Map.Entry<String, Listener> entry : myActiveListeners.entrySet()) {
-      if (entry.getValue() == listener) {
-        toRemove = entry.getKey();
-        break;
+      for (CompilationRequest request : requests) {
+        request.myListener.textAvailable("Error: Compilation terminated");
+        request.myListener.compilationFinished();
       }
-    }
 
-    if (toRemove != null) {
-      myActiveListeners.remove(toRemove);
+      for (BuiltInFlexCompilerDaemon daemon : daemons) {
+        LOG.info("Stopping " + daemon);
+        daemon.stop();
+      }
     }
   }
-
-  public synchronized int getActiveCompilationsNumber() {
-    return myActiveListeners.size();
-  }
 }
-
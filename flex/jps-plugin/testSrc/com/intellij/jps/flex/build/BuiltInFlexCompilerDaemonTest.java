@@ -0,0 +1,102 @@
+package com.intellij.jps.flex.build;
+
+import junit.framework.TestCase;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Talks to the daemon over a local socket instead of a compiler process.
+ */
+public class BuiltInFlexCompilerDaemonTest extends TestCase {
+  private BuiltInFlexCompilerDaemon myDaemon;
+  private ServerSocket myServerSocket;
+  private Socket myCompilerSocket;
+  private DataOutputStream myCompilerOutput;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myServerSocket = new ServerSocket(0);
+    myCompilerSocket = new Socket(InetAddress.getLoopbackAddress(), myServerSocket.getLocalPort());
+    myCompilerOutput = new DataOutputStream(myCompilerSocket.getOutputStream());
+    myDaemon = new BuiltInFlexCompilerDaemon(null, null, 1);
+    myDaemon.connect(myServerSocket.accept());
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      myDaemon.stop();
+      myCompilerSocket.close();
+      myServerSocket.close();
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testCancelledCompilationFreesDaemon() throws Exception {
+    final RecordingListener cancelled = new RecordingListener();
+    final Semaphore dispatched = new Semaphore(0);
+    assertNull(myDaemon.compile("mxmlc cancelled", cancelled, dispatched::release));
+    assertTrue(myDaemon.isBusy());
+
+    assertTrue(myDaemon.removeListener(cancelled));
+    assertFalse(myDaemon.isBusy());
+    assertFalse(myDaemon.removeListener(cancelled));
+
+    final RecordingListener next = new RecordingListener();
+    assertNull(myDaemon.compile("mxmlc next", next, dispatched::release));
+
+    // the cancelled compilation still finishes in the compiler process, its output must not reach anybody
+    send("1:Error: cancelled");
+    send("1:" + JpsBuiltInFlexCompilerHandler.COMPILATION_FINISHED);
+    send("2:ok");
+    send("2:" + JpsBuiltInFlexCompilerHandler.COMPILATION_FINISHED);
+
+    assertTrue(next.myFinished.tryAcquire(10, TimeUnit.SECONDS));
+    assertTrue(dispatched.tryAcquire(10, TimeUnit.SECONDS));
+    assertEquals(0, dispatched.availablePermits());
+    assertEquals(0, cancelled.myFinished.availablePermits());
+    assertTrue(cancelled.myTexts.isEmpty());
+    assertEquals(1, next.myTexts.size());
+    assertEquals("ok", next.myTexts.get(0));
+    assertFalse(myDaemon.isBusy());
+  }
+
+  public void testRemoveListenerOfOtherCompilation() {
+    final RecordingListener active = new RecordingListener();
+    assertNull(myDaemon.compile("mxmlc active", active, () -> {}));
+
+    assertFalse(myDaemon.removeListener(new RecordingListener()));
+    assertTrue(myDaemon.isBusy());
+  }
+
+  private void send(final String line) throws IOException {
+    myCompilerOutput.writeUTF(line + "\n");
+    myCompilerOutput.flush();
+  }
+
+  private static class RecordingListener implements JpsBuiltInFlexCompilerHandler.Listener {
+    private final List<String> myTexts = new ArrayList<>();
+    private final Semaphore myFinished = new Semaphore(0);
+
+    @Override
+    public synchronized void textAvailable(final String text) {
+      myTexts.add(text);
+    }
+
+    @Override
+    public void compilationFinished() {
+      myFinished.release();
+    }
+  }
+}
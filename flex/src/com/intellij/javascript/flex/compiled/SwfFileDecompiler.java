@@ -1,38 +1,148 @@
 package com.intellij.javascript.flex.compiled;
 
+import com.intellij.lang.javascript.flex.FlexUtils;
 import com.intellij.lang.javascript.flex.importer.FlexImporter;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.fileTypes.BinaryFileDecompiler;
-import com.intellij.openapi.project.Project;
-import com.intellij.openapi.project.ProjectManager;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.CharsetToolkit;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.ArrayUtil;
+import com.intellij.util.text.CharArrayCharSequence;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.IOException;
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
+ * Decompiled text is stored under the system dir by SHA-1 of the swf content, so a library swf is decompiled once, not each time
+ * its text is needed, and the same swf in different SDKs and projects shares the text.
+ *
  * @author Maxim.Mossienko
  *         Date: Sep 18, 2008
  *         Time: 3:49:24 PM
  */
 public class SwfFileDecompiler implements BinaryFileDecompiler {
+  private static final Logger LOG = Logger.getInstance(SwfFileDecompiler.class.getName());
+
+  // increase when the text produced by FlexImporter changes
+  private static final int VERSION = 2;
+  private static final long UNUSED_CACHE_FILE_LIFETIME = TimeUnit.DAYS.toMillis(30);
+
+  private static final AtomicBoolean ourCleanupStarted = new AtomicBoolean();
+
   @NotNull
   public CharSequence decompile(final VirtualFile file) {
-    final Project project = findProject();
-    if (project == null) return "";
+    final byte[] content;
     try {
-      return FlexImporter.buildInterfaceFromStream(file.getInputStream());
+      content = file.contentsToByteArray();
     }
     catch (IOException ex) {
       return ArrayUtil.EMPTY_CHAR_SEQUENCE;
     }
+
+    final File cacheFile = getCacheFile(content);
+    if (cacheFile == null) {
+      return FlexImporter.buildInterfaceFromStream(new ByteArrayInputStream(content));
+    }
+
+    final CharSequence cachedText = loadCachedText(cacheFile);
+    if (cachedText != null) {
+      return cachedText;
+    }
+
+    try {
+      writeCacheFile(content, cacheFile);
+      final CharSequence text = loadCachedText(cacheFile);
+      if (text != null) {
+        return text;
+      }
+    }
+    catch (IOException ex) {
+      LOG.info("Failed to cache decompiled " + file.getPath(), ex);
+    }
+
+    return FlexImporter.buildInterfaceFromStream(new ByteArrayInputStream(content));
+  }
+
+  @Nullable
+  private static File getCacheFile(final byte[] content) {
+    final MessageDigest messageDigest;
+    try {
+      messageDigest = MessageDigest.getInstance("SHA-1");
+    }
+    catch (NoSuchAlgorithmException ex) {
+      return null;
+    }
+
+    startCleanup();
+    return new File(getCacheDir(), StringUtil.toHexString(messageDigest.digest(content)) + "-" + VERSION + ".as");
+  }
+
+  private static File getCacheDir() {
+    return new File(PathManager.getSystemPath(), "flex/decompiled-swf");
+  }
+
+  @Nullable
+  private static CharSequence loadCachedText(final File cacheFile) {
+    if (!cacheFile.isFile()) return null;
+
+    try {
+      final CharSequence text = new CharArrayCharSequence(FileUtil.loadFileText(cacheFile, CharsetToolkit.UTF8));
+      //noinspection ResultOfMethodCallIgnored
+      cacheFile.setLastModified(System.currentTimeMillis());
+      return text;
+    }
+    catch (IOException ex) {
+      LOG.info(ex);
+      return null;
+    }
+  }
+
+  /**
+   * Text is streamed from the decompiler to a temp file that is renamed when complete, so a concurrent reader never sees a partial file
+   */
+  private static void writeCacheFile(final byte[] content, final File cacheFile) throws IOException {
+    final File dir = cacheFile.getParentFile();
+    if (!FileUtil.createDirectory(dir)) {
+      throw new IOException("Failed to create " + dir.getPath());
+    }
+
+    final File tempFile = FileUtil.createTempFile(dir, cacheFile.getName(), ".tmp", true, false);
+    try {
+      final String errorText;
+      try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), CharsetToolkit.UTF8_CHARSET))) {
+        errorText = FlexImporter.buildInterfaceFromStream(new ByteArrayInputStream(content), writer);
+      }
+      if (errorText != null) {
+        // malformed swf, the text is cached too, so the swf isn't decompiled again on each open
+        FileUtil.writeToFile(tempFile, errorText.getBytes(CharsetToolkit.UTF8_CHARSET));
+      }
+
+      if (!tempFile.renameTo(cacheFile) && !cacheFile.isFile()) {
+        throw new IOException("Failed to rename " + tempFile.getPath() + " to " + cacheFile.getPath());
+      }
+    }
+    finally {
+      FileUtil.delete(tempFile);
+    }
   }
 
-  private static Project findProject() {
-    final Project[] projects = ProjectManager.getInstance().getOpenProjects();
-    if (projects.length == 0) return null;
-    final Project project = projects[0];
+  private static void startCleanup() {
+    if (!ourCleanupStarted.compareAndSet(false, true)) return;
 
-    return project;
+    // files of other versions are useless, temp files may be being written right now
+    ApplicationManager.getApplication().executeOnPooledThread(
+      () -> FlexUtils.deleteUnusedCacheFiles(getCacheDir(), UNUSED_CACHE_FILE_LIFETIME, file -> {
+        final String name = file.getName();
+        return !name.endsWith("-" + VERSION + ".as") && !name.endsWith(".tmp");
+      }));
   }
-}
\ No newline at end of file
+}
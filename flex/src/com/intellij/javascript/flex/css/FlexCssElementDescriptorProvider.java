@@ -27,9 +27,12 @@ import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleType;
 import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.util.Comparing;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiReference;
@@ -48,6 +51,9 @@ import com.intellij.psi.css.impl.util.scheme.CssElementDescriptorFactory2;
 import com.intellij.psi.css.impl.util.scheme.CssElementDescriptorProviderImpl;
 import com.intellij.psi.css.resolve.HtmlCssClassOrIdReference;
 import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.psi.xml.XmlTag;
 import com.intellij.ui.JBColor;
@@ -312,8 +318,12 @@ public class FlexCssElementDescriptorProvider extends CssElementDescriptorProvid
     return propertyName.indexOf('-') >= 0;
   }
 
-  private static void fillPropertyDescriptorsDynamically(@NotNull final JSClass jsClass, Set<JSClass> visited, final Set<CssPropertyDescriptor> result) {
+  private static void fillPropertyDescriptorsDynamically(@NotNull final JSClass jsClass,
+                                                         Set<JSClass> visited,
+                                                         final Set<CssPropertyDescriptor> result,
+                                                         final Set<PsiFile> files) {
     if (!visited.add(jsClass)) return;
+    ContainerUtil.addIfNotNull(files, jsClass.getContainingFile());
     FlexUtils.processMetaAttributesForClass(jsClass, new ActionScriptResolveUtil.MetaDataProcessor() {
       public boolean process(@NotNull JSAttribute jsAttribute) {
         if (FlexAnnotationNames.STYLE.equals(jsAttribute.getName())) {
@@ -334,24 +344,65 @@ public class FlexCssElementDescriptorProvider extends CssElementDescriptorProvid
     });
     for (JSClass jsSuper : jsClass.getSupers()) {
       if (jsSuper != null) {
-        fillPropertyDescriptorsDynamically(jsSuper, visited, result);
+        fillPropertyDescriptorsDynamically(jsSuper, visited, result, files);
       }
     }
   }
 
+  /**
+   * [Style] descriptors of the class and all its supers. Cached until a file of any of these classes changes, or a file is added or
+   * removed, or project roots change, because then supers may resolve to other classes.
+   */
+  @NotNull
+  private static Collection<CssPropertyDescriptor> getFlattenedStyles(@NotNull final JSClass jsClass) {
+    return CachedValuesManager.getCachedValue(jsClass, () -> {
+      final Set<CssPropertyDescriptor> result = ContainerUtil.newLinkedHashSet();
+      final Set<PsiFile> files = ContainerUtil.newLinkedHashSet();
+      fillPropertyDescriptorsDynamically(jsClass, ContainerUtil.newHashSet(), result, files);
+
+      final List<Object> dependencies = new ArrayList<>(files);
+      dependencies.add(VirtualFileManager.VFS_STRUCTURE_MODIFICATIONS);
+      dependencies.add(ProjectRootManager.getInstance(jsClass.getProject()));
+      return CachedValueProvider.Result.create(Collections.unmodifiableSet(result), dependencies.toArray());
+    });
+  }
+
+  /**
+   * Names of styles that have values in the module scope, taken from FlexStyleIndex at once instead of querying it per property.
+   * Typing in CSS doesn't invalidate it, only indexing of style sources, added or removed files and roots changes do.
+   */
+  @NotNull
+  private static Set<String> getStyleNamesInScope(@NotNull final Module module) {
+    final Project project = module.getProject();
+    final GlobalSearchScope scope = module.getModuleWithDependenciesAndLibrariesScope(false);
+    final FileBasedIndex index = FileBasedIndex.getInstance();
+    index.ensureUpToDate(FlexStyleIndex.INDEX_ID, project, scope);
+
+    return CachedValuesManager.getManager(project).getCachedValue(module, ourStyleNamesInScopeKey, () -> {
+      final Set<String> result = ContainerUtil.newHashSet();
+      for (String key : index.getAllKeys(FlexStyleIndex.INDEX_ID, project)) {
+        if (!index.processValues(FlexStyleIndex.INDEX_ID, key, null, (file, value) -> false, scope)) {
+          result.add(key);
+        }
+      }
+      return CachedValueProvider.Result.create(result, FlexStyleIndex.getIndexModificationTracker(project),
+                                               VirtualFileManager.VFS_STRUCTURE_MODIFICATIONS, ProjectRootManager.getInstance(project));
+    }, false);
+  }
+
+  private static final Key<CachedValue<Set<String>>> ourStyleNamesInScopeKey = Key.create("flex.css.style.names.in.scope");
+
   @NotNull
   private static Collection<? extends CssPropertyDescriptor> getPropertyDescriptorsDynamically(@NotNull List<CssSimpleSelector> selectors,
                                                                                                @NotNull Module module) {
-    FileBasedIndex fileBasedIndex = FileBasedIndex.getInstance();
     GlobalSearchScope scope = module.getModuleWithDependenciesAndLibrariesScope(false);
-    Set<JSClass> visited = ContainerUtil.newLinkedHashSet();
     Set<CssPropertyDescriptor> result = ContainerUtil.newLinkedHashSet();
     Project project = module.getProject();
 
     for (CssSimpleSelector selector : selectors) {
       final JSClass jsClass = getClassFromMxmlDescriptor(selector, module);
       if (jsClass != null) {
-        fillPropertyDescriptorsDynamically(jsClass, visited, result);
+        result.addAll(getFlattenedStyles(jsClass));
         continue;
       }
 
@@ -359,15 +410,14 @@ public class FlexCssElementDescriptorProvider extends CssElementDescriptorProvid
       Collection<JSQualifiedNamedElement> candidates = JSResolveUtil.findElementsByName(shortClassName, project, scope);
       for (JSQualifiedNamedElement candidate : candidates) {
         if (candidate instanceof JSClass) {
-          fillPropertyDescriptorsDynamically((JSClass)candidate, visited, result);
+          result.addAll(getFlattenedStyles((JSClass)candidate));
         }
       }
     }
 
+    final Set<String> styleNamesInScope = getStyleNamesInScope(module);
     for (Iterator<CssPropertyDescriptor> iterator = result.iterator(); iterator.hasNext();) {
-      CssPropertyDescriptor propertyDescriptor = iterator.next();
-      List<Set<FlexStyleIndexInfo>> values = fileBasedIndex.getValues(FlexStyleIndex.INDEX_ID, propertyDescriptor.getPropertyName(), scope);
-      if (values.size() == 0) {
+      if (!styleNamesInScope.contains(iterator.next().getPropertyName())) {
         iterator.remove();
       }
     }
@@ -12,6 +12,7 @@ import com.intellij.lang.javascript.psi.resolve.ActionScriptResolveUtil;
 import com.intellij.lang.javascript.psi.resolve.JSResolveUtil;
 import com.intellij.lang.javascript.psi.stubs.JSClassStub;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ModificationTracker;
 import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -144,6 +145,14 @@ public class FlexStyleIndex extends FileBasedIndexExtension<String, Set<FlexStyl
     return null;
   }
 
+  /**
+   * Changes when the index is updated. Data taken from the index after {@link FileBasedIndex#ensureUpToDate} may be cached against it
+   */
+  @NotNull
+  public static ModificationTracker getIndexModificationTracker(@NotNull final Project project) {
+    return () -> ((FileBasedIndexImpl)FileBasedIndex.getInstance()).getIndexModificationStamp(INDEX_ID, project);
+  }
+
   @NotNull
   @Override
   public DataIndexer<String, Set<FlexStyleIndexInfo>, FileContent> getIndexer() {
@@ -75,8 +75,8 @@ public class ClassBackedElementDescriptor extends IconProvider implements XmlEle
   protected final CodeContext context;
   private final boolean predefined;
 
-  private Map<String, AnnotationBackedDescriptor> myDescriptors; // can be both XML attributes and elements
-  private Map<String, Map<String, AnnotationBackedDescriptor>> myPackageToInternalDescriptors; // These descriptors are resolved only if MXML file is in the same package as descriptor originating element. Can be both XML attributes and elements.
+  private volatile Map<String, AnnotationBackedDescriptor> myDescriptors; // can be both XML attributes and elements
+  private volatile Map<String, Map<String, AnnotationBackedDescriptor>> myPackageToInternalDescriptors; // These descriptors are resolved only if MXML file is in the same package as descriptor originating element. Can be both XML attributes and elements.
   private Map<String, AnnotationBackedDescriptor> myPredefinedDescriptors; // can be XML attributes, but not elements
 
   @NonNls private static final String ARRAY_TYPE_ANNOTATION_PARAMETER = "arrayType";
@@ -493,69 +493,66 @@ public class ClassBackedElementDescriptor extends IconProvider implements XmlEle
   }
 
   private void ensureDescriptorsMapsInitialized(PsiElement element, @Nullable Set<JSClass> visited) {
-    Map<String, AnnotationBackedDescriptor> map;
-    Map<String, Map<String, AnnotationBackedDescriptor>> packageToInternalDescriptors;
+    // No lock here: the maps are built from PSI only, so concurrent builders get equal results and whichever is published last wins.
+    // Readers see either null (and build the maps themselves) or fully built unmodifiable maps.
+    if (myDescriptors != null && myPackageToInternalDescriptors != null) return;
 
-    synchronized (CodeContext.class) {
-      map = myDescriptors;
-      packageToInternalDescriptors = myPackageToInternalDescriptors;
-      if (map != null && packageToInternalDescriptors != null) return;
+    final Map<String, AnnotationBackedDescriptor> map = new THashMap<>();
+    final Map<String, Map<String, AnnotationBackedDescriptor>> packageToInternalDescriptors = new THashMap<>();
+    Set<PsiElement> processedElements = null;
 
-      map = new THashMap<>();
-      packageToInternalDescriptors = new THashMap<>();
-      Set<PsiElement> processedElements = null;
-
-      if (element instanceof XmlBackedJSClassImpl) {
-        element = element.getParent().getContainingFile(); // TODO: make this code and following loop better
-      }
+    if (element instanceof XmlBackedJSClassImpl) {
+      element = element.getParent().getContainingFile(); // TODO: make this code and following loop better
+    }
 
-      if (element instanceof XmlFile && MxmlJSClass.isFxgFile((PsiFile)element)) {
-        element = XmlBackedJSClassFactory.getXmlBackedClass((XmlFile)element);
-      }
+    if (element instanceof XmlFile && MxmlJSClass.isFxgFile((PsiFile)element)) {
+      element = XmlBackedJSClassFactory.getXmlBackedClass((XmlFile)element);
+    }
 
-      while (element instanceof XmlFile) {
-        final XmlDocument document = ((XmlFile)element).getDocument();
-        final XmlTag rootTag = document != null ? document.getRootTag():null;
-        final XmlElementDescriptor descriptor = rootTag != null ? rootTag.getDescriptor():null;
-        if (processedElements == null) processedElements = new THashSet<>();
-        processedElements.add(element);
+    while (element instanceof XmlFile) {
+      final XmlDocument document = ((XmlFile)element).getDocument();
+      final XmlTag rootTag = document != null ? document.getRootTag():null;
+      final XmlElementDescriptor descriptor = rootTag != null ? rootTag.getDescriptor():null;
+      if (processedElements == null) processedElements = new THashSet<>();
+      processedElements.add(element);
 
-        element = descriptor != null ? descriptor.getDeclaration():null;
-        if (processedElements.contains(element)) break;
-        collectMxmlAttributes(map, packageToInternalDescriptors, rootTag);
-      }
+      element = descriptor != null ? descriptor.getDeclaration():null;
+      if (processedElements.contains(element)) break;
+      collectMxmlAttributes(map, packageToInternalDescriptors, rootTag);
+    }
 
-      if (element instanceof JSNamedElement) {
-        JSNamedElement jsClass = (JSNamedElement)element;
+    if (element instanceof JSNamedElement) {
+      JSNamedElement jsClass = (JSNamedElement)element;
 
-        if (visited == null || !visited.contains(jsClass)) {
-          if (!MxmlJSClass.XML_TAG_NAME.equals(jsClass.getName()) && !MxmlJSClass.XMLLIST_TAG_NAME.equals(jsClass.getName())) {
-            JSReferenceList extendsList = jsClass instanceof JSClass ? ((JSClass)jsClass).getExtendsList():null;
-            if (extendsList != null) {
-              final JSClass clazz = (JSClass)jsClass;
-              if (visited == null) {
-                visited = new THashSet<>();
-              }
-              visited.add(clazz);
+      if (visited == null || !visited.contains(jsClass)) {
+        if (!MxmlJSClass.XML_TAG_NAME.equals(jsClass.getName()) && !MxmlJSClass.XMLLIST_TAG_NAME.equals(jsClass.getName())) {
+          JSReferenceList extendsList = jsClass instanceof JSClass ? ((JSClass)jsClass).getExtendsList():null;
+          if (extendsList != null) {
+            final JSClass clazz = (JSClass)jsClass;
+            if (visited == null) {
+              visited = new THashSet<>();
+            }
+            visited.add(clazz);
 
-              for(JSClass superClazz: clazz.getSuperClasses()) {
-                appendSuperClassDescriptors(map, packageToInternalDescriptors, superClazz, visited);
-              }
-            } else if (!OBJECT_CLASS_NAME.equals(jsClass.getName()) && CodeContext.isStdNamespace(context.namespace)) {
-              appendSuperClassDescriptors(
-                  map,
-                  packageToInternalDescriptors,
-                  ActionScriptClassResolver.findClassByQNameStatic(OBJECT_CLASS_NAME, jsClass),
-                  visited);
+            for(JSClass superClazz: clazz.getSuperClasses()) {
+              appendSuperClassDescriptors(map, packageToInternalDescriptors, superClazz, visited);
             }
+          } else if (!OBJECT_CLASS_NAME.equals(jsClass.getName()) && CodeContext.isStdNamespace(context.namespace)) {
+            appendSuperClassDescriptors(
+                map,
+                packageToInternalDescriptors,
+                ActionScriptClassResolver.findClassByQNameStatic(OBJECT_CLASS_NAME, jsClass),
+                visited);
           }
-
-          collectMyAttributes(jsClass, map, packageToInternalDescriptors);
         }
+
+        collectMyAttributes(jsClass, map, packageToInternalDescriptors);
       }
-      myDescriptors = map;
-      myPackageToInternalDescriptors = packageToInternalDescriptors;
     }
+
+    // publish package map first, readers check myDescriptors last
+    myPackageToInternalDescriptors = Collections.unmodifiableMap(packageToInternalDescriptors);
+    myDescriptors = Collections.unmodifiableMap(map);
   }
 
   private void collectMxmlAttributes(final Map<String, AnnotationBackedDescriptor> map,
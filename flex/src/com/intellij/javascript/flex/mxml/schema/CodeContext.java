@@ -145,16 +145,16 @@ public class CodeContext {
     final FlexBuildConfiguration bc = FlexBuildConfigurationManager.getInstance(module).getActiveConfiguration();
     if (bc == null) return CodeContextHolder.EMPTY;
 
-    CodeContext codeContext;
-
-    synchronized (CodeContext.class) {
-      if (isStdNamespace(namespace)) {
-        return getStdCodeContext(namespace, module, bc);
-      }
+    if (isStdNamespace(namespace)) {
+      return getStdCodeContext(namespace, module, bc);
+    }
 
-      final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
-      codeContext = contextHolder.getCodeContext(namespace, module);
+    final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
+    final CodeContext existingContext = contextHolder.getCodeContext(namespace, module);
+    if (existingContext != null) return existingContext;
 
+    return contextHolder.buildOnce(Pair.create(namespace, module), () -> {
+      CodeContext codeContext = contextHolder.getCodeContext(namespace, module); // may have been published by the previous build
       if (codeContext == null) {
         codeContext = createCodeContext(namespace, module, bc);
         if (codeContext.getAllDescriptorsSize() > 0) {
@@ -162,9 +162,8 @@ public class CodeContext {
           contextHolder.putCodeContext(namespace, module, codeContext);
         }
       }
-    }
-
-    return codeContext;
+      return codeContext;
+    });
   }
 
   public static boolean isStdNamespace(final String namespace) {
@@ -211,27 +210,44 @@ public class CodeContext {
     return codeContext;
   }
 
-  private static void handleSwcFromSdk(final Module module, @NotNull final FlexBuildConfiguration bc) {
+  private static void handleSwcFromSdk(final Module module,
+                                       @NotNull final FlexBuildConfiguration bc,
+                                       final Map<String, CodeContext> contextsOfModule) {
     final Sdk sdk = bc.getSdk();
     if (sdk == null) return;
 
-    final Map<String, CodeContext> contextsOfModule = new THashMap<>();
     for (final VirtualFile file : sdk.getRootProvider().getFiles(OrderRootType.CLASSES)) {
       final String swcPath = VirtualFileManager.extractPath(StringUtil.trimEnd(file.getUrl(), JarFileSystem.JAR_SEPARATOR));
       if (BCUtils.getSdkEntryLinkageType(swcPath, bc) != null) {
         handleFileDependency(module, contextsOfModule, file);
       }
     }
-    final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
-    for (final Map.Entry<String, CodeContext> entry : contextsOfModule.entrySet()) {
-      contextHolder.putCodeContext(entry.getKey(), module, entry.getValue());
-    }
   }
 
   private static CodeContext createCodeContextFromLibraries(final String namespace,
                                                             final Module module,
                                                             final FlexBuildConfiguration bc) {
     final Map<String, CodeContext> contextsOfModule = new THashMap<>();
+    collectCodeContextsFromLibraries(module, bc, contextsOfModule);
+
+    // standard contexts found here are not published: they are complete only when built by getStdCodeContext()
+    final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
+    for (Map.Entry<String, CodeContext> entry : contextsOfModule.entrySet()) {
+      if (!isStdNamespace(entry.getKey())) {
+        contextHolder.putCodeContext(entry.getKey(), module, entry.getValue());
+      }
+    }
+
+    CodeContext codeContext = contextsOfModule.get(namespace);
+    if (codeContext == null) {
+      codeContext = CodeContextHolder.EMPTY;
+    }
+    return codeContext;
+  }
+
+  private static void collectCodeContextsFromLibraries(final Module module,
+                                                       final FlexBuildConfiguration bc,
+                                                       final Map<String, CodeContext> contextsOfModule) {
     final ModuleRootManager rootManager = ModuleRootManager.getInstance(module);
 
     // TODO: this code should not be invoked per ns!
@@ -264,17 +280,6 @@ public class CodeContext {
     }
 
     addComponentsFromManifests(module, contextsOfModule, bc, false);
-
-    final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
-    for (Map.Entry<String, CodeContext> entry : contextsOfModule.entrySet()) {
-      contextHolder.putCodeContext(entry.getKey(), module, entry.getValue());
-    }
-
-    CodeContext codeContext = contextsOfModule.get(namespace);
-    if (codeContext == null) {
-      codeContext = CodeContextHolder.EMPTY;
-    }
-    return codeContext;
   }
 
   private static void addComponentsFromManifests(final Module module, final Map<String, CodeContext> contextsOfModule,
@@ -321,7 +326,7 @@ public class CodeContext {
   private static void processCatalogFile(final Module module,
                                          final Map<String, CodeContext> contextsOfModule,
                                          final VirtualFile catalogFile) {
-    SwcCatalogXmlUtil.processComponentsFromCatalogXml(catalogFile, componentFromCatalogXml -> {
+    SwcCatalogXmlUtil.processComponentsFromCatalogXml(module.getProject(), catalogFile, componentFromCatalogXml -> {
       CodeContext codeContext = identifyCodeContext(module, contextsOfModule, componentFromCatalogXml.myUri);
       codeContext.addDependency(catalogFile);
       codeContext.putDescriptor(componentFromCatalogXml.myName,
@@ -336,21 +341,10 @@ public class CodeContext {
   }
 
   private static CodeContext identifyCodeContext(Module module, Map<String, CodeContext> contextsOfModule, String uri) {
-    CodeContext codeContext;
-    if (isStdNamespace(uri)) {
-      final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
-      codeContext = contextHolder.getStandardContext(uri, module);
-      if (codeContext == null) {
-        codeContext = new CodeContext(uri, module);
-        contextHolder.putStandardContext(uri, module, codeContext);
-      }
-    }
-    else {
-      codeContext = contextsOfModule.get(uri);
-      if (codeContext == null) {
-        codeContext = new CodeContext(uri, module);
-        contextsOfModule.put(uri, codeContext);
-      }
+    CodeContext codeContext = contextsOfModule.get(uri);
+    if (codeContext == null) {
+      codeContext = new CodeContext(uri, module);
+      contextsOfModule.put(uri, codeContext);
     }
     return codeContext;
   }
@@ -391,10 +385,25 @@ public class CodeContext {
     final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
 
     if (!contextHolder.areSdkComponentsHandledForModule(module)) { // handleAllStandardManifests only once per module
-      handleAllStandardManifests(module, bc);
-      handleSwcFromSdk(module, bc); //swc files attached to Flex SDK may contribute to standard context
-      createCodeContextFromLibraries(namespace, module, bc); // other libraries may contribute to standard context
-      contextHolder.setSdkComponentsHandledForModule(module);
+      contextHolder.buildOnce(module, () -> {
+        if (!contextHolder.areSdkComponentsHandledForModule(module)) {
+          final Map<String, CodeContext> contextsOfModule = new THashMap<>();
+          handleAllStandardManifests(module, bc, contextsOfModule);
+          handleSwcFromSdk(module, bc, contextsOfModule); //swc files attached to Flex SDK may contribute to standard context
+          collectCodeContextsFromLibraries(module, bc, contextsOfModule); // other libraries may contribute to standard context
+
+          for (Map.Entry<String, CodeContext> entry : contextsOfModule.entrySet()) {
+            if (isStdNamespace(entry.getKey())) {
+              contextHolder.putStandardContext(entry.getKey(), module, entry.getValue());
+            }
+            else {
+              contextHolder.putCodeContext(entry.getKey(), module, entry.getValue());
+            }
+          }
+          contextHolder.setSdkComponentsHandledForModule(module);
+        }
+        return null;
+      });
     }
 
     final CodeContext context = contextHolder.getStandardContext(namespace, module);
@@ -457,7 +466,9 @@ public class CodeContext {
     return descriptor;
   }
 
-  private static void handleAllStandardManifests(final Module module, @NotNull final FlexBuildConfiguration bc) {
+  private static void handleAllStandardManifests(final Module module,
+                                                 @NotNull final FlexBuildConfiguration bc,
+                                                 final Map<String, CodeContext> contextsOfModule) {
     final Sdk sdk = bc.getSdk();
     final String homePath = sdk == null ? null : sdk.getHomePath();
     final VirtualFile sdkHome = homePath == null ? null : LocalFileSystem.getInstance().findFileByPath(homePath);
@@ -467,23 +478,17 @@ public class CodeContext {
       final VirtualFile manifestFile = VfsUtil.findRelativeFile(relativePath, sdkHome);
 
       if (manifestFile != null) {
-        handleStandardManifest(module, namespace1, manifestFile, sdkHome);
+        handleStandardManifest(module, contextsOfModule, namespace1, manifestFile, sdkHome);
       }
     });
   }
 
   private static void handleStandardManifest(final Module module,
+                                             final Map<String, CodeContext> contextsOfModule,
                                              final String namespace,
                                              final VirtualFile manifestFile,
                                              final VirtualFile flexSdkRoot) {
-    final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
-    CodeContext _context = contextHolder.getStandardContext(namespace, module);
-    if (_context == null) {
-      _context = new CodeContext(namespace, module);
-      contextHolder.putStandardContext(namespace, module, _context);
-    }
-
-    final CodeContext context = _context;
+    final CodeContext context = identifyCodeContext(module, contextsOfModule, namespace);
     context.addDependency(flexSdkRoot);
 
     processManifestFile(manifestFile, context);
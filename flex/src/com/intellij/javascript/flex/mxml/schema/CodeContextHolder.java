@@ -3,35 +3,52 @@ package com.intellij.javascript.flex.mxml.schema;
 import com.intellij.ProjectTopics;
 import com.intellij.openapi.components.AbstractProjectComponent;
 import com.intellij.openapi.module.Module;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ModuleRootEvent;
 import com.intellij.openapi.roots.ModuleRootListener;
-import gnu.trove.THashMap;
+import com.intellij.openapi.util.Computable;
+import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * Registry of {@link CodeContext}s keyed by namespace and module. Contexts are published here only after they are fully built,
+ * so lookups don't need any lock. Building of each context (or of all standard contexts of a module) happens at most once at a time,
+ * concurrent requesters wait for the result of the thread that started the build.
+ *
  * @author Maxim.Mossienko
 */
 public class CodeContextHolder extends AbstractProjectComponent {
-  private final Set<Module> myModulesWithSdkComponentsHandled = new HashSet<>();
-  private final Map<String, Map<Module, CodeContext>> myStandardContexts = new HashMap<>();
-  private final Map<String, Map<Module, CodeContext>> myNSToCodeContextMap = new THashMap<>();
+  private final Set<Module> myModulesWithSdkComponentsHandled = ContainerUtil.newConcurrentSet();
+  private final ConcurrentMap<String, ConcurrentMap<Module, CodeContext>> myStandardContexts = ContainerUtil.newConcurrentMap();
+  private final ConcurrentMap<String, ConcurrentMap<Module, CodeContext>> myNSToCodeContextMap = ContainerUtil.newConcurrentMap();
+  private final ConcurrentMap<Object, Build<?>> myBuildsInProgress = ContainerUtil.newConcurrentMap();
+  private final AtomicInteger myBuildCount = new AtomicInteger();
   static final CodeContext EMPTY = new CodeContext(null, null);
 
+  private static final long WAIT_TIMEOUT_MS = 50;
+  private static final ThreadLocal<int[]> ourBuildDepth = ThreadLocal.withInitial(() -> new int[1]);
+
   public CodeContextHolder(Project project) {
     super(project);
     project.getMessageBus().connect().subscribe(ProjectTopics.PROJECT_ROOTS, new ModuleRootListener() {
       @Override
       public void rootsChanged(final ModuleRootEvent event) {
-        synchronized (CodeContextHolder.this) {
-          myNSToCodeContextMap.clear();
-          myStandardContexts.clear();
-          myModulesWithSdkComponentsHandled.clear();
-        }
+        myNSToCodeContextMap.clear();
+        myStandardContexts.clear();
+        myModulesWithSdkComponentsHandled.clear();
       }
     });
   }
@@ -44,22 +61,17 @@ public class CodeContextHolder extends AbstractProjectComponent {
   }
 
   @Nullable
-  public synchronized CodeContext getCodeContext(@NotNull final String namespace, @NotNull final Module module) {
+  public CodeContext getCodeContext(@NotNull final String namespace, @NotNull final Module module) {
     final Map<Module, CodeContext> map = myNSToCodeContextMap.get(namespace);
     if (map != null) return map.get(module);
     return null;
   }
 
-  public synchronized void putCodeContext(@NotNull final String namespace, @NotNull final Module module, @NotNull final CodeContext codeContext) {
-    Map<Module, CodeContext> map = myNSToCodeContextMap.get(namespace);
-    if (map == null) {
-      map = new THashMap<>();
-      myNSToCodeContextMap.put(namespace, map);
-    }
-    map.put(module, codeContext);
+  public void putCodeContext(@NotNull final String namespace, @NotNull final Module module, @NotNull final CodeContext codeContext) {
+    getOrCreateModuleMap(myNSToCodeContextMap, namespace).put(module, codeContext);
   }
 
-  public synchronized void clearCodeContext(@NotNull final String namespace, @NotNull final Module module) {
+  public void clearCodeContext(@NotNull final String namespace, @NotNull final Module module) {
     Map<Module, CodeContext> map = myNSToCodeContextMap.get(namespace);
     if (map != null) {
       map.remove(module);
@@ -71,19 +83,19 @@ public class CodeContextHolder extends AbstractProjectComponent {
   }
 
   @Nullable
-  public synchronized CodeContext getStandardContext(final String namespace, final Module module) {
+  public CodeContext getStandardContext(final String namespace, final Module module) {
     final Map<Module, CodeContext> map = myStandardContexts.get(namespace);
     return map == null ? null : map.get(module);
   }
 
-  public synchronized Collection<String> getNamespaces(final Module module) {
+  public Collection<String> getNamespaces(final Module module) {
     final List<String> result = new ArrayList<>();
-    for (final Map.Entry<String, Map<Module, CodeContext>> entry : myStandardContexts.entrySet()) {
+    for (final Map.Entry<String, ConcurrentMap<Module, CodeContext>> entry : myStandardContexts.entrySet()) {
       if (entry.getValue().containsKey(module)) {
         result.add(entry.getKey());
       }
     }
-    for (final Map.Entry<String, Map<Module, CodeContext>> entry : myNSToCodeContextMap.entrySet()) {
+    for (final Map.Entry<String, ConcurrentMap<Module, CodeContext>> entry : myNSToCodeContextMap.entrySet()) {
       if (entry.getValue().containsKey(module)) {
         result.add(entry.getKey());
       }
@@ -91,20 +103,124 @@ public class CodeContextHolder extends AbstractProjectComponent {
     return result;
   }
 
-  synchronized void putStandardContext(final String namespace, final Module module, final CodeContext codeContext) {
-    Map<Module, CodeContext> map = myStandardContexts.get(namespace);
-    if (map == null) {
-      map = new HashMap<>();
-      myStandardContexts.put(namespace, map);
-    }
-    map.put(module, codeContext);
+  void putStandardContext(final String namespace, final Module module, final CodeContext codeContext) {
+    getOrCreateModuleMap(myStandardContexts, namespace).put(module, codeContext);
   }
 
-  synchronized boolean areSdkComponentsHandledForModule(final Module module) {
+  boolean areSdkComponentsHandledForModule(final Module module) {
     return myModulesWithSdkComponentsHandled.contains(module);
   }
 
-  synchronized boolean setSdkComponentsHandledForModule(final Module module) {
+  boolean setSdkComponentsHandledForModule(final Module module) {
     return myModulesWithSdkComponentsHandled.add(module);
   }
+
+  /**
+   * Runs {@code computable} unless a build with an equal {@code key} is already running in another thread, in which case waits
+   * for its result instead. The computable is expected to publish what it has built via {@link #putCodeContext} or
+   * {@link #putStandardContext} before returning.
+   * A thread that is building a context itself never waits for another thread: it could be waited for by that thread in turn.
+   * If the build that is waited for gets cancelled, the waiting thread builds on its own.
+   */
+  <T> T buildOnce(@NotNull final Object key, @NotNull final Computable<T> computable) {
+    final Build<T> build = new Build<>(() -> compute(computable));
+    @SuppressWarnings("unchecked") final Build<T> existing = (Build<T>)myBuildsInProgress.putIfAbsent(key, build);
+
+    if (existing == null) {
+      try {
+        build.run();
+        return build.getResult();
+      }
+      finally {
+        myBuildsInProgress.remove(key, build);
+      }
+    }
+
+    if (ourBuildDepth.get()[0] > 0) {
+      return compute(computable);
+    }
+
+    while (true) {
+      ProgressManager.checkCanceled();
+      try {
+        return existing.get(WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+      }
+      catch (TimeoutException ignored) {
+      }
+      catch (InterruptedException e) {
+        throw new ProcessCanceledException(e);
+      }
+      catch (ExecutionException e) {
+        if (e.getCause() instanceof ProcessCanceledException) {
+          return compute(computable);
+        }
+        throw Build.rethrow(e);
+      }
+    }
+  }
+
+  private <T> T compute(final Computable<T> computable) {
+    myBuildCount.incrementAndGet();
+    final int[] depth = ourBuildDepth.get();
+    depth[0]++;
+    try {
+      return computable.compute();
+    }
+    finally {
+      depth[0]--;
+    }
+  }
+
+  /**
+   * @return how many times contexts have been built, including builds of already published contexts by concurrent requesters
+   */
+  @TestOnly
+  public int getBuildCount() {
+    return myBuildCount.get();
+  }
+
+  @TestOnly
+  public void dropContexts() {
+    myNSToCodeContextMap.clear();
+    myStandardContexts.clear();
+    myModulesWithSdkComponentsHandled.clear();
+  }
+
+  private static ConcurrentMap<Module, CodeContext> getOrCreateModuleMap(final ConcurrentMap<String, ConcurrentMap<Module, CodeContext>> map,
+                                                                         final String namespace) {
+    ConcurrentMap<Module, CodeContext> moduleMap = map.get(namespace);
+    if (moduleMap == null) {
+      moduleMap = ContainerUtil.newConcurrentMap();
+      final ConcurrentMap<Module, CodeContext> existing = map.putIfAbsent(namespace, moduleMap);
+      if (existing != null) {
+        moduleMap = existing;
+      }
+    }
+    return moduleMap;
+  }
+
+  private static class Build<T> extends FutureTask<T> {
+    private Build(final Computable<T> computable) {
+      super(computable::compute);
+    }
+
+    private T getResult() {
+      try {
+        return get();
+      }
+      catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      catch (ExecutionException e) {
+        throw rethrow(e);
+      }
+    }
+
+    private static RuntimeException rethrow(final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+      if (cause instanceof Error) throw (Error)cause;
+      throw new RuntimeException(cause);
+    }
+  }
 }
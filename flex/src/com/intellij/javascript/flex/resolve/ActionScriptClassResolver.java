@@ -1,7 +1,9 @@
 package com.intellij.javascript.flex.resolve;
 
+import com.intellij.javascript.flex.css.FlexStylesIndexableSetContributor;
 import com.intellij.lang.javascript.DialectOptionHolder;
 import com.intellij.lang.javascript.JavaScriptSupportLoader;
+import com.intellij.lang.javascript.flex.ActionScriptResolveScopeProvider;
 import com.intellij.lang.javascript.flex.JSResolveHelper;
 import com.intellij.lang.javascript.index.JSIndexedRootProvider;
 import com.intellij.lang.javascript.index.JavaScriptIndex;
@@ -14,19 +16,32 @@ import com.intellij.lang.javascript.psi.resolve.JSResolveUtil;
 import com.intellij.lang.javascript.psi.stubs.JSQualifiedElementIndex;
 import com.intellij.openapi.extensions.Extensions;
 import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.impl.scopes.ModuleWithDependenciesScope;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.vfs.JarFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.stubs.StubIndex;
+import com.intellij.psi.stubs.StubIndexImpl;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.util.containers.ContainerUtil;
 import com.intellij.util.indexing.AdditionalIndexedRootsScope;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
 
 import java.util.Collection;
+import java.util.Map;
 
 import static com.intellij.lang.javascript.psi.JSCommonTypeNames.*;
 
@@ -86,8 +101,117 @@ public class ActionScriptClassResolver extends JSClassResolver {
     return JSInheritanceUtil.isParentClass(clazz, (JSClass)parentClass, strict);
   }
 
+  /**
+   * Results are memoized per project until definitions in the JS stub index or project roots change, so the candidates of a qualified
+   * name are loaded and filtered once, not on every highlighting pass. Edits that don't change stubs, like most edits of MXML
+   * attributes, keep the cache.
+   * Only scopes known to be equal for the same search area are memoized: a scope compared by identity may be created per call, it would
+   * never hit and only grow the map.
+   */
   protected PsiElement doFindClassByQName(@NotNull String link, final JavaScriptIndex index, GlobalSearchScope searchScope,
                                           boolean allowFileLocalSymbols, @NotNull DialectOptionHolder dialect) {
+    final Project project = index.getProject();
+    if (!isCacheableScope(searchScope, project)) {
+      return doFindClassByQNameNoCache(link, index, searchScope, allowFileLocalSymbols);
+    }
+
+    final Map<QNameResolveKey, Object> cache = getQNameResolveCache(project);
+    final QNameResolveKey key = new QNameResolveKey(link, searchScope, allowFileLocalSymbols, dialect);
+    final Object cached = cache.get(key);
+    if (cached == NOT_FOUND) return null;
+    if (cached instanceof PsiElement && ((PsiElement)cached).isValid()) return (PsiElement)cached;
+
+    final PsiElement result = doFindClassByQNameNoCache(link, index, searchScope, allowFileLocalSymbols);
+    cache.put(key, result != null ? result : NOT_FOUND);
+    return result;
+  }
+
+  private static Map<QNameResolveKey, Object> getQNameResolveCache(@NotNull final Project project) {
+    return CachedValuesManager.getManager(project).getCachedValue(
+      project, ourQNameResolveCacheKey,
+      () -> CachedValueProvider.Result.create(ContainerUtil.newConcurrentMap(),
+                                              getQualifiedElementIndexTracker(project),
+                                              ProjectRootManager.getInstance(project)), false);
+  }
+
+  /**
+   * Changes when the qualified names defined in the project or libraries change, i.e. when {@link JSQualifiedElementIndex} is updated
+   */
+  private static ModificationTracker getQualifiedElementIndexTracker(@NotNull final Project project) {
+    return () -> ((StubIndexImpl)StubIndex.getInstance()).getIndexModificationStamp(JSQualifiedElementIndex.KEY, project);
+  }
+
+  /**
+   * @return the memoized result, <code>null</code> if nothing is memoized for the name and scope
+   */
+  @TestOnly
+  @Nullable
+  public static Ref<PsiElement> getCachedResult(@NotNull final String link, @NotNull final GlobalSearchScope scope) {
+    final Project project = scope.getProject();
+    assert project != null;
+    for (Map.Entry<QNameResolveKey, Object> entry : getQNameResolveCache(project).entrySet()) {
+      if (entry.getKey().myQName.equals(link) && entry.getKey().myScope.equals(scope)) {
+        final Object value = entry.getValue();
+        return Ref.create(value == NOT_FOUND ? null : (PsiElement)value);
+      }
+    }
+    return null;
+  }
+
+  private static final Key<CachedValue<Map<QNameResolveKey, Object>>> ourQNameResolveCacheKey = Key.create("as.class.by.qname.cache");
+  private static final Object NOT_FOUND = new Object();
+
+  // catalog.xml timestamp of a swc, valid while the swc file timestamp is the same
+  private static final Map<VirtualFile, Pair<Long, Long>> ourSwcTimestamps = ContainerUtil.createConcurrentWeakMap();
+
+  private static boolean isCacheableScope(@NotNull final GlobalSearchScope scope, @NotNull final Project project) {
+    if (scope == GlobalSearchScope.allScope(project) || scope == GlobalSearchScope.projectScope(project)) return true;
+
+    // exact classes: a subclass may change what the scope contains without changing equals()
+    final Class<? extends GlobalSearchScope> scopeClass = scope.getClass();
+    if (scopeClass == ModuleWithDependenciesScope.class || scopeClass == ActionScriptResolveScopeProvider.ModuleResolveScope.class) {
+      return true;
+    }
+    return scopeClass == FlexStylesIndexableSetContributor.EnlargedScope.class &&
+           isCacheableScope(((FlexStylesIndexableSetContributor.EnlargedScope)scope).getBaseScope(), project);
+  }
+
+  private static class QNameResolveKey {
+    private final String myQName;
+    private final GlobalSearchScope myScope;
+    private final boolean myAllowFileLocalSymbols;
+    private final DialectOptionHolder myDialect;
+
+    private QNameResolveKey(final String qName,
+                            final GlobalSearchScope scope,
+                            final boolean allowFileLocalSymbols,
+                            final DialectOptionHolder dialect) {
+      myQName = qName;
+      myScope = scope;
+      myAllowFileLocalSymbols = allowFileLocalSymbols;
+      myDialect = dialect;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) return true;
+      if (!(o instanceof QNameResolveKey)) return false;
+
+      final QNameResolveKey key = (QNameResolveKey)o;
+      return myAllowFileLocalSymbols == key.myAllowFileLocalSymbols &&
+             myQName.equals(key.myQName) &&
+             myScope.equals(key.myScope) &&
+             myDialect == key.myDialect;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * myQName.hashCode() + myScope.hashCode();
+    }
+  }
+
+  private PsiElement doFindClassByQNameNoCache(@NotNull String link, final JavaScriptIndex index, GlobalSearchScope searchScope,
+                                               boolean allowFileLocalSymbols) {
     Project project = index.getProject();
     boolean clazzShouldBeTakenFromOurLibrary = OBJECT_CLASS_NAME.equals(link) || "Arguments".equals(link);
     if (clazzShouldBeTakenFromOurLibrary && !(searchScope instanceof AdditionalIndexedRootsScope)) {
@@ -140,10 +264,10 @@ public class ActionScriptClassResolver extends JSClassResolver {
         else {
           if (resultFromLibrariesTimestamp == 0) {
             // was not initialized yet
-            resultFromLibrariesTimestamp = getResolveResultTimestamp(resultFromLibraries);
+            resultFromLibrariesTimestamp = getLibraryTimestamp(resultFromLibraries);
           }
 
-          final long classTimestamp = getResolveResultTimestamp(clazz);
+          final long classTimestamp = getLibraryTimestamp(clazz);
           if (classTimestamp > resultFromLibrariesTimestamp) {
             resultFromLibraries = clazz;
             resultFromLibrariesTimestamp = classTimestamp;
@@ -164,6 +288,27 @@ public class ActionScriptClassResolver extends JSClassResolver {
     return result;
   }
 
+  /**
+   * {@link #getResolveResultTimestamp} reads catalog.xml of the swc, it is done once per swc version
+   */
+  private long getLibraryTimestamp(@NotNull final PsiElement element) {
+    final VirtualFile file = element.getContainingFile().getVirtualFile();
+    final VirtualFile swcFile = file == null ? null : JarFileSystem.getInstance().getVirtualFileForJar(file);
+    if (swcFile == null) {
+      return getResolveResultTimestamp(element);
+    }
+
+    final long swcTimestamp = swcFile.getTimeStamp();
+    final Pair<Long, Long> cached = ourSwcTimestamps.get(swcFile);
+    if (cached != null && cached.first == swcTimestamp) {
+      return cached.second;
+    }
+
+    final long timestamp = getResolveResultTimestamp(element);
+    ourSwcTimestamps.put(swcFile, Pair.create(swcTimestamp, timestamp));
+    return timestamp;
+  }
+
   private static boolean isBuiltInClassName(final String className) {
     return OBJECT_CLASS_NAME.equals(className) ||
            BOOLEAN_CLASS_NAME.equals(className) ||
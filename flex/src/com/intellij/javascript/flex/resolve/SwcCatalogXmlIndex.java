@@ -0,0 +1,163 @@
+package com.intellij.javascript.flex.resolve;
+
+import com.intellij.openapi.fileTypes.StdFileTypes;
+import com.intellij.openapi.vfs.JarFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.IOUtil;
+import com.intellij.util.io.KeyDescriptor;
+import gnu.trove.THashMap;
+import gnu.trove.TObjectLongHashMap;
+import gnu.trove.TObjectLongProcedure;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Keeps parsed content of <i>catalog.xml</i> files located in the root of swc (and ane) files, so that qualified name timestamps and
+ * MXML components are read in binary form and catalog.xml is not parsed again after IDE restart.
+ * There is exactly one value per catalog.xml file, its key is the path of the file (see {@link #getKey(VirtualFile)}), so a lookup reads
+ * only the value of that file.
+ */
+public class SwcCatalogXmlIndex extends FileBasedIndexExtension<String, SwcCatalogXmlUtil.CatalogDigest> {
+
+  public static final ID<String, SwcCatalogXmlUtil.CatalogDigest> INDEX_ID = ID.create("flex.swc.catalog.xml.index");
+
+  private static final int VERSION = 2;
+
+  private static final DataExternalizer<SwcCatalogXmlUtil.CatalogDigest> ourDataExternalizer =
+    new DataExternalizer<SwcCatalogXmlUtil.CatalogDigest>() {
+      @Override
+      public void save(@NotNull final DataOutput out, final SwcCatalogXmlUtil.CatalogDigest value) throws IOException {
+        DataInputOutputUtil.writeINT(out, value.mySwfNameToQNameWithTimestampMap.size());
+        for (Map.Entry<String, TObjectLongHashMap<String>> entry : value.mySwfNameToQNameWithTimestampMap.entrySet()) {
+          IOUtil.writeUTF(out, entry.getKey());
+          final TObjectLongHashMap<String> qNameWithTimestampMap = entry.getValue();
+          DataInputOutputUtil.writeINT(out, qNameWithTimestampMap.size());
+          final IOException[] exception = new IOException[1];
+          qNameWithTimestampMap.forEachEntry(new TObjectLongProcedure<String>() {
+            @Override
+            public boolean execute(final String qName, final long timestamp) {
+              try {
+                IOUtil.writeUTF(out, qName);
+                DataInputOutputUtil.writeLONG(out, timestamp);
+                return true;
+              }
+              catch (IOException e) {
+                exception[0] = e;
+                return false;
+              }
+            }
+          });
+          if (exception[0] != null) throw exception[0];
+        }
+
+        DataInputOutputUtil.writeINT(out, value.myComponents.length);
+        for (SwcCatalogXmlUtil.ComponentFromCatalogXml component : value.myComponents) {
+          IOUtil.writeUTF(out, component.myName);
+          IOUtil.writeUTF(out, component.myClassFqn);
+          IOUtil.writeUTF(out, component.myUri);
+          out.writeBoolean(component.myIcon != null);
+          if (component.myIcon != null) {
+            IOUtil.writeUTF(out, component.myIcon);
+          }
+        }
+      }
+
+      @Override
+      public SwcCatalogXmlUtil.CatalogDigest read(@NotNull final DataInput in) throws IOException {
+        final int swfCount = DataInputOutputUtil.readINT(in);
+        final THashMap<String, TObjectLongHashMap<String>> swfNameToQNameWithTimestampMap = new THashMap<>(swfCount);
+        for (int i = 0; i < swfCount; i++) {
+          final String swfName = IOUtil.readUTF(in);
+          final int qNameCount = DataInputOutputUtil.readINT(in);
+          final TObjectLongHashMap<String> qNameWithTimestampMap = new TObjectLongHashMap<>(qNameCount);
+          for (int j = 0; j < qNameCount; j++) {
+            qNameWithTimestampMap.put(IOUtil.readUTF(in), DataInputOutputUtil.readLONG(in));
+          }
+          swfNameToQNameWithTimestampMap.put(swfName, qNameWithTimestampMap);
+        }
+
+        final int componentCount = DataInputOutputUtil.readINT(in);
+        final SwcCatalogXmlUtil.ComponentFromCatalogXml[] components = new SwcCatalogXmlUtil.ComponentFromCatalogXml[componentCount];
+        for (int i = 0; i < componentCount; i++) {
+          final String name = IOUtil.readUTF(in);
+          final String classFqn = IOUtil.readUTF(in);
+          final String uri = IOUtil.readUTF(in);
+          final String icon = in.readBoolean() ? IOUtil.readUTF(in) : null;
+          components[i] = new SwcCatalogXmlUtil.ComponentFromCatalogXml(name, classFqn, uri, icon);
+        }
+
+        return new SwcCatalogXmlUtil.CatalogDigest(swfNameToQNameWithTimestampMap, components);
+      }
+    };
+
+  @NotNull
+  @Override
+  public ID<String, SwcCatalogXmlUtil.CatalogDigest> getName() {
+    return INDEX_ID;
+  }
+
+  @NotNull
+  @Override
+  public DataIndexer<String, SwcCatalogXmlUtil.CatalogDigest, FileContent> getIndexer() {
+    return new DataIndexer<String, SwcCatalogXmlUtil.CatalogDigest, FileContent>() {
+      @Override
+      @NotNull
+      public Map<String, SwcCatalogXmlUtil.CatalogDigest> map(@NotNull final FileContent inputData) {
+        return Collections.singletonMap(getKey(inputData.getFile()), SwcCatalogXmlUtil.parseCatalogXml(inputData.getContentAsText()));
+      }
+    };
+  }
+
+  @NotNull
+  static String getKey(@NotNull final VirtualFile catalogFile) {
+    return catalogFile.getPath();
+  }
+
+  @NotNull
+  @Override
+  public KeyDescriptor<String> getKeyDescriptor() {
+    return EnumeratorStringDescriptor.INSTANCE;
+  }
+
+  @NotNull
+  @Override
+  public DataExternalizer<SwcCatalogXmlUtil.CatalogDigest> getValueExternalizer() {
+    return ourDataExternalizer;
+  }
+
+  @NotNull
+  @Override
+  public FileBasedIndex.InputFilter getInputFilter() {
+    return new DefaultFileTypeSpecificInputFilter(StdFileTypes.XML) {
+      @Override
+      public boolean acceptInput(@NotNull final VirtualFile file) {
+        return isCatalogXmlInSwc(file);
+      }
+    };
+  }
+
+  static boolean isCatalogXmlInSwc(@NotNull final VirtualFile file) {
+    if (!"catalog.xml".equals(file.getName()) || !(file.getFileSystem() instanceof JarFileSystem)) return false;
+    final VirtualFile parent = file.getParent();
+    return parent != null && parent.getParent() == null;
+  }
+
+  @Override
+  public boolean dependsOnFileContent() {
+    return true;
+  }
+
+  @Override
+  public int getVersion() {
+    return VERSION;
+  }
+}
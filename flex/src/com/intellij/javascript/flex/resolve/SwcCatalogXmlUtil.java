@@ -2,7 +2,8 @@ package com.intellij.javascript.flex.resolve;
 
 import com.intellij.lang.javascript.index.JavaScriptIndex;
 import com.intellij.lang.javascript.psi.ecmal4.JSQualifiedNamedElement;
-import com.intellij.openapi.util.JDOMUtil;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.text.StringUtil;
@@ -12,35 +13,30 @@ import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.impl.source.parsing.xml.XmlBuilder;
 import com.intellij.psi.impl.source.parsing.xml.XmlBuilderDriver;
+import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.util.Consumer;
 import com.intellij.util.containers.Stack;
 import com.intellij.util.containers.StringInterner;
+import com.intellij.util.indexing.FileBasedIndex;
 import gnu.trove.THashMap;
 import gnu.trove.TObjectLongHashMap;
-import org.jdom.Element;
-import org.jdom.JDOMException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 public class SwcCatalogXmlUtil {
 
   /**
    * <code><b>Pair.first</b></code> is modification stamp of <i>catalog.xml</i> file when this user data was put<br>
-   * <code><b>Pair.second</b></code> is {@code Map<String, TObjectLongHashMap<String>>} where:<br>
-   * &nbsp;&nbsp;&nbsp;&nbsp;<code><b>key</b></code> is swf file name inside swc file (so far I have seen only <i>library.swf</i> name, but swc format allows any file name, it is mentioned in <i>catalog.xml</i>)<br>
-   * &nbsp;&nbsp;&nbsp;&nbsp;<code><b>value</b></code> is map from FQN (of JSQualifiedElement) to its timestamp as written inside <i>catalog.xml</i>.
+   * <code><b>Pair.second</b></code> is the content of <i>catalog.xml</i>, taken from {@link SwcCatalogXmlIndex} if possible
    */
-  private static final Key<Pair<Long, THashMap<String, TObjectLongHashMap<String>>>> MOD_STAMP_AND_SWF_NAME_TO_QNAME_WITH_TIMESTAMP_MAP =
-    Key.create("MOD_STAMP_AND_SWF_NAME_TO_QNAME_WITH_TIMESTAMP_MAP");
+  private static final Key<Pair<Long, CatalogDigest>> MOD_STAMP_AND_CATALOG_DIGEST = Key.create("MOD_STAMP_AND_CATALOG_DIGEST");
   private static final Key<Long> TIMESTAMP_IN_CATALOG_XML = Key.create("TIMESTAMP_IN_CATALOG_XML");
 
-  private static final Key<Pair<Long, ComponentFromCatalogXml[]>> MOD_STAMP_AND_COMPONENTS_FROM_CATALOG_XML =
-    Key.create("MOD_STAMP_AND_COMPONENTS_FROM_CATALOG_XML");
-
   private static final Key<Pair<Long, ComponentFromManifest[]>> MOD_STAMP_AND_COMPONENTS_FROM_MANIFEST =
     Key.create("MOD_STAMP_AND_COMPONENTS_FROM_MANIFEST");
 
@@ -53,10 +49,10 @@ public class SwcCatalogXmlUtil {
     public final @NotNull String myUri;
     public final @Nullable String myIcon;
 
-    private ComponentFromCatalogXml(final @NotNull String name,
-                                    final @NotNull String classFqn,
-                                    final @NotNull String uri,
-                                    final @Nullable String icon) {
+    ComponentFromCatalogXml(final @NotNull String name,
+                            final @NotNull String classFqn,
+                            final @NotNull String uri,
+                            final @Nullable String icon) {
       myName = name;
       myClassFqn = classFqn;
       myUri = uri.intern(); // memory optimization
@@ -64,6 +60,23 @@ public class SwcCatalogXmlUtil {
     }
   }
 
+  /**
+   * Everything that is needed from <i>catalog.xml</i>:<br>
+   * <code><b>mySwfNameToQNameWithTimestampMap</b></code> keys are swf file names inside swc file (so far I have seen only <i>library.swf</i> name, but swc format allows any file name, it is mentioned in <i>catalog.xml</i>),
+   * values are maps from FQN (of JSQualifiedElement) to its timestamp as written inside <i>catalog.xml</i>;<br>
+   * <code><b>myComponents</b></code> are MXML components declared in <i>catalog.xml</i>.
+   */
+  public static class CatalogDigest {
+    final @NotNull THashMap<String, TObjectLongHashMap<String>> mySwfNameToQNameWithTimestampMap;
+    final @NotNull ComponentFromCatalogXml[] myComponents;
+
+    CatalogDigest(final @NotNull THashMap<String, TObjectLongHashMap<String>> swfNameToQNameWithTimestampMap,
+                  final @NotNull ComponentFromCatalogXml[] components) {
+      mySwfNameToQNameWithTimestampMap = swfNameToQNameWithTimestampMap;
+      myComponents = components;
+    }
+  }
+
   public static class ComponentFromManifest {
     public final @NotNull String myComponentName;
     public final @NotNull String myClassFqn;
@@ -147,109 +160,95 @@ public class SwcCatalogXmlUtil {
       return -1;
     }
 
-    Pair<Long, THashMap<String, TObjectLongHashMap<String>>> modStampAndSwfNameToQnameWithTimestampMap =
-      catalogFile.getUserData(MOD_STAMP_AND_SWF_NAME_TO_QNAME_WITH_TIMESTAMP_MAP);
-
-    if (modStampAndSwfNameToQnameWithTimestampMap == null
-        || modStampAndSwfNameToQnameWithTimestampMap.first != catalogFile.getModificationStamp()) {
-      final THashMap<String, TObjectLongHashMap<String>> swfNameToQnameWithTimestampMap = parseTimestampsFromCatalogXml(catalogFile);
-      modStampAndSwfNameToQnameWithTimestampMap = Pair.create(catalogFile.getModificationStamp(), swfNameToQnameWithTimestampMap);
-      catalogFile.putUserData(MOD_STAMP_AND_SWF_NAME_TO_QNAME_WITH_TIMESTAMP_MAP, modStampAndSwfNameToQnameWithTimestampMap);
-    }
-
-    final TObjectLongHashMap<String> qnameWithTimestampMap = modStampAndSwfNameToQnameWithTimestampMap.second.get(swfFile.getName());
+    final CatalogDigest catalogDigest = getCatalogDigest(psiElement.getProject(), catalogFile);
+    final TObjectLongHashMap<String> qnameWithTimestampMap = catalogDigest.mySwfNameToQNameWithTimestampMap.get(swfFile.getName());
     final long timestamp = qnameWithTimestampMap == null ? -1 : qnameWithTimestampMap.get(qName);
     psiElement.putUserData(TIMESTAMP_IN_CATALOG_XML, timestamp);
 
     return timestamp;
   }
 
-  @SuppressWarnings({"unchecked"})
-  private static THashMap<String, TObjectLongHashMap<String>> parseTimestampsFromCatalogXml(final @NotNull VirtualFile catalogFile) {
-    //  <swc xmlns="http://www.adobe.com/flash/swccatalog/9">
-    //    <libraries>
-    //      <library path="library.swf">                                                                    take swf name here
-    //        <script name="flash/sampler/StackFrame" mod="1256700285949" signatureChecksum="121164004" >   name attribute is not FQN, take only mod here
-    //          <def id="flash.sampler:Sample" />                                                           multiple defs possible
-    //          <def id="flash.sampler:clearSamples" />
-    //          ...
+  public static void processComponentsFromCatalogXml(final @Nullable Project project,
+                                                     final VirtualFile catalogFile,
+                                                     final Consumer<ComponentFromCatalogXml> consumer) {
+    for (final ComponentFromCatalogXml componentFromCatalogXml : getCatalogDigest(project, catalogFile).myComponents) {
+      consumer.consume(componentFromCatalogXml);
+    }
+  }
 
-    final THashMap<String, TObjectLongHashMap<String>> swfNameToQnameWithTimestampMap = new THashMap<>(1);
+  @NotNull
+  private static CatalogDigest getCatalogDigest(final @Nullable Project project, final @NotNull VirtualFile catalogFile) {
+    Pair<Long, CatalogDigest> modStampAndDigest = catalogFile.getUserData(MOD_STAMP_AND_CATALOG_DIGEST);
 
-    try {
-      final Element rootElement = JDOMUtil.load(catalogFile.getInputStream());
-      if (rootElement != null && "swc".equals(rootElement.getName())) {
-        for (final Element librariesElement : rootElement.getChildren("libraries", rootElement.getNamespace())) {
-          for (final Element libraryElement : librariesElement.getChildren("library", librariesElement.getNamespace())) {
-            final String swfName = libraryElement.getAttributeValue("path");
-            if (StringUtil.isEmpty(swfName)) {
-              continue;
-            }
-
-            final TObjectLongHashMap<String> qNameWithTimestampMap = new TObjectLongHashMap<>();
-            swfNameToQnameWithTimestampMap.put(swfName, qNameWithTimestampMap);
-
-            for (final Element scriptElement : libraryElement.getChildren("script", libraryElement.getNamespace())) {
-              final String mod = scriptElement.getAttributeValue("mod");
-              if (StringUtil.isEmpty(mod)) {
-                continue;
-              }
-
-              try {
-                final long timestamp = Long.parseLong(mod);
-
-                for (final Element defElement : scriptElement.getChildren("def", scriptElement.getNamespace())) {
-                  final String id = defElement.getAttributeValue("id");
-                  if (!StringUtil.isEmpty(id)) {
-                    final String fqn = id.replace(':', '.');
-                    qNameWithTimestampMap.put(fqn, timestamp);
-                  }
-                }
-              }
-              catch (NumberFormatException ignored) {/*ignore*/}
-            }
-          }
+    if (modStampAndDigest == null || modStampAndDigest.first != catalogFile.getModificationStamp()) {
+      CatalogDigest digest = getIndexedCatalogDigest(project, catalogFile);
+      if (digest == null) {
+        try {
+          digest = parseCatalogXml(VfsUtilCore.loadText(catalogFile));
+        }
+        catch (IOException e) {
+          digest = new CatalogDigest(new THashMap<>(), new ComponentFromCatalogXml[0]);
         }
       }
+      modStampAndDigest = Pair.create(catalogFile.getModificationStamp(), digest);
+      catalogFile.putUserData(MOD_STAMP_AND_CATALOG_DIGEST, modStampAndDigest);
     }
-    catch (JDOMException ignored) {/*ignore*/}
-    catch (IOException ignored) {/*ignore*/}
 
-    return swfNameToQnameWithTimestampMap;
+    return modStampAndDigest.second;
   }
 
-  public static void processComponentsFromCatalogXml(final VirtualFile catalogFile, final Consumer<ComponentFromCatalogXml> consumer) {
-    Pair<Long, ComponentFromCatalogXml[]> modStampAndComponents = catalogFile.getUserData(MOD_STAMP_AND_COMPONENTS_FROM_CATALOG_XML);
-
-    if (modStampAndComponents == null || modStampAndComponents.first != catalogFile.getModificationStamp()) {
-      final ComponentFromCatalogXml[] componentsFromCatalogXml = parseComponentsFromCatalogXml(catalogFile);
-      modStampAndComponents = Pair.create(catalogFile.getModificationStamp(), componentsFromCatalogXml);
-      catalogFile.putUserData(MOD_STAMP_AND_COMPONENTS_FROM_CATALOG_XML, modStampAndComponents);
+  @Nullable
+  private static CatalogDigest getIndexedCatalogDigest(final @Nullable Project project, final @NotNull VirtualFile catalogFile) {
+    if (project == null || project.isDisposed() || DumbService.isDumb(project) || !SwcCatalogXmlIndex.isCatalogXmlInSwc(catalogFile)) {
+      return null;
     }
 
-    for (final ComponentFromCatalogXml componentFromCatalogXml : modStampAndComponents.second) {
-      consumer.consume(componentFromCatalogXml);
-    }
+    final List<CatalogDigest> values = FileBasedIndex.getInstance()
+      .getValues(SwcCatalogXmlIndex.INDEX_ID, SwcCatalogXmlIndex.getKey(catalogFile), GlobalSearchScope.fileScope(project, catalogFile));
+    return values.isEmpty() ? null : values.get(0); // empty if catalog.xml is not in project roots
   }
 
-  private static ComponentFromCatalogXml[] parseComponentsFromCatalogXml(final VirtualFile catalogFile) {
-    final Collection<ComponentFromCatalogXml> result = new ArrayList<>();
+  @NotNull
+  static CatalogDigest parseCatalogXml(final @NotNull CharSequence catalogXmlText) {
+    //  <swc xmlns="http://www.adobe.com/flash/swccatalog/9">
+    //    <components>
+    //      <component className="spark.components:Button" name="Button" uri="library://ns.adobe.com/flex/spark" icon="..."/>
+    //      ...
+    //    <libraries>
+    //      <library path="library.swf">                                                                    take swf name here
+    //        <script name="flash/sampler/StackFrame" mod="1256700285949" signatureChecksum="121164004" >   name attribute is not FQN, take only mod here
+    //          <def id="flash.sampler:Sample" />                                                           multiple defs possible
+    //          <def id="flash.sampler:clearSamples" />
+    //          ...
+
+    final THashMap<String, TObjectLongHashMap<String>> swfNameToQnameWithTimestampMap = new THashMap<>(1);
+    final Collection<ComponentFromCatalogXml> components = new ArrayList<>();
 
     final XmlBuilder xmlBuilder = new XmlBuilderAdapter() {
       private static final String COMPONENT_LOCATION = ".swc.components.component";
+      private static final String LIBRARY_LOCATION = ".swc.libraries.library";
+      private static final String SCRIPT_LOCATION = ".swc.libraries.library.script";
+      private static final String DEF_LOCATION = ".swc.libraries.library.script.def";
       private static final String NAME = "name";
       private static final String CLASS_NAME = "className";
       private static final String URI = "uri";
       private static final String ICON = "icon";
+      private static final String PATH = "path";
+      private static final String MOD = "mod";
+      private static final String ID = "id";
 
       private String myNameAttr = null;
       private String myClassNameAttr = null;
       private String myUriAttr = null;
       private String myIconAttr = null;
 
+      private TObjectLongHashMap<String> myCurrentQNameWithTimestampMap = null;
+      private long myCurrentTimestamp = -1;
+
       @Override
       public void attribute(CharSequence name, CharSequence value, int start, int end) {
-        if (COMPONENT_LOCATION.equals(getLocation())) {
+        final String location = getLocation();
+        if (COMPONENT_LOCATION.equals(location)) {
           if (NAME.equals(name)) {
             myNameAttr = value.toString().trim();
           }
@@ -263,15 +262,35 @@ public class SwcCatalogXmlUtil {
             myIconAttr = value.toString().trim();
           }
         }
+        else if (DEF_LOCATION.equals(location)) {
+          if (ID.equals(name) && myCurrentQNameWithTimestampMap != null && myCurrentTimestamp != -1 && value.length() > 0) {
+            myCurrentQNameWithTimestampMap.put(value.toString().replace(':', '.'), myCurrentTimestamp);
+          }
+        }
+        else if (SCRIPT_LOCATION.equals(location)) {
+          if (MOD.equals(name)) {
+            try {
+              myCurrentTimestamp = Long.parseLong(value.toString());
+            }
+            catch (NumberFormatException ignored) {/*ignore*/}
+          }
+        }
+        else if (LIBRARY_LOCATION.equals(location)) {
+          if (PATH.equals(name) && value.length() > 0) {
+            myCurrentQNameWithTimestampMap = new TObjectLongHashMap<>();
+            swfNameToQnameWithTimestampMap.put(value.toString(), myCurrentQNameWithTimestampMap);
+          }
+        }
       }
 
       private final StringInterner myStringInterner = new StringInterner();
 
       @Override
       public void endTag(CharSequence localName, String namespace, int start, int end) {
-        if (COMPONENT_LOCATION.equals(getLocation())) {
+        final String location = getLocation();
+        if (COMPONENT_LOCATION.equals(location)) {
           if (StringUtil.isNotEmpty(myNameAttr) && StringUtil.isNotEmpty(myClassNameAttr) && StringUtil.isNotEmpty(myUriAttr)) {
-            result.add(
+            components.add(
               new ComponentFromCatalogXml(
                 new String(myNameAttr),
                 new String(myClassNameAttr.replace(":", ".")),
@@ -285,18 +304,20 @@ public class SwcCatalogXmlUtil {
           myUriAttr = null;
           myIconAttr = null;
         }
+        else if (SCRIPT_LOCATION.equals(location)) {
+          myCurrentTimestamp = -1;
+        }
+        else if (LIBRARY_LOCATION.equals(location)) {
+          myCurrentQNameWithTimestampMap = null;
+        }
 
         super.endTag(localName, namespace, start, end);
       }
     };
 
-    try {
-      new XmlBuilderDriver(VfsUtilCore.loadText(catalogFile)).build(xmlBuilder);
-    }
-    catch (IOException ignored) {/*ignore*/}
-
+    new XmlBuilderDriver(catalogXmlText).build(xmlBuilder);
 
-    return result.toArray(new ComponentFromCatalogXml[result.size()]);
+    return new CatalogDigest(swfNameToQnameWithTimestampMap, components.toArray(new ComponentFromCatalogXml[components.size()]));
   }
 
   public static void processManifestFile(final VirtualFile manifestFile, final Consumer<ComponentFromManifest> consumer) {
@@ -18,6 +18,7 @@ import com.intellij.psi.PsiCodeFragment;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.impl.ResolveScopeManager;
+import com.intellij.psi.search.DelegatingGlobalSearchScope;
 import com.intellij.psi.search.GlobalSearchScope;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -50,11 +51,22 @@ public class ActionScriptResolveScopeProvider extends JSElementResolveScopeProvi
             moduleScope, TypeScriptFileType.INSTANCE, JavaScriptFileType.INSTANCE
           )
         ));
-      return fileTypesScope.union(GlobalSearchScope.filesScope(project, JSCorePredefinedLibrariesProvider.getActionScriptPredefinedLibraryFiles()));
+      return new ModuleResolveScope(
+        fileTypesScope.union(GlobalSearchScope.filesScope(project, JSCorePredefinedLibrariesProvider.getActionScriptPredefinedLibraryFiles())),
+        module, includeTests);
     }
     return null;
   }
 
+  /**
+   * Equal for the same module, so that it may be used as a cache key
+   */
+  public static final class ModuleResolveScope extends DelegatingGlobalSearchScope {
+    private ModuleResolveScope(@NotNull final GlobalSearchScope scope, @NotNull final Module module, final boolean includeTests) {
+      super(scope, module, includeTests);
+    }
+  }
+
   @NotNull
   @Override
   public GlobalSearchScope getElementResolveScope(@NotNull PsiElement element) {
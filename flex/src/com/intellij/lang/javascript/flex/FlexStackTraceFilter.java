@@ -2,25 +2,28 @@ package com.intellij.lang.javascript.flex;
 
 import com.intellij.execution.filters.Filter;
 import com.intellij.execution.filters.HyperlinkInfo;
-import com.intellij.flex.FlexCommonUtils;
 import com.intellij.ide.util.DefaultPsiElementCellRenderer;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.fileEditor.OpenFileDescriptor;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.popup.JBPopup;
 import com.intellij.openapi.ui.popup.PopupChooserBuilder;
+import com.intellij.openapi.roots.ProjectRootModificationTracker;
 import com.intellij.openapi.util.io.FileUtil;
-import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
 import com.intellij.openapi.wm.WindowManager;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
 import com.intellij.psi.search.FilenameIndex;
 import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.psi.util.PsiUtilCore;
 import com.intellij.ui.awt.RelativePoint;
 import com.intellij.ui.components.JBList;
 import com.intellij.util.PathUtil;
+import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -29,13 +32,16 @@ import java.awt.*;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public class FlexStackTraceFilter implements Filter {
 
   public static final String GLOBAL_PREFIX = "global/";
   private final Project myProject;
 
+  private static final String TRACE = "[trace]";
   private static final String AT = "at ";
+  private static final String[] SOURCE_FILE_DOT_EXTENSIONS = {".as", ".mxml", ".fxg"};
 
   public FlexStackTraceFilter(Project project) {
     myProject = project;
@@ -50,61 +56,122 @@ public class FlexStackTraceFilter implements Filter {
     //    at Function/http://adobe.com/AS3/2006/builtin::apply()
     //    at mx.core::UIComponent/set initialized()[C:\autobuild\3.3.0\frameworks\projects\framework\src\mx\core\UIComponent.as:1169]
 
-    final String trimmed = StringUtil.trimStart(line, "[trace]").trim();
-    final int bracketOpenIndex = line.lastIndexOf('[');
-
-    if (!trimmed.startsWith(AT) || bracketOpenIndex < 0 || !trimmed.endsWith("]")) return null;
+    // Console may get thousands of such lines, so the line is scanned in place and strings are created only for real stack frames.
+    int atIndex = skipWhitespaces(line, 0);
+    if (line.startsWith(TRACE, atIndex)) {
+      atIndex = skipWhitespaces(line, atIndex + TRACE.length());
+    }
+    if (!line.startsWith(AT, atIndex)) return null;
 
     final int bracketCloseIndex = line.lastIndexOf(']');
-    final String pathAndLineNumber = FileUtil.toSystemIndependentName(line.substring(bracketOpenIndex + 1, bracketCloseIndex));
+    if (bracketCloseIndex < 0 || skipWhitespaces(line, bracketCloseIndex + 1) != line.length()) return null;
 
-    String filePath = pathAndLineNumber; // "E:\hudson\jobs\FlexUnit4-Flex4.1\workspace\FlexUnit4\src\org\flexunit\Assert.as:294"
+    final int bracketOpenIndex = line.lastIndexOf('[', bracketCloseIndex);
+    if (bracketOpenIndex < atIndex) return null;
+
+    final int pathStart = bracketOpenIndex + 1;
+    int pathEnd = bracketCloseIndex; // "E:\hudson\jobs\FlexUnit4-Flex4.1\workspace\FlexUnit4\src\org\flexunit\Assert.as:294"
     int lineNumber = -1;
 
-    final int colonIndex = pathAndLineNumber.lastIndexOf(':');
-    if (colonIndex > 0) {
-      try {
-        lineNumber = Integer.parseInt(pathAndLineNumber.substring(colonIndex + 1)) - 1; // 294 - 1 = 293
-        filePath =
-          pathAndLineNumber.substring(0, colonIndex);  // "E:\hudson\jobs\FlexUnit4-Flex4.1\workspace\FlexUnit4\src\org\flexunit\Assert.as"
+    final int colonIndex = line.lastIndexOf(':', bracketCloseIndex - 1);
+    if (colonIndex > pathStart) {
+      final int parsedLineNumber = parseNonNegativeInt(line, colonIndex + 1, bracketCloseIndex);
+      if (parsedLineNumber >= 0) {
+        lineNumber = parsedLineNumber - 1; // 294 - 1 = 293
+        pathEnd = colonIndex;  // "E:\hudson\jobs\FlexUnit4-Flex4.1\workspace\FlexUnit4\src\org\flexunit\Assert.as"
       }
-      catch (NumberFormatException ignore) {/*unlucky*/}
     }
 
-    if (filePath.startsWith("//")) return null;  // UNC path
+    if (isSlash(line, pathStart) && isSlash(line, pathStart + 1)) return null;  // UNC path
 
-    final String fileName = PathUtil.getFileName(filePath); // Assert.as
-    if (!FlexCommonUtils.isSourceFile(fileName)) return null; // Flex filter cares only about *.as and *.mxml
+    final int fileNameStart = Math.max(line.lastIndexOf('/', pathEnd - 1), line.lastIndexOf('\\', pathEnd - 1)) + 1;
+    if (fileNameStart < pathStart || !isSourceFileName(line, fileNameStart, pathEnd)) return null; // Flex filter cares only about *.as and *.mxml
+    final int extensionStart = line.lastIndexOf('.', pathEnd - 1);
 
-    final int atIndex = line.indexOf(AT);
-    String fqnInfo = line.substring(atIndex + AT.length(), bracketOpenIndex).trim(); // "org.flexunit::Assert$/fail()"
-    fqnInfo = StringUtil.trimStart(fqnInfo, GLOBAL_PREFIX); // for case like "global/org.flexunit.asserts::fail()"
+    int fqnStart = skipWhitespaces(line, atIndex + AT.length()); // "org.flexunit::Assert$/fail()"
+    if (line.startsWith(GLOBAL_PREFIX, fqnStart)) {
+      fqnStart += GLOBAL_PREFIX.length(); // for case like "global/org.flexunit.asserts::fail()"
+    }
 
-    final int slashOrParenIndex = StringUtil.indexOfAny(fqnInfo, "/(");
+    final int slashOrParenIndex = indexOfSlashOrParen(line, fqnStart, bracketOpenIndex);
+    if (slashOrParenIndex <= fqnStart) return null;
+
+    int fqnEnd = slashOrParenIndex; // "org.flexunit::Assert$"
+    if (line.charAt(fqnEnd - 1) == '$') fqnEnd--;
+
+    final int nameLength = extensionStart - fileNameStart;
+    final int nameStartInFqn = fqnEnd - nameLength;
+    final boolean fqnMatchesFileName =
+      nameStartInFqn >= fqnStart &&
+      line.regionMatches(nameStartInFqn, line, fileNameStart, nameLength) &&
+      (nameStartInFqn == fqnStart || nameStartInFqn - 2 >= fqnStart && line.startsWith("::", nameStartInFqn - 2));
+    if (!fqnMatchesFileName) return null;
+
+    final StringBuilder relativePathBuilder = new StringBuilder(fqnEnd - fqnStart + pathEnd - extensionStart);
+    for (int i = fqnStart; i < fqnEnd; i++) {
+      final char c = line.charAt(i);
+      if (c == ':' && i + 1 < fqnEnd && line.charAt(i + 1) == ':') {
+        relativePathBuilder.append('/');
+        i++;
+      }
+      else {
+        relativePathBuilder.append(c == '.' ? '/' : c);
+      }
+    }
+    relativePathBuilder.append(line, extensionStart, pathEnd);
+    final String relativePath = relativePathBuilder.toString(); // "org/flexunit/Assert.as"
 
-    if (slashOrParenIndex > 0) {
-      String somethingLikeFqn = fqnInfo.substring(0, slashOrParenIndex);  // "org.flexunit::Assert$"
+    final String filePath = FileUtil.toSystemIndependentName(line.substring(pathStart, pathEnd));
+    if (filePath.endsWith(relativePath)) {
+      final int textStartOffset = entireLength - line.length();
+      final int highlightEndOffset = textStartOffset + bracketCloseIndex;
 
-      somethingLikeFqn = StringUtil.trimEnd(somethingLikeFqn, "$");
+      return applyFlexStackTraceFilter(filePath, relativePath, lineNumber, highlightEndOffset);
+    }
 
-      final int dotIndex = fileName.lastIndexOf('.');
-      final String dotExtension = dotIndex < 0 ? "" : fileName.substring(dotIndex);
-      final String fileNameWithoutExtension = FileUtil.getNameWithoutExtension(fileName);
+    return null;
+  }
 
-      if (somethingLikeFqn.equals(fileNameWithoutExtension) || somethingLikeFqn.endsWith("::" + fileNameWithoutExtension)) {
-        final String relativePath =
-          StringUtil.replace(somethingLikeFqn, "::", "/").replace('.', '/') + dotExtension; // "org/flexunit/Assert.as"
+  private static int skipWhitespaces(final String line, int index) {
+    while (index < line.length() && Character.isWhitespace(line.charAt(index))) index++;
+    return index;
+  }
 
-        if (filePath.endsWith(relativePath)) {
-          final int textStartOffset = entireLength - line.length();
-          final int highlightEndOffset = textStartOffset + bracketCloseIndex;
+  private static boolean isSlash(final String line, final int index) {
+    return index < line.length() && (line.charAt(index) == '/' || line.charAt(index) == '\\');
+  }
 
-          return applyFlexStackTraceFilter(filePath, relativePath, lineNumber, highlightEndOffset);
-        }
-      }
+  /**
+   * @return parsed number or -1 if the region is empty or contains anything but digits
+   */
+  private static int parseNonNegativeInt(final String line, final int start, final int end) {
+    if (start >= end || end - start > 9) return -1;
+    int result = 0;
+    for (int i = start; i < end; i++) {
+      final char c = line.charAt(i);
+      if (c < '0' || c > '9') return -1;
+      result = result * 10 + (c - '0');
     }
+    return result;
+  }
 
-    return null;
+  private static int indexOfSlashOrParen(final String line, final int start, final int end) {
+    for (int i = start; i < end; i++) {
+      final char c = line.charAt(i);
+      if (c == '/' || c == '(') return i;
+    }
+    return -1;
+  }
+
+  private static boolean isSourceFileName(final String line, final int fileNameStart, final int fileNameEnd) {
+    // same as FlexCommonUtils.isSourceFile() but without extracting file name
+    for (String extension : SOURCE_FILE_DOT_EXTENSIONS) {
+      final int extensionStart = fileNameEnd - extension.length();
+      if (extensionStart > fileNameStart && line.regionMatches(true, extensionStart, extension, 0, extension.length())) {
+        return true;
+      }
+    }
+    return false;
   }
 
   @Nullable
@@ -112,16 +179,7 @@ public class FlexStackTraceFilter implements Filter {
                                            final String matchingRelativePath,
                                            final int lineNumber,
                                            final int highlightEndOffset) {
-    final Collection<VirtualFile> result = new ArrayList<>();
-
-    final Collection<VirtualFile> files =
-      FilenameIndex.getVirtualFilesByName(myProject, PathUtil.getFileName(filePath), GlobalSearchScope.allScope(myProject));
-
-    for (final VirtualFile file : files) {
-      if (file.getPath().endsWith(matchingRelativePath)) {
-        result.add(file);
-      }
-    }
+    final Collection<VirtualFile> result = findFilesByRelativePath(myProject, matchingRelativePath);
 
     if (!result.isEmpty()) {
       final int colonLineNumberLength = lineNumber > 0 ? (":".length() + String.valueOf(lineNumber).length()) : 0;
@@ -138,6 +196,31 @@ public class FlexStackTraceFilter implements Filter {
     return null;
   }
 
+  /**
+   * Test runs may print the same stack frames thousands of times, so files found by relative path are remembered per project
+   * until any VFS structure change or roots change.
+   */
+  private static Collection<VirtualFile> findFilesByRelativePath(final Project project, final String relativePath) {
+    final Map<String, Collection<VirtualFile>> cache = CachedValuesManager.getManager(project).getCachedValue(
+      project, () -> CachedValueProvider.Result.<Map<String, Collection<VirtualFile>>>create(
+        ContainerUtil.newConcurrentMap(), VirtualFileManager.VFS_STRUCTURE_MODIFICATIONS, ProjectRootModificationTracker.getInstance(project)));
+
+    Collection<VirtualFile> result = cache.get(relativePath);
+    if (result == null) {
+      result = new ArrayList<>();
+      final Collection<VirtualFile> files =
+        FilenameIndex.getVirtualFilesByName(project, PathUtil.getFileName(relativePath), GlobalSearchScope.allScope(project));
+
+      for (final VirtualFile file : files) {
+        if (file.getPath().endsWith(relativePath)) {
+          result.add(file);
+        }
+      }
+      cache.put(relativePath, result);
+    }
+    return result;
+  }
+
   private static class OpenOneOfSeveralFilesHyperlinkInfo implements HyperlinkInfo {
 
     private final Collection<VirtualFile> myFiles;
@@ -30,6 +30,7 @@ import com.intellij.openapi.roots.DependencyScope;
 import com.intellij.openapi.roots.ModuleRootManager;
 import com.intellij.openapi.startup.StartupManager;
 import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.util.Condition;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.util.SystemInfo;
@@ -341,6 +342,24 @@ public class FlexUtils {
     });
   }
 
+  /**
+   * Deletes files of a disk cache dir that were not used for the lifetime, a cache must update the modification time of a file it uses.
+   * Files for which {@code isObsolete} returns true (e.g. written by another cache version) are deleted regardless of their age.
+   * Must be called on a pooled thread.
+   */
+  public static void deleteUnusedCacheFiles(@NotNull final File dir, final long lifetime, @Nullable final Condition<File> isObsolete) {
+    final File[] files = dir.listFiles();
+    if (files == null) return;
+
+    // a temp file that is being written right now is new, it isn't affected
+    final long threshold = System.currentTimeMillis() - lifetime;
+    for (File file : files) {
+      if (file.lastModified() < threshold || isObsolete != null && isObsolete.value(file)) {
+        FileUtil.delete(file);
+      }
+    }
+  }
+
   private static void processMxmlTags(final XmlTag rootTag,
                                       final JSResolveUtil.JSInjectedFilesVisitor injectedFilesVisitor,
                                       Processor<XmlTag> processor) {
@@ -4,8 +4,8 @@ import com.intellij.compiler.CompilerConfiguration;
 import com.intellij.flex.FlexCommonBundle;
 import com.intellij.flex.FlexCommonUtils;
 import com.intellij.flex.build.FlexCompilerConfigFileUtilBase;
+import com.intellij.flex.build.SdkConfigFragments;
 import com.intellij.flex.model.bc.*;
-import com.intellij.flex.model.sdk.RslUtil;
 import com.intellij.javascript.flex.FlexApplicationComponent;
 import com.intellij.lang.javascript.JavaScriptSupportLoader;
 import com.intellij.lang.javascript.flex.FlexUtils;
@@ -67,11 +67,20 @@ public class CompilerConfigGenerator {
   private final boolean myFlexmojos;
   private final CompilerOptions myModuleLevelCompilerOptions;
   private final CompilerOptions myProjectLevelCompilerOptions;
+  private final SdkConfigFragments mySdkFragments;
 
   private CompilerConfigGenerator(final @NotNull Module module,
                                   final @NotNull FlexBuildConfiguration bc,
                                   final @NotNull CompilerOptions moduleLevelCompilerOptions,
                                   final @NotNull CompilerOptions projectLevelCompilerOptions) throws IOException {
+    this(module, bc, moduleLevelCompilerOptions, projectLevelCompilerOptions, new SdkConfigFragments());
+  }
+
+  private CompilerConfigGenerator(final @NotNull Module module,
+                                  final @NotNull FlexBuildConfiguration bc,
+                                  final @NotNull CompilerOptions moduleLevelCompilerOptions,
+                                  final @NotNull CompilerOptions projectLevelCompilerOptions,
+                                  final @NotNull SdkConfigFragments sdkFragments) throws IOException {
     myModule = module;
     myBC = bc;
     myFlexUnit = BCUtils.isFlexUnitBC(myBC);
@@ -83,13 +92,24 @@ public class CompilerConfigGenerator {
     myFlexmojos = mySdk.getSdkType() == FlexmojosSdkType.getInstance();
     myModuleLevelCompilerOptions = moduleLevelCompilerOptions;
     myProjectLevelCompilerOptions = projectLevelCompilerOptions;
+    mySdkFragments = sdkFragments;
   }
 
   public static VirtualFile getOrCreateConfigFile(final Module module, final FlexBuildConfiguration bc) throws IOException {
+    return getOrCreateConfigFile(module, bc, generateConfigFileText(module, bc, new SdkConfigFragments()));
+  }
+
+  /**
+   * Doesn't modify anything, so may be called for several build configurations in parallel.
+   */
+  public static String generateConfigFileText(final Module module,
+                                              final FlexBuildConfiguration bc,
+                                              final SdkConfigFragments sdkFragments) throws IOException {
     final CompilerConfigGenerator generator =
       new CompilerConfigGenerator(module, bc,
                                   FlexBuildConfigurationManager.getInstance(module).getModuleLevelCompilerOptions(),
-                                  FlexProjectLevelCompilerOptionsHolder.getInstance(module.getProject()).getProjectLevelCompilerOptions());
+                                  FlexProjectLevelCompilerOptionsHolder.getInstance(module.getProject()).getProjectLevelCompilerOptions(),
+                                  sdkFragments);
     String text = generator.generateConfigFileText();
 
     if (bc.isTempBCForCompilation()) {
@@ -100,7 +120,11 @@ public class CompilerConfigGenerator {
       text = FlexCompilerConfigFileUtilBase.mergeWithCustomConfigFile(text, bc.getCompilerOptions().getAdditionalConfigFilePath(),
                                                                       makeExternalLibsMerged, makeIncludedLibsMerged);
     }
+    return text;
+  }
 
+  public static VirtualFile getOrCreateConfigFile(final Module module, final FlexBuildConfiguration bc, final String text)
+    throws IOException {
     final String name =
       getConfigFileName(module, bc.getName(), PlatformUtils.getPlatformPrefix().toLowerCase(), BCUtils.getBCSpecifier(bc));
     return getOrCreateConfigFile(name, text);
@@ -330,34 +354,12 @@ public class CompilerConfigGenerator {
       addOption(rootElement, info, swcPath);
 
       if (linkageType == LinkageType.RSL) {
-        final List<String> rslUrls = RslUtil.getRslUrls(mySdk.getHomePath(), swcPath);
-        if (rslUrls.isEmpty()) continue;
-
-        final StringBuilder rslBuilder = new StringBuilder();
-        final String firstUrl = rslUrls.get(0);
-        rslBuilder
-          .append(swcPath)
-          .append(CompilerOptionInfo.LIST_ENTRY_PARTS_SEPARATOR)
-          .append(firstUrl)
-          .append(CompilerOptionInfo.LIST_ENTRY_PARTS_SEPARATOR);
-        if (firstUrl.startsWith("http://")) {
-          rslBuilder.append("http://fpdownload.adobe.com/pub/swz/crossdomain.xml");
-        }
-
-        if (rslUrls.size() > 1) {
-          final String secondUrl = rslUrls.get(1);
-          rslBuilder
-            .append(CompilerOptionInfo.LIST_ENTRY_PARTS_SEPARATOR)
-            .append(secondUrl)
-            .append(CompilerOptionInfo.LIST_ENTRY_PARTS_SEPARATOR);
-          if (secondUrl.startsWith("http://")) {
-            rslBuilder.append("http://fpdownload.adobe.com/pub/swz/crossdomain.xml");
-          }
-        }
+        final String rslInfo = mySdkFragments.getRslInfo(mySdk.getHomePath(), swcPath);
+        if (rslInfo == null) continue;
 
         final String swcName = PathUtil.getFileName(swcPath);
         final String libName = swcName.substring(0, swcName.length() - ".swc".length());
-        libNameToRslInfo.put(libName, rslBuilder.toString());
+        libNameToRslInfo.put(libName, rslInfo);
       }
     }
 
@@ -778,12 +780,23 @@ public class CompilerConfigGenerator {
   }
 
   private static VirtualFile getOrCreateConfigFile(final String fileName, final String text) throws IOException {
+    final File ioFile = new File(FlexCommonUtils.getTempFlexConfigsDirPath(), fileName);
+    final String digest = FlexCompilerConfigFileUtilBase.getContentDigest(text);
+
+    // no refresh and no write action if we have written exactly this text ourselves and nobody has touched the file since
+    if (FlexCompilerConfigFileUtilBase.isConfigFileUpToDate(ioFile, digest)) {
+      final VirtualFile file = LocalFileSystem.getInstance().findFileByIoFile(ioFile);
+      if (file != null && file.isValid()) {
+        return file;
+      }
+    }
 
     final VirtualFile existingConfigFile = FlexCompilationManager.refreshAndFindFileInWriteAction(
       FlexCommonUtils.getTempFlexConfigsDirPath() + "/" + fileName);
 
     if (existingConfigFile != null && existingConfigFile.isValid() &&
         Arrays.equals(text.getBytes(), existingConfigFile.contentsToByteArray())) {
+      FlexCompilerConfigFileUtilBase.rememberConfigFileContent(ioFile, digest);
       return existingConfigFile;
     }
 
@@ -825,6 +838,7 @@ public class CompilerConfigGenerator {
     if (!error.isNull()) {
       throw error.get();
     }
+    FlexCompilerConfigFileUtilBase.rememberConfigFileContent(ioFile, digest);
     return fileRef.get();
   }
 
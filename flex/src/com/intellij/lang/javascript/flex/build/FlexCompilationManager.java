@@ -3,6 +3,7 @@ package com.intellij.lang.javascript.flex.build;
 import com.intellij.CommonBundle;
 import com.intellij.flex.FlexCommonBundle;
 import com.intellij.flex.FlexCommonUtils;
+import com.intellij.flex.build.SdkConfigFragments;
 import com.intellij.lang.javascript.flex.FlexBundle;
 import com.intellij.lang.javascript.flex.projectStructure.model.FlexBuildConfiguration;
 import com.intellij.lang.javascript.flex.projectStructure.options.BCUtils;
@@ -11,6 +12,7 @@ import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.compiler.CompileContext;
 import com.intellij.openapi.compiler.CompilerMessage;
 import com.intellij.openapi.compiler.CompilerMessageCategory;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.util.NullableComputable;
@@ -20,11 +22,21 @@ import com.intellij.openapi.vfs.VirtualFile;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class FlexCompilationManager {
 
+  private static final Logger LOG = Logger.getInstance(FlexCompilationManager.class.getName());
+
+  // tasks report their completion through taskFinished(), this timeout is only needed to notice cancellation in time
+  private static final long CANCEL_CHECK_INTERVAL_MS = 200;
+
   private final CompileContext myCompileContext;
   private final int myMaxParallelCompilations;
   private final int myTasksAmount;
@@ -32,6 +44,12 @@ public class FlexCompilationManager {
   private final Collection<FlexCompilationTask> myInProgressTasks;
   private final Collection<FlexCompilationTask> myFinishedTasks;
 
+  // for each task: tasks from this compilation that build its dependencies and are not finished yet
+  private final Map<FlexCompilationTask, Collection<FlexCompilationTask>> myPendingPrerequisites;
+  private final Map<FlexCompilationTask, Collection<FlexCompilationTask>> myDependentTasks;
+  private final Map<FlexCompilationTask, TaskTimings> myTimings;
+  private final Semaphore myTaskFinishedSignal = new Semaphore(0);
+
   private boolean myCompilationFinished;
   private final FlexCompilerDependenciesCache myCompilerDependenciesCache;
 
@@ -40,17 +58,57 @@ public class FlexCompilationManager {
 
   public FlexCompilationManager(final CompileContext context, final Collection<FlexCompilationTask> compilationTasks) {
     myCompileContext = context;
-    myMaxParallelCompilations = FlexCompilerProjectConfiguration.getInstance(context.getProject()).MAX_PARALLEL_COMPILATIONS;
+    final FlexCompilerProjectConfiguration configuration = FlexCompilerProjectConfiguration.getInstance(context.getProject());
+    // each compilation may need up to HEAP_SIZE_MB
+    myMaxParallelCompilations =
+      Math.max(1, Math.min(Math.min(configuration.MAX_PARALLEL_COMPILATIONS, Runtime.getRuntime().availableProcessors()),
+                           FlexCommonUtils.getMaxCompilerProcessesByMemory(configuration.HEAP_SIZE_MB)));
     myTasksAmount = compilationTasks.size();
     myNotStartedTasks = new LinkedList<>(compilationTasks);
     myInProgressTasks = new LinkedList<>();
     myFinishedTasks = new LinkedList<>();
+    myPendingPrerequisites = new HashMap<>();
+    myDependentTasks = new HashMap<>();
+    myTimings = new HashMap<>();
     myCompilationFinished = false;
     myCompilerDependenciesCache = FlexCompilerHandler.getInstance(context.getProject()).getCompilerDependenciesCache();
+
+    buildDependencyGraph(compilationTasks);
+  }
+
+  private void buildDependencyGraph(final Collection<FlexCompilationTask> tasks) {
+    final long now = System.nanoTime();
+
+    for (FlexCompilationTask task : tasks) {
+      final Collection<FlexCompilationTask> prerequisites = new HashSet<>();
+      for (FlexCompilationTask otherTask : tasks) {
+        //noinspection ConstantConditions
+        if (otherTask != task && task.getDependencies().contains(otherTask.getBC())) {
+          prerequisites.add(otherTask);
+
+          Collection<FlexCompilationTask> dependents = myDependentTasks.get(otherTask);
+          if (dependents == null) {
+            dependents = new ArrayList<>();
+            myDependentTasks.put(otherTask, dependents);
+          }
+          dependents.add(task);
+        }
+      }
+
+      myPendingPrerequisites.put(task, prerequisites);
+
+      final TaskTimings timings = new TaskTimings();
+      if (prerequisites.isEmpty()) {
+        timings.readyTime = now;
+      }
+      myTimings.put(task, timings);
+    }
   }
 
   public void compile() {
     try {
+      prepareConfigFileTexts();
+
       while (!myNotStartedTasks.isEmpty() || !myInProgressTasks.isEmpty()) {
 
         if (myCompileContext.getProgressIndicator().isCanceled()) {
@@ -64,12 +122,8 @@ public class FlexCompilationManager {
         startNewTaskIfPossible();
         updateProgressIndicator();
 
-        try {
-          //noinspection BusyWait
-          Thread.sleep(200);
-        }
-        catch (InterruptedException e) {
-          assert false;
+        if (!myNotStartedTasks.isEmpty() || !myInProgressTasks.isEmpty()) {
+          waitForFinishedTask();
         }
       }
     }
@@ -77,10 +131,70 @@ public class FlexCompilationManager {
       //noinspection SynchronizeOnThis
       synchronized (this) {
         myCompilationFinished = true;
+        myCompilerDependenciesCache.save();
       }
+      logTimings();
     }
   }
 
+  /**
+   * Config file generation walks dependencies, libraries and SDK roots of each BC and doesn't depend on other tasks,
+   * so it is done for all tasks in parallel, sharing SDK-related parts between them.
+   * Runtime-loaded modules are the exception: their config refers to the link report of the main application, which exists only
+   * after the main application is compiled, so they generate their config when they start.
+   */
+  private void prepareConfigFileTexts() {
+    final SdkConfigFragments sdkFragments = new SdkConfigFragments();
+    final Queue<FlexCompilationTask> tasks = new ConcurrentLinkedQueue<>();
+    for (FlexCompilationTask task : myNotStartedTasks) {
+      if (!BCUtils.isRLMTemporaryBC(task.getBC())) {
+        tasks.add(task);
+      }
+    }
+    final int threads = Math.min(tasks.size(), Runtime.getRuntime().availableProcessors());
+    if (threads <= 1) return; // nothing to parallelize, the task will generate its config itself
+
+    final long start = System.currentTimeMillis();
+    final Collection<Future<?>> futures = new ArrayList<>(threads);
+    for (int i = 0; i < threads; i++) {
+      futures.add(ApplicationManager.getApplication().executeOnPooledThread(() -> {
+        FlexCompilationTask task;
+        while (!myCompileContext.getProgressIndicator().isCanceled() && (task = tasks.poll()) != null) {
+          task.prepareConfigFileText(sdkFragments);
+        }
+      }));
+    }
+
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      }
+      catch (InterruptedException | ExecutionException e) {
+        LOG.warn(e);
+      }
+    }
+
+    LOG.debug("Config files for " + myTasksAmount + " tasks generated in " + (System.currentTimeMillis() - start) + " ms");
+  }
+
+  private void waitForFinishedTask() {
+    try {
+      if (myTaskFinishedSignal.tryAcquire(CANCEL_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+        myTaskFinishedSignal.drainPermits();
+      }
+    }
+    catch (InterruptedException e) {
+      assert false;
+    }
+  }
+
+  /**
+   * Called by a task (from any thread) as soon as it has finished or has been cancelled; wakes up the scheduling loop.
+   */
+  void taskFinished(final FlexCompilationTask task) {
+    myTaskFinishedSignal.release();
+  }
+
   public synchronized void addMessage(final FlexCompilationTask task,
                                       CompilerMessageCategory category,
                                       final String message,
@@ -142,7 +256,7 @@ public class FlexCompilationManager {
       FlexCompilationTask task = iterator.next();
       if (task.isFinished()) {
         iterator.remove();
-        myFinishedTasks.add(task);
+        onTaskFinished(task);
 
         if (task.isCompilationFailed()) {
           final Collection<FlexCompilationTask> cancelledTasks = cancelNotStartedDependentTasks(task);
@@ -182,13 +296,40 @@ public class FlexCompilationManager {
         else {
           //noinspection SynchronizeOnThis
           synchronized (this) {
-            myCompilerDependenciesCache.cacheBC(task.getModule(), task.getBC(), task.getConfigFiles());
+            myCompilerDependenciesCache.cacheBC(task.getModule(), task.getBC(), task.getConfigFiles(), task.getConfigFileText());
           }
         }
       }
     }
   }
 
+  private void onTaskFinished(final FlexCompilationTask task) {
+    myFinishedTasks.add(task);
+
+    final long now = System.nanoTime();
+    final TaskTimings timings = myTimings.get(task);
+    timings.finishTime = now;
+
+    long longestPrerequisitePath = 0;
+    for (FlexCompilationTask otherTask : myTimings.keySet()) {
+      //noinspection ConstantConditions
+      if (otherTask != task && task.getDependencies().contains(otherTask.getBC())) {
+        longestPrerequisitePath = Math.max(longestPrerequisitePath, myTimings.get(otherTask).criticalPath);
+      }
+    }
+    timings.criticalPath = longestPrerequisitePath + timings.getRunTime();
+
+    final Collection<FlexCompilationTask> dependents = myDependentTasks.get(task);
+    if (dependents != null) {
+      for (FlexCompilationTask dependent : dependents) {
+        final Collection<FlexCompilationTask> prerequisites = myPendingPrerequisites.get(dependent);
+        if (prerequisites.remove(task) && prerequisites.isEmpty()) {
+          myTimings.get(dependent).readyTime = now;
+        }
+      }
+    }
+  }
+
   private String getMessagePrefix(final FlexCompilationTask task) {
     return "[" + task.getPresentableName() + "] ";
   }
@@ -206,19 +347,13 @@ public class FlexCompilationManager {
 
   private void appendAndCancelNotStartedDependentTasks(final Collection<FlexCompilationTask> cancelledTasks,
                                                        final FlexCompilationTask task) {
-    final Collection<FlexCompilationTask> tasksToCancel = new ArrayList<>();
+    final Collection<FlexCompilationTask> dependents = myDependentTasks.get(task);
+    if (dependents == null) return;
 
-    for (FlexCompilationTask notStartedTask : myNotStartedTasks) {
-      //noinspection ConstantConditions
-      if (notStartedTask.getDependencies().contains(task.getBC())) {
-        tasksToCancel.add(notStartedTask);
-      }
-    }
-
-    for (FlexCompilationTask taskToCancel : tasksToCancel) {
-      taskToCancel.cancel();
+    for (FlexCompilationTask taskToCancel : dependents) {
       if (myNotStartedTasks.remove(taskToCancel)) {
-        myFinishedTasks.add(taskToCancel);
+        taskToCancel.cancel();
+        onTaskFinished(taskToCancel);
         cancelledTasks.add(taskToCancel);
         appendAndCancelNotStartedDependentTasks(cancelledTasks, taskToCancel);
       }
@@ -233,65 +368,72 @@ public class FlexCompilationManager {
       final FlexCompilationTask task = iterator.next();
       if (module == task.getModule() && bc.getName().equals(task.getBC().getName()) && BCUtils.isRLMTemporaryBC(task.getBC())) {
         iterator.remove();
-        myFinishedTasks.add(task);
+        onTaskFinished(task);
         tasks.add(task);
       }
     }
   }
 
   private void startNewTaskIfPossible() {
-    FlexCompilationTask taskToStart = null;
+    while (!myNotStartedTasks.isEmpty() && canStartOneMoreTask()) {
+      final FlexCompilationTask taskToStart = findTaskToStart();
+      if (taskToStart == null) return;
 
-    if (!myNotStartedTasks.isEmpty() && myInProgressTasks.size() < myMaxParallelCompilations) {
-      boolean allTasksHaveDependenciesOnlyInNotStarted = true; // to handle cyclic dependencies
+      myNotStartedTasks.remove(taskToStart);
+      myTimings.get(taskToStart).startTime = System.nanoTime();
 
-      for (FlexCompilationTask task : myNotStartedTasks) {
-
-        if (BCUtils.isRLMTemporaryBC(task.getBC()) && !isMainAppCompiledForRLM(task.getModule(), task.getBC())) {
-          allTasksHaveDependenciesOnlyInNotStarted = false;
-          continue;
-        }
+      if (myCompilerDependenciesCache.isNothingChangedSincePreviousCompilation(taskToStart.getModule(), taskToStart.getBC(),
+                                                                               taskToStart.getConfigFileText())) {
+        addMessage(taskToStart, CompilerMessageCategory.INFORMATION, FlexBundle.message("compilation.skipped.because.nothing.changed"),
+                   null, -1, -1);
+        taskToStart.cancel();
+        onTaskFinished(taskToStart);
 
-        if (hasDependenciesIn(task, myInProgressTasks)) {
-          allTasksHaveDependenciesOnlyInNotStarted = false;
-          continue;
+        try {
+          FlexCompilationUtils.performPostCompileActions(taskToStart.getModule(), taskToStart.getBC(), Collections.emptyList());
         }
-        if (hasDependenciesIn(task, myNotStartedTasks)) {
-          continue;
+        catch (FlexCompilerException e) {
+          addMessage(taskToStart, CompilerMessageCategory.ERROR, e.getMessage(), e.getUrl(), e.getLine(), e.getColumn());
         }
-
-        taskToStart = task;
-        break;
       }
-
-      if (taskToStart == null && allTasksHaveDependenciesOnlyInNotStarted) {
-        taskToStart = myNotStartedTasks.iterator().next(); // just take any from cycle dependencies
+      else {
+        taskToStart.start(this);
+        myInProgressTasks.add(taskToStart);
       }
+    }
+  }
 
-      if (taskToStart != null) {
-        myNotStartedTasks.remove(taskToStart);
+  @Nullable
+  private FlexCompilationTask findTaskToStart() {
+    boolean allTasksHaveDependenciesOnlyInNotStarted = true; // to handle cyclic dependencies
 
-        if (myCompilerDependenciesCache.isNothingChangedSincePreviousCompilation(taskToStart.getModule(), taskToStart.getBC())) {
-          addMessage(taskToStart, CompilerMessageCategory.INFORMATION, FlexBundle.message("compilation.skipped.because.nothing.changed"),
-                     null, -1, -1);
-          taskToStart.cancel();
-          myFinishedTasks.add(taskToStart);
+    for (FlexCompilationTask task : myNotStartedTasks) {
+      if (BCUtils.isRLMTemporaryBC(task.getBC()) && !isMainAppCompiledForRLM(task.getModule(), task.getBC())) {
+        allTasksHaveDependenciesOnlyInNotStarted = false;
+        continue;
+      }
 
-          try {
-            FlexCompilationUtils.performPostCompileActions(taskToStart.getModule(), taskToStart.getBC(), Collections.emptyList());
-          }
-          catch (FlexCompilerException e) {
-            addMessage(taskToStart, CompilerMessageCategory.ERROR, e.getMessage(), e.getUrl(), e.getLine(), e.getColumn());
+      final Collection<FlexCompilationTask> prerequisites = myPendingPrerequisites.get(task);
+      if (prerequisites.isEmpty()) {
+        return task;
+      }
+
+      if (allTasksHaveDependenciesOnlyInNotStarted) {
+        for (FlexCompilationTask prerequisite : prerequisites) {
+          if (myInProgressTasks.contains(prerequisite)) {
+            allTasksHaveDependenciesOnlyInNotStarted = false;
+            break;
           }
         }
-        else {
-          taskToStart.start(this);
-          myInProgressTasks.add(taskToStart);
-        }
-
-        startNewTaskIfPossible();
       }
     }
+
+    return allTasksHaveDependenciesOnlyInNotStarted ? myNotStartedTasks.iterator().next() // just take any from cycle dependencies
+                                                    : null;
+  }
+
+  private boolean canStartOneMoreTask() {
+    return myInProgressTasks.size() < myMaxParallelCompilations;
   }
 
   private boolean isMainAppCompiledForRLM(final Module module, final FlexBuildConfiguration rlmBC) {
@@ -309,15 +451,37 @@ public class FlexCompilationManager {
     return false;
   }
 
-  private static boolean hasDependenciesIn(final FlexCompilationTask task,
-                                           final Collection<FlexCompilationTask> tasksToSearchDependencies) {
-    for (final FlexCompilationTask otherTask : tasksToSearchDependencies) {
-      //noinspection ConstantConditions
-      if (task.getDependencies().contains(otherTask.getBC())) {
-        return true;
-      }
+  private void logTimings() {
+    if (!LOG.isDebugEnabled()) return;
+
+    long criticalPath = 0;
+    for (FlexCompilationTask task : myFinishedTasks) {
+      final TaskTimings timings = myTimings.get(task);
+      criticalPath = Math.max(criticalPath, timings.criticalPath);
+      LOG.debug(getMessagePrefix(task) + "queue wait: " + toMillis(timings.getQueueWaitTime()) + " ms, run time: " +
+                toMillis(timings.getRunTime()) + " ms, critical path: " + toMillis(timings.criticalPath) + " ms");
+    }
+    LOG.debug("Flex compilation of " + myFinishedTasks.size() + " of " + myTasksAmount + " build configurations, max parallel: " +
+              myMaxParallelCompilations + ", critical path: " + toMillis(criticalPath) + " ms");
+  }
+
+  private static long toMillis(final long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  private static class TaskTimings {
+    private long readyTime = -1;
+    private long startTime = -1;
+    private long finishTime = -1;
+    private long criticalPath;
+
+    private long getQueueWaitTime() {
+      return readyTime < 0 || startTime < 0 ? 0 : startTime - readyTime;
+    }
+
+    private long getRunTime() {
+      return startTime < 0 || finishTime < 0 ? 0 : finishTime - startTime;
     }
-    return false;
   }
 
   private void updateProgressIndicator() {
@@ -1,12 +1,14 @@
 package com.intellij.lang.javascript.flex.build;
 
 import com.intellij.flex.FlexCommonBundle;
+import com.intellij.flex.build.SdkConfigFragments;
 import com.intellij.lang.javascript.flex.projectStructure.model.FlexBuildConfiguration;
 import com.intellij.lang.javascript.flex.projectStructure.options.BCUtils;
 import com.intellij.openapi.compiler.CompilerMessageCategory;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -21,8 +23,11 @@ public abstract class FlexCompilationTask {
   protected final Collection<FlexBuildConfiguration> myDependencies;
 
   private List<VirtualFile> myConfigFiles;
+  private volatile String myPreparedConfigFileText;
 
-  protected boolean myFinished;
+  private FlexCompilationManager myCompilationManager;
+
+  private volatile boolean myFinished;
   protected boolean myCompilationFailed;
 
   protected FlexCompilationTask(final Module module,
@@ -42,6 +47,7 @@ public abstract class FlexCompilationTask {
   }
 
   public void start(final FlexCompilationManager compilationManager) {
+    myCompilationManager = compilationManager;
     try {
       myConfigFiles = createConfigFiles();
       final String outputFilePath = myBC.getActualOutputFilePath();
@@ -60,9 +66,23 @@ public abstract class FlexCompilationTask {
     }
   }
 
+  /**
+   * Called for all tasks in parallel before compilation starts. Generation errors are ignored here, they are reported by {@link #start}.
+   */
+  void prepareConfigFileText(final SdkConfigFragments sdkFragments) {
+    try {
+      myPreparedConfigFileText = CompilerConfigGenerator.generateConfigFileText(myModule, myBC, sdkFragments);
+    }
+    catch (IOException ignore) {/**/}
+  }
+
   protected List<VirtualFile> createConfigFiles() throws IOException {
     final ArrayList<VirtualFile> configFiles = new ArrayList<>(2);
-    configFiles.add(CompilerConfigGenerator.getOrCreateConfigFile(myModule, myBC));
+    final String configFileText = myPreparedConfigFileText != null
+                                  ? myPreparedConfigFileText
+                                  : CompilerConfigGenerator.generateConfigFileText(myModule, myBC, new SdkConfigFragments());
+    myPreparedConfigFileText = configFileText;
+    configFiles.add(CompilerConfigGenerator.getOrCreateConfigFile(myModule, myBC, configFileText));
 
     final String additionalConfigFilePath = myBC.getCompilerOptions().getAdditionalConfigFilePath();
     if (!myBC.isTempBCForCompilation() && !additionalConfigFilePath.isEmpty()) {
@@ -82,7 +102,14 @@ public abstract class FlexCompilationTask {
 
   public void cancel() {
     doCancel();
+    setFinished();
+  }
+
+  protected void setFinished() {
     myFinished = true;
+    if (myCompilationManager != null) {
+      myCompilationManager.taskFinished(this);
+    }
   }
 
   protected abstract void doCancel();
@@ -107,6 +134,14 @@ public abstract class FlexCompilationTask {
     return myConfigFiles;
   }
 
+  /**
+   * @return text of the generated config file, <code>null</code> if it couldn't be generated before the task started
+   */
+  @Nullable
+  String getConfigFileText() {
+    return myPreparedConfigFileText;
+  }
+
   public FlexBuildConfiguration getBC() {
     return myBC;
   }
@@ -111,6 +111,29 @@ public class FlexCompilationUtils {
       command.add("-load-config=" + configFile.getPath());
     }
 
+    addAdditionalOptions(command, module, bc);
+    return command;
+  }
+
+  /**
+   * What the compilation depends on besides the generated and custom config files: the compiler choice, SDK and the project, module and
+   * BC level additional compiler options, which are passed in the command line
+   */
+  static String getCompilerCommandSignature(final Module module, final FlexBuildConfiguration bc) {
+    final FlexCompilerProjectConfiguration configuration = FlexCompilerProjectConfiguration.getInstance(module.getProject());
+    final List<String> command = new ArrayList<>();
+    command.add(configuration.USE_BUILT_IN_COMPILER + " " + configuration.USE_FCSH + " " + configuration.USE_MXMLC_COMPC + " " +
+                configuration.PREFER_ASC_20);
+
+    final Sdk sdk = bc.getSdk();
+    if (sdk != null) {
+      command.add(sdk.getHomePath());
+      addAdditionalOptions(command, module, bc);
+    }
+    return StringUtil.join(command, "\n");
+  }
+
+  private static void addAdditionalOptions(final List<String> command, final Module module, final FlexBuildConfiguration bc) {
     final Sdk sdk = bc.getSdk();
     assert sdk != null;
 
@@ -120,8 +143,6 @@ public class FlexCompilationUtils {
     addAdditionalOptions(command, module, sdk.getHomePath(),
                          FlexBuildConfigurationManager.getInstance(module).getModuleLevelCompilerOptions().getAdditionalOptions());
     addAdditionalOptions(command, module, sdk.getHomePath(), bc.getCompilerOptions().getAdditionalOptions());
-
-    return command;
   }
 
   private static void addAdditionalOptions(final List<String> command,
@@ -5,28 +5,49 @@ import com.intellij.flex.model.bc.BuildConfigurationNature;
 import com.intellij.lang.javascript.flex.FlexUtils;
 import com.intellij.lang.javascript.flex.projectStructure.model.FlexBuildConfiguration;
 import com.intellij.lang.javascript.flex.projectStructure.model.impl.Factory;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
 import com.intellij.openapi.project.ModuleListener;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ModuleRootManager;
 import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.util.io.FileAttributes;
+import com.intellij.openapi.util.io.FileSystemUtil;
 import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.containers.ContainerUtil;
 import gnu.trove.THashMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
 import java.util.*;
 
+/**
+ * Remembers what build configurations were compiled from, so that compilation of unchanged ones may be skipped.
+ * <p/>
+ * Records of non-temporary BCs are stored on disk and survive IDE restart. Such records are matched by the digest of the generated
+ * compiler config text and of the rest of the compiler command line instead of the BC copy. Source files changed while the project was
+ * closed are reported by the VFS refresh on startup, so a record is removed from the store as soon as its module sources change.
+ */
 public class FlexCompilerDependenciesCache {
+  private static final Logger LOG = Logger.getInstance(FlexCompilerDependenciesCache.class.getName());
+  private static final int STORE_VERSION = 2;
 
   private final Project myProject;
   private final Map<Module, Collection<BCInfo>> myCache = new THashMap<>();
+  private boolean myLoaded;
+  private boolean myModified;
+
+  // dependency file path -> attributes, null if the file doesn't exist. Valid while nothing is compiled, so that the files shared by
+  // many BCs (SDK and project libraries) are checked once per build.
+  private final Map<String, Ref<FileAttributes>> myFileAttributes = new THashMap<>();
 
   private static final String[] TAGS_FOR_FILE_PATHS_IN_CONFIG_FILE =
     {"<flex-config><compiler><external-library-path><path-element>", "<flex-config><compiler><local-font-paths><path-element>",
@@ -46,31 +67,52 @@ public class FlexCompilerDependenciesCache {
 
     project.getMessageBus().connect(project).subscribe(ProjectTopics.MODULES, new ModuleListener() {
       public void moduleRemoved(@NotNull final Project project, @NotNull final Module module) {
-        myCache.remove(module);
+        markModuleDirty(module);
       }
     });
   }
 
+  /**
+   * Forgets all records including the stored ones
+   */
   public void clear() {
+    myLoaded = true;
+    myModified = false;
     myCache.clear();
+    myFileAttributes.clear();
+    FileUtil.delete(getStoreFile());
   }
 
   public void markModuleDirty(final Module module) {
-    myCache.remove(module);
+    ensureLoaded();
+    if (myCache.remove(module) != null) {
+      myModified = true;
+      // don't let a stale record survive a crash
+      save();
+    }
   }
 
   public void markBCDirty(final Module module, final FlexBuildConfiguration bc) {
+    // output files of a failed compilation may be changed
+    myFileAttributes.clear();
+
     final Collection<BCInfo> infosForModule = myCache.get(module);
     final BCInfo existingInfo = infosForModule == null ? null : findCacheForBC(infosForModule, bc);
     if (existingInfo != null) {
-      infosForModule.remove(existingInfo);
-      if (infosForModule.isEmpty()) {
-        myCache.remove(module);
-      }
+      removeInfo(module, infosForModule, existingInfo);
+    }
+  }
+
+  private void removeInfo(final Module module, final Collection<BCInfo> infosForModule, final BCInfo info) {
+    infosForModule.remove(info);
+    if (infosForModule.isEmpty()) {
+      myCache.remove(module);
     }
+    myModified = true;
   }
 
   public void markModuleDirtyIfInSourceRoot(final VirtualFile file) {
+    ensureLoaded();
     if (myCache.isEmpty()) return;
 
     final ProjectFileIndex fileIndex = ProjectRootManager.getInstance(myProject).getFileIndex();
@@ -80,26 +122,41 @@ public class FlexCompilerDependenciesCache {
     }
   }
 
-  public boolean isNothingChangedSincePreviousCompilation(final Module module, final FlexBuildConfiguration bc) {
+  /**
+   * @param configFileText generated compiler config text, <code>null</code> if not known yet
+   */
+  public boolean isNothingChangedSincePreviousCompilation(final Module module,
+                                                         final FlexBuildConfiguration bc,
+                                                         @Nullable final String configFileText) {
+    ensureLoaded();
+
     final Collection<BCInfo> infosForModule = myCache.get(module);
     final BCInfo existingInfo = infosForModule == null ? null : findCacheForBC(infosForModule, bc);
     if (existingInfo == null) {
       return false;
     }
 
-    final String[] currentSourceRoots = ModuleRootManager.getInstance(module).getSourceRootUrls();
-    if (!Arrays.equals(existingInfo.mySourceRootUrls, currentSourceRoots) || existingInfo.timestampsChanged()) {
-      infosForModule.remove(existingInfo);
-      if (infosForModule.isEmpty()) {
-        myCache.remove(module);
-      }
+    if (!existingInfo.isUpToDate(module, bc, configFileText, myFileAttributes)) {
+      removeInfo(module, infosForModule, existingInfo);
       return false;
     }
 
     return true;
   }
 
-  public void cacheBC(final Module module, final FlexBuildConfiguration bc, final List<VirtualFile> configFiles) {
+  /**
+   * @param configFiles generated config file goes first
+   * @param configFileText text of the generated config file
+   */
+  public void cacheBC(final Module module,
+                      final FlexBuildConfiguration bc,
+                      final List<VirtualFile> configFiles,
+                      final String configFileText) {
+    ensureLoaded();
+    myModified = true;
+    // output of this BC may be a dependency of others
+    myFileAttributes.clear();
+
     Collection<BCInfo> infosForModule = myCache.get(module);
     if (infosForModule == null) {
       infosForModule = new ArrayList<>();
@@ -115,14 +172,24 @@ public class FlexCompilerDependenciesCache {
     final VirtualFile outputFile = FlexCompilationManager.refreshAndFindFileInWriteAction(bc.getActualOutputFilePath());
     if (outputFile == null) return;
 
-    final BCInfo bcInfo = new BCInfo(Factory.getCopy(bc), ModuleRootManager.getInstance(module).getSourceRootUrls());
+    final BCInfo bcInfo = new BCInfo(Factory.getCopy(bc), bc.getName(), ModuleRootManager.getInstance(module).getSourceRootUrls());
     infosForModule.add(bcInfo);
 
+    bcInfo.myCommandDigest = getCommandDigest(module, bc);
     bcInfo.addFileDependency(outputFile.getPath());
 
     final String workDirPath = FlexUtils.getFlexCompilerWorkDirPath(module.getProject(), null);
-    for (VirtualFile configFile : configFiles) {
-      addFileDependencies(bcInfo, configFile, workDirPath);
+    // the generated config file is temporary, its text is compared with the generated one when the next compilation starts
+    bcInfo.myGeneratedConfigDigest = FlexCompilerConfigFileUtilBase.getContentDigest(configFileText);
+    for (int i = 0; i < configFiles.size(); i++) {
+      final VirtualFile configFile = configFiles.get(i);
+      if (i != 0) {
+        final String digest = getContentDigest(configFile.getPath());
+        if (digest != null) {
+          bcInfo.myConfigFileDigests.put(configFile.getPath(), digest);
+        }
+      }
+      addFileDependencies(bcInfo, configFile, i != 0, workDirPath);
     }
 
     if (bc.isTempBCForCompilation() && !bc.getCompilerOptions().getAdditionalConfigFilePath().isEmpty()) {
@@ -149,11 +216,32 @@ public class FlexCompilerDependenciesCache {
 
   @Nullable
   private static BCInfo findCacheForBC(final @NotNull Collection<BCInfo> bcInfos, @NotNull final FlexBuildConfiguration bc) {
-    return ContainerUtil.find(bcInfos, info -> info.myBC.isEqual(bc));
+    return ContainerUtil.find(bcInfos, info -> info.myBC == null
+                                               ? !bc.isTempBCForCompilation() && bc.getName().equals(info.myBCName)
+                                               : info.myBC.isEqual(bc));
+  }
+
+  @Nullable
+  private static String getContentDigest(final String path) {
+    try {
+      return FlexCompilerConfigFileUtilBase.getContentDigest(FileUtil.loadFile(new File(path)));
+    }
+    catch (IOException e) {
+      return null;
+    }
   }
 
-  private static void addFileDependencies(final BCInfo bcInfo, final VirtualFile configFile, final String workDirPath) {
-    bcInfo.addFileDependency(configFile.getPath());
+  private static String getCommandDigest(final Module module, final FlexBuildConfiguration bc) {
+    return FlexCompilerConfigFileUtilBase.getContentDigest(FlexCompilationUtils.getCompilerCommandSignature(module, bc));
+  }
+
+  private static void addFileDependencies(final BCInfo bcInfo,
+                                          final VirtualFile configFile,
+                                          final boolean isConfigFileDependency,
+                                          final String workDirPath) {
+    if (isConfigFileDependency) {
+      bcInfo.addFileDependency(configFile.getPath());
+    }
 
     try {
       final Map<String, List<String>> elementsMap =
@@ -167,39 +255,207 @@ public class FlexCompilerDependenciesCache {
     catch (IOException e) {/*ignore*/}
   }
 
+  /**
+   * Stamps files in one stat call each, a file shared by several BCs is stamped once until something is compiled
+   */
+  @Nullable
+  private static FileAttributes getAttributes(final String path, final Map<String, Ref<FileAttributes>> attributesCache) {
+    Ref<FileAttributes> attributes = attributesCache.get(path);
+    if (attributes == null) {
+      attributes = Ref.create(FileSystemUtil.getAttributes(path));
+      attributesCache.put(path, attributes);
+    }
+    return attributes.get();
+  }
+
+  private void ensureLoaded() {
+    if (myLoaded) return;
+    myLoaded = true;
+
+    final File file = getStoreFile();
+    if (!file.isFile()) return;
+
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != STORE_VERSION) return;
+
+      final ModuleManager moduleManager = ModuleManager.getInstance(myProject);
+      for (int i = in.readInt(); i > 0; i--) {
+        final String moduleName = in.readUTF();
+        final BCInfo info = BCInfo.read(in);
+        final Module module = moduleManager.findModuleByName(moduleName);
+        if (module != null) {
+          Collection<BCInfo> infosForModule = myCache.get(module);
+          if (infosForModule == null) {
+            infosForModule = new ArrayList<>();
+            myCache.put(module, infosForModule);
+          }
+          infosForModule.add(info);
+        }
+      }
+    }
+    catch (IOException e) {
+      LOG.info("Cannot read " + file, e);
+      myCache.clear();
+    }
+  }
+
+  /**
+   * Stores records of non-temporary BCs, called when compilation is finished
+   */
+  public void save() {
+    myFileAttributes.clear();
+    if (!myModified) return;
+    myModified = false;
+
+    final File file = getStoreFile();
+    final List<Pair<String, BCInfo>> infos = new ArrayList<>();
+    for (Map.Entry<Module, Collection<BCInfo>> entry : myCache.entrySet()) {
+      for (BCInfo info : entry.getValue()) {
+        if (info.myBC == null || !info.myBC.isTempBCForCompilation()) {
+          infos.add(Pair.create(entry.getKey().getName(), info));
+        }
+      }
+    }
+
+    if (infos.isEmpty()) {
+      FileUtil.delete(file);
+      return;
+    }
+
+    FileUtil.createParentDirs(file);
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.writeInt(STORE_VERSION);
+      out.writeInt(infos.size());
+      for (Pair<String, BCInfo> pair : infos) {
+        out.writeUTF(pair.first);
+        pair.second.write(out);
+      }
+    }
+    catch (IOException e) {
+      LOG.info("Cannot write " + file, e);
+      FileUtil.delete(file);
+    }
+  }
+
+  private File getStoreFile() {
+    return new File(PathManager.getSystemPath(), "flex/compiler-dependencies/" + myProject.getLocationHash());
+  }
+
   private static class BCInfo {
-    private final FlexBuildConfiguration myBC;
+    // null for records read from disk
+    @Nullable private final FlexBuildConfiguration myBC;
+    private final String myBCName;
     private final String[] mySourceRootUrls;
-    private final Collection<Pair<File, Long>> myFileToTimestamp = new ArrayList<>();
+    // compiler choice, SDK and additional compiler options, which are not in the generated config
+    private String myCommandDigest;
+    private String myGeneratedConfigDigest;
+    // custom config file path -> digest
+    private final Map<String, String> myConfigFileDigests = new THashMap<>();
+    private final List<FileStamp> myFileStamps = new ArrayList<>();
 
-    private BCInfo(final FlexBuildConfiguration bc, final String[] sourceRootUrls) {
+    private BCInfo(@Nullable final FlexBuildConfiguration bc, final String bcName, final String[] sourceRootUrls) {
       myBC = bc;
+      myBCName = bcName;
       mySourceRootUrls = sourceRootUrls;
     }
 
     private void addFileDependency(final String filePath, final String... potentialBaseDirs) {
-      final File file = new File(FileUtil.toSystemDependentName(filePath));
-      if (file.exists()) {
-        myFileToTimestamp.add(Pair.create(file, file.lastModified()));
-      }
-      else if (potentialBaseDirs != null) {
+      if (addFileStamp(filePath)) return;
+
+      if (potentialBaseDirs != null) {
         for (String baseDir : potentialBaseDirs) {
-          final File file1 = new File(FileUtil.toSystemDependentName(baseDir + '/' + filePath));
-          if (file1.exists()) {
-            myFileToTimestamp.add(Pair.create(file1, file1.lastModified()));
+          if (addFileStamp(baseDir + '/' + filePath)) {
             break;
           }
         }
       }
     }
 
-    public boolean timestampsChanged() {
-      for (Pair<File, Long> fileAndTimestamp : myFileToTimestamp) {
-        if (fileAndTimestamp.first.lastModified() != fileAndTimestamp.second) {
-          return true;
-        }
+    private boolean addFileStamp(final String filePath) {
+      final String path = FileUtil.toSystemDependentName(filePath);
+      final FileAttributes attributes = FileSystemUtil.getAttributes(path);
+      if (attributes == null) return false;
+
+      myFileStamps.add(new FileStamp(path, attributes.length, attributes.lastModified));
+      return true;
+    }
+
+    private boolean isUpToDate(final Module module,
+                               final FlexBuildConfiguration bc,
+                               @Nullable final String configFileText,
+                               final Map<String, Ref<FileAttributes>> attributesCache) {
+      if (!Arrays.equals(mySourceRootUrls, ModuleRootManager.getInstance(module).getSourceRootUrls())) return false;
+      if (!getCommandDigest(module, bc).equals(myCommandDigest)) return false;
+
+      // a record read from disk has no BC copy to compare with, so the generated config text is compared
+      if (configFileText == null) {
+        if (myBC == null) return false;
       }
-      return false;
+      else if (!FlexCompilerConfigFileUtilBase.getContentDigest(configFileText).equals(myGeneratedConfigDigest)) {
+        return false;
+      }
+
+      for (FileStamp stamp : myFileStamps) {
+        final FileAttributes attributes = getAttributes(stamp.path, attributesCache);
+        if (attributes == null || attributes.length != stamp.length || attributes.lastModified != stamp.timestamp) return false;
+      }
+
+      for (Map.Entry<String, String> entry : myConfigFileDigests.entrySet()) {
+        if (!entry.getValue().equals(getContentDigest(entry.getKey()))) return false;
+      }
+      return true;
+    }
+
+    private void write(final DataOutput out) throws IOException {
+      out.writeUTF(myBCName);
+      out.writeInt(mySourceRootUrls.length);
+      for (String url : mySourceRootUrls) {
+        out.writeUTF(url);
+      }
+      out.writeUTF(StringUtil.notNullize(myCommandDigest));
+      out.writeUTF(StringUtil.notNullize(myGeneratedConfigDigest));
+      out.writeInt(myConfigFileDigests.size());
+      for (Map.Entry<String, String> entry : myConfigFileDigests.entrySet()) {
+        out.writeUTF(entry.getKey());
+        out.writeUTF(entry.getValue());
+      }
+      out.writeInt(myFileStamps.size());
+      for (FileStamp stamp : myFileStamps) {
+        out.writeUTF(stamp.path);
+        out.writeLong(stamp.length);
+        out.writeLong(stamp.timestamp);
+      }
+    }
+
+    private static BCInfo read(final DataInput in) throws IOException {
+      final String bcName = in.readUTF();
+      final String[] sourceRootUrls = new String[in.readInt()];
+      for (int i = 0; i < sourceRootUrls.length; i++) {
+        sourceRootUrls[i] = in.readUTF();
+      }
+
+      final BCInfo info = new BCInfo(null, bcName, sourceRootUrls);
+      info.myCommandDigest = StringUtil.nullize(in.readUTF());
+      info.myGeneratedConfigDigest = StringUtil.nullize(in.readUTF());
+      for (int i = in.readInt(); i > 0; i--) {
+        info.myConfigFileDigests.put(in.readUTF(), in.readUTF());
+      }
+      for (int i = in.readInt(); i > 0; i--) {
+        info.myFileStamps.add(new FileStamp(in.readUTF(), in.readLong(), in.readLong()));
+      }
+      return info;
+    }
+  }
+
+  private static class FileStamp {
+    private final String path;
+    private final long length;
+    private final long timestamp;
+
+    private FileStamp(final String path, final long length, final long timestamp) {
+      this.path = path;
+      this.length = length;
+      this.timestamp = timestamp;
     }
   }
 }
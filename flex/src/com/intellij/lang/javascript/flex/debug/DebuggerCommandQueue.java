@@ -0,0 +1,97 @@
+package com.intellij.lang.javascript.flex.debug;
+
+import com.intellij.xdebugger.Obsolescent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedList;
+
+/**
+ * Commands waiting to be sent to fdb. Presentation evaluations are not queued one by one: they are collected into
+ * {@link PipelinedEvaluateCommand}s, so that a node with hundreds of children costs a few round trips instead of hundreds.
+ */
+class DebuggerCommandQueue {
+  static final int MAX_PIPELINED_EVALUATIONS = 64;
+  static final int MAX_PENDING_EVALUATIONS = 2048;
+
+  private final LinkedList<DebuggerCommand> myCommands = new LinkedList<>();
+  private PipelinedEvaluateCommand myOpenPipeline;
+  private int myPendingEvaluations;
+
+  synchronized void addFirst(@NotNull DebuggerCommand command) {
+    myCommands.addFirst(command);
+    notify();
+  }
+
+  synchronized void addLast(@NotNull DebuggerCommand command) {
+    myCommands.addLast(command);
+    notify();
+  }
+
+  @NotNull
+  synchronized DebuggerCommand removeFirst() {
+    try {
+      while (myCommands.isEmpty()) {
+        wait();
+      }
+    }
+    catch (InterruptedException ex) {
+      throw new RuntimeException(ex);
+    }
+
+    final DebuggerCommand command = myCommands.removeFirst();
+    if (command instanceof PipelinedEvaluateCommand) {
+      myPendingEvaluations -= ((PipelinedEvaluateCommand)command).getRequestCount();
+      if (command == myOpenPipeline) myOpenPipeline = null;
+    }
+    return command;
+  }
+
+  @Nullable
+  synchronized DebuggerCommand peek() {
+    return myCommands.peek();
+  }
+
+  /**
+   * @return <code>false</code> if too many evaluations are pending already and this one was not queued
+   */
+  synchronized boolean addEvaluation(@NotNull Obsolescent obsolescent, @NotNull FlexStackFrame.EvaluateCommand command) {
+    if (myPendingEvaluations >= MAX_PENDING_EVALUATIONS && dropObsoleteEvaluations() == 0) {
+      return false;
+    }
+
+    PipelinedEvaluateCommand pipeline = findPipelineToCoalesce(command);
+    if (pipeline == null) {
+      if (myOpenPipeline == null || myOpenPipeline.getEvaluationCount() >= MAX_PIPELINED_EVALUATIONS) {
+        myOpenPipeline = new PipelinedEvaluateCommand();
+        addLast(myOpenPipeline);
+      }
+      pipeline = myOpenPipeline;
+    }
+
+    pipeline.add(obsolescent, command);
+    ++myPendingEvaluations;
+    return true;
+  }
+
+  @Nullable
+  private PipelinedEvaluateCommand findPipelineToCoalesce(final FlexStackFrame.EvaluateCommand command) {
+    for (DebuggerCommand queued : myCommands) {
+      if (queued instanceof PipelinedEvaluateCommand && ((PipelinedEvaluateCommand)queued).canCoalesce(command)) {
+        return (PipelinedEvaluateCommand)queued;
+      }
+    }
+    return null;
+  }
+
+  private int dropObsoleteEvaluations() {
+    int dropped = 0;
+    for (DebuggerCommand queued : myCommands) {
+      if (queued instanceof PipelinedEvaluateCommand) {
+        dropped += ((PipelinedEvaluateCommand)queued).dropObsoleteRequests();
+      }
+    }
+    myPendingEvaluations -= dropped;
+    return dropped;
+  }
+}
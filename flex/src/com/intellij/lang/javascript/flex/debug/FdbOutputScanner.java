@@ -0,0 +1,137 @@
+package com.intellij.lang.javascript.flex.debug;
+
+import com.intellij.util.text.CharArrayCharSequence;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Splits fdb output into responses terminated by the <code>(fdb) </code> or <code>(y or n)</code> prompt.
+ * Every appended char is scanned once, and responses are returned as slices of the internal buffer without copying.
+ * The buffer is never modified below its end, so returned slices stay valid after more output is appended.
+ */
+public class FdbOutputScanner {
+  @NonNls static final String FDB_MARKER = "(fdb) ";
+  @NonNls static final String YES_OR_NO_MARKER = "(y or n)";
+  @NonNls static final String WAITING_PLAYER_MARKER_1 = "Waiting for Player to connect";
+  @NonNls static final String WAITING_PLAYER_MARKER_2 = "Trying to connect to Player";
+
+  private static final int MAX_MARKER_LENGTH = Math.max(Math.max(FDB_MARKER.length(), YES_OR_NO_MARKER.length()),
+                                                        Math.max(WAITING_PLAYER_MARKER_1.length(), WAITING_PLAYER_MARKER_2.length()));
+
+  private char[] myBuffer;
+  private int myStart; // beginning of the output not returned yet
+  private int myEnd;
+  private int myScanPosition; // there is no prompt in [myStart, myScanPosition)
+  private boolean myWaitingForPlayer;
+  private boolean myPromptReached;
+
+  public FdbOutputScanner() {
+    this(8192);
+  }
+
+  public FdbOutputScanner(final int initialCapacity) {
+    myBuffer = new char[initialCapacity];
+  }
+
+  public void append(final char[] chars, final int offset, final int length) {
+    ensureCapacity(length);
+    System.arraycopy(chars, offset, myBuffer, myEnd, length);
+    myEnd += length;
+  }
+
+  public void append(@NotNull final CharSequence text) {
+    final int length = text.length();
+    ensureCapacity(length);
+    for (int i = 0; i < length; i++) {
+      myBuffer[myEnd++] = text.charAt(i);
+    }
+  }
+
+  private void ensureCapacity(final int extra) {
+    if (myEnd + extra <= myBuffer.length) return;
+
+    // not compacted in place: responses returned earlier still refer to the old array
+    final int unconsumed = myEnd - myStart;
+    final char[] buffer = new char[Math.max(myBuffer.length, 2 * (unconsumed + extra))];
+    System.arraycopy(myBuffer, myStart, buffer, 0, unconsumed);
+    myBuffer = buffer;
+    myScanPosition -= myStart;
+    myEnd = unconsumed;
+    myStart = 0;
+  }
+
+  /**
+   * @param allowNoPrompt return all output received so far if there is no prompt in it
+   * @return text before the next prompt, or <code>null</code> if more output is needed
+   */
+  @Nullable
+  public CharSequence nextResponse(final boolean allowNoPrompt) {
+    int markerStart = -1;
+    int markerLength = 0;
+
+    for (int i = myScanPosition; i < myEnd; i++) {
+      final char c = myBuffer[i];
+      if (c == '(') {
+        if (matches(i, FDB_MARKER)) {
+          markerStart = i;
+          markerLength = FDB_MARKER.length();
+          break;
+        }
+        if (matches(i, YES_OR_NO_MARKER)) {
+          markerStart = i;
+          markerLength = YES_OR_NO_MARKER.length();
+          break;
+        }
+      }
+      else if (!myWaitingForPlayer &&
+               (c == 'W' && matches(i, WAITING_PLAYER_MARKER_1) || c == 'T' && matches(i, WAITING_PLAYER_MARKER_2))) {
+        myWaitingForPlayer = true;
+      }
+    }
+
+    if (markerStart == -1) {
+      if ((allowNoPrompt || myWaitingForPlayer) && myEnd > myStart) {
+        return consume(myEnd, 0, false);
+      }
+      // a marker may be split between this chunk of output and the next one
+      myScanPosition = Math.max(myStart, myEnd - MAX_MARKER_LENGTH + 1);
+      return null;
+    }
+
+    return consume(markerStart, markerLength, true);
+  }
+
+  /**
+   * @return whether the last response returned by {@link #nextResponse} was terminated by a prompt
+   */
+  public boolean isPromptReached() {
+    return myPromptReached;
+  }
+
+  private CharSequence consume(final int responseEnd, final int markerLength, final boolean promptReached) {
+    final CharSequence result = new CharArrayCharSequence(myBuffer, myStart, responseEnd);
+
+    myStart = responseEnd + markerLength;
+    if (isBlank(myStart, myEnd)) myStart = myEnd;
+    myScanPosition = myStart;
+    myWaitingForPlayer = false;
+    myPromptReached = promptReached;
+    return result;
+  }
+
+  private boolean matches(final int offset, final String marker) {
+    if (offset + marker.length() > myEnd) return false;
+    for (int i = 0; i < marker.length(); i++) {
+      if (myBuffer[offset + i] != marker.charAt(i)) return false;
+    }
+    return true;
+  }
+
+  private boolean isBlank(final int start, final int end) {
+    for (int i = start; i < end; i++) {
+      if (myBuffer[i] != ' ') return false;
+    }
+    return true;
+  }
+}
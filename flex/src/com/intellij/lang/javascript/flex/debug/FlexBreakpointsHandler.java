@@ -18,19 +18,24 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiCompiledFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.containers.ContainerUtil;
 import com.intellij.xdebugger.XSourcePosition;
 import com.intellij.xdebugger.breakpoints.XBreakpointHandler;
 import com.intellij.xdebugger.breakpoints.XBreakpointProperties;
 import com.intellij.xdebugger.breakpoints.XBreakpointType;
 import com.intellij.xdebugger.breakpoints.XLineBreakpoint;
+import gnu.trove.THashMap;
 import gnu.trove.TIntObjectHashMap;
 import gnu.trove.TObjectIntHashMap;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author Maxim.Mossienko
@@ -54,6 +59,15 @@ public class FlexBreakpointsHandler {
   private final TIntObjectHashMap<XLineBreakpoint<XBreakpointProperties>> myIndexToBreakpointMap =
     new TIntObjectHashMap<>();
 
+  static final int MAX_BATCHED_BREAKPOINTS = 64;
+
+  // breakpoints registered while this command waits in the queue are added to it (guarded by 'this')
+  private InsertBreakpointsCommand myOpenBatch;
+
+  // the debugged BC doesn't change during the session, and all files of a library source root belong to the same libraries
+  private volatile ModuleWithDependenciesScope myScope;
+  private final Map<VirtualFile, Boolean> myLibrarySourceRootInScope = ContainerUtil.newConcurrentMap();
+
   FlexBreakpointsHandler(FlexDebugProcess debugProcess) {
     myDebugProcess = debugProcess;
 
@@ -85,11 +99,32 @@ public class FlexBreakpointsHandler {
   }
 
   private String buildInsertBreakpointCommandText(XSourcePosition sourcePosition) {
-    String marker = myDebugProcess.resolveFileReference(sourcePosition.getFile());
+    return buildInsertBreakpointCommandText(myDebugProcess.resolveFileReference(sourcePosition.getFile()), sourcePosition);
+  }
 
+  private static String buildInsertBreakpointCommandText(String marker, XSourcePosition sourcePosition) {
     return "break " + marker + ":" + (sourcePosition.getLine() + 1);
   }
 
+  private synchronized void addToBatch(@NotNull XLineBreakpoint<XBreakpointProperties> breakpoint) {
+    if (myOpenBatch == null || !myOpenBatch.add(breakpoint)) {
+      myOpenBatch = new InsertBreakpointsCommand();
+      myOpenBatch.add(breakpoint);
+      myDebugProcess.sendCommand(myOpenBatch);
+    }
+  }
+
+  /**
+   * @return <code>true</code> if the breakpoint has not been sent to fdb yet, so there is nothing to delete
+   */
+  private synchronized boolean removeFromBatch(@NotNull XLineBreakpoint<XBreakpointProperties> breakpoint) {
+    return myOpenBatch != null && myOpenBatch.remove(breakpoint);
+  }
+
+  private synchronized void closeBatch(InsertBreakpointsCommand batch) {
+    if (myOpenBatch == batch) myOpenBatch = null;
+  }
+
   void handleRunToPosition(XSourcePosition position, FlexDebugProcess flexDebugProcess) {
     flexDebugProcess.sendCommand(
       new CompositeDebuggerCommand(new InsertBreakpointCommand(position), new FlexDebugProcess.ContinueCommand()));
@@ -116,7 +151,7 @@ public class FlexBreakpointsHandler {
       final XSourcePosition position = breakpoint.getSourcePosition();
       if (position != null) {
         if (isValidSourceBreakpoint(position)) {
-          myDebugProcess.sendCommand(new InsertBreakpointCommand(breakpoint));
+          addToBatch(breakpoint);
         }
       }
     }
@@ -133,12 +168,10 @@ public class FlexBreakpointsHandler {
         return false;
       }
 
-      final Module module = myDebugProcess.getModule();
-      if (module == null) return false;
+      final ModuleWithDependenciesScope scope = getScope();
+      if (scope == null) return false;
 
-      final ModuleWithDependenciesScope scope = FlexUtils.getModuleWithDependenciesAndLibrariesScope(module, myDebugProcess.getBC(),
-                                                                                                     myDebugProcess.isFlexUnit());
-      if (scope.contains(file) || isInSourcesOfLibraryInScope(fileIndex, file, scope)) {
+      if (scope.contains(file) || isInSourcesOfLibraryInScope(fileIndex, file, rootForFile, scope)) {
         return true;
       }
 
@@ -155,14 +188,34 @@ public class FlexBreakpointsHandler {
       return clazz == null || clazz.getContainingFile() instanceof PsiCompiledFile;
     }
 
+    @Nullable
+    private ModuleWithDependenciesScope getScope() {
+      if (myScope == null) {
+        final Module module = myDebugProcess.getModule();
+        if (module == null) return null;
+        myScope = FlexUtils.getModuleWithDependenciesAndLibrariesScope(module, myDebugProcess.getBC(), myDebugProcess.isFlexUnit());
+      }
+      return myScope;
+    }
+
     private boolean isInSourcesOfLibraryInScope(final ProjectFileIndex fileIndex,
                                                 final VirtualFile file,
+                                                final VirtualFile rootForFile,
                                                 final GlobalSearchScope scope) {
       if (!fileIndex.isInLibrarySource(file)) {
         return false;
       }
 
-      for (OrderEntry entry : fileIndex.getOrderEntriesForFile(file)) {
+      Boolean inScope = myLibrarySourceRootInScope.get(rootForFile);
+      if (inScope == null) {
+        inScope = isInSourcesOfLibraryInScope(fileIndex.getOrderEntriesForFile(file), scope);
+        myLibrarySourceRootInScope.put(rootForFile, inScope);
+      }
+      return inScope;
+    }
+
+    private boolean isInSourcesOfLibraryInScope(final List<OrderEntry> orderEntries, final GlobalSearchScope scope) {
+      for (OrderEntry entry : orderEntries) {
         final VirtualFile[] classesRoots = entry.getFiles(OrderRootType.CLASSES);
         for (VirtualFile root : classesRoots) {
           if (scope.contains(root)) {
@@ -176,7 +229,7 @@ public class FlexBreakpointsHandler {
 
     public void unregisterBreakpoint(@NotNull final XLineBreakpoint<XBreakpointProperties> breakpoint, final boolean temporary) {
       final XSourcePosition position = breakpoint.getSourcePosition();
-      if (position != null && isValidSourceBreakpoint(position)) {
+      if (position != null && isValidSourceBreakpoint(position) && !removeFromBatch(breakpoint)) {
         myDebugProcess.sendCommand(new RemoveBreakpointCommand(breakpoint));
       }
     }
@@ -185,9 +238,15 @@ public class FlexBreakpointsHandler {
   private class InsertBreakpointCommand extends DebuggerCommand {
     private @Nullable XLineBreakpoint<XBreakpointProperties> myBreakpoint; // null if this is breakpoint for 'Run To Cursor' action
     private @NotNull final XSourcePosition mySourcePosition;
+    private boolean myBatched;
+    private boolean myAmbiguous;
 
     InsertBreakpointCommand(@NotNull XSourcePosition sourcePosition) {
-      super(buildInsertBreakpointCommandText(sourcePosition), CommandOutputProcessingType.SPECIAL_PROCESSING);
+      this(sourcePosition, buildInsertBreakpointCommandText(sourcePosition));
+    }
+
+    private InsertBreakpointCommand(@NotNull XSourcePosition sourcePosition, @NotNull String text) {
+      super(text, CommandOutputProcessingType.SPECIAL_PROCESSING);
       mySourcePosition = sourcePosition;
     }
 
@@ -196,6 +255,12 @@ public class FlexBreakpointsHandler {
       myBreakpoint = _breakpoint;
     }
 
+    private InsertBreakpointCommand(@NotNull XLineBreakpoint<XBreakpointProperties> _breakpoint, @NotNull String text) {
+      this(_breakpoint.getSourcePosition(), text);
+      myBreakpoint = _breakpoint;
+      myBatched = true;
+    }
+
     @Override
     CommandOutputProcessingMode onTextAvailable(final String s) {
       int index;
@@ -217,19 +282,28 @@ public class FlexBreakpointsHandler {
         }
       }
       else if (s.contains(FlexDebugProcess.AMBIGUOUS_MATCHING_FILE_NAMES)) {
-        if (myDebugProcess.getFileId(mySourcePosition.getFile().getPath()) != null) {
-          final DebuggerCommand command = myBreakpoint == null
-                                          ? new InsertBreakpointCommand(mySourcePosition)
-                                          : new InsertBreakpointCommand(myBreakpoint);
-          myDebugProcess.sendAndProcessOneCommand(command, null);
+        if (myBatched) {
+          myAmbiguous = true; // responses to the rest of the batch are not read yet
         }
         else {
-          updateBreakpointStatusToInvalid(myBreakpoint);
+          resolveAmbiguity();
         }
       }
       return CommandOutputProcessingMode.DONE;
     }
 
+    private void resolveAmbiguity() {
+      if (myDebugProcess.getFileId(mySourcePosition.getFile().getPath()) != null) {
+        final DebuggerCommand command = myBreakpoint == null
+                                        ? new InsertBreakpointCommand(mySourcePosition)
+                                        : new InsertBreakpointCommand(myBreakpoint);
+        myDebugProcess.sendAndProcessOneCommand(command, null);
+      }
+      else {
+        updateBreakpointStatusToInvalid(myBreakpoint);
+      }
+    }
+
     private void registerBreakPoint() {
       final int breakPointIndex = ++lastBreakpointId;
       if (myBreakpoint != null) {
@@ -239,6 +313,113 @@ public class FlexBreakpointsHandler {
     }
   }
 
+  /**
+   * Sends <code>break</code> commands for up to {@link #MAX_BATCHED_BREAKPOINTS} breakpoints in one write, so that hundreds of
+   * breakpoints registered at session start (or while the player is running) cost a few round trips (and suspend/resume cycles)
+   * instead of hundreds. Responses are processed in order, each one updating the status of its breakpoint. Breakpoints are
+   * added while the command waits in the queue and resolved to fdb file ids only when it is posted, when the file table is most recent.
+   */
+  private class InsertBreakpointsCommand extends DebuggerCommand {
+    private final List<XLineBreakpoint<XBreakpointProperties>> myBreakpoints = new ArrayList<>();
+    private boolean myPosted;
+
+    private final List<InsertBreakpointCommand> myCommands = new ArrayList<>();
+    private int myCurrentIndex;
+    private String myPostedText;
+
+    InsertBreakpointsCommand() {
+      super("break", CommandOutputProcessingType.SPECIAL_PROCESSING);
+    }
+
+    /**
+     * @return <code>false</code> if the command has been posted already or is full
+     */
+    boolean add(@NotNull XLineBreakpoint<XBreakpointProperties> breakpoint) {
+      synchronized (FlexBreakpointsHandler.this) {
+        if (myPosted || myBreakpoints.size() >= MAX_BATCHED_BREAKPOINTS) return false;
+        myBreakpoints.add(breakpoint);
+        return true;
+      }
+    }
+
+    boolean remove(@NotNull XLineBreakpoint<XBreakpointProperties> breakpoint) {
+      synchronized (FlexBreakpointsHandler.this) {
+        return !myPosted && myBreakpoints.remove(breakpoint);
+      }
+    }
+
+    @NotNull
+    @Override
+    String getText() {
+      return myPostedText != null ? myPostedText : super.getText();
+    }
+
+    @Override
+    public void post(final FlexDebugProcess flexDebugProcess) throws IOException {
+      final List<XLineBreakpoint<XBreakpointProperties>> breakpoints;
+      synchronized (FlexBreakpointsHandler.this) {
+        myPosted = true;
+        closeBatch(this);
+        breakpoints = new ArrayList<>(myBreakpoints);
+      }
+
+      // breakpoints are usually grouped in a few files
+      final Map<VirtualFile, String> fileToMarker = new THashMap<>();
+      final StringBuilder text = new StringBuilder();
+      for (XLineBreakpoint<XBreakpointProperties> breakpoint : breakpoints) {
+        final XSourcePosition position = breakpoint.getSourcePosition();
+        if (position == null) continue;
+
+        String marker = fileToMarker.get(position.getFile());
+        if (marker == null) {
+          marker = flexDebugProcess.resolveFileReference(position.getFile());
+          fileToMarker.put(position.getFile(), marker);
+        }
+
+        final InsertBreakpointCommand command = new InsertBreakpointCommand(breakpoint, buildInsertBreakpointCommandText(marker, position));
+        if (text.length() > 0) text.append('\n');
+        text.append(command.getText());
+        myCommands.add(command);
+      }
+
+      if (myCommands.isEmpty()) return;
+      myPostedText = text.toString();
+      flexDebugProcess.doSendCommandText(this);
+    }
+
+    @Override
+    public String read(final FlexDebugProcess flexDebugProcess) throws IOException {
+      if (myCommands.isEmpty()) {
+        return "*obsolete*";
+      }
+      return super.read(flexDebugProcess);
+    }
+
+    @Override
+    CommandOutputProcessingMode onTextAvailable(@NonNls final String s) {
+      if (myCurrentIndex < myCommands.size()) {
+        myCommands.get(myCurrentIndex++).onTextAvailable(s);
+      }
+
+      if (myCurrentIndex < myCommands.size()) {
+        return CommandOutputProcessingMode.PROCEEDING;
+      }
+
+      // all responses have been read, so resolving ambiguous file names may talk to fdb now
+      for (InsertBreakpointCommand command : myCommands) {
+        if (command.myAmbiguous) {
+          command.resolveAmbiguity();
+        }
+      }
+      return CommandOutputProcessingMode.DONE;
+    }
+
+    @Override
+    public String toString() {
+      return super.toString() + "[" + myCommands.size() + "]";
+    }
+  }
+
   class RemoveBreakpointCommand extends DebuggerCommand {
     private int myBreakpointIndex;
     private final XLineBreakpoint<XBreakpointProperties> myBreakpoint; // null if this is breakpoint for 'Run To Cursor' action
@@ -114,9 +114,8 @@ public class FlexDebugProcess extends XDebugProcess {
 
   @NonNls static final String RESOLVED_BREAKPOINT_MARKER = "Resolved breakpoint ";
   @NonNls static final String BREAKPOINT_MARKER = "Breakpoint ";
-  @NonNls private static final String FDB_MARKER = "(fdb) ";
-  @NonNls private static final String WAITING_PLAYER_MARKER_1 = "Waiting for Player to connect";
-  @NonNls private static final String WAITING_PLAYER_MARKER_2 = "Trying to connect to Player";
+  @NonNls private static final String WAITING_PLAYER_MARKER_1 = FdbOutputScanner.WAITING_PLAYER_MARKER_1;
+  @NonNls private static final String WAITING_PLAYER_MARKER_2 = FdbOutputScanner.WAITING_PLAYER_MARKER_2;
   @NonNls static final String ATTEMPTING_TO_RESOLVE_BREAKPOINT_MARKER = "Attempting to resolve breakpoint ";
 
   @NonNls private static final String ADL_PREFIX = "[AIR Debug Launcher]: ";
@@ -138,38 +137,7 @@ public class FlexDebugProcess extends XDebugProcess {
 
   private String myFdbLaunchCommand;
 
-  private final LinkedList<DebuggerCommand> commandsToWrite = new LinkedList<DebuggerCommand>() {
-    @Override
-    public synchronized DebuggerCommand removeFirst() {
-      waitForData();
-      return super.removeFirst();
-    }
-
-    @Override
-    public synchronized void addFirst(final DebuggerCommand debuggerCommand) {
-      super.addFirst(debuggerCommand);
-      notify();
-    }
-
-    @Override
-    public synchronized void addLast(final DebuggerCommand debuggerCommand) {
-      super.addLast(debuggerCommand);
-      notify();
-    }
-
-    // TODO: other methods
-
-    private void waitForData() {
-      try {
-        while (size() == 0) {
-          wait();
-        }
-      }
-      catch (InterruptedException ex) {
-        throw new RuntimeException(ex);
-      }
-    }
-  };
+  private final DebuggerCommandQueue commandsToWrite = new DebuggerCommandQueue();
 
   private boolean suspended;
   private boolean fdbWaitingForPlayerStateReached;
@@ -703,6 +671,10 @@ public class FlexDebugProcess extends XDebugProcess {
     return reader.readLine(command.getEndVMState() == VMState.RUNNING);
   }
 
+  CharSequence readResponse(DebuggerCommand command) throws IOException {
+    return reader.readResponse(command.getEndVMState() == VMState.RUNNING);
+  }
+
   private boolean handleStdResponse(String line, ResponseLineIterator iterator) {
     if (line.startsWith(TRACE_MARKER)) {
       myConsoleView.print(line + "\n", ConsoleViewContentType.NORMAL_OUTPUT);
@@ -1087,8 +1059,11 @@ public class FlexDebugProcess extends XDebugProcess {
     myOutputAlarm.addRequest(action, 0);
   }
 
-  void addPendingCommand(final DebuggerCommand command, int delay) {
-    myOutputAlarm.addRequest(() -> sendCommand(command), delay);
+  void addPresentationEvaluation(@NotNull Obsolescent node, @NotNull FlexStackFrame.EvaluateCommand command) {
+    if (command.dispatchCachedResult()) return;
+    if (!commandsToWrite.addEvaluation(node, command)) {
+      log("Too many pending evaluations, skipped: " + command.getText());
+    }
   }
 
   private void scheduleFdbErrorStreamReading() {
@@ -1225,8 +1200,7 @@ public class FlexDebugProcess extends XDebugProcess {
   class MyFdbOutputReader {
     private final InputStreamReader myReader;
     private final char[] buf = new char[8192];
-    private final StringBuilder lastText = new StringBuilder();
-    private int lastTextMarkerScanningStart;
+    private final FdbOutputScanner myScanner = new FdbOutputScanner();
     private final InputStream myInputStream;
 
     public MyFdbOutputReader(final InputStream _inputStream) {
@@ -1239,62 +1213,33 @@ public class FlexDebugProcess extends XDebugProcess {
     }
 
     String readLine(boolean nonblock) throws IOException {
-      if (lastText != null) {
-        final String lastText = getNextLine(nonblock);
-        if (lastText != null) return lastText;
-      }
+      final CharSequence response = readResponse(nonblock);
+      return response == null ? null : response.toString();
+    }
+
+    /**
+     * Same as {@link #readLine(boolean)} but returns a slice of the read buffer, use it for potentially huge responses
+     */
+    CharSequence readResponse(boolean nonblock) throws IOException {
+      CharSequence response = getNextResponse(nonblock);
+      if (response != null) return response;
 
       while (true) {
         int read = myReader.read(buf, 0, buf.length);
         if (read == -1) return null;
-        lastText.append(buf, 0, read);
+        myScanner.append(buf, 0, read);
 
         if (read < buf.length) {
-          final String lastText = getNextLine(nonblock);
-          if (lastText != null) return lastText;
+          response = getNextResponse(nonblock);
+          if (response != null) return response;
         }
       }
     }
 
-    private String getNextLine(boolean allowEmptyMarker) {
-      String result;
-      String marker = FDB_MARKER;
-      int i = lastText.indexOf(marker, lastTextMarkerScanningStart);
-
-      if (i == -1) {
-        marker = "(y or n)";
-        i = lastText.indexOf(marker, lastTextMarkerScanningStart);
-      }
-
-      if (i == -1 &&
-          (allowEmptyMarker ||
-           lastText.indexOf(WAITING_PLAYER_MARKER_1, lastTextMarkerScanningStart) >= 0 ||
-           lastText.indexOf(WAITING_PLAYER_MARKER_2, lastTextMarkerScanningStart) >= 0) &&
-          lastText.length() > 0) {
-        i = lastText.length();
-        marker = "";
-      }
-
-      if (i != -1) {
-        result = lastText.substring(0, i);
-        lastText.delete(0, i + marker.length());
-        lastTextMarkerScanningStart = 0;
-        if (isBlank(lastText)) lastText.setLength(0);
-        setSuspended(marker.length() != 0);
-        return result;
-      }
-      else {
-        lastTextMarkerScanningStart = lastText.length();
-        result = null;
-      }
-      return result;
-    }
-
-    private boolean isBlank(StringBuilder lastText) {
-      for (int i = 0; i < lastText.length(); ++i) {
-        if (lastText.charAt(i) != ' ') return false;
-      }
-      return true;
+    private CharSequence getNextResponse(boolean allowEmptyMarker) {
+      final CharSequence response = myScanner.nextResponse(allowEmptyMarker);
+      if (response != null) setSuspended(myScanner.isPromptReached());
+      return response;
     }
   }
 
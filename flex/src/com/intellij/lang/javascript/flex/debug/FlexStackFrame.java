@@ -20,6 +20,7 @@ import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.psi.xml.XmlFile;
 import com.intellij.ui.ColoredTextContainer;
 import com.intellij.ui.SimpleTextAttributes;
+import com.intellij.util.containers.ContainerUtil;
 import com.intellij.xdebugger.XDebuggerUtil;
 import com.intellij.xdebugger.XSourcePosition;
 import com.intellij.xdebugger.evaluation.ExpressionInfo;
@@ -48,6 +49,8 @@ public class FlexStackFrame extends XStackFrame {
 
   private Map<String,String> qName2IdMap;
   private List<String> scopeChain;
+  // raw responses of presentation evaluations (.length, .fixed, ...) done while the VM stays suspended at this frame
+  private final Map<String, String> myEvaluatedValues = ContainerUtil.newConcurrentMap();
   private final XDebuggerEvaluator myXDebuggerEvaluator = new FlexDebuggerEvaluator();
   private String myScope = UNKNOWN_SCOPE;
   private int myFrameIndex;
@@ -265,6 +268,9 @@ public class FlexStackFrame extends XStackFrame {
     private final String expression;
     private int responseCount;
     private boolean myFinished;
+    private boolean myFallbackDeferred;
+    private boolean myFallbackRequested;
+    private String myRawResult;
 
     EvaluateCommand(String _expression, final XDebuggerEvaluator.XEvaluationCallback _callback) {
       super(buildCommandForExpression(_expression), CommandOutputProcessingType.SPECIAL_PROCESSING);
@@ -288,6 +294,11 @@ public class FlexStackFrame extends XStackFrame {
 
     CommandOutputProcessingMode doOnTextAvailable(@NonNls String s) {
       if (cannotEvaluateResponse(s) && mySourcePosition != null) {
+        if (myFallbackDeferred) {
+          // evaluation from type map issues nested commands, it can't be done in the middle of pipelined responses
+          myFallbackRequested = true;
+          return CommandOutputProcessingMode.DONE;
+        }
         ensureQName2IdMapLoaded();
         evaluateFromTypeMap();
         return CommandOutputProcessingMode.DONE;
@@ -381,7 +392,39 @@ public class FlexStackFrame extends XStackFrame {
       }
     }
 
+    void deferFallback() {
+      myFallbackDeferred = true;
+    }
+
+    boolean isFallbackRequested() {
+      return myFallbackRequested;
+    }
+
+    EvaluateCommand prepareForRetry() {
+      responseCount = 0;
+      myFallbackDeferred = false;
+      myFallbackRequested = false;
+      return this;
+    }
+
+    @Nullable
+    String getRawResult() {
+      return myRawResult;
+    }
+
+    void cacheResult() {
+      if (myRawResult != null) myEvaluatedValues.put(getText(), myRawResult);
+    }
+
+    boolean dispatchCachedResult() {
+      final String cached = myEvaluatedValues.get(getText());
+      if (cached == null) return false;
+      dispatchResult(cached);
+      return true;
+    }
+
     protected void dispatchResult(String s) {
+      myRawResult = s;
       final int i = s.indexOf(DELIM);
       if (i != -1) s = s.substring(i + DELIM.length());
 
@@ -425,6 +468,7 @@ public class FlexStackFrame extends XStackFrame {
 
     @Override
     public void evaluate(@NotNull final String expression, @NotNull final XEvaluationCallback callback, @Nullable XSourcePosition expressionPosition) {
+      dropEvaluationCache(); // user expression may have side effects
       final EvaluateCommand command = new EvaluateCommand(expression, callback);
       myDebugProcess.sendCommand(command);
     }
@@ -436,6 +480,10 @@ public class FlexStackFrame extends XStackFrame {
     }
   }
 
+  void dropEvaluationCache() {
+    myEvaluatedValues.clear();
+  }
+
   String eval(final String expression, FlexDebugProcess process) {
     final EvaluateCommand command = new EvaluateCommand(expression, null);
     process.sendAndProcessOneCommand(command, null);
@@ -229,7 +229,7 @@ class FlexValue extends XValue {
         }
       });
 
-    myDebugProcess.addPendingCommand(new CompositeDebuggerCommand(node, command), 100);
+    myDebugProcess.addPresentationEvaluation(node, command);
   }
 
   private void scheduleCollectionSizePresentation(final XValueNode node, final String type, final String prefix) {
@@ -253,7 +253,7 @@ class FlexValue extends XValue {
         }
       });
 
-    myDebugProcess.addPendingCommand(new CompositeDebuggerCommand(node, command), 100);
+    myDebugProcess.addPresentationEvaluation(node, command);
   }
 
   private static void setXmlListPresentation(final XValueNode node, final String value, final FlexValue flexValue) {
@@ -338,7 +338,7 @@ class FlexValue extends XValue {
       }
     });
 
-    myDebugProcess.addPendingCommand(new CompositeDebuggerCommand(node, command), 700);
+    myDebugProcess.addPresentationEvaluation(node, command);
   }
 
   private static String setFullValueEvaluatorIfNeeded(final XValueNode node, String value, final boolean isXml) {
@@ -378,6 +378,7 @@ class FlexValue extends XValue {
     return new XValueModifier() {
       @Override
       public void setValue(@NotNull String _expression, @NotNull final XModificationCallback callback) {
+        myFlexStackFrame.dropEvaluationCache();
         FlexStackFrame.EvaluateCommand command = myFlexStackFrame.new EvaluateCommand(myExpression + "=" + _expression, null) {
           @Override
           protected void dispatchResult(String s) {
@@ -1,12 +1,14 @@
 package com.intellij.lang.javascript.flex.debug;
 
 import com.intellij.openapi.util.io.FileUtil;
-import com.intellij.util.containers.BidirectionalMap;
+import com.intellij.util.ArrayUtil;
 import gnu.trove.THashMap;
+import gnu.trove.TIntIntHashMap;
 import gnu.trove.TIntObjectHashMap;
-import org.jetbrains.annotations.NonNls;
+import gnu.trove.TObjectIntHashMap;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.util.*;
 
 public class KnownFilesInfo {
@@ -15,11 +17,14 @@ public class KnownFilesInfo {
 
   private boolean myUpToDate = false;
 
-  private final TIntObjectHashMap<BidirectionalMap<String, String>> myWorkerToFilePathToIdMap =
-    new TIntObjectHashMap<>();
+  // Paths reported by fdb are stored once and referred to by index: the same file is usually listed for every worker
+  // and again on each refresh after an SWF is loaded.
+  private final List<String> myPaths = new ArrayList<>();
+  private final List<String> myPathShortNames = new ArrayList<>();
+  private final TObjectIntHashMap<String> myPathToIndex = new TObjectIntHashMap<>();
 
-  private final TIntObjectHashMap<Map<String, Collection<String>>> myWorkerToFileNameToPathsMap =
-    new TIntObjectHashMap<>();
+  // Workers running the same code share the same (immutable) table
+  private final TIntObjectHashMap<WorkerFiles> myWorkerToFiles = new TIntObjectHashMap<>();
 
   public KnownFilesInfo(final FlexDebugProcess flexDebugProcess) {
     myFlexDebugProcess = flexDebugProcess;
@@ -33,58 +38,79 @@ public class KnownFilesInfo {
   public String getFilePathById(final int worker, final String id) {
     ensureUpToDate();
 
-    final BidirectionalMap<String, String> filePathToId = myWorkerToFilePathToIdMap.get(worker);
-    final List<String> paths = filePathToId == null ? null : filePathToId.getKeysByValue(id);
-
-    return paths != null && paths.size() > 0 ? paths.get(0) : null;
+    final WorkerFiles files = myWorkerToFiles.get(worker);
+    final int fdbId = parseId(id);
+    if (files == null || fdbId < 0 || !files.myIdToPathIndex.containsKey(fdbId)) return null;
+    return myPaths.get(files.myIdToPathIndex.get(fdbId));
   }
 
   @Nullable
   public String getIdByFilePath(final String filePath) {
     ensureUpToDate();
-
-    final int worker = 0; // todo calculate correct worker
-
-    final BidirectionalMap<String, String> filePathToId = myWorkerToFilePathToIdMap.get(worker);
-    return filePathToId == null ? null : filePathToId.get(filePath);
+    return getIdByFilePathNoUpdate(filePath);
   }
 
   @Nullable
   public String getIdByFilePathNoUpdate(final String filePath) {
     final int worker = 0; // todo calculate correct worker
 
-    final BidirectionalMap<String, String> filePathToId = myWorkerToFilePathToIdMap.get(worker);
-    return filePathToId == null ? null : filePathToId.get(filePath);
+    final WorkerFiles files = myWorkerToFiles.get(worker);
+    if (files == null || !myPathToIndex.containsKey(filePath)) return null;
+
+    final int pathIndex = myPathToIndex.get(filePath);
+    return files.myPathIndexToId.containsKey(pathIndex) ? String.valueOf(files.myPathIndexToId.get(pathIndex)) : null;
   }
 
   @Nullable
   public Collection<String> getPathsByName(final int worker, final String fileName) {
     ensureUpToDate();
 
-    final Map<String, Collection<String>> fileNameToPaths = myWorkerToFileNameToPathsMap.get(worker);
-    return fileNameToPaths == null ? null : fileNameToPaths.get(fileName);
+    final WorkerFiles files = myWorkerToFiles.get(worker);
+    final int[] pathIndices = files == null ? null : files.myNameToPathIndices.get(fileName);
+    if (pathIndices == null) return null;
+
+    final List<String> paths = new ArrayList<>(pathIndices.length);
+    for (int pathIndex : pathIndices) {
+      paths.add(myPaths.get(pathIndex));
+    }
+    return paths;
   }
 
   private void ensureUpToDate() {
     if (myUpToDate) return;
+    final long start = System.currentTimeMillis();
     myFlexDebugProcess.sendAndProcessOneCommand(
       new DebuggerCommand("show files", CommandOutputProcessingType.SPECIAL_PROCESSING, VMState.SUSPENDED, VMState.SUSPENDED) {
         @Override
-        CommandOutputProcessingMode onTextAvailable(@NonNls String s) {
-          processShowFilesResult(new StringTokenizer(s, "\r\n"));
-          return CommandOutputProcessingMode.DONE;
+        public String read(final FlexDebugProcess flexDebugProcess) throws IOException {
+          // the list may contain tens of thousands of files, so it is parsed right from the read buffer
+          final CharSequence output = flexDebugProcess.readResponse(this);
+          if (output == null) return null;
+          processShowFilesResult(output);
+          return "";
         }
       }, null);
     myUpToDate = true;
+
+    FlexDebugProcess.log("Known files refreshed in " + (System.currentTimeMillis() - start) + " ms: " + myPaths.size() + " paths, " +
+                         myWorkerToFiles.size() + " workers, " + getDistinctTablesCount() + " distinct tables");
   }
 
-  private void processShowFilesResult(StringTokenizer tokenizer) {
+  private void processShowFilesResult(final CharSequence output) {
     //2 C:\work\flex_projects\MP3Worker\src\Workers.as, Workers.as
     //2 C:\work\flex_projects\MP3Worker\src\Workers.as, Workers.as (Main Thread)
     //1 C:\work\flex_projects\MP3Worker\src\BackWorker.as, BackWorker.as (Worker 1)
 
-    while (tokenizer.hasMoreTokens()) {
-      final String line = tokenizer.nextToken().trim();
+    final TIntObjectHashMap<TIntIntHashMap> workerToIds = new TIntObjectHashMap<>();
+
+    final int length = output.length();
+    int lineEnd;
+    for (int lineStart = 0; lineStart < length; lineStart = lineEnd + 1) {
+      lineEnd = lineStart;
+      while (lineEnd < length && output.charAt(lineEnd) != '\n' && output.charAt(lineEnd) != '\r') lineEnd++;
+
+      final String line = output.subSequence(lineStart, lineEnd).toString().trim();
+      if (line.isEmpty()) continue;
       final int spaceIndex = line.indexOf(' ');
       final int commaIndex = line.indexOf(", ");
 
@@ -93,7 +119,12 @@ public class KnownFilesInfo {
         continue;
       }
 
-      final String id = line.substring(0, spaceIndex);
+      final int id = parseId(line.substring(0, spaceIndex));
+      if (id < 0) {
+        FlexDebugProcess.log("Unexpected string format:" + line);
+        continue;
+      }
+
       String fullPath = FileUtil.toSystemIndependentName(line.substring(spaceIndex + 1, commaIndex));
 
       int markerIndex = fullPath.indexOf("/frameworks/projects/");
@@ -102,7 +133,7 @@ public class KnownFilesInfo {
       }
 
       final int nextSpaceIndex = line.indexOf(' ', commaIndex + 2);
-      final String shortName = nextSpaceIndex > 0 ? line.substring(commaIndex + 2, nextSpaceIndex) : line.substring(commaIndex);
+      final String shortName = nextSpaceIndex > 0 ? line.substring(commaIndex + 2, nextSpaceIndex) : line.substring(commaIndex + 2);
 
       int worker = 0;
 
@@ -123,31 +154,112 @@ public class KnownFilesInfo {
         }
       }
 
-      BidirectionalMap<String, String> filePathToIdMap = myWorkerToFilePathToIdMap.get(worker);
-      if (filePathToIdMap == null) {
-        filePathToIdMap = new BidirectionalMap<>();
-        myWorkerToFilePathToIdMap.put(worker, filePathToIdMap);
+      TIntIntHashMap ids = workerToIds.get(worker);
+      if (ids == null) {
+        ids = new TIntIntHashMap();
+        workerToIds.put(worker, ids);
       }
-      filePathToIdMap.put(fullPath, id);
+      ids.put(id, internPath(fullPath, shortName));
+    }
+
+    final List<WorkerFiles> updatedTables = new ArrayList<>();
+    workerToIds.forEachEntry((worker, ids) -> {
+      myWorkerToFiles.put(worker, getOrCreateWorkerFiles(myWorkerToFiles.get(worker), ids, updatedTables));
+      return true;
+    });
+  }
+
+  private WorkerFiles getOrCreateWorkerFiles(@Nullable final WorkerFiles previous,
+                                             final TIntIntHashMap ids,
+                                             final List<WorkerFiles> updatedTables) {
+    if (previous != null && previous.myIdToPathIndex.equals(ids)) {
+      return previous;
+    }
 
-      Map<String, Collection<String>> fileNameToPaths = myWorkerToFileNameToPathsMap.get(worker);
-      if (fileNameToPaths == null) {
-        fileNameToPaths = new THashMap<>();
-        myWorkerToFileNameToPathsMap.put(worker, fileNameToPaths);
+    for (WorkerFiles table : updatedTables) {
+      if (table.myIdToPathIndex.equals(ids)) {
+        return table;
       }
-      addToMap(fileNameToPaths, shortName, fullPath);
+    }
+
+    // usually an SWF has been loaded, so only new files have been added to the list
+    final WorkerFiles table = new WorkerFiles(ids, previous != null && previous.isSubsetOf(ids) ? previous : null, myPathShortNames);
+    updatedTables.add(table);
+    return table;
+  }
+
+  private int internPath(final String path, final String shortName) {
+    if (myPathToIndex.containsKey(path)) {
+      return myPathToIndex.get(path);
+    }
+    final int index = myPaths.size();
+    myPaths.add(path);
+    myPathShortNames.add(shortName);
+    myPathToIndex.put(path, index);
+    return index;
+  }
+
+  private int getDistinctTablesCount() {
+    final Set<WorkerFiles> tables = Collections.newSetFromMap(new IdentityHashMap<>());
+    myWorkerToFiles.forEachValue(tables::add);
+    return tables.size();
+  }
+
+  private static int parseId(final String id) {
+    try {
+      return Integer.parseInt(id);
+    }
+    catch (NumberFormatException e) {
+      return -1;
     }
   }
 
-  private static <K, T> void addToMap(final Map<K, Collection<T>> map, final K key, final T valueCollectionElement) {
-    Collection<T> valueCollection = map.get(key);
-    if (valueCollection == null) {
-      valueCollection = new ArrayList<>(1);
-      map.put(key, valueCollection);
+  /**
+   * Files known to a worker. Never modified after creation, so it can be shared between workers.
+   */
+  private static class WorkerFiles {
+    private final TIntIntHashMap myIdToPathIndex;
+    private final TIntIntHashMap myPathIndexToId;
+    private final Map<String, int[]> myNameToPathIndices;
+
+    private WorkerFiles(final TIntIntHashMap idToPathIndex, @Nullable final WorkerFiles base, final List<String> pathShortNames) {
+      myIdToPathIndex = idToPathIndex;
+
+      if (base == null) {
+        myPathIndexToId = new TIntIntHashMap(idToPathIndex.size());
+        myNameToPathIndices = new THashMap<>(idToPathIndex.size());
+        idToPathIndex.forEachEntry((id, pathIndex) -> {
+          add(id, pathIndex, pathShortNames);
+          return true;
+        });
+      }
+      else {
+        myPathIndexToId = (TIntIntHashMap)base.myPathIndexToId.clone();
+        myNameToPathIndices = new THashMap<>(base.myNameToPathIndices); // arrays are copied on write
+        idToPathIndex.forEachEntry((id, pathIndex) -> {
+          if (!base.myIdToPathIndex.containsKey(id)) {
+            add(id, pathIndex, pathShortNames);
+          }
+          return true;
+        });
+      }
+    }
+
+    private void add(final int id, final int pathIndex, final List<String> pathShortNames) {
+      myPathIndexToId.put(pathIndex, id);
+
+      final String shortName = pathShortNames.get(pathIndex);
+      final int[] pathIndices = myNameToPathIndices.get(shortName);
+      if (pathIndices == null) {
+        myNameToPathIndices.put(shortName, new int[]{pathIndex});
+      }
+      else if (ArrayUtil.indexOf(pathIndices, pathIndex) == -1) {
+        myNameToPathIndices.put(shortName, ArrayUtil.append(pathIndices, pathIndex));
+      }
     }
 
-    if (!valueCollection.contains(valueCollectionElement)) {
-      valueCollection.add(valueCollectionElement);
+    private boolean isSubsetOf(final TIntIntHashMap ids) {
+      return myIdToPathIndex.forEachEntry((id, pathIndex) -> ids.containsKey(id) && ids.get(id) == pathIndex);
     }
   }
 }
@@ -0,0 +1,162 @@
+package com.intellij.lang.javascript.flex.debug;
+
+import com.intellij.util.SmartList;
+import com.intellij.xdebugger.Obsolescent;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends several presentation evaluations (<code>.length</code>, <code>.fixed</code>, <code>.toXMLString()</code>, ...) to fdb
+ * in one write and processes their responses in order. Requests with the same command text are evaluated once.
+ * Instances are filled by {@link DebuggerCommandQueue} while they wait in the queue and must not be changed after {@link #post}.
+ */
+class PipelinedEvaluateCommand extends DebuggerCommand {
+  private final Map<String, Evaluation> myEvaluations = new LinkedHashMap<>();
+  private int myRequestCount;
+
+  private final List<Evaluation> myPostedEvaluations = new ArrayList<>();
+  private int myCurrentIndex;
+  private String myPostedText;
+  private FlexDebugProcess myFlexDebugProcess;
+
+  PipelinedEvaluateCommand() {
+    super("print", CommandOutputProcessingType.SPECIAL_PROCESSING);
+  }
+
+  private static class Evaluation {
+    private final List<Request> myRequests = new SmartList<>();
+  }
+
+  private static class Request {
+    private final Obsolescent myObsolescent;
+    private final FlexStackFrame.EvaluateCommand myCommand;
+
+    private Request(final Obsolescent obsolescent, final FlexStackFrame.EvaluateCommand command) {
+      myObsolescent = obsolescent;
+      myCommand = command;
+    }
+  }
+
+  void add(@NotNull Obsolescent obsolescent, @NotNull FlexStackFrame.EvaluateCommand command) {
+    Evaluation evaluation = myEvaluations.get(command.getText());
+    if (evaluation == null) {
+      evaluation = new Evaluation();
+      myEvaluations.put(command.getText(), evaluation);
+    }
+    evaluation.myRequests.add(new Request(obsolescent, command));
+    ++myRequestCount;
+  }
+
+  boolean canCoalesce(@NotNull FlexStackFrame.EvaluateCommand command) {
+    return myEvaluations.containsKey(command.getText());
+  }
+
+  int getRequestCount() {
+    return myRequestCount;
+  }
+
+  int getEvaluationCount() {
+    return myEvaluations.size();
+  }
+
+  /**
+   * @return number of dropped requests
+   */
+  int dropObsoleteRequests() {
+    int dropped = 0;
+    for (Iterator<Evaluation> it = myEvaluations.values().iterator(); it.hasNext(); ) {
+      final Evaluation evaluation = it.next();
+      for (Iterator<Request> requestIt = evaluation.myRequests.iterator(); requestIt.hasNext(); ) {
+        if (requestIt.next().myObsolescent.isObsolete()) {
+          requestIt.remove();
+          ++dropped;
+        }
+      }
+      if (evaluation.myRequests.isEmpty()) it.remove();
+    }
+    myRequestCount -= dropped;
+    return dropped;
+  }
+
+  @NotNull
+  @Override
+  String getText() {
+    return myPostedText != null ? myPostedText : super.getText();
+  }
+
+  @Override
+  public void post(final FlexDebugProcess flexDebugProcess) throws IOException {
+    myFlexDebugProcess = flexDebugProcess;
+    dropObsoleteRequests();
+
+    final StringBuilder text = new StringBuilder();
+    for (Evaluation evaluation : myEvaluations.values()) {
+      final FlexStackFrame.EvaluateCommand command = evaluation.myRequests.get(0).myCommand;
+      command.deferFallback();
+      if (text.length() > 0) text.append('\n');
+      text.append(command.getText());
+      myPostedEvaluations.add(evaluation);
+    }
+
+    if (myPostedEvaluations.isEmpty()) return;
+    myPostedText = text.toString();
+    flexDebugProcess.doSendCommandText(this);
+  }
+
+  @Override
+  public String read(final FlexDebugProcess flexDebugProcess) throws IOException {
+    if (myPostedEvaluations.isEmpty()) {
+      return "*obsolete*";
+    }
+    return super.read(flexDebugProcess);
+  }
+
+  @Override
+  CommandOutputProcessingMode onTextAvailable(@NonNls final String s) {
+    if (myCurrentIndex >= myPostedEvaluations.size()) {
+      return CommandOutputProcessingMode.DONE;
+    }
+
+    final Evaluation evaluation = myPostedEvaluations.get(myCurrentIndex);
+    if (evaluation.myRequests.get(0).myCommand.onTextAvailable(s) == CommandOutputProcessingMode.DONE) {
+      evaluated(evaluation);
+      ++myCurrentIndex;
+    }
+
+    return myCurrentIndex < myPostedEvaluations.size() ? CommandOutputProcessingMode.PROCEEDING : CommandOutputProcessingMode.DONE;
+  }
+
+  private void evaluated(final Evaluation evaluation) {
+    final FlexStackFrame.EvaluateCommand leader = evaluation.myRequests.get(0).myCommand;
+
+    if (leader.isFallbackRequested()) {
+      for (Request request : evaluation.myRequests) {
+        myFlexDebugProcess.sendCommand(new CompositeDebuggerCommand(request.myObsolescent, request.myCommand.prepareForRetry()));
+      }
+      return;
+    }
+
+    final String rawResult = leader.getRawResult();
+    if (rawResult == null) return;
+
+    leader.cacheResult();
+    for (int i = 1; i < evaluation.myRequests.size(); i++) {
+      final Request request = evaluation.myRequests.get(i);
+      if (!request.myObsolescent.isObsolete()) {
+        request.myCommand.dispatchResult(rawResult);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return super.toString() + "[" + myEvaluations.size() + "]";
+  }
+}
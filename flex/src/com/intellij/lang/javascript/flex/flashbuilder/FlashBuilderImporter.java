@@ -161,6 +161,7 @@ public class FlashBuilderImporter extends ProjectImportBuilder<String> {
     final boolean isArchive = paths.size() == 1 && FlashBuilderProjectFinder.hasArchiveExtension(paths.get(0));
     final List<String> dotProjectPaths = getDotProjectPaths(project);
     final List<FlashBuilderProject> flashBuilderProjects = FlashBuilderProjectLoadUtil.loadProjects(dotProjectPaths, isArchive);
+    final long modulesStart = System.currentTimeMillis();
 
     final Map<FlashBuilderProject, ModifiableRootModel> flashBuilderProjectToModifiableModelMap =
       new THashMap<>();
@@ -218,6 +219,8 @@ public class FlashBuilderImporter extends ProjectImportBuilder<String> {
       });
     }
 
+    Logger.getInstance(FlashBuilderImporter.class).info("Set up " + moduleToModifiableModelMap.size() + " Flash Builder modules in " +
+                                                        (System.currentTimeMillis() - modulesStart) + " ms");
     return new ArrayList<>(moduleToModifiableModelMap.keySet());
   }
 
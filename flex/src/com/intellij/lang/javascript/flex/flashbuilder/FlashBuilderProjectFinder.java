@@ -2,6 +2,7 @@ package com.intellij.lang.javascript.flex.flashbuilder;
 
 import com.intellij.CommonBundle;
 import com.intellij.lang.javascript.flex.FlexBundle;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.options.ConfigurationException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
@@ -9,13 +10,14 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.io.FileUtilRt;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.Enumeration;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -28,6 +30,12 @@ public class FlashBuilderProjectFinder {
   private static final String PROJECTS_CACHE_RELATIVE_PATH = "/.metadata/.plugins/org.eclipse.core.resources/.projects";
   private static final String DOT_LOCATION = ".location";
 
+  // output folders and installed packages can't contain Flash Builder projects, but may be huge
+  private static final Set<String> SKIPPED_DIRECTORY_NAMES =
+    ContainerUtil.newHashSet("bin-debug", "bin-release", "bin-release-temp", "node_modules");
+
+  private static final Logger LOG = Logger.getInstance(FlashBuilderProjectFinder.class.getName());
+
   static boolean isFlashBuilderWorkspace(final VirtualFile file) {
     return file != null && file.isDirectory() && VfsUtil.findRelativeFile(PROJECT_PREFS_RELATIVE_PATH, file) != null;
   }
@@ -55,7 +63,7 @@ public class FlashBuilderProjectFinder {
            dotActionScriptPropertiesFile.isFile();
   }
 
-  static boolean collectAllProjectPaths(final @Nullable Project project, final List<String> projectPaths, final String dirPath) {
+  public static boolean collectAllProjectPaths(final @Nullable Project project, final List<String> projectPaths, final String dirPath) {
     final Runnable runnable = () -> {
       if (isFlashBuilderWorkspace(dirPath)) {
         collectProjectPathsInWorkspace(projectPaths, dirPath);
@@ -73,14 +81,26 @@ public class FlashBuilderProjectFinder {
     final File projectsCacheDir = new File(workspacePath, PROJECTS_CACHE_RELATIVE_PATH);
     if (!projectsCacheDir.isDirectory()) return;
 
+    final long start = System.currentTimeMillis();
     final File[] subdirs = projectsCacheDir.listFiles(FileUtilRt.ALL_DIRECTORIES);
+    if (subdirs == null) return;
+
+    // each project has its own .location file to read
+    final String[] locations = new String[subdirs.length];
+    FlashBuilderProjectLoadUtil.processConcurrently(subdirs.length, i -> {
+      locations[i] = getDotProjectFileLocation(workspacePath, subdirs[i]);
+    }, ProgressManager.getInstance().getProgressIndicator());
 
-    for (File dir : subdirs) {
-      final String dotProjectFileLocation = getDotProjectFileLocation(workspacePath, dir);
+    int found = 0;
+    for (String dotProjectFileLocation : locations) {
       if (dotProjectFileLocation != null) {
         projectPaths.add(dotProjectFileLocation);
+        found++;
       }
     }
+
+    LOG.info("Found " + found + " Flash Builder projects in workspace " + workspacePath + " in " +
+             (System.currentTimeMillis() - start) + " ms");
   }
 
   /*
@@ -132,24 +152,60 @@ public class FlashBuilderProjectFinder {
     return null;
   }
 
+  /**
+   * Walks the directory tree level by level, subdirectories of one level are listed in parallel. Subdirectories of found projects,
+   * hidden directories and Flash Builder output directories are not visited.
+   */
   private static void collectProjectPathsInDirectory(final List<String> projectPaths, final String dirPath) {
     final ProgressIndicator progressIndicator = ProgressManager.getInstance().getProgressIndicator();
-    if (progressIndicator != null) {
-      progressIndicator.checkCanceled();
-      progressIndicator.setText2(dirPath);
-    }
+    final long start = System.currentTimeMillis();
+    final Queue<String> foundPaths = new ConcurrentLinkedQueue<>();
+    int visitedDirs = 0;
+
+    List<File> level = Collections.singletonList(new File(dirPath));
+    while (!level.isEmpty()) {
+      if (progressIndicator != null) {
+        progressIndicator.checkCanceled();
+        progressIndicator.setText2(level.get(0).getPath());
+      }
 
-    final File dotProjectFile = new File(dirPath, FlashBuilderImporter.DOT_PROJECT);
-    if (isFlashBuilderProject(dotProjectFile)) {
-      projectPaths.add(dotProjectFile.getPath());
+      visitedDirs += level.size();
+      level = visitLevel(level, foundPaths, progressIndicator);
     }
-    else {
-      final File root = new File(dirPath);
-      final File[] subdirs = root.listFiles(FileUtilRt.ALL_DIRECTORIES);
-      for (final File subdir : subdirs) {
-        collectProjectPathsInDirectory(projectPaths, subdir.getPath());
+
+    final List<String> sortedPaths = new ArrayList<>(foundPaths);
+    Collections.sort(sortedPaths);
+    projectPaths.addAll(sortedPaths);
+
+    LOG.info("Found " + sortedPaths.size() + " Flash Builder projects in " + visitedDirs + " directories under " + dirPath + " in " +
+             (System.currentTimeMillis() - start) + " ms");
+  }
+
+  private static List<File> visitLevel(final List<File> dirs, final Queue<String> foundPaths, final @Nullable ProgressIndicator indicator) {
+    final Queue<File> nextLevel = new ConcurrentLinkedQueue<>();
+
+    FlashBuilderProjectLoadUtil.processConcurrently(dirs.size(), i -> {
+      final File dir = dirs.get(i);
+      final File dotProjectFile = new File(dir, FlashBuilderImporter.DOT_PROJECT);
+      if (isFlashBuilderProject(dotProjectFile)) {
+        foundPaths.add(dotProjectFile.getPath());
+        return;
       }
-    }
+
+      final File[] subdirs = dir.listFiles(FileUtilRt.ALL_DIRECTORIES);
+      if (subdirs == null) return;
+      for (File subdir : subdirs) {
+        if (!isSkippedDirectory(subdir.getName())) {
+          nextLevel.add(subdir);
+        }
+      }
+    }, indicator);
+
+    return new ArrayList<>(nextLevel);
+  }
+
+  private static boolean isSkippedDirectory(final String name) {
+    return name.startsWith(".") || SKIPPED_DIRECTORY_NAMES.contains(name);
   }
 
   static boolean hasArchiveExtension(final String path) {
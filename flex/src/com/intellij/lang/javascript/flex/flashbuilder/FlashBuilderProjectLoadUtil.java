@@ -5,12 +5,18 @@ import com.intellij.flex.model.bc.TargetPlatform;
 import com.intellij.lang.javascript.flex.FlexBundle;
 import com.intellij.lang.javascript.flex.FlexUtils;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.util.JDOMUtil;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
-import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.Consumer;
+import com.intellij.util.ExceptionUtil;
 import com.intellij.util.PathUtil;
+import com.intellij.util.containers.ContainerUtil;
 import gnu.trove.THashMap;
 import org.jdom.Element;
 import org.jdom.JDOMException;
@@ -21,6 +27,10 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class FlashBuilderProjectLoadUtil {
 
@@ -98,6 +108,8 @@ public class FlashBuilderProjectLoadUtil {
   public static final String DEFAULT_THEME_ATTR = "themeIsDefault";
   private static final String THEME_LOCATION_ATTR = "themeLocation";
 
+  private static final Logger LOG = Logger.getInstance(FlashBuilderProjectLoadUtil.class.getName());
+
   private FlashBuilderProjectLoadUtil() {
   }
 
@@ -133,18 +145,90 @@ public class FlashBuilderProjectLoadUtil {
     return PathUtil.getFileName(PathUtil.getParentPath(dotProjectFilePath));
   }
 
+  /**
+   * Projects are loaded in parallel directly from the file system, VFS is not needed until modules are created.
+   * Order of the result is the order of the paths, paths that don't point to existing files are skipped.
+   * An exception thrown while loading a project is rethrown.
+   */
   public static List<FlashBuilderProject> loadProjects(final Collection<String> dotProjectFilePaths, final boolean isArchive) {
-    final List<FlashBuilderProject> flashBuilderProjects = new ArrayList<>(dotProjectFilePaths.size());
-    for (final String dotProjectFilePath : dotProjectFilePaths) {
-      final VirtualFile dotProjectFile = LocalFileSystem.getInstance().findFileByPath(dotProjectFilePath);
-      if (dotProjectFile != null) {
-        flashBuilderProjects.add(loadProject(dotProjectFile, isArchive));
+    final long start = System.currentTimeMillis();
+    final List<String> paths = new ArrayList<>(dotProjectFilePaths);
+    final FlashBuilderProject[] loaded = new FlashBuilderProject[paths.size()];
+
+    processConcurrently(paths.size(), i -> {
+      final File dotProjectFile = new File(paths.get(i));
+      if (dotProjectFile.isFile()) {
+        loaded[i] = loadProject(dotProjectFile, isArchive);
       }
+    }, null);
+
+    final List<FlashBuilderProject> flashBuilderProjects = new ArrayList<>(paths.size());
+    for (FlashBuilderProject project : loaded) {
+      ContainerUtil.addIfNotNull(flashBuilderProjects, project);
     }
+
+    LOG.info("Loaded " + flashBuilderProjects.size() + " Flash Builder projects in " + (System.currentTimeMillis() - start) + " ms");
     return flashBuilderProjects;
   }
 
+  /**
+   * Calls processor for indices from 0 to count - 1 on pooled threads, at most one thread per core, returns when all are processed.
+   * The first exception thrown by the processor stops the other threads and is rethrown,
+   * {@link ProcessCanceledException} is thrown if the indicator is canceled.
+   */
+  static void processConcurrently(final int count, final Consumer<Integer> processor, final @Nullable ProgressIndicator indicator) {
+    final AtomicInteger nextIndex = new AtomicInteger();
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    final Runnable worker = () -> {
+      try {
+        int i;
+        while (failure.get() == null && (indicator == null || !indicator.isCanceled()) && (i = nextIndex.getAndIncrement()) < count) {
+          processor.consume(i);
+        }
+      }
+      catch (Throwable t) {
+        failure.compareAndSet(null, t);
+      }
+    };
+
+    final int threads = Math.min(count, Runtime.getRuntime().availableProcessors());
+    if (threads <= 1) {
+      worker.run();
+    }
+    else {
+      final Collection<Future<?>> futures = new ArrayList<>(threads);
+      for (int i = 0; i < threads; i++) {
+        futures.add(ApplicationManager.getApplication().executeOnPooledThread(worker));
+      }
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        }
+        catch (InterruptedException e) {
+          failure.compareAndSet(null, new ProcessCanceledException(e));
+        }
+        catch (ExecutionException e) {
+          failure.compareAndSet(null, e.getCause());
+        }
+      }
+    }
+
+    final Throwable t = failure.get();
+    if (t != null) {
+      // processor is a Consumer, it throws unchecked exceptions only
+      ExceptionUtil.rethrowUnchecked(t);
+      throw new RuntimeException(t);
+    }
+    if (indicator != null) {
+      indicator.checkCanceled();
+    }
+  }
+
   public static FlashBuilderProject loadProject(final VirtualFile dotProjectFile, final boolean isArchive) {
+    return loadProject(VfsUtilCore.virtualToIoFile(dotProjectFile), isArchive);
+  }
+
+  private static FlashBuilderProject loadProject(final File dotProjectFile, final boolean isArchive) {
     final FlashBuilderProject project = new FlashBuilderProject();
 
     loadProjectNameAndLinkedResources(project, dotProjectFile);
@@ -159,9 +243,9 @@ public class FlashBuilderProjectLoadUtil {
     return project;
   }
 
-  private static void loadProjectNameAndLinkedResources(final FlashBuilderProject project, final VirtualFile dotProjectFile) {
+  private static void loadProjectNameAndLinkedResources(final FlashBuilderProject project, final File dotProjectFile) {
     try {
-      final Element projectDescription = JDOMUtil.load(dotProjectFile.getInputStream());
+      final Element projectDescription = JDOMUtil.load(dotProjectFile);
       if (!PROJECT_DESCRIPTION_TAG.equals(projectDescription.getName())) return;
 
       final String projectName = projectDescription.getChildText(NAME_TAG, projectDescription.getNamespace());
@@ -187,15 +271,15 @@ public class FlashBuilderProjectLoadUtil {
     catch (IOException ignored) {/*ignore*/}
   }
 
-  private static Map<String, String> loadMapFromDotFxpPropertiesFile(final VirtualFile dotProjectFile) {
+  private static Map<String, String> loadMapFromDotFxpPropertiesFile(final File dotProjectFile) {
     final Map<String, String> result = new THashMap<>();
 
-    final VirtualFile dir = dotProjectFile.getParent();
+    final File dir = dotProjectFile.getParentFile();
     assert dir != null;
-    final VirtualFile dotFxpPropertiesFile = dir.findChild(FlashBuilderImporter.DOT_FXP_PROPERTIES);
+    final File dotFxpPropertiesFile = findChild(dir, FlashBuilderImporter.DOT_FXP_PROPERTIES);
     if (dotFxpPropertiesFile != null) {
       try {
-        final Element fxpPropertiesElement = JDOMUtil.load(dotFxpPropertiesFile.getInputStream());
+        final Element fxpPropertiesElement = JDOMUtil.load(dotFxpPropertiesFile);
         if (!FXP_PROPERTIES_TAG.equals(fxpPropertiesElement.getName())) return Collections.emptyMap();
 
         final Element swcElement = fxpPropertiesElement.getChild(SWC_TAG);
@@ -218,14 +302,14 @@ public class FlashBuilderProjectLoadUtil {
   }
 
   private static void loadInfoFromDotActionScriptPropertiesFile(final FlashBuilderProject project,
-                                                                final VirtualFile dotProjectFile,
+                                                                final File dotProjectFile,
                                                                 final Map<String, String> pathReplacementMap) {
-    final VirtualFile dir = dotProjectFile.getParent();
+    final File dir = dotProjectFile.getParentFile();
     assert dir != null;
-    final VirtualFile dotActionScriptPropertiesFile = dir.findChild(FlashBuilderImporter.DOT_ACTION_SCRIPT_PROPERTIES);
+    final File dotActionScriptPropertiesFile = findChild(dir, FlashBuilderImporter.DOT_ACTION_SCRIPT_PROPERTIES);
     if (dotActionScriptPropertiesFile != null) {
       try {
-        final Element actionScriptPropertiesElement = JDOMUtil.load(dotActionScriptPropertiesFile.getInputStream());
+        final Element actionScriptPropertiesElement = JDOMUtil.load(dotActionScriptPropertiesFile);
         if (!ACTION_SCRIPT_PROPERTIES_TAG.equals(actionScriptPropertiesElement.getName())) return;
         loadMainClassName(project, actionScriptPropertiesElement);
 
@@ -258,11 +342,11 @@ public class FlashBuilderProjectLoadUtil {
     }
   }
 
-  private static void loadInfoFromDotFlexLibPropertiesFile(final FlashBuilderProject project, final VirtualFile dotProjectFile) {
-    final VirtualFile dotFlexLibPropertiesFile = dotProjectFile.getParent().findChild(FlashBuilderImporter.DOT_FLEX_LIB_PROPERTIES);
+  private static void loadInfoFromDotFlexLibPropertiesFile(final FlashBuilderProject project, final File dotProjectFile) {
+    final File dotFlexLibPropertiesFile = findChild(dotProjectFile.getParentFile(), FlashBuilderImporter.DOT_FLEX_LIB_PROPERTIES);
     if (dotFlexLibPropertiesFile != null) {
       try {
-        final Element flexLibPropertiesElement = JDOMUtil.load(dotFlexLibPropertiesFile.getInputStream());
+        final Element flexLibPropertiesElement = JDOMUtil.load(dotFlexLibPropertiesFile);
         if (!FLEX_LIB_PROPERTIES_TAG.equals(flexLibPropertiesElement.getName())) return;
 
         if (project.getTargetPlatform() == TargetPlatform.Desktop &&
@@ -304,15 +388,15 @@ public class FlashBuilderProjectLoadUtil {
   }
 
   private static void loadProjectType(final FlashBuilderProject flashBuilderProject,
-                                      final VirtualFile dotProjectFile,
+                                      final File dotProjectFile,
                                       final Element compilerElement) {
-    final VirtualFile dir = dotProjectFile.getParent();
+    final File dir = dotProjectFile.getParentFile();
     assert dir != null;
 
-    final VirtualFile flexLibPropertiesFile = dir.findChild(FlashBuilderImporter.DOT_FLEX_LIB_PROPERTIES);
+    final File flexLibPropertiesFile = findChild(dir, FlashBuilderImporter.DOT_FLEX_LIB_PROPERTIES);
     final boolean airSdk = "true".equals(compilerElement.getAttributeValue(USE_FLASH_SDK));
     flashBuilderProject.setAirSdk(airSdk);
-    flashBuilderProject.setPureActionScript(airSdk || dir.findChild(FlashBuilderImporter.DOT_FLEX_PROPERTIES) == null &&
+    flashBuilderProject.setPureActionScript(airSdk || findChild(dir, FlashBuilderImporter.DOT_FLEX_PROPERTIES) == null &&
                                                       flexLibPropertiesFile == null);
     if (flexLibPropertiesFile == null) {
       final Element parentElement = compilerElement.getParentElement();
@@ -441,18 +525,24 @@ public class FlashBuilderProjectLoadUtil {
     }
   }
 
-  private static void loadOutputType(final FlashBuilderProject project, final VirtualFile dotProjectFile) {
-    final VirtualFile dir = dotProjectFile.getParent();
+  private static void loadOutputType(final FlashBuilderProject project, final File dotProjectFile) {
+    final File dir = dotProjectFile.getParentFile();
     assert dir != null;
-    project.setOutputType(dir.findChild(FlashBuilderImporter.DOT_FLEX_LIB_PROPERTIES) == null
+    project.setOutputType(findChild(dir, FlashBuilderImporter.DOT_FLEX_LIB_PROPERTIES) == null
                           ? OutputType.Application
                           : OutputType.Library);
   }
 
-  private static void loadProjectRoot(final FlashBuilderProject project, final VirtualFile dotProjectFile) {
-    final VirtualFile dir = dotProjectFile.getParent();
+  private static void loadProjectRoot(final FlashBuilderProject project, final File dotProjectFile) {
+    final File dir = dotProjectFile.getParentFile();
     assert dir != null;
-    project.setProjectRootPath(dir.getPath());
+    project.setProjectRootPath(FileUtil.toSystemIndependentName(dir.getPath()));
+  }
+
+  @Nullable
+  private static File findChild(final File dir, final String name) {
+    final File file = new File(dir, name);
+    return file.isFile() ? file : null;
   }
 
   private static void loadSourcePaths(final FlashBuilderProject project, final Element compilerElement) {
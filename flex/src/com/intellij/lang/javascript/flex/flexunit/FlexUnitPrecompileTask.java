@@ -11,8 +11,6 @@ import com.intellij.flex.model.bc.TargetPlatform;
 import com.intellij.javascript.flex.resolve.ActionScriptClassResolver;
 import com.intellij.lang.javascript.flex.FlexBundle;
 import com.intellij.lang.javascript.flex.projectStructure.model.FlexBuildConfiguration;
-import com.intellij.lang.javascript.index.JSPackageIndex;
-import com.intellij.lang.javascript.index.JSPackageIndexInfo;
 import com.intellij.lang.javascript.psi.ecmal4.JSClass;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.compiler.CompileContext;
@@ -25,18 +23,15 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.*;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
-import com.intellij.psi.PsiElement;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.ui.UIBundle;
 import com.intellij.util.ResourceUtil;
 import gnu.trove.THashSet;
-import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.text.MessageFormat;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Set;
@@ -167,7 +162,7 @@ public class FlexUnitPrecompileTask implements CompileTask {
           if (DumbService.getInstance(myProject).isDumb()) return null;
           Set<String> result = new THashSet<>();
           final JSClass clazz = (JSClass)ActionScriptClassResolver.findClassByQNameStatic(params.getClassName(), moduleScope);
-          collectCustomRunners(result, clazz, support, null);
+          support.collectCustomRunners(result, clazz, null);
           isFlexUnit1Suite.set(support.isFlexUnit1SuiteSubclass(clazz));
           isSuite.set(support.isSuite(clazz));
           return result;
@@ -189,7 +184,7 @@ public class FlexUnitPrecompileTask implements CompileTask {
           if (DumbService.getInstance(myProject).isDumb()) return null;
           Set<String> result = new THashSet<>();
           final JSClass clazz = (JSClass)ActionScriptClassResolver.findClassByQNameStatic(params.getClassName(), moduleScope);
-          collectCustomRunners(result, clazz, support, null);
+          support.collectCustomRunners(result, clazz, null);
           return result;
         });
         if (customRunners == null) {
@@ -208,22 +203,7 @@ public class FlexUnitPrecompileTask implements CompileTask {
           ApplicationManager.getApplication().runReadAction((NullableComputable<Collection<Pair<String, Set<String>>>>)() -> {
             if (DumbService.getInstance(myProject).isDumb()) return null;
 
-            final Collection<Pair<String, Set<String>>> result = new ArrayList<>();
-            JSPackageIndex
-              .processElementsInScopeRecursive(params.getPackageName(), new JSPackageIndex.PackageQualifiedElementsProcessor() {
-                public boolean process(String qualifiedName, JSPackageIndexInfo.Kind kind, boolean isPublic) {
-                  if (kind == JSPackageIndexInfo.Kind.CLASS) {
-                    PsiElement clazz = ActionScriptClassResolver.findClassByQNameStatic(qualifiedName, moduleScope);
-                    if (clazz instanceof JSClass && support.isTestClass((JSClass)clazz, false)) {
-                      Set<String> customRunners = new THashSet<>();
-                      collectCustomRunners(customRunners, (JSClass)clazz, support, null);
-                      result.add(Pair.create(((JSClass)clazz).getQualifiedName(), customRunners));
-                    }
-                  }
-                  return true;
-                }
-              }, moduleScope, myProject);
-            return result;
+            return support.findTestClassesInPackage(params.getPackageName(), module);
           });
 
         if (classes == null) {
@@ -317,22 +297,6 @@ public class FlexUnitPrecompileTask implements CompileTask {
     return text.replace(pattern, replacement);
   }
 
-  private static void collectCustomRunners(Set<String> result,
-                                           JSClass testClass,
-                                           FlexUnitSupport flexUnitSupport,
-                                           @Nullable Collection<JSClass> seen) {
-    if (seen != null && seen.contains(testClass)) return;
-    final String customRunner = FlexUnitSupport.getCustomRunner(testClass);
-    if (!StringUtil.isEmptyOrSpaces(customRunner)) result.add(customRunner);
-    if (flexUnitSupport.isSuite(testClass)) {
-      if (seen == null) seen = new THashSet<>();
-      seen.add(testClass);
-      for (JSClass referencedClass : flexUnitSupport.getSuiteTestClasses(testClass)) {
-        collectCustomRunners(result, referencedClass, flexUnitSupport, seen);
-      }
-    }
-  }
-
   private static void generateImportCode(StringBuilder imports, String className, Collection<String> customRunners) {
     if (!StringUtil.isEmpty(StringUtil.getPackageName(className))) {
       generateImportCode(imports, className);
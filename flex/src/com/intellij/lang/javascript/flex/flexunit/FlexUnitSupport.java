@@ -12,20 +12,26 @@ import com.intellij.lang.javascript.psi.ecmal4.JSAttributeNameValuePair;
 import com.intellij.lang.javascript.psi.ecmal4.JSClass;
 import com.intellij.lang.javascript.psi.resolve.JSInheritanceUtil;
 import com.intellij.lang.javascript.psi.types.primitives.JSVoidType;
+import com.intellij.lang.javascript.search.JSClassSearch;
 import com.intellij.lang.javascript.validation.ValidateTypesUtil;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleType;
 import com.intellij.openapi.module.ModuleUtil;
 import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.containers.ContainerUtil;
+import gnu.trove.THashSet;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Set;
 
 public class FlexUnitSupport {
 
@@ -179,6 +185,109 @@ public class FlexUnitSupport {
     return true;
   }
 
+  /**
+   * Finds test classes of the package and its subpackages by {@link FlexUnitTestIndex}, same as checking each class of the package with
+   * {@link #isTestClass(JSClass, boolean)}. PSI is loaded only for suites, to collect custom runners of their test classes.
+   * Test classes are looked for in the module content, their ancestors also in dependencies and libraries.
+   *
+   * @return qualified names of test classes with custom runners used by them
+   */
+  public Collection<Pair<String, Set<String>>> findTestClassesInPackage(final String packageName, final Module module) {
+    final GlobalSearchScope scope = GlobalSearchScope.moduleScope(module);
+    final GlobalSearchScope hierarchyScope = GlobalSearchScope.moduleWithDependenciesAndLibrariesScope(module);
+    final Set<String> flexUnit1Subclasses = getFlexUnit1Subclasses(hierarchyScope, scope);
+    final Set<String> flunitSubclasses = getFlunitSubclasses(hierarchyScope, scope);
+    final Set<String> suiteSubclasses = getSuiteSubclasses(hierarchyScope, scope);
+
+    final Collection<Pair<String, Set<String>>> result = new ArrayList<>();
+    FlexUnitTestIndex.processClassesInPackageRecursive(packageName, scope, module.getProject(), info -> {
+      final String qName = info.getQualifiedName();
+      if (!isTestClass(info, flexUnit1Subclasses.contains(qName), flunitSubclasses.contains(qName))) return true;
+
+      final Set<String> customRunners = new THashSet<>();
+      if (isSuite(info, suiteSubclasses.contains(qName))) {
+        final PsiElement clazz = ActionScriptClassResolver.findClassByQNameStatic(qName, scope);
+        if (clazz instanceof JSClass) {
+          collectCustomRunners(customRunners, (JSClass)clazz, null);
+        }
+      }
+      else if (!StringUtil.isEmptyOrSpaces(info.getCustomRunner())) {
+        customRunners.add(info.getCustomRunner());
+      }
+      result.add(Pair.create(qName, customRunners));
+      return true;
+    });
+    return result;
+  }
+
+  public void collectCustomRunners(Set<String> result, JSClass testClass, @Nullable Collection<JSClass> seen) {
+    if (seen != null && seen.contains(testClass)) return;
+    final String customRunner = getCustomRunner(testClass);
+    if (!StringUtil.isEmptyOrSpaces(customRunner)) result.add(customRunner);
+    if (isSuite(testClass)) {
+      if (seen == null) seen = new THashSet<>();
+      seen.add(testClass);
+      for (JSClass referencedClass : getSuiteTestClasses(testClass)) {
+        collectCustomRunners(result, referencedClass, seen);
+      }
+    }
+  }
+
+  /**
+   * Same as {@link #isTestClass(JSClass, boolean)} with <code>allowSuite == false</code> for indexed class.
+   * Hierarchy facts come from {@link #getFlexUnit1Subclasses(GlobalSearchScope, GlobalSearchScope)} and
+   * {@link #getFlunitSubclasses(GlobalSearchScope, GlobalSearchScope)}.
+   */
+  public boolean isTestClass(@NotNull FlexUnitTestIndexInfo info, boolean flexUnit1Subclass, boolean flunitSubclass) {
+    if (!flexUnit1Subclass && !flexUnit4Present) return false;
+
+    if (info.getCustomRunner() == null && info.hasConstructorWithRequiredParameters()) return false;
+
+    if (!flexUnit1Subclass && !flunitSubclass) {
+      final boolean hasTests = info.getCustomRunner() != null ? info.hasNamedFunctions() : !info.getTestMethods().isEmpty();
+      if (!hasTests) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Same as {@link #isSuite(JSClass)} for indexed class, suiteSubclass is whether the class extends FlexUnit 1 or Fluint test suite
+   */
+  public boolean isSuite(@NotNull FlexUnitTestIndexInfo info, boolean suiteSubclass) {
+    return suiteSubclass || flexUnit4Present && info.isSuite();
+  }
+
+  /**
+   * @param searchScope  where to look for subclasses, must contain their ancestors, e.g. library classes extending <code>TestCase</code>
+   * @param resultScope  subclasses outside of it are skipped
+   */
+  public Set<String> getFlexUnit1Subclasses(final GlobalSearchScope searchScope, final GlobalSearchScope resultScope) {
+    return getSubclassNames(flexUnit1TestClass, searchScope, resultScope);
+  }
+
+  public Set<String> getFlunitSubclasses(final GlobalSearchScope searchScope, final GlobalSearchScope resultScope) {
+    return flunitTestClass == null ? Collections.emptySet() : getSubclassNames(flunitTestClass, searchScope, resultScope);
+  }
+
+  public Set<String> getSuiteSubclasses(final GlobalSearchScope searchScope, final GlobalSearchScope resultScope) {
+    final Set<String> result = getSubclassNames(flexUnit1TestSuite, searchScope, resultScope);
+    if (flunitTestSuite != null) {
+      result.addAll(getSubclassNames(flunitTestSuite, searchScope, resultScope));
+    }
+    return result;
+  }
+
+  private static Set<String> getSubclassNames(final JSClass clazz, final GlobalSearchScope searchScope, final GlobalSearchScope resultScope) {
+    final Set<String> result = new THashSet<>();
+    for (JSClass subclass : JSClassSearch.searchClassInheritors(clazz, true, searchScope).findAll()) {
+      final VirtualFile file = subclass.getContainingFile().getVirtualFile();
+      if (file != null && resultScope.contains(file)) {
+        ContainerUtil.addIfNotNull(result, subclass.getQualifiedName());
+      }
+    }
+    return result;
+  }
+
   public boolean isSuite(JSClass clazz) {
     if (isFlexUnit1SuiteSubclass(clazz) || isFlunitSuiteSubclass(clazz)) return true;
     if (flexUnit4Present && clazz.getAttributeList() != null && clazz.getAttributeList().getAttributesByName(SUITE_ATTRIBUTE).length > 0) {
@@ -0,0 +1,228 @@
+package com.intellij.lang.javascript.flex.flexunit;
+
+import com.intellij.lang.javascript.ActionScriptFileType;
+import com.intellij.lang.javascript.index.JSPackageIndex;
+import com.intellij.lang.javascript.psi.JSFunction;
+import com.intellij.lang.javascript.psi.ecmal4.JSAttributeList;
+import com.intellij.lang.javascript.psi.ecmal4.JSClass;
+import com.intellij.lang.javascript.psi.stubs.JSClassStub;
+import com.intellij.lang.javascript.types.JSFileElementType;
+import com.intellij.lang.javascript.validation.ValidateTypesUtil;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.psi.stubs.StubTree;
+import com.intellij.util.Processor;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.IOUtil;
+import com.intellij.util.io.KeyDescriptor;
+import gnu.trove.THashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Public ActionScript classes with their FlexUnit metadata, test methods and custom runners, keyed by package name.
+ * Lets FlexUnit run configurations find test classes of a package without resolving each class of the package.
+ */
+public class FlexUnitTestIndex extends FileBasedIndexExtension<String, List<FlexUnitTestIndexInfo>> {
+
+  public static final ID<String, List<FlexUnitTestIndexInfo>> NAME = ID.create("FlexUnitTestIndex");
+
+  private static final int VERSION = 1;
+
+  private static final int SUITE_FLAG = 1;
+  private static final int CONSTRUCTOR_WITH_REQUIRED_PARAMETERS_FLAG = 2;
+  private static final int HAS_NAMED_FUNCTIONS_FLAG = 4;
+  private static final int CUSTOM_RUNNER_FLAG = 8;
+
+  private final DataExternalizer<List<FlexUnitTestIndexInfo>> myDataExternalizer = new DataExternalizer<List<FlexUnitTestIndexInfo>>() {
+    @Override
+    public void save(@NotNull DataOutput out, List<FlexUnitTestIndexInfo> value) throws IOException {
+      DataInputOutputUtil.writeINT(out, value.size());
+      for (FlexUnitTestIndexInfo info : value) {
+        IOUtil.writeUTF(out, info.getQualifiedName());
+        // [RunWith] value may be an empty string, so its presence is a flag
+        final String customRunner = info.getCustomRunner();
+        out.writeByte((customRunner != null ? CUSTOM_RUNNER_FLAG : 0) |
+                      (info.isSuite() ? SUITE_FLAG : 0) |
+                      (info.hasConstructorWithRequiredParameters() ? CONSTRUCTOR_WITH_REQUIRED_PARAMETERS_FLAG : 0) |
+                      (info.hasNamedFunctions() ? HAS_NAMED_FUNCTIONS_FLAG : 0));
+        if (customRunner != null) {
+          IOUtil.writeUTF(out, customRunner);
+        }
+        DataInputOutputUtil.writeINT(out, info.getTestMethods().size());
+        for (String method : info.getTestMethods()) {
+          IOUtil.writeUTF(out, method);
+        }
+      }
+    }
+
+    @Override
+    public List<FlexUnitTestIndexInfo> read(@NotNull DataInput in) throws IOException {
+      final int size = DataInputOutputUtil.readINT(in);
+      final List<FlexUnitTestIndexInfo> result = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        final String qualifiedName = IOUtil.readUTF(in);
+        final int flags = in.readByte();
+        final String customRunner = (flags & CUSTOM_RUNNER_FLAG) != 0 ? IOUtil.readUTF(in) : null;
+        final int methodCount = DataInputOutputUtil.readINT(in);
+        final List<String> methods = methodCount == 0 ? Collections.emptyList() : new ArrayList<>(methodCount);
+        for (int j = 0; j < methodCount; j++) {
+          methods.add(IOUtil.readUTF(in));
+        }
+        result.add(new FlexUnitTestIndexInfo(qualifiedName, customRunner,
+                                             (flags & SUITE_FLAG) != 0,
+                                             (flags & CONSTRUCTOR_WITH_REQUIRED_PARAMETERS_FLAG) != 0,
+                                             (flags & HAS_NAMED_FUNCTIONS_FLAG) != 0,
+                                             methods));
+      }
+      return result;
+    }
+  };
+
+  @NotNull
+  @Override
+  public ID<String, List<FlexUnitTestIndexInfo>> getName() {
+    return NAME;
+  }
+
+  @NotNull
+  @Override
+  public DataIndexer<String, List<FlexUnitTestIndexInfo>, FileContent> getIndexer() {
+    return new DataIndexer<String, List<FlexUnitTestIndexInfo>, FileContent>() {
+      @Override
+      @NotNull
+      public Map<String, List<FlexUnitTestIndexInfo>> map(@NotNull FileContent inputData) {
+        final StubTree tree = JSPackageIndex.getStubTree(inputData);
+        if (tree == null) return Collections.emptyMap();
+
+        final Map<String, List<FlexUnitTestIndexInfo>> result = new THashMap<>();
+        for (StubElement e : tree.getPlainList()) {
+          if (!(e instanceof JSClassStub)) continue;
+          final PsiElement psiElement = e.getPsi();
+          if (!(psiElement instanceof JSClass)) continue;
+
+          final FlexUnitTestIndexInfo info = createInfo((JSClass)psiElement);
+          if (info != null) {
+            final String packageName = StringUtil.getPackageName(info.getQualifiedName());
+            List<FlexUnitTestIndexInfo> infos = result.get(packageName);
+            if (infos == null) {
+              infos = new ArrayList<>(1);
+              result.put(packageName, infos);
+            }
+            infos.add(info);
+          }
+        }
+        return result;
+      }
+    };
+  }
+
+  @Nullable
+  private static FlexUnitTestIndexInfo createInfo(final JSClass clazz) {
+    final String qualifiedName = clazz.getQualifiedName();
+    final JSAttributeList attributeList = clazz.getAttributeList();
+    if (qualifiedName == null || attributeList == null || attributeList.getAccessType() != JSAttributeList.AccessType.PUBLIC) return null;
+
+    boolean constructorWithRequiredParameters = false;
+    boolean hasNamedFunctions = false;
+    List<String> testMethods = Collections.emptyList();
+    for (JSFunction function : clazz.getFunctions()) {
+      if (function.getName() == null) continue;
+      hasNamedFunctions = true;
+
+      if (function.getKind() == JSFunction.FunctionKind.CONSTRUCTOR && ValidateTypesUtil.hasRequiredParameters(function)) {
+        constructorWithRequiredParameters = true;
+      }
+
+      if (isFlexUnit4TestMethod(function)) {
+        if (testMethods.isEmpty()) testMethods = new ArrayList<>();
+        testMethods.add(function.getName());
+      }
+    }
+
+    return new FlexUnitTestIndexInfo(qualifiedName, FlexUnitSupport.getCustomRunner(clazz),
+                                     attributeList.getAttributesByName(FlexUnitSupport.SUITE_ATTRIBUTE).length > 0,
+                                     constructorWithRequiredParameters, hasNamedFunctions, testMethods);
+  }
+
+  // FlexUnit 4 branch of FlexUnitSupport.isTestMethod(), return type is checked by its text to avoid resolve while indexing
+  private static boolean isFlexUnit4TestMethod(final JSFunction method) {
+    final JSAttributeList attributeList = method.getAttributeList();
+    if (attributeList == null) return false;
+    if (attributeList.getAccessType() != JSAttributeList.AccessType.PUBLIC) return false;
+    if (method.getKind() != JSFunction.FunctionKind.SIMPLE) return false;
+    if (attributeList.hasModifier(JSAttributeList.ModifierType.STATIC)) return false;
+    if (ValidateTypesUtil.hasRequiredParameters(method)) return false;
+
+    final String returnType = method.getReturnTypeString();
+    if (!StringUtil.isEmpty(returnType) && !"void".equals(returnType)) return false;
+
+    if (attributeList.getAttributesByName(FlexUnitSupport.IGNORE_ATTRIBUTE).length > 0) return false;
+    return attributeList.getAttributesByName(FlexUnitSupport.TEST_ATTRIBUTE).length > 0;
+  }
+
+  /**
+   * Processes classes of the package and all its subpackages, the default package with subpackages if packageName is empty
+   */
+  public static boolean processClassesInPackageRecursive(@NotNull final String packageName,
+                                                         @NotNull final GlobalSearchScope scope,
+                                                         @NotNull final Project project,
+                                                         @NotNull final Processor<FlexUnitTestIndexInfo> processor) {
+    final FileBasedIndex index = FileBasedIndex.getInstance();
+    for (String key : index.getAllKeys(NAME, project)) {
+      if (!packageName.isEmpty() && !key.equals(packageName) && !key.startsWith(packageName + ".")) continue;
+
+      final boolean proceed = index.processValues(NAME, key, null, (file, infos) -> {
+        for (FlexUnitTestIndexInfo info : infos) {
+          if (!processor.process(info)) return false;
+        }
+        return true;
+      }, scope);
+
+      if (!proceed) return false;
+    }
+    return true;
+  }
+
+  @NotNull
+  @Override
+  public KeyDescriptor<String> getKeyDescriptor() {
+    return EnumeratorStringDescriptor.INSTANCE;
+  }
+
+  @NotNull
+  @Override
+  public DataExternalizer<List<FlexUnitTestIndexInfo>> getValueExternalizer() {
+    return myDataExternalizer;
+  }
+
+  @NotNull
+  @Override
+  public FileBasedIndex.InputFilter getInputFilter() {
+    return new DefaultFileTypeSpecificInputFilter(ActionScriptFileType.INSTANCE);
+  }
+
+  @Override
+  public boolean dependsOnFileContent() {
+    return true;
+  }
+
+  @Override
+  public int getVersion() {
+    return JSFileElementType.getVersion() + VERSION;
+  }
+}
@@ -0,0 +1,93 @@
+package com.intellij.lang.javascript.flex.flexunit;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Syntactic FlexUnit facts about a public ActionScript class, see {@link FlexUnitTestIndex}.
+ * Facts that depend on the class hierarchy (FlexUnit 1 and Fluint base classes) are not stored, they are checked against the index of
+ * class inheritors when the info is used.
+ */
+public class FlexUnitTestIndexInfo {
+  private final String myQualifiedName;
+  private final String myCustomRunner;
+  private final boolean mySuite;
+  private final boolean myConstructorWithRequiredParameters;
+  private final boolean myHasNamedFunctions;
+  private final List<String> myTestMethods;
+
+  public FlexUnitTestIndexInfo(@NotNull String qualifiedName,
+                               @Nullable String customRunner,
+                               boolean suite,
+                               boolean constructorWithRequiredParameters,
+                               boolean hasNamedFunctions,
+                               @NotNull List<String> testMethods) {
+    myQualifiedName = qualifiedName;
+    myCustomRunner = customRunner;
+    mySuite = suite;
+    myConstructorWithRequiredParameters = constructorWithRequiredParameters;
+    myHasNamedFunctions = hasNamedFunctions;
+    myTestMethods = testMethods;
+  }
+
+  @NotNull
+  public String getQualifiedName() {
+    return myQualifiedName;
+  }
+
+  /**
+   * @return [RunWith] metadata default attribute value, same as {@link FlexUnitSupport#getCustomRunner(com.intellij.lang.javascript.psi.ecmal4.JSClass)}
+   */
+  @Nullable
+  public String getCustomRunner() {
+    return myCustomRunner;
+  }
+
+  /**
+   * @return whether class has [Suite] metadata
+   */
+  public boolean isSuite() {
+    return mySuite;
+  }
+
+  public boolean hasConstructorWithRequiredParameters() {
+    return myConstructorWithRequiredParameters;
+  }
+
+  public boolean hasNamedFunctions() {
+    return myHasNamedFunctions;
+  }
+
+  /**
+   * @return names of methods that are FlexUnit 4 test methods regardless of the class hierarchy: public non-static [Test] methods without
+   * [Ignore] metadata, required parameters and return type
+   */
+  @NotNull
+  public List<String> getTestMethods() {
+    return myTestMethods;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    final FlexUnitTestIndexInfo info = (FlexUnitTestIndexInfo)o;
+    return mySuite == info.mySuite &&
+           myConstructorWithRequiredParameters == info.myConstructorWithRequiredParameters &&
+           myHasNamedFunctions == info.myHasNamedFunctions &&
+           myQualifiedName.equals(info.myQualifiedName) &&
+           (myCustomRunner != null ? myCustomRunner.equals(info.myCustomRunner) : info.myCustomRunner == null) &&
+           myTestMethods.equals(info.myTestMethods);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = myQualifiedName.hashCode();
+    result = 31 * result + (myCustomRunner != null ? myCustomRunner.hashCode() : 0);
+    result = 31 * result + myTestMethods.hashCode();
+    return result;
+  }
+}
@@ -4,6 +4,7 @@ import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.psi.stubs.StubElement;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
 
@@ -58,10 +59,67 @@ public class FlexImporter {
       return s;
     }
     catch (IOException ex) {
-      return "/* " + ex.getLocalizedMessage() + " */";
+      return getErrorText(ex);
     }
     catch (ArrayIndexOutOfBoundsException ex) {
-      return "/* Invalid format */";
+      return getErrorText(ex);
+    }
+  }
+
+  /**
+   * Writes the same text as {@link #buildInterfaceFromStream(InputStream)}, but one top level definition at a time, so the text of
+   * a big library never is in memory as a whole.
+   *
+   * @return null, or the text {@link #buildInterfaceFromStream(InputStream)} returns for a malformed input, then the text written
+   * to {@code out} so far must be discarded
+   * @throws IOException only if {@code out} fails
+   */
+  @Nullable
+  public static String buildInterfaceFromStream(final InputStream in, final Writer out) throws IOException {
+    final StreamingInterfaceDumper dumper = new StreamingInterfaceDumper(out);
+    try {
+      processFlexByteCode(in, dumper);
+    }
+    catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    }
+    catch (IOException ex) {
+      return getErrorText(ex);
+    }
+    catch (ArrayIndexOutOfBoundsException ex) {
+      return getErrorText(ex);
+    }
+
+    dumper.flush();
+    return null;
+  }
+
+  @NonNls
+  private static String getErrorText(final Exception ex) {
+    return ex instanceof ArrayIndexOutOfBoundsException ? "/* Invalid format */" : "/* " + ex.getLocalizedMessage() + " */";
+  }
+
+  private static class StreamingInterfaceDumper extends AS3InterfaceDumper {
+    private final Writer myOut;
+
+    private StreamingInterfaceDumper(final Writer out) {
+      myOut = out;
+    }
+
+    @Override
+    public void dumpTopLevelTraits(final Abc abc, final @NotNull Traits t, final String indent) {
+      super.dumpTopLevelTraits(abc, t, indent);
+      try {
+        flush();
+      }
+      catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+    }
+
+    private void flush() throws IOException {
+      myOut.append(sb);
+      sb.setLength(0);
     }
   }
 
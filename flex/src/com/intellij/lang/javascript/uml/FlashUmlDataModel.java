@@ -37,16 +37,21 @@ import com.intellij.lang.javascript.refactoring.FormatFixer;
 import com.intellij.lang.javascript.psi.util.JSProjectUtil;
 import com.intellij.lang.javascript.refactoring.util.JSRefactoringUtil;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootModificationTracker;
 import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.util.ModificationTracker;
 import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.Trinity;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
 import com.intellij.psi.SmartPointerManager;
 import com.intellij.psi.SmartPsiElementPointer;
 import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
@@ -87,12 +92,11 @@ public class FlashUmlDataModel extends DiagramDataModel<Object> {
     else if (element instanceof String) {
       initialPackage = (String)element;
 
-      final GlobalSearchScope searchScope = GlobalSearchScope.allScope(project);
-      for (String aPackage : getSubPackages(initialPackage, searchScope)) {
+      for (String aPackage : getSubPackages(initialPackage)) {
         packages.add(aPackage);
       }
 
-      for (JSClass jsClass : getClasses(initialPackage, searchScope)) {
+      for (JSClass jsClass : getClasses(initialPackage)) {
         classesAddedByUser.put(jsClass.getQualifiedName(), spManager.createSmartPsiElementPointer(jsClass));
       }
     }
@@ -101,7 +105,7 @@ public class FlashUmlDataModel extends DiagramDataModel<Object> {
     }
   }
 
-  private static Collection<String> getSubPackages(final String packageName, final GlobalSearchScope searchScope) {
+  private static Collection<String> findSubPackages(final String packageName, final GlobalSearchScope searchScope) {
     final Collection<String> result = new HashSet<>();
     JSPackageIndex.processElementsInScope(packageName, null, new JSPackageIndex.PackageElementsProcessor() {
       public boolean process(VirtualFile file, String name, JSPackageIndexInfo.Kind kind, boolean isPublic) {
@@ -114,7 +118,7 @@ public class FlashUmlDataModel extends DiagramDataModel<Object> {
     return result;
   }
 
-  private static Collection<JSClass> getClasses(final String packageName, final GlobalSearchScope searchScope) {
+  private static Collection<JSClass> findClasses(final String packageName, final GlobalSearchScope searchScope) {
     final Collection<JSClass> result = new HashSet<>();
     JSPackageIndex.processElementsInScope(packageName, null, new JSPackageIndex.PackageElementsProcessor() {
       public boolean process(VirtualFile file, String name, JSPackageIndexInfo.Kind kind, boolean isPublic) {
@@ -131,13 +135,140 @@ public class FlashUmlDataModel extends DiagramDataModel<Object> {
     return result;
   }
 
+  // subpackages, classes and existence of packages, valid until VFS structure or project roots change
+  private final Map<String, Collection<String>> mySubPackages = new HashMap<>();
+  private final Map<String, Collection<JSClass>> myPackageClasses = new HashMap<>();
+  private final Map<String, Boolean> myExistingPackages = new HashMap<>();
+  private long myPackagesStamp = -1;
+
+  private synchronized Collection<String> getSubPackages(final String packageName) {
+    checkPackagesStamp();
+    Collection<String> result = mySubPackages.get(packageName);
+    if (result == null) {
+      result = findSubPackages(packageName, GlobalSearchScope.allScope(getProject()));
+      mySubPackages.put(packageName, result);
+    }
+    return result;
+  }
+
+  private synchronized Collection<JSClass> getClasses(final String packageName) {
+    checkPackagesStamp();
+    Collection<JSClass> result = myPackageClasses.get(packageName);
+    if (result == null || !allValid(result)) {
+      result = findClasses(packageName, GlobalSearchScope.allScope(getProject()));
+      myPackageClasses.put(packageName, result);
+    }
+    return result;
+  }
+
+  private synchronized boolean packageExists(final String packageName) {
+    checkPackagesStamp();
+    Boolean result = myExistingPackages.get(packageName);
+    if (result == null) {
+      result = FlashUmlElementManager.packageExists(getProject(), packageName, GlobalSearchScope.allScope(getProject()));
+      myExistingPackages.put(packageName, result);
+    }
+    return result;
+  }
+
+  private long getStructureStamp() {
+    return VirtualFileManager.VFS_STRUCTURE_MODIFICATIONS.getModificationCount() +
+           ProjectRootModificationTracker.getInstance(getProject()).getModificationCount();
+  }
+
+  // a class may be added, renamed or moved to another package by an edit of an existing file
+  private void checkPackagesStamp() {
+    final long stamp = getStructureStamp() +
+                       PsiModificationTracker.SERVICE.getInstance(getProject()).getOutOfCodeBlockModificationCount();
+    if (stamp != myPackagesStamp) {
+      mySubPackages.clear();
+      myPackageClasses.clear();
+      myExistingPackages.clear();
+      myPackagesStamp = stamp;
+    }
+  }
+
+  private static boolean allValid(final Collection<? extends PsiElement> elements) {
+    for (PsiElement element : elements) {
+      if (!element.isValid()) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Supers and dependencies of a class. Recomputed only when the file defining the class is modified, any of the found classes
+   * is invalidated, files or roots change, or, while a super is not resolved, any declaration changes. So refresh of a big diagram
+   * resolves only what was edited.
+   */
+  private static class ClassInfo {
+    private final long myStamp;
+    private final List<JSClass> mySuperClasses;
+    private final List<JSClass> myImplementedInterfaces;
+    // out of code block modification count if a super is not resolved, it may be defined by an edit of another file, -1 otherwise
+    private final long myUnresolvedSupersStamp;
+    private Collection<Pair<JSClass, FlashUmlRelationship>> myDependencies;
+
+    private ClassInfo(final JSClass clazz) {
+      myStamp = getStamp(clazz);
+      mySuperClasses = Arrays.asList(clazz.getSuperClasses());
+      myImplementedInterfaces = Arrays.asList(clazz.getImplementedInterfaces());
+      myUnresolvedSupersStamp = hasUnresolvedSupers(clazz) ? getOutOfCodeBlockStamp(clazz) : -1;
+    }
+
+    private boolean hasUnresolvedSupers(final JSClass clazz) {
+      for (JSReferenceList list : new JSReferenceList[]{clazz.getExtendsList(), clazz.getImplementsList()}) {
+        if (list == null) continue;
+        for (String reference : list.getReferenceTexts()) {
+          final String name = StringUtil.getShortName(reference);
+          if (!ContainerUtil.exists(mySuperClasses, c -> name.equals(c.getName())) &&
+              !ContainerUtil.exists(myImplementedInterfaces, c -> name.equals(c.getName()))) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    private boolean isUpToDate(final JSClass clazz) {
+      if (myStamp != getStamp(clazz) || !allValid(mySuperClasses) || !allValid(myImplementedInterfaces)) return false;
+      if (myUnresolvedSupersStamp != -1 && myUnresolvedSupersStamp != getOutOfCodeBlockStamp(clazz)) return false;
+      if (myDependencies != null) {
+        for (Pair<JSClass, FlashUmlRelationship> dependency : myDependencies) {
+          if (!dependency.first.isValid()) return false;
+        }
+      }
+      return true;
+    }
+
+    private static long getStamp(final JSClass clazz) {
+      final PsiFile file = clazz.getContainingFile();
+      return file == null ? -1 : file.getModificationStamp();
+    }
+
+    private static long getOutOfCodeBlockStamp(final JSClass clazz) {
+      return PsiModificationTracker.SERVICE.getInstance(clazz.getProject()).getOutOfCodeBlockModificationCount();
+    }
+  }
+
+  private final Map<JSClass, ClassInfo> myClassInfos = new HashMap<>();
+  private long myClassInfosStamp = -1;
+
+  private ClassInfo getClassInfo(final JSClass clazz) {
+    ClassInfo info = myClassInfos.get(clazz);
+    if (info == null || !info.isUpToDate(clazz)) {
+      info = new ClassInfo(clazz);
+      myClassInfos.put(clazz, info);
+    }
+    return info;
+  }
+
   private final Collection<DiagramNode<Object>> myNodes = new HashSet<>();
   private final Collection<DiagramEdge<Object>> myEdges = new HashSet<>();
   private final Collection<DiagramEdge<Object>> myDependencyEdges = new HashSet<>();
 
-  private final Collection<DiagramNode<Object>> myNodesOld = new HashSet<>();
-  private final Collection<DiagramEdge<Object>> myEdgesOld = new HashSet<>();
-  private final Collection<DiagramEdge<Object>> myDependencyEdgesOld = new HashSet<>();
+  // fqn -> node, nodes are kept between refreshes while their elements are the same
+  private final Map<String, DiagramNode<Object>> myClassNodes = new HashMap<>();
+  private final Map<String, DiagramNode<Object>> myPackageNodes = new HashMap<>();
 
 
   @NotNull
@@ -226,20 +357,25 @@ public class FlashUmlDataModel extends DiagramDataModel<Object> {
   }
 
   public void refreshDataModel() {
-    clearAll();
     updateDataModel();
   }
 
+  /**
+   * Inheritance edges depend only on declarations, edits inside function bodies matter only for dependency edges
+   */
   @NotNull
   @Override
   public ModificationTracker getModificationTracker() {
-    return PsiManager.getInstance(getProject()).getModificationTracker();
+    final PsiModificationTracker tracker = PsiManager.getInstance(getProject()).getModificationTracker();
+    return () -> isShowDependencies() ? tracker.getModificationCount() : tracker.getOutOfCodeBlockModificationCount();
   }
 
-  private void clearAll() {
-    clearAndBackup(myNodes, myNodesOld);
-    clearAndBackup(myEdges, myEdgesOld);
-    clearAndBackup(myDependencyEdges, myDependencyEdgesOld);
+  private synchronized void clearAll() {
+    myNodes.clear();
+    myEdges.clear();
+    myDependencyEdges.clear();
+    myClassNodes.clear();
+    myPackageNodes.clear();
   }
 
   public void removeAllElements() {
@@ -273,20 +409,39 @@ public class FlashUmlDataModel extends DiagramDataModel<Object> {
            one.getQualifiedName().equals(another.getQualifiedName());
   }
 
+  /**
+   * Patches nodes and edges in place: nodes and edges that are still in the diagram are kept, supers are resolved again only for
+   * classes from modified files.
+   */
   public synchronized void updateDataModel() {
+    // a super class or a dependency that was not resolved may be created in a new file or come with a root change
+    final long classInfosStamp = getStructureStamp();
+    if (classInfosStamp != myClassInfosStamp) {
+      myClassInfos.clear();
+      myClassInfosStamp = classInfosStamp;
+    }
+    else {
+      myClassInfos.keySet().removeIf(aClass -> !aClass.isValid());
+    }
+
     final Set<JSClass> classes = getAllClasses();
     syncPackages();
     final Set<JSClass> interfaces = new HashSet<>();
 
+    final Map<String, DiagramNode<Object>> packageNodes = new HashMap<>();
     for (String psiPackage : packages) {
-
-      if (FlashUmlElementManager.packageExists(getProject(), psiPackage, GlobalSearchScope.allScope(getProject()))) {
-        myNodes.add(new FlashUmlPackageNode(psiPackage, getProvider()));
+      if (packageExists(psiPackage)) {
+        final DiagramNode<Object> node = myPackageNodes.get(psiPackage);
+        packageNodes.put(psiPackage, node != null ? node : new FlashUmlPackageNode(psiPackage, getProvider()));
       }
     }
+
+    final Map<String, DiagramNode<Object>> classNodes = new HashMap<>();
     for (JSClass psiClass : classes) {
-      if (isAllowedToShow(psiClass)) {
-        myNodes.add(new FlashUmlClassNode(psiClass, getProvider()));
+      final String fqn = getFqn(psiClass);
+      if (fqn != null && isAllowedToShow(psiClass)) {
+        final DiagramNode<Object> node = myClassNodes.get(fqn);
+        classNodes.put(fqn, node != null && node.getIdentifyingElement() == psiClass ? node : new FlashUmlClassNode(psiClass, getProvider()));
       }
 
       if (psiClass.isInterface()) {
@@ -294,6 +449,15 @@ public class FlashUmlDataModel extends DiagramDataModel<Object> {
       }
     }
 
+    myPackageNodes.clear();
+    myPackageNodes.putAll(packageNodes);
+    myClassNodes.clear();
+    myClassNodes.putAll(classNodes);
+    myNodes.clear();
+    myNodes.addAll(packageNodes.values());
+    myNodes.addAll(classNodes.values());
+
+    final EdgesPatch edges = new EdgesPatch(myEdges);
     for (JSClass psiClass : classes) {
       {
         DiagramNode<Object> source = findNode(psiClass);
@@ -308,18 +472,19 @@ public class FlashUmlDataModel extends DiagramDataModel<Object> {
         if (source != null && target != null && source != target) {
           if (!((JSClass)getIdentifyingElement(source)).isInterface() ||
               !JSResolveUtil.isObjectClass((JSClass)getIdentifyingElement(target))) {
-            addEdge(source, target,
-                    psiClass.isInterface() ? FlashUmlRelationship.INTERFACE_GENERALIZATION : FlashUmlRelationship.GENERALIZATION);
+            edges.add(source, target,
+                      psiClass.isInterface() ? FlashUmlRelationship.INTERFACE_GENERALIZATION : FlashUmlRelationship.GENERALIZATION);
           }
         }
       }
 
-      for (JSClass inter : psiClass.getImplementedInterfaces()) {
+      final List<JSClass> implementedInterfaces = getClassInfo(psiClass).myImplementedInterfaces;
+      for (JSClass inter : implementedInterfaces) {
         if (interfaces.contains(inter)) {
           DiagramNode<Object> source = findNode(psiClass);
           DiagramNode<Object> target = findNode(inter);
           if (source != null && target != null && source != target) {
-            addEdge(source, target, FlashUmlRelationship.REALIZATION);
+            edges.add(source, target, FlashUmlRelationship.REALIZATION);
           }
         }
       }
@@ -332,20 +497,19 @@ public class FlashUmlDataModel extends DiagramDataModel<Object> {
             DiagramNode<Object> source = findNode(psiClass);
             DiagramNode<Object> target = findNode(inter);
             if (source != null && target != null && source != target) {
-              addEdge(source, target, FlashUmlRelationship.INTERFACE_GENERALIZATION);
+              edges.add(source, target, FlashUmlRelationship.INTERFACE_GENERALIZATION);
             }
           }
         }
       }
       else {
         //Collect all realized interfaces
-        Set<JSClass> inters = new HashSet<>();
-        ContainerUtil.addAll(inters, psiClass.getImplementedInterfaces());
+        Set<JSClass> inters = new HashSet<>(implementedInterfaces);
         Collection<JSClass> processed = new ArrayList<>();
         JSClass cur = getSuperClass(psiClass, processed);
         while (cur != null) {
           if (findNode(cur) == null) {
-            ContainerUtil.addAll(inters, cur.getImplementedInterfaces());
+            inters.addAll(getClassInfo(cur).myImplementedInterfaces);
           }
           else {
             break;
@@ -361,42 +525,73 @@ public class FlashUmlDataModel extends DiagramDataModel<Object> {
             DiagramNode<Object> source = findNode(psiClass);
             DiagramNode<Object> target = findNode(inter);
             if (source != null && target != null && source != target) {
-              addEdge(source, target, FlashUmlRelationship.REALIZATION);
+              edges.add(source, target, FlashUmlRelationship.REALIZATION);
             }
             faces.remove(inter);
           }
           else {
             faces.remove(inter);
-            ContainerUtil.addAll(faces, inter.getImplementedInterfaces());
+            faces.addAll(getClassInfo(inter).myImplementedInterfaces);
           }
         }
       }
     }
+    edges.apply(myEdges);
 
+    final EdgesPatch dependencyEdges = new EdgesPatch(myDependencyEdges);
     if (isShowDependencies()) {
       final EnumSet<FlashUmlDependenciesSettingsOption> options = FlashUmlDependenciesSettingsOption.getEnabled();
       for (JSClass psiClass : classes) {
-        showDependenciesFor(psiClass, options);
+        showDependenciesFor(psiClass, options, dependencyEdges);
+      }
+    }
+    dependencyEdges.apply(myDependencyEdges);
+  }
+
+  /**
+   * Edges of the refreshed model, edges that already were in the model are reused
+   */
+  private static class EdgesPatch {
+    private final Map<Trinity<DiagramNode<Object>, DiagramNode<Object>, DiagramRelationshipInfo>, DiagramEdge<Object>> myOldEdges =
+      new HashMap<>();
+    private final Map<Trinity<DiagramNode<Object>, DiagramNode<Object>, DiagramRelationshipInfo>, DiagramEdge<Object>> myNewEdges =
+      new LinkedHashMap<>();
+
+    private EdgesPatch(final Collection<DiagramEdge<Object>> oldEdges) {
+      for (DiagramEdge<Object> edge : oldEdges) {
+        myOldEdges.put(Trinity.create(edge.getSource(), edge.getTarget(), edge.getRelationship()), edge);
       }
     }
-    //merge!
-    mergeWithBackup(myNodes, myNodesOld);
-    mergeWithBackup(myEdges, myEdgesOld);
-    mergeWithBackup(myDependencyEdges, myDependencyEdgesOld);
+
+    private void add(DiagramNode<Object> from, DiagramNode<Object> to, DiagramRelationshipInfo relationship) {
+      final Trinity<DiagramNode<Object>, DiagramNode<Object>, DiagramRelationshipInfo> key = Trinity.create(from, to, relationship);
+      if (myNewEdges.containsKey(key)) return;
+      final DiagramEdge<Object> oldEdge = myOldEdges.get(key);
+      myNewEdges.put(key, oldEdge != null ? oldEdge : new FlashUmlEdge(from, to, relationship));
+    }
+
+    private void apply(final Collection<DiagramEdge<Object>> edges) {
+      edges.retainAll(myNewEdges.values());
+      edges.addAll(myNewEdges.values());
+    }
   }
 
-  private void showDependenciesFor(final JSClass clazz, final EnumSet<FlashUmlDependenciesSettingsOption> options) {
+  private void showDependenciesFor(final JSClass clazz,
+                                   final EnumSet<FlashUmlDependenciesSettingsOption> options,
+                                   final EdgesPatch dependencyEdges) {
     DiagramNode<Object> mainNode = findNode(clazz);
     if (mainNode == null) return;
 
-    FlashUmlDependencyProvider provider = new FlashUmlDependencyProvider(clazz);
+    final ClassInfo info = getClassInfo(clazz);
+    if (info.myDependencies == null) {
+      info.myDependencies = new FlashUmlDependencyProvider(clazz).computeUsedClasses();
+    }
 
-    Collection<Pair<JSClass, FlashUmlRelationship>> list = provider.computeUsedClasses();
-    for (Pair<JSClass, FlashUmlRelationship> pair : list) {
+    for (Pair<JSClass, FlashUmlRelationship> pair : info.myDependencies) {
       if (shouldShow(options, clazz, pair.first, pair.second)) {
         DiagramNode<Object> node = findNode(pair.first);
         if (node != null) {
-          addDependencyEdge(mainNode, node, pair.second);
+          dependencyEdges.add(mainNode, node, pair.second);
         }
       }
     }
@@ -428,38 +623,22 @@ public class FlashUmlDataModel extends DiagramDataModel<Object> {
   }
 
   @Nullable
-  private static JSClass getSuperClass(JSClass psiClass, Collection<JSClass> processed) {
-    JSClass[] superClasses = psiClass.getSuperClasses();
-    if (superClasses.length > 0 &&
-        !superClasses[0].isEquivalentTo(psiClass) &&
-        !JSPsiImplUtils.containsEquivalent(processed, superClasses[0])) {
-      processed.add(superClasses[0]);
-      return superClasses[0];
+  private JSClass getSuperClass(JSClass psiClass, Collection<JSClass> processed) {
+    List<JSClass> superClasses = getClassInfo(psiClass).mySuperClasses;
+    if (!superClasses.isEmpty() &&
+        !superClasses.get(0).isEquivalentTo(psiClass) &&
+        !JSPsiImplUtils.containsEquivalent(processed, superClasses.get(0))) {
+      processed.add(superClasses.get(0));
+      return superClasses.get(0);
     }
     return null;
   }
 
-  private static <T> void clearAndBackup(Collection<T> target, Collection<T> backup) {
-    backup.clear();
-    backup.addAll(target);
-    target.clear();
-  }
-
-  private static <T> void mergeWithBackup(Collection<T> target, Collection<T> backup) {
-    for (T t : backup) {
-      if (target.contains(t)) {
-        target.remove(t);
-        target.add(t);
-      }
-    }
-  }
-
   private void syncPackages() {
-    final GlobalSearchScope searchScope = GlobalSearchScope.allScope(getProject());
-    if (initialPackage == null || FlashUmlElementManager.packageExists(getProject(), initialPackage, searchScope)) return;
+    if (initialPackage == null || packageExists(initialPackage)) return;
 
     final Set<String> psiPackages = new HashSet<>();
-    for (String sub : getSubPackages(initialPackage, searchScope)) {
+    for (String sub : getSubPackages(initialPackage)) {
       psiPackages.add(sub);
     }
     for (String fqn : packages) psiPackages.remove(fqn);
@@ -470,8 +649,8 @@ public class FlashUmlDataModel extends DiagramDataModel<Object> {
     }
   }
 
-  private static void findNearestInterfaces(final JSClass psiClass, final Set<JSClass> result) {
-    for (JSClass anInterface : psiClass.getSuperClasses()) {
+  private void findNearestInterfaces(final JSClass psiClass, final Set<JSClass> result) {
+    for (JSClass anInterface : getClassInfo(psiClass).mySuperClasses) {
       if (result.contains(anInterface)) {
         continue; // don't check isEquivalent, equality check is enough for interfaces
       }
@@ -513,13 +692,12 @@ public class FlashUmlDataModel extends DiagramDataModel<Object> {
     for (SmartPsiElementPointer<JSClass> pointer : classesAddedByUser.values()) {
       classes.add(pointer.getElement());
     }
-    final GlobalSearchScope searchScope = GlobalSearchScope.allScope(getProject());
-    if (initialPackage != null && FlashUmlElementManager.packageExists(getProject(), initialPackage, searchScope)) {
-      classes.addAll(getClasses(initialPackage, searchScope));
+    if (initialPackage != null && packageExists(initialPackage)) {
+      classes.addAll(getClasses(initialPackage));
     }
     for (String psiPackage : packages) {
-      if (FlashUmlElementManager.packageExists(getProject(), psiPackage, searchScope)) {
-        classes.addAll(getClasses(psiPackage, searchScope));
+      if (packageExists(psiPackage)) {
+        classes.addAll(getClasses(psiPackage));
       }
     }
     classes.remove(null);
@@ -537,18 +715,14 @@ public class FlashUmlDataModel extends DiagramDataModel<Object> {
   }
 
   @Nullable
-  public DiagramNode<Object> findNode(Object object) {
+  public synchronized DiagramNode<Object> findNode(Object object) {
     String objectFqn = getFqn(object);
-    for (DiagramNode<Object> node : getNodes()) {
-      final String fqn = getFqn(getIdentifyingElement(node));
-      if (fqn != null && fqn.equals(objectFqn)) {
-        if (object instanceof JSClass && !(node instanceof FlashUmlClassNode)) continue;
-        if (object instanceof String && !(node instanceof FlashUmlPackageNode)) continue;
-        return node;
-      }
-    }
-    //final SmartPsiElementPointer<JSPackage> ptr = packages.get(UmlUtils.getPackageName(psiElement));
-    return null; //ptr == null ? null : findNode(ptr.getElement());
+    if (objectFqn == null) return null;
+    if (object instanceof JSClass) return myClassNodes.get(objectFqn);
+    if (object instanceof String) return myPackageNodes.get(objectFqn);
+
+    final DiagramNode<Object> classNode = myClassNodes.get(objectFqn);
+    return classNode != null ? classNode : myPackageNodes.get(objectFqn);
   }
 
   @Nullable
@@ -595,6 +769,8 @@ public class FlashUmlDataModel extends DiagramDataModel<Object> {
 
 
     myNodes.remove(node);
+    myClassNodes.values().remove(node);
+    myPackageNodes.values().remove(node);
     if (element instanceof JSClass) {
       final JSClass psiClass = (JSClass)element;
       classesRemovedByUser.put(psiClass.getQualifiedName(), spManager.createSmartPsiElementPointer(psiClass));
@@ -660,11 +836,10 @@ public class FlashUmlDataModel extends DiagramDataModel<Object> {
   public void expandPackage(final String psiPackage) {
     packages.remove(psiPackage);
     packagesRemovedByUser.add(psiPackage);
-    final GlobalSearchScope searchScope = GlobalSearchScope.allScope(getProject());
-    for (JSClass psiClass : getClasses(psiPackage, searchScope)) {
+    for (JSClass psiClass : getClasses(psiPackage)) {
       addElement(psiClass);
     }
-    for (String aPackage : getSubPackages(psiPackage, searchScope)) {
+    for (String aPackage : getSubPackages(psiPackage)) {
       addElement(aPackage);
     }
   }
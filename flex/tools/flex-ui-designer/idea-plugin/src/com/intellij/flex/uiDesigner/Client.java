@@ -6,6 +6,7 @@ import com.intellij.flex.uiDesigner.io.BlockDataOutputStream;
 import com.intellij.flex.uiDesigner.io.PrimitiveAmfOutputStream;
 import com.intellij.flex.uiDesigner.io.StringRegistry;
 import com.intellij.flex.uiDesigner.libraries.*;
+import com.intellij.flex.uiDesigner.mxml.MxmlUtil;
 import com.intellij.flex.uiDesigner.mxml.MxmlWriter;
 import com.intellij.flex.uiDesigner.mxml.ProjectComponentReferenceCounter;
 import com.intellij.javascript.flex.mxml.FlexCommonTypeNames;
@@ -33,7 +34,7 @@ import org.jetbrains.io.InfoMap;
 
 import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.nio.channels.GatheringByteChannel;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
@@ -53,7 +54,7 @@ public class Client implements Disposable {
     return DesignerApplicationManager.getService(Client.class);
   }
 
-  public void setOut(@NotNull OutputStream socketOut) {
+  public void setOut(@NotNull GatheringByteChannel socketOut) {
     blockOut.setOut(socketOut);
   }
 
@@ -81,6 +82,9 @@ public class Client implements Disposable {
 
   @Override
   public void dispose() {
+    if (LogMessageUtil.LOG.isDebugEnabled()) {
+      LogMessageUtil.LOG.debug("Messages sent: " + blockOut.getStatistics());
+    }
     registeredModules.dispose();
   }
 
@@ -119,6 +123,7 @@ public class Client implements Disposable {
     }
 
     blockOut.assertStart();
+    blockOut.setMessageType(method.name());
     out.write(ClientMethod.METHOD_CLASS);
     out.write(callback == null ? 0 : SocketInputHandler.getInstance().addCallback(callback));
     out.write(method);
@@ -563,9 +568,13 @@ public class Client implements Disposable {
                                        Module module,
                                        XmlFile psiFile,
                                        ProblemsHolder problemsHolder) throws IOException {
+    final long start = System.currentTimeMillis();
+    final int startSize = blockOut.size();
     final AccessToken token = ReadAction.start();
     final int flags;
     try {
+      documentInfo.renderedContentHash = MxmlUtil.computeRenderedContentHash(psiFile);
+
       final JSClass jsClass = XmlBackedJSClassFactory.getXmlBackedClass(psiFile);
       assert jsClass != null;
       out.writeAmfUtf(jsClass.getQualifiedName());
@@ -593,6 +602,10 @@ public class Client implements Disposable {
       return false;
     }
 
+    if (LogMessageUtil.LOG.isDebugEnabled()) {
+      LogMessageUtil.LOG.debug("Document " + psiFile.getName() + " written: " + (blockOut.size() - startSize) + " bytes in " +
+                               (System.currentTimeMillis() - start) + " ms");
+    }
     blockOut.end();
 
     documentInfo.setRangeMarkers(result.second);
@@ -59,8 +59,13 @@ class ComplexRenderAction extends RenderActionQueue.RenderAction<AsyncResult<Lis
 
   @Override
   protected void doRun() {
+    final long start = System.currentTimeMillis();
     renderDocumentsAndCheckLocalStyleModification(result);
     result.doWhenDone((Consumer<List<DocumentFactoryManager.DocumentInfo>>)infos -> {
+      if (LOG.isDebugEnabled() && infos != null) {
+        LOG.debug(infos.size() + " documents written and rendered in " + (System.currentTimeMillis() - start) + " ms");
+      }
+
       Application application = ApplicationManager.getApplication();
       if (application.isDisposed()) {
         return;
@@ -28,8 +28,8 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.net.URL;
+import java.nio.channels.GatheringByteChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -58,8 +58,8 @@ public class DesignerApplicationLauncher extends DocumentTask {
     this(module, postTask, false);
   }
 
-  public void clientOpened(@NotNull OutputStream outputStream) {
-    Client.getInstance().setOut(outputStream);
+  public void clientOpened(@NotNull GatheringByteChannel channel) {
+    Client.getInstance().setOut(channel);
     LOG.info("Client opened");
     semaphore.up();
   }
@@ -113,6 +113,8 @@ public class DocumentFactoryManager {
 
   public static final class DocumentInfo extends Info<VirtualFile> {
     public long documentModificationStamp;
+    // content hash of the rendered document, see MxmlUtil.computeRenderedContentHash
+    public long renderedContentHash;
 
     private List<RangeMarker> rangeMarkers;
 
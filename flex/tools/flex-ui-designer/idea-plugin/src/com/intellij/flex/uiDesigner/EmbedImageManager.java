@@ -18,7 +18,9 @@ public class EmbedImageManager extends EmbedAssetManager<ImageAssetInfo> {
 
     assetCounter.imageCount++;
     final int id = idPool.allocate();
-    add(new ImageAssetInfo(file, mimeType, id));
+    final ImageAssetInfo info = new ImageAssetInfo(file, mimeType, id);
+    add(info);
+    TranscodedAssetCache.getInstance().prefetch(info);
     return id;
   }
 
@@ -20,7 +20,9 @@ public class EmbedSwfManager extends EmbedAssetManager<SwfAssetInfo> {
 
     assetCounter.swfCount++;
     int id = idPool.allocate();
-    add(new SwfAssetInfo(file, symbolName, id));
+    SwfAssetInfo info = new SwfAssetInfo(file, symbolName, id);
+    add(info);
+    TranscodedAssetCache.getInstance().prefetch(info);
     return id;
   }
 }
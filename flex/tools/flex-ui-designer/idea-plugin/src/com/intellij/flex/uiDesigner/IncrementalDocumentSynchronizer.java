@@ -15,6 +15,8 @@ import com.intellij.javascript.flex.mxml.schema.ClassBackedElementDescriptor;
 import com.intellij.lang.javascript.JavaScriptSupportLoader;
 import com.intellij.lang.javascript.flex.AnnotationBackedDescriptor;
 import com.intellij.lang.javascript.psi.JSCommonTypeNames;
+import com.intellij.openapi.application.AccessToken;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -30,6 +32,7 @@ import com.intellij.xml.XmlElementDescriptor;
 import org.jetbrains.annotations.Nullable;
 
 import static com.intellij.flex.uiDesigner.DocumentFactoryManager.DocumentInfo;
+import static com.intellij.flex.uiDesigner.LogMessageUtil.LOG;
 
 final class IncrementalDocumentSynchronizer extends Update {
   private final PsiTreeChangeEvent event;
@@ -82,13 +85,41 @@ final class IncrementalDocumentSynchronizer extends Update {
     }
 
     DocumentInfo info = DocumentFactoryManager.getInstance().getNullableInfo(xmlFile);
-    if (info != null && !incrementalSync(info)) {
-      if (isStyleDataChanged) {
-        styleChanged();
-      }
-      else if (!isSkippedXml) {
-        initialRender(designerManager, xmlFile);
-      }
+    if (info == null) {
+      return;
+    }
+
+    if (incrementalSync(info)) {
+      info.renderedContentHash = computeRenderedContentHash(xmlFile);
+    }
+    else if (isStyleDataChanged) {
+      styleChanged();
+    }
+    else if (!isSkippedXml && !skipUnrenderedChange(info, xmlFile)) {
+      initialRender(designerManager, xmlFile);
+    }
+  }
+
+  // tag insertion, removal or reformatting: the document must be rendered again only if the content written by MxmlWriter changed.
+  // todo subtree insert/remove/replace — the client keeps the serialized document in DocumentFactory to instantiate it again,
+  // so a subtree command must patch that data as well as the rendered instance
+  private static boolean skipUnrenderedChange(DocumentInfo info, XmlFile xmlFile) {
+    final long start = System.currentTimeMillis();
+    final boolean skip = info.renderedContentHash == computeRenderedContentHash(xmlFile);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Structural change in " + xmlFile.getName() + (skip ? " doesn't affect rendering" : " requires rendering") +
+                ", checked in " + (System.currentTimeMillis() - start) + " ms");
+    }
+    return skip;
+  }
+
+  private static long computeRenderedContentHash(XmlFile xmlFile) {
+    final AccessToken token = ReadAction.start();
+    try {
+      return MxmlUtil.computeRenderedContentHash(xmlFile);
+    }
+    finally {
+      token.finish();
     }
   }
 
@@ -252,11 +283,18 @@ final class IncrementalDocumentSynchronizer extends Update {
       }
     }
 
+    final long start = System.currentTimeMillis();
+    final int size = stringWriter.size() + dataOut.size();
     Client.getInstance().updatePropertyOrStyle(info.getId(), componentId, stream -> {
       stringWriter.writeTo(stream);
       stream.write(descriptor.isStyle());
       dataOut.writeTo(stream);
-    }).doWhenDone(() -> DesignerApplicationManager.createDocumentRenderedNotificationDoneHandler(true).consume(info));
+    }).doWhenDone(() -> {
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Property " + descriptor.getName() + " updated: " + size + " bytes, rendered in " + (System.currentTimeMillis() - start) + " ms");
+      }
+      DesignerApplicationManager.createDocumentRenderedNotificationDoneHandler(true).consume(info);
+    });
 
     return true;
   }
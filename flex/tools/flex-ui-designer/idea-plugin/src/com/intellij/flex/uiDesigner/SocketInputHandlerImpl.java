@@ -1,8 +1,5 @@
 package com.intellij.flex.uiDesigner;
 
-import com.intellij.flex.uiDesigner.abc.EntireMovieTranscoder;
-import com.intellij.flex.uiDesigner.abc.FxgTranscoder;
-import com.intellij.flex.uiDesigner.abc.MovieSymbolTranscoder;
 import com.intellij.flex.uiDesigner.io.*;
 import com.intellij.flex.uiDesigner.libraries.LibraryManager;
 import com.intellij.ide.impl.ProjectUtil;
@@ -483,17 +480,13 @@ public class SocketInputHandlerImpl extends SocketInputHandler {
     initResultFile();
 
     final ImageAssetInfo assetInfo = EmbedImageManager.getInstance().getInfo(reader.readUnsignedShort());
-    final FileOutputStream fileOut = new FileOutputStream(resultFile);
     try {
-      ImageUtil.write(assetInfo.file, assetInfo.mimeType, fileOut);
+      TranscodedAssetCache.getInstance().write(assetInfo, resultFile);
     }
     catch (IOException e) {
       final String userMessage = FlashUIDesignerBundle.message("problem.opening.0", assetInfo.file.getName());
       LOG.error(LogMessageUtil.createEvent(userMessage, ExceptionUtil.getThrowableText(e), assetInfo.file));
-      fileOut.getChannel().truncate(0);
-    }
-    finally {
-      fileOut.close();
+      new FileOutputStream(resultFile).close();
     }
   }
 
@@ -501,15 +494,7 @@ public class SocketInputHandlerImpl extends SocketInputHandler {
     initResultFile();
 
     SwfAssetInfo assetInfo = EmbedSwfManager.getInstance().getInfo(reader.readUnsignedShort());
-    if (assetInfo.symbolName == null) {
-      new EntireMovieTranscoder().transcode(assetInfo.file, resultFile);
-    }
-    else if (assetInfo.symbolName == EmbedSwfManager.FXG_MARKER) {
-      new FxgTranscoder().transcode(assetInfo.file, resultFile);
-    }
-    else {
-      new MovieSymbolTranscoder().transcode(assetInfo.file, resultFile, assetInfo.symbolName);
-    }
+    TranscodedAssetCache.getInstance().write(assetInfo, resultFile);
   }
 
   private void getAssetInfo(boolean isSwf) throws IOException {
@@ -0,0 +1,244 @@
+package com.intellij.flex.uiDesigner;
+
+import com.intellij.flex.uiDesigner.abc.EntireMovieTranscoder;
+import com.intellij.flex.uiDesigner.abc.FxgTranscoder;
+import com.intellij.flex.uiDesigner.abc.MovieSymbolTranscoder;
+import com.intellij.flex.uiDesigner.io.ImageUtil;
+import com.intellij.lang.javascript.flex.FlexUtils;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.intellij.flex.uiDesigner.LogMessageUtil.LOG;
+
+/**
+ * Transcoded embedded assets (SWF symbols, FXG, bitmaps). Assets are transcoded in background as soon as they are registered
+ * by {@link EmbedSwfManager} and {@link EmbedImageManager}, so that the client request usually finds the result ready.
+ * Results are stored on disk by content digest and are reused by other documents, projects and IDE sessions.
+ */
+public class TranscodedAssetCache implements Disposable {
+  private static final int MAX_WORKERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+  // increase when the output of transcoders changes, directories of other versions are deleted
+  private static final int VERSION = 1;
+  private static final String CACHE_DIR_PREFIX = "assets";
+  private static final long UNUSED_CACHE_FILE_LIFETIME = TimeUnit.DAYS.toMillis(30);
+
+  private final File cacheDir = new File(DesignerApplicationManager.APP_DIR, CACHE_DIR_PREFIX + VERSION);
+
+  // key is file url + modification stamp + symbol or mime type, so a changed file gets a new entry
+  private final ConcurrentMap<String, FutureTask<File>> tasks = ContainerUtil.newConcurrentMap();
+  private final Queue<FutureTask<File>> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger workerCount = new AtomicInteger();
+
+  private volatile boolean disposed;
+
+  public TranscodedAssetCache() {
+    ApplicationManager.getApplication().executeOnPooledThread(this::cleanup);
+  }
+
+  public static TranscodedAssetCache getInstance() {
+    return DesignerApplicationManager.getService(TranscodedAssetCache.class);
+  }
+
+  @Override
+  public void dispose() {
+    disposed = true;
+    FutureTask<File> task;
+    while ((task = queue.poll()) != null) {
+      task.cancel(false);
+    }
+  }
+
+  void prefetch(@NotNull EmbedAssetInfo assetInfo) {
+    final FutureTask<File> task = getTask(assetInfo);
+    if (!task.isDone()) {
+      queue.add(task);
+      startWorkerIfNeeded();
+    }
+  }
+
+  /**
+   * Writes transcoded asset to the out file. If the asset is not transcoded yet, it is transcoded in the calling thread
+   * (or the result of a transcoding already in progress is awaited).
+   */
+  void write(@NotNull EmbedAssetInfo assetInfo, @NotNull File out) throws IOException {
+    final FutureTask<File> task = getTask(assetInfo);
+    // no-op if the task is already running or done
+    task.run();
+
+    final File file;
+    try {
+      file = task.get();
+    }
+    catch (InterruptedException | CancellationException e) {
+      throw new IOException(e);
+    }
+    catch (ExecutionException e) {
+      // don't cache failure, the file may become readable
+      tasks.remove(createKey(assetInfo), task);
+      final Throwable cause = e.getCause();
+      throw cause instanceof IOException ? (IOException)cause : new IOException(cause);
+    }
+
+    FileUtil.copy(file, out);
+  }
+
+  private FutureTask<File> getTask(final EmbedAssetInfo assetInfo) {
+    final String key = createKey(assetInfo);
+    FutureTask<File> task = tasks.get(key);
+    if (task == null) {
+      final FutureTask<File> newTask = new FutureTask<>(() -> transcode(assetInfo));
+      task = tasks.putIfAbsent(key, newTask);
+      if (task == null) {
+        task = newTask;
+      }
+    }
+    return task;
+  }
+
+  private void startWorkerIfNeeded() {
+    int count;
+    do {
+      count = workerCount.get();
+      if (count >= MAX_WORKERS) {
+        return;
+      }
+    }
+    while (!workerCount.compareAndSet(count, count + 1));
+
+    ApplicationManager.getApplication().executeOnPooledThread(() -> {
+      try {
+        FutureTask<File> task;
+        while (!disposed && (task = queue.poll()) != null) {
+          task.run();
+        }
+      }
+      finally {
+        workerCount.decrementAndGet();
+      }
+
+      // task could be queued after the last poll, but before the decrement
+      if (!disposed && !queue.isEmpty()) {
+        startWorkerIfNeeded();
+      }
+    });
+  }
+
+  private File transcode(EmbedAssetInfo assetInfo) throws IOException {
+    final long start = System.currentTimeMillis();
+    final byte[] content = assetInfo.file.contentsToByteArray();
+    final File cachedFile = new File(cacheDir, computeDigest(assetInfo, content));
+    if (cachedFile.exists()) {
+      // keeps the file from being deleted as unused
+      //noinspection ResultOfMethodCallIgnored
+      cachedFile.setLastModified(System.currentTimeMillis());
+      return cachedFile;
+    }
+
+    if (!cacheDir.isDirectory() && !cacheDir.mkdirs() && !cacheDir.isDirectory()) {
+      throw new IOException("Cannot create " + cacheDir.getPath());
+    }
+
+    final File tempFile = FileUtil.createTempFile(cacheDir, cachedFile.getName(), null, true);
+    try {
+      if (assetInfo instanceof SwfAssetInfo) {
+        final String symbolName = ((SwfAssetInfo)assetInfo).symbolName;
+        if (symbolName == null) {
+          new EntireMovieTranscoder().transcode(content, tempFile);
+        }
+        else if (symbolName == EmbedSwfManager.FXG_MARKER) {
+          new FxgTranscoder().transcode(content, tempFile);
+        }
+        else {
+          new MovieSymbolTranscoder().transcode(content, tempFile, symbolName);
+        }
+      }
+      else {
+        final OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile));
+        try {
+          ImageUtil.write(content, assetInfo.file, ((ImageAssetInfo)assetInfo).mimeType, out);
+        }
+        finally {
+          out.close();
+        }
+      }
+
+      // another IDE instance could transcode the same asset in the meantime, its result is the same
+      if (!tempFile.renameTo(cachedFile) && !cachedFile.exists()) {
+        throw new IOException("Cannot rename " + tempFile.getPath() + " to " + cachedFile.getPath());
+      }
+    }
+    finally {
+      FileUtil.delete(tempFile);
+    }
+
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Transcoded " + assetInfo.file.getPath() + " in " + (System.currentTimeMillis() - start) + " ms");
+    }
+    return cachedFile;
+  }
+
+  private void cleanup() {
+    final File[] dirs = cacheDir.getParentFile().listFiles();
+    if (dirs == null) {
+      return;
+    }
+
+    for (File dir : dirs) {
+      final String name = dir.getName();
+      if (!dir.equals(cacheDir) && name.matches(CACHE_DIR_PREFIX + "\\d+") && dir.isDirectory()) {
+        FileUtil.delete(dir);
+      }
+    }
+
+    if (!disposed) {
+      FlexUtils.deleteUnusedCacheFiles(cacheDir, UNUSED_CACHE_FILE_LIFETIME, null);
+    }
+  }
+
+  private static String createKey(EmbedAssetInfo assetInfo) {
+    final VirtualFile file = assetInfo.file;
+    final String suffix = assetInfo instanceof SwfAssetInfo
+                          ? "s" + StringUtil.notNullize(((SwfAssetInfo)assetInfo).symbolName)
+                          : "i" + StringUtil.notNullize(((ImageAssetInfo)assetInfo).mimeType);
+    return file.getUrl() + '|' + file.getTimeStamp() + '|' + file.getLength() + '|' + suffix;
+  }
+
+  private static String computeDigest(EmbedAssetInfo assetInfo, byte[] content) throws IOException {
+    final MessageDigest messageDigest;
+    try {
+      messageDigest = MessageDigest.getInstance("SHA-1");
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+
+    messageDigest.update(content);
+    if (assetInfo instanceof SwfAssetInfo) {
+      final String symbolName = ((SwfAssetInfo)assetInfo).symbolName;
+      messageDigest.update((byte)'s');
+      if (symbolName != null) {
+        messageDigest.update(symbolName.getBytes());
+      }
+    }
+    else {
+      final String mimeType = ((ImageAssetInfo)assetInfo).mimeType;
+      messageDigest.update((byte)'i');
+      // without mime type, jpeg is detected by the file name
+      messageDigest.update((mimeType == null ? assetInfo.file.getName() : mimeType).getBytes());
+    }
+    return StringUtil.toHexString(messageDigest.digest());
+  }
+}
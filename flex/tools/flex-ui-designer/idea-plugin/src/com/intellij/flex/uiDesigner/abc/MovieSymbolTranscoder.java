@@ -37,6 +37,11 @@ public class MovieSymbolTranscoder extends SymbolTranscoderBase {
     transcode(in, out);
   }
 
+  public void transcode(@NotNull byte[] in, @NotNull File out, @NotNull String symbolName) throws IOException {
+    this.symbolName = symbolName.getBytes();
+    transcode(in, out);
+  }
+
   @Override
   protected void transcode(boolean writeBounds) throws IOException {
     fileLength = SYMBOL_CLASS_TAG_FULL_LENGTH + SwfUtil.getWrapLength();
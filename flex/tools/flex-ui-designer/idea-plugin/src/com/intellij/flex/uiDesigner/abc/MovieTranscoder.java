@@ -35,6 +35,10 @@ abstract class MovieTranscoder extends SwfTranscoder {
     transcode(in.getInputStream(), in.getLength(), out, true);
   }
 
+  public void transcode(byte[] in, File out) throws IOException {
+    transcode(new ByteArrayInputStream(in), in.length, out, true);
+  }
+
   @SuppressWarnings("IOResourceOpenedButNotSafelyClosed")
   protected void transcode(InputStream inputStream, long inputLength, File outFile, boolean writeBounds) throws IOException {
     out = new DataOutputStream(new BufferedOutputStream(readSourceAndCreateFileOut(inputStream, inputLength, outFile)));
@@ -71,18 +75,21 @@ abstract class MovieTranscoder extends SwfTranscoder {
     out.write(data, 0, buffer.position());
   }
 
-  protected static byte[] getSymbolOwnClassAbc(short frameCount) throws IOException {
+  // assets are transcoded in parallel
+  protected static synchronized byte[] getSymbolOwnClassAbc(short frameCount) throws IOException {
     if (frameCount > 1) {
       if (MOVIE_CLIP_SYMBOL_OWN_CLASS_ABC == null) {
-        MOVIE_CLIP_SYMBOL_OWN_CLASS_ABC = IOUtil.getResourceBytes("MSymbolOwnClass.abc");
-        MOVIE_CLIP_SYMBOL_OWN_CLASS_ABC[21] = '_'; // replace M => _
+        byte[] abc = IOUtil.getResourceBytes("MSymbolOwnClass.abc");
+        abc[21] = '_'; // replace M => _
+        MOVIE_CLIP_SYMBOL_OWN_CLASS_ABC = abc;
       }
       return MOVIE_CLIP_SYMBOL_OWN_CLASS_ABC;
     }
     else {
       if (SPRITE_SYMBOL_OWN_CLASS_ABC == null) {
-        SPRITE_SYMBOL_OWN_CLASS_ABC = IOUtil.getResourceBytes("SSymbolOwnClass.abc");
-        SPRITE_SYMBOL_OWN_CLASS_ABC[21] = '_'; // replace S => _
+        byte[] abc = IOUtil.getResourceBytes("SSymbolOwnClass.abc");
+        abc[21] = '_'; // replace S => _
+        SPRITE_SYMBOL_OWN_CLASS_ABC = abc;
       }
       return SPRITE_SYMBOL_OWN_CLASS_ABC;
     }
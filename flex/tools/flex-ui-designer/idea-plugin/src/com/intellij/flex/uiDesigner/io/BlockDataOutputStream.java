@@ -1,23 +1,38 @@
 package com.intellij.flex.uiDesigner.io;
 
-import com.intellij.openapi.application.ApplicationManager;
+import gnu.trove.TIntArrayList;
 import gnu.trove.TLinkable;
 import gnu.trove.TLinkedList;
+import gnu.trove.TLongArrayList;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.*;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
 
 public class BlockDataOutputStream extends AbstractByteArrayOutputStream implements WritableByteChannel {
   private static final int SERVICE_DATA_SIZE = 8;
+  private static final String UNKNOWN_MESSAGE_TYPE = "unknown";
 
   private int lastBlockBegin;
-  private OutputStream out;
+  private MessageChannelWriter out;
   private final TLinkedList<Marker> markers = new TLinkedList<>();
 
   private int messageCounter;
 
+  private String messageType = UNKNOWN_MESSAGE_TYPE;
+  // messages ended, but not written yet: type, length and end time
+  private final List<String> pendingTypes = new ArrayList<>();
+  private final TIntArrayList pendingLengths = new TIntArrayList();
+  private final TLongArrayList pendingEndTimes = new TLongArrayList();
+  private final MessageStatistics statistics = new MessageStatistics();
+
   public BlockDataOutputStream() {
     this(64 * 1024);
   }
@@ -27,26 +42,19 @@ public class BlockDataOutputStream extends AbstractByteArrayOutputStream impleme
     count = SERVICE_DATA_SIZE;
   }
 
-  @SuppressWarnings("ConstantConditions")
-  public void setOut(@NotNull OutputStream out) {
+  public void setOut(@NotNull GatheringByteChannel out) {
     String debugFilename = System.getProperty("fud.socket.dump");
-    DebugOutput debugOut;
+    FileChannel dump = null;
     if (debugFilename != null) {
       try {
-        debugOut = new DebugOutput(out, new File(debugFilename));
+        dump = new FileOutputStream(debugFilename).getChannel();
       }
       catch (FileNotFoundException e) {
         throw new RuntimeException(e);
       }
-
-      this.out = debugOut;
-    }
-    else if (true || ApplicationManager.getApplication().isUnitTestMode()) {
-      this.out = new AuditorOutput(out);
-    }
-    else {
-      this.out = out;
     }
+
+    this.out = new MessageChannelWriter(out, dump);
   }
 
   public void reset() {
@@ -54,20 +62,51 @@ public class BlockDataOutputStream extends AbstractByteArrayOutputStream impleme
     lastBlockBegin = 0;
     markers.clear();
     out = null;
+    messageType = UNKNOWN_MESSAGE_TYPE;
+    pendingTypes.clear();
+    pendingLengths.clear();
+    pendingEndTimes.clear();
+  }
+
+  /**
+   * Type of the current message, used only for {@link #getStatistics() statistics}
+   */
+  public void setMessageType(@NotNull String messageType) {
+    this.messageType = messageType;
+  }
+
+  public MessageStatistics getStatistics() {
+    return statistics;
   }
 
   private void writeHeader() {
     IOUtil.writeInt(count - lastBlockBegin - SERVICE_DATA_SIZE, buffer, lastBlockBegin);
     IOUtil.writeInt(messageCounter++, buffer, lastBlockBegin + 4);
+
+    pendingTypes.add(messageType);
+    pendingLengths.add(count - lastBlockBegin);
+    pendingEndTimes.add(System.nanoTime());
+    messageType = UNKNOWN_MESSAGE_TYPE;
   }
 
+  // all messages ended since the last flush are written by one gathering write
   private void flushBuffer() throws IOException {
     if (markers.isEmpty()) {
-      out.write(buffer, 0, count);
+      out.add(buffer, 0, count);
     }
     else {
       writeMarkered();
     }
+    out.write();
+
+    final long time = System.nanoTime();
+    for (int i = 0; i < pendingTypes.size(); i++) {
+      statistics.messageWritten(pendingTypes.get(i), pendingLengths.get(i), time - pendingEndTimes.get(i));
+    }
+    statistics.setWriteCount(out.getWriteCount());
+    pendingTypes.clear();
+    pendingLengths.clear();
+    pendingEndTimes.clear();
 
     lastBlockBegin = 0;
     count = SERVICE_DATA_SIZE;
@@ -79,6 +118,7 @@ public class BlockDataOutputStream extends AbstractByteArrayOutputStream impleme
 
   public void rollback() {
     count = lastBlockBegin + SERVICE_DATA_SIZE;
+    messageType = UNKNOWN_MESSAGE_TYPE;
     if (!markers.isEmpty()) {
       markers.clear();
     }
@@ -101,19 +141,13 @@ public class BlockDataOutputStream extends AbstractByteArrayOutputStream impleme
 
   private void writeMarkered() throws IOException {
     int lastEnd = 0;
-    AuditorOutput auditorOutput = null;
-    if (out instanceof AuditorOutput) {
-      auditorOutput = (AuditorOutput)out;
-      auditorOutput.written = 0;
-    }
-
     Marker marker = markers.getFirst();
     do {
       int length = marker.getStart() - lastEnd;
       // may be < 0 if nested
       if (length >= 0) {
         if (length > 0) {
-          out.write(buffer, lastEnd, length);
+          out.add(buffer, lastEnd, length);
         }
         lastEnd = marker.getEnd();
       }
@@ -126,12 +160,7 @@ public class BlockDataOutputStream extends AbstractByteArrayOutputStream impleme
 
     int tailLength = count - lastEnd;
     if (tailLength > 0) {
-      out.write(buffer, lastEnd, tailLength);
-    }
-
-    if (auditorOutput != null) {
-      //assert auditorOutput.written == (count - (lastBlockBegin + SERVICE_DATA_SIZE));
-      auditorOutput.written = -1;
+      out.add(buffer, lastEnd, tailLength);
     }
 
     markers.clear();
@@ -149,14 +178,14 @@ public class BlockDataOutputStream extends AbstractByteArrayOutputStream impleme
 
       possibleChild = (ByteRange)next;
       if (possibleChild == null || possibleChild.getEnd() > ownEnd) {
-        out.write(buffer, start, ownEnd - start);
+        out.add(buffer, start, ownEnd - start);
         break;
       }
       else {
         int length = possibleChild.getStart() - start;
         if (length > -1) {
           if (length != 0) {
-            out.write(buffer, start, length);
+            out.add(buffer, start, length);
           }
           start = possibleChild.getEnd();
         }
@@ -204,8 +233,6 @@ public class BlockDataOutputStream extends AbstractByteArrayOutputStream impleme
       writeHeader();
       flushBuffer();
     }
-
-    out.flush();
   }
 
   @Override
@@ -262,43 +289,4 @@ public class BlockDataOutputStream extends AbstractByteArrayOutputStream impleme
   public void append(ByteRange dataRange) {
     markers.addLast(new ByteRangePointer(count, dataRange));
   }
-
-  private static class DebugOutput extends AuditorOutput {
-    private final FileOutputStream fileOut;
-
-    private DebugOutput(OutputStream out, File file) throws FileNotFoundException {
-      super(out);
-      fileOut = new FileOutputStream(file);
-    }
-
-    @Override
-    public void write(int b) throws IOException {
-      fileOut.write(b);
-      super.write(b);
-    }
-
-    @Override
-    public void write(byte[] b) throws IOException {
-      fileOut.write(b);
-      super.write(b);
-    }
-
-    @Override
-    public void write(byte[] b, int off, int len) throws IOException {
-      fileOut.write(b, off, len);
-      super.write(b, off, len);
-    }
-
-    @Override
-    public void flush() throws IOException {
-      fileOut.flush();
-      super.flush();
-    }
-
-    @Override
-    public void close() throws IOException {
-      fileOut.close();
-      super.close();
-    }
-  }
-}
\ No newline at end of file
+}
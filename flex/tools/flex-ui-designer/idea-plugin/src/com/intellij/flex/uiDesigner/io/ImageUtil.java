@@ -7,6 +7,7 @@ import java.awt.image.ImageObserver;
 import java.awt.image.PixelGrabber;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 
 public final class ImageUtil {
   private static final int MAX_BUFFER_LENGTH = 12288;
@@ -19,7 +20,11 @@ public final class ImageUtil {
   };
 
   public static void write(VirtualFile file, String mimeType, FileOutputStream out) throws IOException {
-    Image image = Toolkit.getDefaultToolkit().createImage(file.contentsToByteArray());
+    write(file.contentsToByteArray(), file, mimeType, out);
+  }
+
+  public static void write(byte[] content, VirtualFile file, String mimeType, OutputStream out) throws IOException {
+    Image image = Toolkit.getDefaultToolkit().createImage(content);
     PixelGrabber pixelGrabber = new PixelGrabber(image, 0, 0, -1, -1, true);
     try {
       pixelGrabber.grabPixels();
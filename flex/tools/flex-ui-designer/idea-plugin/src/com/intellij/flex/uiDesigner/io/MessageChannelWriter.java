@@ -0,0 +1,120 @@
+package com.intellij.flex.uiDesigner.io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copies slices of the message buffer into pooled direct buffers and writes them to the channel by one gathering write.
+ * A heap buffer would be copied by the channel into a temporary direct buffer anyway, so big slices are copied here in chunks.
+ * If all pooled buffers are filled before {@link #write()}, they are written and reused.
+ */
+class MessageChannelWriter {
+  private static final int DIRECT_BUFFER_SIZE = 64 * 1024;
+  private static final int MAX_POOLED_BUFFERS = 4;
+
+  private final GatheringByteChannel channel;
+  @Nullable private final WritableByteChannel dump;
+  private final int directBufferSize;
+
+  private final List<ByteBuffer> usedDirectBuffers = new ArrayList<>();
+  private final ArrayDeque<ByteBuffer> freeDirectBuffers = new ArrayDeque<>();
+  private ByteBuffer directBuffer;
+
+  private int writeCount;
+
+  MessageChannelWriter(@NotNull GatheringByteChannel channel, @Nullable WritableByteChannel dump) {
+    this(channel, dump, DIRECT_BUFFER_SIZE);
+  }
+
+  MessageChannelWriter(@NotNull GatheringByteChannel channel, @Nullable WritableByteChannel dump, int directBufferSize) {
+    this.channel = channel;
+    this.dump = dump;
+    this.directBufferSize = directBufferSize;
+  }
+
+  void add(byte[] bytes, int offset, int length) throws IOException {
+    while (length > 0) {
+      if (directBuffer == null || !directBuffer.hasRemaining()) {
+        nextDirectBuffer();
+      }
+
+      final int chunkLength = Math.min(length, directBuffer.remaining());
+      directBuffer.put(bytes, offset, chunkLength);
+      offset += chunkLength;
+      length -= chunkLength;
+    }
+  }
+
+  private void nextDirectBuffer() throws IOException {
+    if (usedDirectBuffers.size() == MAX_POOLED_BUFFERS) {
+      write();
+    }
+
+    directBuffer = freeDirectBuffers.isEmpty() ? ByteBuffer.allocateDirect(directBufferSize) : freeDirectBuffers.poll();
+    usedDirectBuffers.add(directBuffer);
+  }
+
+  void write() throws IOException {
+    if (usedDirectBuffers.isEmpty()) {
+      return;
+    }
+
+    try {
+      final ByteBuffer[] buffers = usedDirectBuffers.toArray(new ByteBuffer[usedDirectBuffers.size()]);
+      for (ByteBuffer buffer : buffers) {
+        buffer.flip();
+      }
+
+      if (dump != null) {
+        for (ByteBuffer buffer : buffers) {
+          final ByteBuffer duplicate = buffer.duplicate();
+          while (duplicate.hasRemaining()) {
+            dump.write(duplicate);
+          }
+        }
+      }
+
+      int offset = 0;
+      while (offset < buffers.length) {
+        channel.write(buffers, offset, buffers.length - offset);
+        writeCount++;
+        while (offset < buffers.length && !buffers[offset].hasRemaining()) {
+          offset++;
+        }
+      }
+    }
+    finally {
+      for (ByteBuffer buffer : usedDirectBuffers) {
+        if (freeDirectBuffers.size() < MAX_POOLED_BUFFERS) {
+          buffer.clear();
+          freeDirectBuffers.add(buffer);
+        }
+      }
+      usedDirectBuffers.clear();
+      directBuffer = null;
+    }
+  }
+
+  int getWriteCount() {
+    return writeCount;
+  }
+
+  void close() throws IOException {
+    try {
+      channel.close();
+    }
+    finally {
+      if (dump != null) {
+        dump.close();
+      }
+    }
+  }
+}
@@ -6,8 +6,8 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.net.SocketException;
+import java.nio.channels.SocketChannel;
 
 public class MessageSocketManager extends SocketManager {
   private DesignerApplicationLauncher pendingTask;
@@ -19,7 +19,7 @@ public class MessageSocketManager extends SocketManager {
   }
 
   @Override
-  protected void setOut(@NotNull OutputStream out) {
+  protected void setOut(@NotNull SocketChannel channel) {
   }
 
   @Override
@@ -29,8 +29,8 @@ public class MessageSocketManager extends SocketManager {
   }
 
   @Override
-  protected void clientSocketAccepted(OutputStream outputStream) {
-    pendingTask.clientOpened(outputStream);
+  protected void clientSocketAccepted(SocketChannel channel) {
+    pendingTask.clientOpened(channel);
     pendingTask = null;
 
     try {
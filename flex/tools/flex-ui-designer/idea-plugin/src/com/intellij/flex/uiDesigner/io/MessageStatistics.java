@@ -0,0 +1,49 @@
+package com.intellij.flex.uiDesigner.io;
+
+import gnu.trove.THashMap;
+
+import java.util.Map;
+
+/**
+ * Bytes and latency (time from the end of message to the end of the socket write) per message type
+ */
+public class MessageStatistics {
+  private final Map<String, TypeStatistics> types = new THashMap<>();
+  private int writeCount;
+
+  synchronized void messageWritten(String type, int length, long latency) {
+    TypeStatistics statistics = types.get(type);
+    if (statistics == null) {
+      statistics = new TypeStatistics();
+      types.put(type, statistics);
+    }
+    statistics.count++;
+    statistics.bytes += length;
+    statistics.latency += latency;
+    statistics.maxLatency = Math.max(statistics.maxLatency, latency);
+  }
+
+  synchronized void setWriteCount(int writeCount) {
+    this.writeCount = writeCount;
+  }
+
+  @Override
+  public synchronized String toString() {
+    final StringBuilder builder = new StringBuilder();
+    builder.append(writeCount).append(" socket writes");
+    for (Map.Entry<String, TypeStatistics> entry : types.entrySet()) {
+      final TypeStatistics statistics = entry.getValue();
+      builder.append('\n').append(entry.getKey()).append(": ").append(statistics.count).append(" messages, ")
+        .append(statistics.bytes).append(" bytes, average latency ").append(statistics.latency / statistics.count / 1000)
+        .append(" us, max ").append(statistics.maxLatency / 1000).append(" us");
+    }
+    return builder.toString();
+  }
+
+  private static class TypeStatistics {
+    private int count;
+    private long bytes;
+    private long latency;
+    private long maxLatency;
+  }
+}
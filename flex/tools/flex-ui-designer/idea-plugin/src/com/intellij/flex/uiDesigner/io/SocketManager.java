@@ -5,20 +5,22 @@ import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 
 import java.io.IOException;
-import java.io.OutputStream;
-import java.net.ServerSocket;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 
 @SuppressWarnings("SocketOpenedButNotSafelyClosed")
 abstract class SocketManager implements Runnable, Disposable {
   protected static final Logger LOG = Logger.getInstance(SocketManager.class.getName());
 
-  protected ServerSocket serverSocket;
+  protected ServerSocketChannel serverSocket;
   protected Socket socket;
 
   public int listen() throws IOException {
-    serverSocket = new ServerSocket(0, 1);
-    int port = serverSocket.getLocalPort();
+    serverSocket = ServerSocketChannel.open();
+    serverSocket.bind(new InetSocketAddress(0), 1);
+    int port = serverSocket.socket().getLocalPort();
     assert port != -1;
     ApplicationManager.getApplication().executeOnPooledThread(this);
     return port;
@@ -27,11 +29,15 @@ abstract class SocketManager implements Runnable, Disposable {
   @Override
   public void run() {
     try {
-      socket = serverSocket.accept();
+      // blocking channel: messages are written by gathering writes, input is read through the socket stream
+      SocketChannel channel = serverSocket.accept();
       serverSocket.close();
-      setOut(socket.getOutputStream());
+      socket = channel.socket();
+      // messages are coalesced before write, Nagle's algorithm would only delay them
+      socket.setTcpNoDelay(true);
+      setOut(channel);
       serverSocket = null;
-      clientSocketAccepted(socket.getOutputStream());
+      clientSocketAccepted(channel);
     }
     catch (IOException e) {
       // if null, so, already disposed (exception thrown by accept)
@@ -44,13 +50,13 @@ abstract class SocketManager implements Runnable, Disposable {
     }
   }
 
-  protected void clientSocketAccepted(OutputStream outputStream) {
+  protected void clientSocketAccepted(SocketChannel channel) {
   }
 
   protected void clientSocketNotAccepted() {
   }
 
-  protected abstract void setOut(OutputStream out);
+  protected abstract void setOut(SocketChannel channel);
 
   @Override
   public void dispose() {
@@ -68,4 +74,4 @@ abstract class SocketManager implements Runnable, Disposable {
       serverSocket = null;
     }
   }
-}
\ No newline at end of file
+}
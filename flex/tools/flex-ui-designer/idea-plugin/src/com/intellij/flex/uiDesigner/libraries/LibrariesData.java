@@ -3,6 +3,8 @@ package com.intellij.flex.uiDesigner.libraries;
 import com.intellij.flex.uiDesigner.LogMessageUtil;
 import com.intellij.flex.uiDesigner.abc.AbcTranscoder;
 import com.intellij.ide.util.PropertiesComponent;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.io.DataExternalizer;
 import com.intellij.util.io.EnumeratorStringDescriptor;
 import com.intellij.util.io.PersistentHashMap;
@@ -13,13 +15,21 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 import static com.intellij.flex.uiDesigner.libraries.LibrarySorter.SortResult;
 
+/**
+ * Merged library sets survive IDE restarts. A set is keyed by content digests of its libraries (not by their paths), so modules
+ * and projects using the same SDK or the same SWC copied to another place share one merged SWF.
+ */
 class LibrariesData {
   final PersistentHashMap<String, SortResult> librarySets;
+  // "path:timestamp" of a library => digest of its content
+  private final PersistentHashMap<String, String> libraryDigests;
 
-  private static final String ABC_FILTER_VERSION = "40";
+  private static final String ABC_FILTER_VERSION = "41";
   private static final String ABC_FILTER_VERSION_VALUE_NAME = "fud_abcFilterVersion";
 
   static final char NAME_PREFIX = '@';
@@ -31,7 +41,8 @@ class LibrariesData {
       propertiesComponent.setValue(ABC_FILTER_VERSION_VALUE_NAME, ABC_FILTER_VERSION);
     }
 
-    librarySets = createLibrarySetsCache(cacheDir);
+    librarySets = createCache(cacheDir, "librarySets", new LibrarySetDataExternalizer());
+    libraryDigests = createCache(cacheDir, "libraryDigests", EnumeratorStringDescriptor.INSTANCE);
   }
 
   public void close() {
@@ -41,6 +52,54 @@ class LibrariesData {
     catch (IOException e) {
       LogMessageUtil.LOG.info(e);
     }
+
+    try {
+      libraryDigests.close();
+    }
+    catch (IOException e) {
+      LogMessageUtil.LOG.info(e);
+    }
+  }
+
+  @NotNull
+  String getDigest(@NotNull Library library) throws IOException {
+    if (library.contentDigest == null) {
+      library.contentDigest = getDigest(library.getFile());
+    }
+    return library.contentDigest;
+  }
+
+  @NotNull
+  String getDigest(@NotNull VirtualFile swcFile) throws IOException {
+    final String key = swcFile.getPath() + ':' + swcFile.getTimeStamp();
+    String digest = libraryDigests.get(key);
+    if (digest == null) {
+      digest = computeDigest(swcFile);
+      libraryDigests.put(key, digest);
+    }
+    return digest;
+  }
+
+  private static String computeDigest(VirtualFile swcFile) throws IOException {
+    final MessageDigest messageDigest;
+    try {
+      messageDigest = MessageDigest.getInstance("SHA-1");
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+
+    final VirtualFile swfFile = Library.getSwfFile(swcFile);
+    final VirtualFile catalogFile = Library.getCatalogFile(swcFile);
+    // catalog lists all definitions with modification times and usually the digest of library.swf, so there is no need to read the swf
+    if (catalogFile != null) {
+      messageDigest.update(catalogFile.contentsToByteArray());
+      messageDigest.update(Long.toString(swfFile == null ? -1 : swfFile.getLength()).getBytes());
+    }
+    else if (swfFile != null) {
+      messageDigest.update(swfFile.contentsToByteArray());
+    }
+    return StringUtil.toHexString(messageDigest.digest());
   }
 
   private static void clearCache(File cacheDir) {
@@ -52,15 +111,16 @@ class LibrariesData {
     }
   }
 
-  private static PersistentHashMap<String, SortResult> createLibrarySetsCache(File cacheDir) throws IOException {
-    final File file = new File(cacheDir, NAME_PREFIX + "librarySets");
+  private static <V> PersistentHashMap<String, V> createCache(File cacheDir, String name, DataExternalizer<V> externalizer)
+    throws IOException {
+    final File file = new File(cacheDir, NAME_PREFIX + name);
     try {
-      return new PersistentHashMap<>(file, EnumeratorStringDescriptor.INSTANCE, new LibrarySetDataExternalizer());
+      return new PersistentHashMap<>(file, EnumeratorStringDescriptor.INSTANCE, externalizer);
     }
     catch (IOException e) {
       LogMessageUtil.LOG.info(e);
       clearCache(cacheDir);
-      return new PersistentHashMap<>(file, EnumeratorStringDescriptor.INSTANCE, new LibrarySetDataExternalizer());
+      return new PersistentHashMap<>(file, EnumeratorStringDescriptor.INSTANCE, externalizer);
     }
   }
 
@@ -69,7 +129,8 @@ class LibrariesData {
     public void save(@NotNull final DataOutput out, SortResult value) throws IOException {
       out.writeShort(value.libraries.size());
       for (Library library : value.libraries) {
-        out.writeUTF(library.getFile().getPath());
+        // computed for the key of this library set
+        out.writeUTF(library.contentDigest);
       }
 
       if (value.definitionMap == null) {
@@ -93,9 +154,9 @@ class LibrariesData {
     @Override
     public SortResult read(@NotNull DataInput in) throws IOException {
       int librariesSize = in.readShort();
-      String[] libraryPaths = new String[librariesSize];
+      String[] libraryDigests = new String[librariesSize];
       while (librariesSize-- > 0) {
-        libraryPaths[librariesSize] = in.readUTF();
+        libraryDigests[librariesSize] = in.readUTF();
       }
 
       int size = in.readInt();
@@ -110,7 +171,7 @@ class LibrariesData {
         map = null;
       }
 
-      return new SortResult(map, libraryPaths);
+      return new SortResult(map, libraryDigests);
     }
   }
 }
\ No newline at end of file
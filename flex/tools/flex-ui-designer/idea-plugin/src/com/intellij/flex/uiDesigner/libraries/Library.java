@@ -21,6 +21,9 @@ public class Library extends Info<VirtualFile> {
   @Nullable
   public AssetCounter assetCounter;
 
+  // see LibrariesData.getDigest
+  String contentDigest;
+
   // en_US => {"layout", "components"}
   public final Map<String, THashSet<String>> resourceBundles = new THashMap<>();
 
@@ -139,7 +139,8 @@ public class LibraryManager implements Disposable {
       librarySet = null;
     }
     else {
-      final String key = createKey(libraryCollector.externalLibraries, false);
+      // external definitions are filtered out by the SDK library set
+      final String key = createKey(libraryCollector.externalLibraries, Integer.toString(flexLibrarySet.getId()));
       librarySet = librarySets.get(key);
       if (librarySet == null) {
         final SortResult sortResult = sortLibraries(new LibrarySorter(), libraryCollector, flexLibrarySet.contains, key, false);
@@ -179,7 +180,9 @@ public class LibraryManager implements Disposable {
   }
 
   private FlexLibrarySet getOrCreateFlexLibrarySet(LibraryCollector libraryCollector, AssetCounter assetCounter) throws InitException {
-    final String key = createKey(libraryCollector.sdkLibraries, true);
+    // definitions are filtered by the Flex SDK version and by the player/AIR global library
+    final String key = createKey(libraryCollector.sdkLibraries,
+                                 '_' + libraryCollector.getFlexSdkVersion() + '_' + getDigest(libraryCollector.getGlobalLibrary()));
     FlexLibrarySet flexLibrarySet = (FlexLibrarySet)librarySets.get(key);
     if (flexLibrarySet == null) {
       final Set<CharSequence> globalDefinitions = getGlobalDefinitions(libraryCollector.getGlobalLibrary());
@@ -216,23 +219,37 @@ public class LibraryManager implements Disposable {
     return globalDefinitions;
   }
 
-  private String createKey(List<Library> libraries, boolean isSdk) {
-    // we don't depend on library order
-    final VirtualFile[] files = new VirtualFile[libraries.size()];
-    for (int i = 0, librariesSize = libraries.size(); i < librariesSize; i++) {
-      files[i] = libraries.get(i).getFile();
+  private String getDigest(VirtualFile swcFile) throws InitException {
+    try {
+      return data.getDigest(swcFile);
     }
-    
-    Arrays.sort(files, (o1, o2) -> StringUtil.compare(o1.getPath(), o2.getPath(), false));
-    
-    final StringBuilder stringBuilder = StringBuilderSpinAllocator.alloc();
+    catch (IOException e) {
+      throw new InitException(e, "error.sort.libraries");
+    }
+  }
+
+  /**
+   * Key of the merged library set, the same for the same library contents and definition filter, wherever the libraries are.
+   */
+  private String createKey(List<Library> libraries, String definitionFilter) throws InitException {
+    // we don't depend on library order
+    final String[] digests = new String[libraries.size()];
     try {
-      if (isSdk) {
-        stringBuilder.append('_');
+      for (int i = 0, librariesSize = libraries.size(); i < librariesSize; i++) {
+        digests[i] = data.getDigest(libraries.get(i));
       }
+    }
+    catch (IOException e) {
+      throw new InitException(e, "error.sort.libraries");
+    }
 
-      for (VirtualFile file : files) {
-        stringBuilder.append(file.getTimeStamp()).append(file.getPath()).append(':');
+    Arrays.sort(digests);
+
+    final StringBuilder stringBuilder = StringBuilderSpinAllocator.alloc();
+    try {
+      stringBuilder.append(definitionFilter).append('|');
+      for (String digest : digests) {
+        stringBuilder.append(digest).append(':');
       }
 
       return stringBuilder.toString();
@@ -248,16 +265,17 @@ public class LibraryManager implements Disposable {
     final List<Library> libraries = isSdk ? collector.sdkLibraries : collector.externalLibraries;
     try {
       final int id = data.librarySets.enumerate(key);
-      SortResult result = data.librarySets.get(key);
+      final File outFile = new File(appDir, LibrariesData.NAME_PREFIX + Integer.toString(id) + SWF_EXTENSION);
+      SortResult result = outFile.exists() ? data.librarySets.get(key) : null;
       if (result == null) {
-        result = sorter.sort(libraries, new File(appDir, LibrariesData.NAME_PREFIX + Integer.toString(id) + SWF_EXTENSION), isExternal, isSdk);
+        result = sorter.sort(libraries, outFile, isExternal, isSdk);
         data.librarySets.put(key, result);
       }
       else {
-        final String[] libraryPaths = result.libraryPaths;
-        final List<Library> filteredLibraries = new ArrayList<>(libraryPaths.length);
+        final String[] libraryDigests = result.libraryDigests;
+        final List<Library> filteredLibraries = new ArrayList<>(libraryDigests.length);
         for (Library library : libraries) {
-          if (ArrayUtil.indexOf(libraryPaths, library.getFile().getPath()) != -1) {
+          if (ArrayUtil.indexOf(libraryDigests, library.contentDigest) != -1) {
             filteredLibraries.add(library);
           }
         }
@@ -152,20 +152,20 @@ public class LibrarySorter {
     final List<Library> libraries;
 
     // only if restored from cache
-    final String[] libraryPaths;
+    final String[] libraryDigests;
 
     int id;
 
     SortResult(@Nullable THashMap<CharSequence, Definition> definitionMap, List<Library> libraries) {
       this.definitionMap = definitionMap;
       this.libraries = libraries;
-      libraryPaths = null;
+      libraryDigests = null;
     }
 
-    SortResult(@Nullable THashMap<CharSequence, Definition> definitionMap, String[] libraryPaths) {
+    SortResult(@Nullable THashMap<CharSequence, Definition> definitionMap, String[] libraryDigests) {
       this.definitionMap = definitionMap;
       libraries = null;
-      this.libraryPaths = libraryPaths;
+      this.libraryDigests = libraryDigests;
     }
   }
 }
\ No newline at end of file
@@ -30,6 +30,9 @@ public final class MxmlUtil {
   private static final Pattern FLEX_SDK_ABSTRACT_CLASSES = Pattern.compile("^(mx|spark)\\.(.*)?Base$");
   private static final Trinity<Integer, String, Condition<AnnotationBackedDescriptor>> NON_PROJECT_CLASS = new Trinity<>(-1, null, null);
 
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
   static final String UNKNOWN_COMPONENT_CLASS_NAME = "com.intellij.flex.uiDesigner.flex.UnknownComponent";
   static final String UNKNOWN_ITEM_RENDERER_CLASS_NAME = "com.intellij.flex.uiDesigner.flex.UnknownItemRenderer";
 
@@ -68,6 +71,48 @@ public final class MxmlUtil {
     return firstChild == child.getLastChild() && (firstChild == null || firstChild instanceof PsiWhiteSpace);
   }
 
+  /**
+   * Hash of the document content written by {@link MxmlWriter}: tags, attributes and text which is not whitespace only.
+   * Edits that don't change it (formatting, whitespace between tags) don't require the document to be rendered again.
+   */
+  public static long computeRenderedContentHash(XmlFile psiFile) {
+    XmlTag rootTag = psiFile.getRootTag();
+    return rootTag == null ? 0 : computeRenderedContentHash(rootTag, FNV_OFFSET_BASIS);
+  }
+
+  private static long computeRenderedContentHash(XmlTag tag, long hash) {
+    hash = hash(hash(hash, '<'), tag.getName());
+    for (XmlAttribute attribute : tag.getAttributes()) {
+      hash = hash(hash(hash, ' '), attribute.getName());
+      String value = attribute.getValue();
+      if (value != null) {
+        hash = hash(hash(hash, '='), value);
+      }
+    }
+    hash = hash(hash, '>');
+
+    for (XmlTagChild child : tag.getValue().getChildren()) {
+      if (child instanceof XmlTag) {
+        hash = computeRenderedContentHash((XmlTag)child, hash);
+      }
+      else if (child instanceof XmlText && !containsOnlyWhitespace(child)) {
+        hash = hash(hash(hash, '"'), child.getText());
+      }
+    }
+    return hash(hash, '/');
+  }
+
+  private static long hash(long hash, CharSequence s) {
+    for (int i = 0, n = s.length(); i < n; i++) {
+      hash = hash(hash, s.charAt(i));
+    }
+    return hash;
+  }
+
+  private static long hash(long hash, char c) {
+    return (hash ^ c) * FNV_PRIME;
+  }
+
   @Nullable
   public static PsiLanguageInjectionHost getInjectedHost(XmlTag tag) {
     // support <tag>{v}...</tag> or <tag>__PsiWhiteSpace__{v}...</tag>
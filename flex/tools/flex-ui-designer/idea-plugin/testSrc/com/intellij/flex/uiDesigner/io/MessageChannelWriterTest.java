@@ -0,0 +1,125 @@
+package com.intellij.flex.uiDesigner.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
+import static com.intellij.flex.uiDesigner.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class MessageChannelWriterTest {
+  private static byte[] createBytes(int length, int seed) {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = (byte)(seed + i);
+    }
+    return bytes;
+  }
+
+  @Test
+  public void partialWrites() throws IOException {
+    ThrottledChannel channel = new ThrottledChannel(7);
+    MessageChannelWriter writer = new MessageChannelWriter(channel, null, 64);
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    byte[] bytes = createBytes(200, 0);
+    // header, a slice bigger than a buffer, a slice from the middle
+    writer.add(bytes, 0, 8);
+    expected.write(bytes, 0, 8);
+    writer.add(bytes, 20, 150);
+    expected.write(bytes, 20, 150);
+    writer.add(bytes, 10, 5);
+    expected.write(bytes, 10, 5);
+    writer.write();
+
+    assertThat(channel.written.toByteArray(), equalTo(expected.toByteArray()));
+    assertThat(writer.getWriteCount(), equalTo((163 + 6) / 7));
+    assertThat(channel.allDirect, equalTo(true));
+  }
+
+  @Test
+  public void sliceOrderWhenPoolIsExhausted() throws IOException {
+    ThrottledChannel channel = new ThrottledChannel(Integer.MAX_VALUE);
+    MessageChannelWriter writer = new MessageChannelWriter(channel, null, 16);
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    for (int i = 0; i < 20; i++) {
+      byte[] bytes = createBytes(i * 3 + 1, i * 7);
+      writer.add(bytes, 0, bytes.length);
+      expected.write(bytes);
+      // the writer copies slices, so the source may be modified at once
+      bytes[0] = -1;
+    }
+    writer.write();
+
+    assertThat(channel.written.toByteArray(), equalTo(expected.toByteArray()));
+    // more data than 4 pooled buffers hold is written before write() is called
+    assertThat(writer.getWriteCount(), greaterThan(1));
+    assertThat(channel.allDirect, equalTo(true));
+  }
+
+  @Test
+  public void writeWithoutDataIsSkipped() throws IOException {
+    ThrottledChannel channel = new ThrottledChannel(Integer.MAX_VALUE);
+    MessageChannelWriter writer = new MessageChannelWriter(channel, null, 16);
+
+    byte[] bytes = createBytes(10, 0);
+    writer.add(bytes, 0, bytes.length);
+    writer.write();
+    writer.add(bytes, 0, bytes.length);
+    writer.write();
+    writer.write();
+
+    assertThat(channel.written.size(), equalTo(20));
+    assertThat(writer.getWriteCount(), equalTo(2));
+  }
+
+  // writes at most maxBytesPerWrite bytes per call, as a socket channel may do
+  private static class ThrottledChannel implements GatheringByteChannel {
+    private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+    private final int maxBytesPerWrite;
+    private boolean allDirect = true;
+
+    private ThrottledChannel(int maxBytesPerWrite) {
+      this.maxBytesPerWrite = maxBytesPerWrite;
+    }
+
+    @Override
+    public long write(ByteBuffer[] sources, int offset, int length) {
+      int budget = maxBytesPerWrite;
+      long total = 0;
+      for (int i = offset; i < offset + length && budget > 0; i++) {
+        ByteBuffer source = sources[i];
+        allDirect &= source.isDirect();
+        while (source.hasRemaining() && budget > 0) {
+          written.write(source.get());
+          budget--;
+          total++;
+        }
+      }
+      return total;
+    }
+
+    @Override
+    public long write(ByteBuffer[] sources) {
+      return write(sources, 0, sources.length);
+    }
+
+    @Override
+    public int write(ByteBuffer source) {
+      return (int)write(new ByteBuffer[]{source});
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
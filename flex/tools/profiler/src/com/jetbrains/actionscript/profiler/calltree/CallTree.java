@@ -1,68 +1,318 @@
 package com.jetbrains.actionscript.profiler.calltree;
 
 import com.intellij.openapi.util.Pair;
-import com.intellij.util.ArrayUtil;
+import com.intellij.util.containers.ContainerUtil;
 import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
-import gnu.trove.THashSet;
+import gnu.trove.TIntArrayList;
+import gnu.trove.TLongIntHashMap;
+import gnu.trove.TObjectIntHashMap;
 
 import java.util.*;
 
+/**
+ * Call tree stored in arrays: node is an index, children of a node are linked through <code>nextSiblings</code>.
+ * Frames are interned to ids, nodes of every frame are indexed, so that caller and callee queries visit only the nodes they need.
+ * Query results are cached until the tree is modified.
+ */
 public class CallTree {
-  private final CallTreeNode root;
+  static final int ROOT = 0;
+  static final int NONE = -1;
+
+  private static final int MAX_CACHED_QUERIES = 64;
+
+  private int[] parents = new int[1024];
+  private int[] firstChildren = new int[1024];
+  private int[] nextSiblings = new int[1024];
+  private int[] frames = new int[1024];
+  private long[] durations = new long[1024];
+  private int size;
+
+  // (parent, frame) -> child
+  private final TLongIntHashMap children = new TLongIntHashMap();
+
+  private final List<FrameInfo> frameInfos = new ArrayList<>();
+  private final TObjectIntHashMap<FrameInfo> frameIds = new TObjectIntHashMap<>();
+  // samples usually share FrameInfo instances, so equals() and hashCode() are seldom called
+  private final TObjectIntHashMap<FrameInfo> frameInstanceIds = new TObjectIntHashMap<>(ContainerUtil.identityStrategy());
+
+  // built on demand after modification
+  private int[][] frameOccurrences;
+  private long[] selfDurations;
+  private final Map<Query, Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>>> queryCache =
+    new LinkedHashMap<Query, Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>>>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Query, Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>>> eldest) {
+        return size() > MAX_CACHED_QUERIES;
+      }
+    };
 
   public CallTree() {
-    root = new CallTreeNode();
+    size = 1;
+    parents[ROOT] = NONE;
+    firstChildren[ROOT] = NONE;
+    nextSiblings[ROOT] = NONE;
+    frames[ROOT] = NONE;
   }
 
   CallTree(CallTreeNode root) {
-    this.root = root;
-  }
+    this();
+    durations[ROOT] = root.getCumulativeTiming();
 
-  CallTreeNode getRoot() {
-    return root;
+    final Deque<Pair<CallTreeNode, Integer>> queue = new ArrayDeque<>();
+    queue.add(Pair.create(root, ROOT));
+    while (!queue.isEmpty()) {
+      final Pair<CallTreeNode, Integer> pair = queue.removeFirst();
+      for (CallTreeNode child : pair.first.getChildren()) {
+        final int node = getOrCreateChild(pair.second, getFrameId(child.getFrameInfo()));
+        durations[node] += child.getCumulativeTiming();
+        queue.add(Pair.create(child, node));
+      }
+    }
   }
 
-  public void addFrames(FrameInfo[] frames, long duration) {
-    root.addChildren(Arrays.asList(ArrayUtil.reverseArray(frames)), duration);
+  public synchronized void addFrames(FrameInfo[] frames, long duration) {
+    int node = ROOT;
+    for (int i = frames.length - 1; i >= 0; i--) {
+      node = getOrCreateChild(node, getFrameId(frames[i]));
+      durations[node] += duration;
+    }
+    modified();
   }
 
   /*
    * @return pair <cumulative time map, self time map>
    */
-  public Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> getTimeMaps() {
-    return TimeMapBuilder.buildTimeMaps(root, root.getChildren());
+  public synchronized Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> getTimeMaps() {
+    final Query query = new Query(Query.ALL, new int[0]);
+    Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> result = queryCache.get(query);
+    if (result == null) {
+      final TIntArrayList calls = new TIntArrayList();
+      for (int child = firstChildren[ROOT]; child != NONE; child = nextSiblings[child]) {
+        calls.add(child);
+      }
+      result = TimeMapBuilder.buildTimeMaps(this, calls, null);
+      queryCache.put(query, result);
+    }
+    return result;
   }
 
   /*
    * @return pair <cumulative time map, self time map>
    */
-  public Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> getCallersTimeMaps(FrameInfo[] frames) {
-    List<CallTreeNode> calls = CallerFinder.findCallsByFrames(root, frames);
-    Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> timeMaps = TimeMapBuilder.buildTimeMaps(root, calls);
-    Set<FrameInfo> callerNames = getNamesOfNodes(calls);
-    Map<FrameInfo, Long> filteredCountMap = filterMap(timeMaps.getFirst(), callerNames);
-    Map<FrameInfo, Long> filteredSelfTimeMap = filterMap(timeMaps.getSecond(), callerNames);
-    return Pair.create(filteredCountMap, filteredSelfTimeMap);
+  public synchronized Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> getCallersTimeMaps(FrameInfo[] frames) {
+    final Query query = new Query(Query.CALLERS, findFrameIds(frames));
+    Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> result = queryCache.get(query);
+    if (result == null) {
+      final TIntArrayList calls = query.frames == null ? new TIntArrayList() : CallerFinder.findCallsByFrames(this, query.frames);
+      final BitSet callerFrames = new BitSet(frameInfos.size());
+      for (int i = 0; i < calls.size(); i++) {
+        callerFrames.set(this.frames[calls.getQuick(i)]);
+      }
+      result = TimeMapBuilder.buildTimeMaps(this, calls, callerFrames);
+      queryCache.put(query, result);
+    }
+    return result;
   }
 
   /*
    * @return pair <cumulative time map, self time map>
    */
-  public Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> getCalleesTimeMaps(FrameInfo[] frames) {
-    List<CallTreeNode> calls = CalleeFinder.findCallsByFrameName(root, frames);
-    return TimeMapBuilder.buildTimeMaps(root, calls);
+  public synchronized Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> getCalleesTimeMaps(FrameInfo[] frames) {
+    final Query query = new Query(Query.CALLEES, findFrameIds(frames));
+    Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> result = queryCache.get(query);
+    if (result == null) {
+      final TIntArrayList calls = query.frames == null ? new TIntArrayList() : CalleeFinder.findCallsByFrameName(this, query.frames);
+      result = TimeMapBuilder.buildTimeMaps(this, calls, null);
+      queryCache.put(query, result);
+    }
+    return result;
+  }
+
+  /**
+   * @return copy of the tree without system frames, their callees are merged into their callers
+   */
+  synchronized CallTree filterSystemStuff() {
+    final CallTree result = new CallTree();
+    result.durations[ROOT] = durations[ROOT];
+
+    final TIntArrayList stack = new TIntArrayList();
+    stack.add(ROOT);
+    stack.add(ROOT);
+    while (!stack.isEmpty()) {
+      final int resultNode = stack.remove(stack.size() - 1);
+      final int node = stack.remove(stack.size() - 1);
+      for (int child = firstChildren[node]; child != NONE; child = nextSiblings[child]) {
+        final FrameInfo frameInfo = frameInfos.get(frames[child]);
+        if (frameInfo.isSystem()) {
+          stack.add(child);
+          stack.add(resultNode);
+        }
+        else {
+          final int resultChild = result.getOrCreateChild(resultNode, result.getFrameId(frameInfo));
+          result.durations[resultChild] += durations[child];
+          stack.add(child);
+          stack.add(resultChild);
+        }
+      }
+    }
+    return result;
+  }
+
+  int getParent(int node) {
+    return parents[node];
+  }
+
+  int getFirstChild(int node) {
+    return firstChildren[node];
+  }
+
+  int getNextSibling(int node) {
+    return nextSiblings[node];
+  }
+
+  int getFrame(int node) {
+    return frames[node];
+  }
+
+  long getDuration(int node) {
+    return durations[node];
+  }
+
+  long getSelfDuration(int node) {
+    if (selfDurations == null) {
+      final long[] result = Arrays.copyOf(durations, size);
+      for (int i = 1; i < size; i++) {
+        result[parents[i]] -= durations[i];
+      }
+      selfDurations = result;
+    }
+    return selfDurations[node];
+  }
+
+  int getNodeCount() {
+    return size;
+  }
+
+  int getFrameCount() {
+    return frameInfos.size();
+  }
+
+  FrameInfo getFrameInfo(int frame) {
+    return frameInfos.get(frame);
+  }
+
+  int findChild(int node, int frame) {
+    final long key = ((long)node << 32) | frame;
+    return children.containsKey(key) ? children.get(key) : NONE;
+  }
+
+  /**
+   * @return nodes with the frame
+   */
+  int[] getOccurrences(int frame) {
+    if (frameOccurrences == null) {
+      final int[] counts = new int[frameInfos.size()];
+      for (int i = 1; i < size; i++) {
+        counts[frames[i]]++;
+      }
+      final int[][] result = new int[counts.length][];
+      for (int i = 0; i < counts.length; i++) {
+        result[i] = new int[counts[i]];
+        counts[i] = 0;
+      }
+      for (int i = 1; i < size; i++) {
+        result[frames[i]][counts[frames[i]]++] = i;
+      }
+      frameOccurrences = result;
+    }
+    return frameOccurrences[frame];
   }
 
-  private static Map<FrameInfo, Long> filterMap(Map<FrameInfo, Long> first, Set<FrameInfo> callerNames) {
-    first.keySet().retainAll(callerNames);
-    return first;
+  private int getOrCreateChild(int parent, int frame) {
+    final long key = ((long)parent << 32) | frame;
+    int child = children.get(key);
+    if (child == 0) {
+      child = size++;
+      ensureCapacity(size);
+      parents[child] = parent;
+      frames[child] = frame;
+      firstChildren[child] = NONE;
+      nextSiblings[child] = firstChildren[parent];
+      firstChildren[parent] = child;
+      children.put(key, child);
+    }
+    return child;
   }
 
-  private static Set<FrameInfo> getNamesOfNodes(Collection<CallTreeNode> nodes) {
-    THashSet<FrameInfo> names = new THashSet<>();
-    for (CallTreeNode node : nodes) {
-      names.add(node.getFrameInfo());
+  private int getFrameId(FrameInfo frameInfo) {
+    if (frameInstanceIds.containsKey(frameInfo)) {
+      return frameInstanceIds.get(frameInfo);
+    }
+
+    final int id;
+    if (frameIds.containsKey(frameInfo)) {
+      id = frameIds.get(frameInfo);
+    }
+    else {
+      id = frameInfos.size();
+      frameInfos.add(frameInfo);
+      frameIds.put(frameInfo, id);
+    }
+    frameInstanceIds.put(frameInfo, id);
+    return id;
+  }
+
+  /**
+   * @return <code>null</code> if some frame is not in the tree
+   */
+  private int[] findFrameIds(FrameInfo[] frameInfos) {
+    final int[] result = new int[frameInfos.length];
+    for (int i = 0; i < frameInfos.length; i++) {
+      if (!frameIds.containsKey(frameInfos[i])) {
+        return null;
+      }
+      result[i] = frameIds.get(frameInfos[i]);
+    }
+    return result;
+  }
+
+  private void modified() {
+    frameOccurrences = null;
+    selfDurations = null;
+    queryCache.clear();
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity <= parents.length) return;
+    final int newLength = Math.max(capacity, parents.length * 2);
+    parents = Arrays.copyOf(parents, newLength);
+    firstChildren = Arrays.copyOf(firstChildren, newLength);
+    nextSiblings = Arrays.copyOf(nextSiblings, newLength);
+    frames = Arrays.copyOf(frames, newLength);
+    durations = Arrays.copyOf(durations, newLength);
+  }
+
+  private static final class Query {
+    private static final int ALL = 0;
+    private static final int CALLERS = 1;
+    private static final int CALLEES = 2;
+
+    private final int kind;
+    private final int[] frames;
+
+    private Query(int kind, int[] frames) {
+      this.kind = kind;
+      this.frames = frames;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Query && kind == ((Query)o).kind && Arrays.equals(frames, ((Query)o).frames);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * kind + Arrays.hashCode(frames);
     }
-    return names;
   }
 }
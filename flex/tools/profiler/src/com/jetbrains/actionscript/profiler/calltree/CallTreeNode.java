@@ -9,6 +9,9 @@ import org.jetbrains.annotations.Nullable;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Mutable node used to build a tree that is then converted to {@link CallTree}
+ */
 class CallTreeNode implements FrameInfoProducer, FilePathProducer {
   private final FrameInfo frameInfo;
   private long duration;
@@ -31,12 +34,6 @@ class CallTreeNode implements FrameInfoProducer, FilePathProducer {
     return duration;
   }
 
-  public void addChildrenRecursive(List<CallTreeNode> children) {
-    for (CallTreeNode child : children) {
-      addChildRecursive(child);
-    }
-  }
-
   void addChildRecursive(CallTreeNode newChildNode) {
     CallTreeNode child = findChildByName(newChildNode.getFrameInfo());
     if (child != null) {
@@ -86,33 +83,8 @@ class CallTreeNode implements FrameInfoProducer, FilePathProducer {
     return frameInfo.toString() + " (" + children.size() + ")";
   }
 
-  public void addChildren(List<FrameInfo> reversedFrames, long duration) {
-    CallTreeNode node = this;
-    for (FrameInfo frame : reversedFrames) {
-      CallTreeNode child = node.findChildByName(frame);
-      if (child == null) {
-        child = new CallTreeNode(frame, 0);
-        node.addChild(child);
-      }
-      child.duration += duration;
-      node = child;
-    }
-  }
-
   @Override
   public String getFilePath() {
     return frameInfo.getFilePath();
   }
-
-  @Nullable
-  public CallTreeNode getChildDeep(FrameInfo[] frames) {
-    CallTreeNode currentNode = this;
-    for (FrameInfo frame : frames) {
-      currentNode = currentNode.findChildByName(frame);
-      if (currentNode == null) {
-        return null;
-      }
-    }
-    return currentNode;
-  }
 }
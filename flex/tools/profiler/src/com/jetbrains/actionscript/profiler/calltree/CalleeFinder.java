@@ -1,10 +1,6 @@
 package com.jetbrains.actionscript.profiler.calltree;
 
-import com.intellij.util.ArrayUtil;
-import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
-
-import java.util.ArrayList;
-import java.util.List;
+import gnu.trove.TIntArrayList;
 
 class CalleeFinder {
   private CalleeFinder() {
@@ -13,21 +9,27 @@ class CalleeFinder {
   /*
   * Find nodes with <code>frameName == frames[0]</code>. Node's call stack contains all <code>frames</code> in order.
   */
-  static List<CallTreeNode> findCallsByFrameName(CallTreeNode root, FrameInfo[] frames) {
-    ArrayList<CallTreeNode> result = new ArrayList<>();
-    fillCallsByFrameName(root, ArrayUtil.reverseArray(frames), result);
-    return result;
-  }
-
-  private static void fillCallsByFrameName(CallTreeNode node,
-                                           FrameInfo[] frames,
-                                           List<CallTreeNode> result) {
-    final CallTreeNode deepChild = node.getChildDeep(frames);
-    if (deepChild != null) {
-      result.addAll(deepChild.getChildren());
+  static TIntArrayList findCallsByFrameName(CallTree tree, int[] frames) {
+    TIntArrayList result = new TIntArrayList();
+    if (frames.length == 0) {
+      // every node is a callee of its parent
+      for (int node = 1; node < tree.getNodeCount(); node++) {
+        result.add(node);
+      }
+      return result;
     }
-    for (CallTreeNode child : node.getChildren()) {
-      fillCallsByFrameName(child, frames, result);
+
+    // the path starts with a call of the last frame
+    for (int node : tree.getOccurrences(frames[frames.length - 1])) {
+      for (int i = frames.length - 2; i >= 0 && node != CallTree.NONE; i--) {
+        node = tree.findChild(node, frames[i]);
+      }
+      if (node != CallTree.NONE) {
+        for (int child = tree.getFirstChild(node); child != CallTree.NONE; child = tree.getNextSibling(child)) {
+          result.add(child);
+        }
+      }
     }
+    return result;
   }
 }
@@ -1,10 +1,8 @@
 package com.jetbrains.actionscript.profiler.calltree;
 
-import com.intellij.util.ArrayUtil;
-import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
+import gnu.trove.TIntArrayList;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.BitSet;
 
 class CallerFinder {
   private CallerFinder() {
@@ -21,36 +19,47 @@ class CallerFinder {
   *
   * Method return only <code>foo</code>.
   */
-  static List<CallTreeNode> findCallsByFrames(CallTreeNode root, FrameInfo[] frames) {
-    List<CallTreeNode> calls = new ArrayList<>();
+  static TIntArrayList findCallsByFrames(CallTree tree, int[] frames) {
+    TIntArrayList calls = new TIntArrayList();
     if (frames.length == 0) {
       return calls;
     }
-    frames = ArrayUtil.reverseArray(frames);
-    for (CallTreeNode node : root.getChildren()) {
-      fillCallsByFrames(node, calls, frames, new ArrayList<>());
+
+    // callers are parents of the calls of the last frame followed by the rest of the frames
+    BitSet callers = new BitSet(tree.getNodeCount());
+    for (int node : tree.getOccurrences(frames[frames.length - 1])) {
+      int parent = tree.getParent(node);
+      if (parent != CallTree.ROOT && !callers.get(parent) && findPath(tree, node, frames) != CallTree.NONE) {
+        callers.set(parent);
+      }
+    }
+
+    //we need only the nearest node to the root among the nodes with the same frame
+    for (int node = callers.nextSetBit(0); node >= 0; node = callers.nextSetBit(node + 1)) {
+      if (!hasCallerAncestor(tree, node, callers)) {
+        calls.add(node);
+      }
     }
     return calls;
   }
 
-  private static void fillCallsByFrames(CallTreeNode currentNode,
-                                        List<CallTreeNode> result,
-                                        FrameInfo[] frames,
-                                        List<FrameInfo> callChainAddedFrames) {
-    //we need only the nearest node to the root
-    //we have <code>callChainAddedFrames<code>
-    boolean needAdd = !callChainAddedFrames.contains(currentNode.getFrameInfo()) && currentNode.getChildDeep(frames) != null;
-    if (needAdd) {
-      result.add(currentNode);
-      callChainAddedFrames.add(currentNode.getFrameInfo());
+  /**
+   * @return the last node of the path from the node (which has the last frame) through the frames in reverse order
+   */
+  private static int findPath(CallTree tree, int node, int[] frames) {
+    for (int i = frames.length - 2; i >= 0 && node != CallTree.NONE; i--) {
+      node = tree.findChild(node, frames[i]);
     }
+    return node;
+  }
 
-    for (CallTreeNode childCall : currentNode.getChildren()) {
-      fillCallsByFrames(childCall, result, frames, callChainAddedFrames);
-    }
-    if (needAdd) {
-      //pop
-      callChainAddedFrames.remove(callChainAddedFrames.size() - 1);
+  private static boolean hasCallerAncestor(CallTree tree, int node, BitSet callers) {
+    final int frame = tree.getFrame(node);
+    for (int ancestor = tree.getParent(node); ancestor != CallTree.ROOT; ancestor = tree.getParent(ancestor)) {
+      if (tree.getFrame(ancestor) == frame && callers.get(ancestor)) {
+        return true;
+      }
     }
+    return false;
   }
 }
@@ -3,9 +3,11 @@ package com.jetbrains.actionscript.profiler.calltree;
 import com.intellij.openapi.util.Pair;
 import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
 import gnu.trove.THashMap;
-import gnu.trove.THashSet;
+import gnu.trove.TIntArrayList;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.List;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Map;
 
 class TimeMapBuilder {
@@ -13,49 +15,87 @@ class TimeMapBuilder {
   }
 
   /*
+  * @param frames if not null, only these frames are included into the result
   * @return pair <cumulative time map, self time map>
   */
-  static Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> buildTimeMaps(CallTreeNode root, List<CallTreeNode> calls) {
-    Map<FrameInfo, Long> countMap = new THashMap<>();
-    Map<FrameInfo, Long> selfCountMap = new THashMap<>();
-    THashSet<CallTreeNode> trackedCalls = new THashSet<>(calls);
+  static Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> buildTimeMaps(CallTree tree, TIntArrayList calls, @Nullable BitSet frames) {
+    final int frameCount = tree.getFrameCount();
+    final long[] counts = new long[frameCount];
+    final long[] selfCounts = new long[frameCount];
+    final BitSet trackedFrames = new BitSet(frameCount);
+    // number of nodes with the frame on the current path
+    final int[] activeFrames = new int[frameCount];
 
-    for (CallTreeNode node : root.getChildren()) {
-      fillTimeMaps(node, countMap, selfCountMap, trackedCalls.contains(node), trackedCalls);
+    final BitSet trackedCalls = new BitSet(tree.getNodeCount());
+    for (int i = 0; i < calls.size(); i++) {
+      trackedCalls.set(calls.getQuick(i));
     }
-    return Pair.create(countMap, selfCountMap);
-  }
 
-  private static void fillTimeMaps(CallTreeNode node,
-                                   Map<FrameInfo, Long> countMap,
-                                   Map<FrameInfo, Long> selfCountMap,
-                                   boolean tracking,
-                                   THashSet<CallTreeNode> trackedCalls) {
-    if (tracking) {
-      updateSelfTime(node, selfCountMap);
+    for (int call = trackedCalls.nextSetBit(0); call >= 0; call = trackedCalls.nextSetBit(call + 1)) {
+      if (!isTracked(tree, tree.getParent(call), trackedCalls)) {
+        fillTimeMaps(tree, call, counts, selfCounts, trackedFrames, activeFrames);
+      }
     }
 
-    //save value before subcalls
-    Long countBefore = countMap.get(node.getFrameInfo());
-    if (countBefore == null) {
-      countBefore = 0L;
-    }
-    for (CallTreeNode child : node.getChildren()) {
-      fillTimeMaps(child, countMap, selfCountMap, tracking || trackedCalls.contains(child), trackedCalls);
+    final Map<FrameInfo, Long> countMap = new THashMap<>();
+    final Map<FrameInfo, Long> selfCountMap = new THashMap<>();
+    for (int frame = trackedFrames.nextSetBit(0); frame >= 0; frame = trackedFrames.nextSetBit(frame + 1)) {
+      if (frames == null || frames.get(frame)) {
+        final FrameInfo frameInfo = tree.getFrameInfo(frame);
+        countMap.put(frameInfo, counts[frame]);
+        selfCountMap.put(frameInfo, selfCounts[frame]);
+      }
     }
-    if (tracking) {
-      //rewrite values that were added in subcalls.
-      //cause of that we get value only of the nearest node to the root
-      countMap.put(node.getFrameInfo(), countBefore + node.getCumulativeTiming());
+    // results are cached by the tree
+    return Pair.create(Collections.unmodifiableMap(countMap), Collections.unmodifiableMap(selfCountMap));
+  }
+
+  private static boolean isTracked(CallTree tree, int node, BitSet trackedCalls) {
+    for (; node != CallTree.ROOT && node != CallTree.NONE; node = tree.getParent(node)) {
+      if (trackedCalls.get(node)) {
+        return true;
+      }
     }
+    return false;
   }
 
-  private static void updateSelfTime(CallTreeNode node, Map<FrameInfo, Long> selfCountMap) {
-    long currentSelfTime = node.getCumulativeTiming() - node.calcSelfTiming();
-    Long selfTime = selfCountMap.get(node.getFrameInfo());
-    if (selfTime == null) {
-      selfTime = 0L;
+  /**
+   * Walks the subtree without recursion: calls may be thousands of frames deep
+   */
+  private static void fillTimeMaps(CallTree tree,
+                                   int subtreeRoot,
+                                   long[] counts,
+                                   long[] selfCounts,
+                                   BitSet trackedFrames,
+                                   int[] activeFrames) {
+    int node = subtreeRoot;
+    while (true) {
+      final int frame = tree.getFrame(node);
+      //take value only of the nearest node to the root
+      if (activeFrames[frame]++ == 0) {
+        counts[frame] += tree.getDuration(node);
+      }
+      selfCounts[frame] += tree.getSelfDuration(node);
+      trackedFrames.set(frame);
+
+      final int firstChild = tree.getFirstChild(node);
+      if (firstChild != CallTree.NONE) {
+        node = firstChild;
+        continue;
+      }
+
+      while (true) {
+        activeFrames[tree.getFrame(node)]--;
+        if (node == subtreeRoot) {
+          return;
+        }
+        final int sibling = tree.getNextSibling(node);
+        if (sibling != CallTree.NONE) {
+          node = sibling;
+          break;
+        }
+        node = tree.getParent(node);
+      }
     }
-    selfCountMap.put(node.getFrameInfo(), selfTime + currentSelfTime);
   }
 }
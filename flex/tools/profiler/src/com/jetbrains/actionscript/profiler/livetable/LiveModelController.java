@@ -1,9 +1,11 @@
 package com.jetbrains.actionscript.profiler.livetable;
 
 import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.containers.ContainerUtil;
 import com.jetbrains.actionscript.profiler.base.SortableListTreeTableModel;
 import com.jetbrains.actionscript.profiler.sampler.*;
 import com.jetbrains.actionscript.profiler.util.ResolveUtil;
+import gnu.trove.THashMap;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.tree.DefaultMutableTreeNode;
@@ -11,9 +13,8 @@ import javax.swing.tree.MutableTreeNode;
 import javax.swing.tree.TreeNode;
 import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.Map;
 
 /**
  * @author: Fedor.Korotkov
@@ -21,8 +22,11 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 public class LiveModelController implements ObjectSampleHandler {
   private static final int BYTES_IN_KB = 1000;
 
-  private final List<Sample> cache = new LinkedList<>();
-  private final ConcurrentLinkedQueue<Sample> queue = new ConcurrentLinkedQueue<>();
+  // samples are aggregated per class and allocation site until the next update of the table; sites are keyed by the frames array
+  // which is shared by all samples with the same stack
+  private final Object pendingLock = new Object();
+  private Map<String, Map<FrameInfo[], Allocations>> pending = new THashMap<>();
+  private final List<Allocations> unmatchedDeletions = new ArrayList<>();
 
   private final List<SizeInfoNode> filteredClasses = new ArrayList<>();
   private GlobalSearchScope scope;
@@ -38,21 +42,36 @@ public class LiveModelController implements ObjectSampleHandler {
   }
 
   public void apply(SortableListTreeTableModel model) {
-    while (!queue.isEmpty()) {
-      cache.add(queue.poll());
+    final Map<String, Map<FrameInfo[], Allocations>> batch;
+    synchronized (pendingLock) {
+      batch = pending;
+      pending = new THashMap<>();
     }
-    final Iterator<Sample> iterator = cache.iterator();
-    while (iterator.hasNext()) {
-      final Sample sample = iterator.next();
-      if (sample instanceof CreateObjectSample) {
-        applyCreate(model, (CreateObjectSample)sample);
-        iterator.remove();
+
+    final DefaultMutableTreeNode root = (DefaultMutableTreeNode)model.getRoot();
+    // creations go first, so that objects deleted in the same tick find their nodes
+    final List<Allocations> deletions = new ArrayList<>(unmatchedDeletions);
+    unmatchedDeletions.clear();
+    for (Map<FrameInfo[], Allocations> sites : batch.values()) {
+      for (Allocations allocations : sites.values()) {
+        if (allocations.count > 0) {
+          applyAllocations(root, allocations, true);
+        }
+        else if (allocations.count < 0) {
+          deletions.add(allocations);
+        }
+        else if (allocations.size != 0) {
+          // as many objects created as deleted, but of other sizes; nothing to change if the site isn't in the tree
+          applyAllocations(root, allocations, false);
+        }
       }
-      else if (sample instanceof DeleteObjectSample && applyDelete(model, (DeleteObjectSample)sample)) {
-        iterator.remove();
+    }
+    for (Allocations allocations : deletions) {
+      if (!applyAllocations(root, allocations, false)) {
+        unmatchedDeletions.add(allocations);
       }
     }
-    removeUselessNodes((MutableTreeNode)model.getRoot());
+    removeUselessNodes(root);
 
     filterByScope(model);
   }
@@ -94,51 +113,36 @@ public class LiveModelController implements ObjectSampleHandler {
     }
   }
 
-  private void applyCreate(SortableListTreeTableModel model,
-                           CreateObjectSample sample) {
-    final String className = sample.className;
-    final DefaultMutableTreeNode root = (DefaultMutableTreeNode)model.getRoot();
-    SizeInfoNode classNode = findChildByValue(root, className);
+  /**
+   * Adds objects of the allocation site to the class node and to the nodes of its frames
+   *
+   * @param create whether missing nodes should be created, otherwise nothing is changed if the site isn't in the tree
+   */
+  private boolean applyAllocations(DefaultMutableTreeNode root, Allocations allocations, boolean create) {
+    final SizeInfoNode[] path = new SizeInfoNode[allocations.frames.length + 1];
+    SizeInfoNode classNode = findChildByValue(root, allocations.className);
     if (classNode == null) {
-      classNode = new SizeInfoNode(className, null, 0, 0);
+      if (!create) return false;
+      classNode = new SizeInfoNode(allocations.className, null, 0, 0);
       root.insert(classNode, root.getChildCount());
     }
-    classNode.incSize(sample.size);
+    path[0] = classNode;
 
     SizeInfoNode node = classNode;
-    for (FrameInfo frameInfo : sample.frames) {
+    for (int i = 0; i < allocations.frames.length; i++) {
+      final FrameInfo frameInfo = allocations.frames[i];
       SizeInfoNode frameNode = findChildByValue(node, frameInfo.getQName());
       if (frameNode == null) {
+        if (!create) return false;
         frameNode = new SizeInfoNode(frameInfo.toSimpleString(), frameInfo, 0, 0);
         node.insert(frameNode, node.getChildCount());
       }
       node = frameNode;
-      node.incSize(sample.size);
-    }
-  }
-
-  private boolean applyDelete(SortableListTreeTableModel model,
-                              DeleteObjectSample sample) {
-    final List<SizeInfoNode> nodesForUpdate = new ArrayList<>();
-    final String className = sample.className;
-    final DefaultMutableTreeNode root = (DefaultMutableTreeNode)model.getRoot();
-    SizeInfoNode classNode = findChildByValue(root, className);
-    if (classNode == null) {
-      return false;
+      path[i + 1] = node;
     }
-    nodesForUpdate.add(classNode);
 
-    SizeInfoNode node = classNode;
-    for (FrameInfo frameInfo : sample.frames) {
-      final SizeInfoNode frameNode = findChildByValue(node, frameInfo.getQName());
-      if (frameNode == null) {
-        return false;
-      }
-      nodesForUpdate.add(frameNode);
-      node = frameNode;
-    }
-    for (SizeInfoNode sizeInfoNode : nodesForUpdate) {
-      sizeInfoNode.decSize(sample.size);
+    for (SizeInfoNode sizeInfoNode : path) {
+      sizeInfoNode.addObjects(allocations.count, allocations.size);
     }
     return true;
   }
@@ -175,7 +179,7 @@ public class LiveModelController implements ObjectSampleHandler {
   @Override
   public void processCreateSample(CreateObjectSample createObjectSample) {
     if (createObjectSample.className != null) {
-      queue.add(createObjectSample);
+      addPending(createObjectSample.className, createObjectSample.frames, 1, createObjectSample.size);
       allocatedMemorySize += createObjectSample.size;
     }
   }
@@ -183,8 +187,40 @@ public class LiveModelController implements ObjectSampleHandler {
   @Override
   public void processDeleteSample(DeleteObjectSample deleteObjectSample) {
     if (deleteObjectSample.className != null) {
-      queue.add(deleteObjectSample);
+      addPending(deleteObjectSample.className, deleteObjectSample.frames, -1, -deleteObjectSample.size);
       allocatedMemorySize -= deleteObjectSample.size;
     }
   }
+
+  private void addPending(String className, FrameInfo[] frames, int count, long size) {
+    synchronized (pendingLock) {
+      Map<FrameInfo[], Allocations> sites = pending.get(className);
+      if (sites == null) {
+        sites = new THashMap<>(ContainerUtil.<FrameInfo[]>identityStrategy());
+        pending.put(className, sites);
+      }
+      Allocations allocations = sites.get(frames);
+      if (allocations == null) {
+        allocations = new Allocations(className, frames);
+        sites.put(frames, allocations);
+      }
+      allocations.count += count;
+      allocations.size += size;
+    }
+  }
+
+  /**
+   * Objects created (positive count) or deleted (negative count) at the allocation site since the last update
+   */
+  private static class Allocations {
+    private final String className;
+    private final FrameInfo[] frames;
+    private int count;
+    private long size;
+
+    private Allocations(String className, FrameInfo[] frames) {
+      this.className = className;
+      this.frames = frames;
+    }
+  }
 }
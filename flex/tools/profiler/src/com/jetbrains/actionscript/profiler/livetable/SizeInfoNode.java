@@ -48,15 +48,12 @@ public class SizeInfoNode extends DefaultMutableTreeNode implements FrameInfoPro
     return count;
   }
 
-  public void incSize(long size) {
+  /**
+   * @param count number of created objects, negative for deleted ones
+   */
+  public void addObjects(int count, long size) {
+    this.count += count;
     this.size += size;
-    ++count;
-  }
-
-
-  public void decSize(long size) {
-    this.size -= size;
-    --count;
   }
 
   public boolean isMethod() {
@@ -0,0 +1,125 @@
+package com.jetbrains.actionscript.profiler.model;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Message received from the profiler agent (a string written by <code>writeUTF</code>). The buffer is reused for all messages,
+ * numbers and markers are parsed right from the bytes, so most sample lines are processed without creating strings.
+ */
+class AgentMessage {
+  private byte[] bytes = new byte[1024];
+  private int length;
+  private String string;
+
+  void readFrom(DataInput in) throws IOException {
+    length = in.readUnsignedShort();
+    if (length > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(length, bytes.length * 2));
+    }
+    in.readFully(bytes, 0, length);
+    string = null;
+  }
+
+  int length() {
+    return length;
+  }
+
+  boolean isEmpty() {
+    return length == 0;
+  }
+
+  byte byteAt(int index) {
+    return bytes[index];
+  }
+
+  boolean isDigitAt(int index) {
+    return index < length && bytes[index] >= '0' && bytes[index] <= '9';
+  }
+
+  /**
+   * @param prefix ASCII string. The agent writes <code>\0</code> as a zero byte, not as modified UTF-8 does.
+   */
+  boolean startsWith(String prefix) {
+    return startsWith(prefix, 0);
+  }
+
+  boolean startsWith(String prefix, int offset) {
+    if (offset + prefix.length() > length) return false;
+    for (int i = 0; i < prefix.length(); i++) {
+      if (bytes[offset + i] != prefix.charAt(i)) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Multibyte chars never contain ASCII bytes, so it works for any ASCII char
+   */
+  int indexOf(char c, int from) {
+    for (int i = from; i < length; i++) {
+      if (bytes[i] == c) return i;
+    }
+    return -1;
+  }
+
+  int parseInt(int from, int to) {
+    final long result = parseLong(from, to);
+    if (result != (int)result) throw new NumberFormatException(substring(from, to));
+    return (int)result;
+  }
+
+  long parseLong(int from, int to) {
+    final boolean negative = from < to && bytes[from] == '-';
+    int i = negative ? from + 1 : from;
+    if (i >= to) throw new NumberFormatException(substring(from, to));
+
+    long result = 0;
+    for (; i < to; i++) {
+      final int digit = bytes[i] - '0';
+      if (digit < 0 || digit > 9) throw new NumberFormatException(substring(from, to));
+      result = result * 10 + digit;
+    }
+    return negative ? -result : result;
+  }
+
+  /**
+   * Decodes modified UTF-8, as {@link java.io.DataInputStream#readUTF} does
+   */
+  String substring(int from, int to) {
+    final char[] chars = new char[to - from];
+    int count = 0;
+    int i = from;
+    while (i < to) {
+      final int b = bytes[i] & 0xff;
+      if (b < 0x80) {
+        chars[count++] = (char)b;
+        i++;
+      }
+      else if ((b >> 5) == 0x6 && i + 1 < to) {
+        chars[count++] = (char)(((b & 0x1f) << 6) | (bytes[i + 1] & 0x3f));
+        i += 2;
+      }
+      else if ((b >> 4) == 0xe && i + 2 < to) {
+        chars[count++] = (char)(((b & 0x0f) << 12) | ((bytes[i + 1] & 0x3f) << 6) | (bytes[i + 2] & 0x3f));
+        i += 3;
+      }
+      else {
+        throw new IllegalArgumentException("Malformed input around byte " + i);
+      }
+    }
+    return new String(chars, 0, count);
+  }
+
+  String substring(int from) {
+    return substring(from, length);
+  }
+
+  @Override
+  public String toString() {
+    if (string == null) {
+      string = substring(0, length);
+    }
+    return string;
+  }
+}
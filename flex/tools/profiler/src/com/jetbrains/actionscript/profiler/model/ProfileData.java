@@ -5,11 +5,7 @@ import com.jetbrains.actionscript.profiler.calltree.CallTree;
 import com.jetbrains.actionscript.profiler.livetable.LiveModelController;
 import com.jetbrains.actionscript.profiler.sampler.CreateObjectSample;
 import com.jetbrains.actionscript.profiler.sampler.Sample;
-
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.Set;
+import gnu.trove.TIntObjectHashMap;
 
 /**
  * @author: Fedor.Korotkov
@@ -20,14 +16,15 @@ public class ProfileData {
   public static final Key<ProfilingManager> PROFILING_MANAGER = Key.create("ASProfilingManager");
 
   private CallTree callTree = new CallTree();
-  private final Map<Integer, CreateObjectSample> objects = new HashMap<>();
-  private final Map<Integer, Set<Integer>> references = new LinkedHashMap<>(50);
+  // live objects by id, there may be millions of them, so ids are not boxed
+  private final TIntObjectHashMap<CreateObjectSample> objects = new TIntObjectHashMap<>();
+  private final ReferenceTable references = new ReferenceTable();
 
   public CallTree getCallTree() {
     return callTree;
   }
 
-  public Map<Integer, Set<Integer>> getReferences() {
+  public ReferenceTable getReferences() {
     return references;
   }
 
@@ -6,9 +6,6 @@ import com.jetbrains.actionscript.profiler.sampler.ObjectSampleHandler;
 import com.jetbrains.actionscript.profiler.sampler.Sample;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.LinkedHashSet;
-import java.util.Set;
-
 public class ProfilerDataConsumer {
   private final ProfileData profileData = new ProfileData();
   @Nullable private final ObjectSampleHandler objectSampleHandler;
@@ -45,12 +42,7 @@ public class ProfilerDataConsumer {
   }
 
   public void referenced(int pid, int id) {
-    Set<Integer> integers = profileData.getReferences().get(pid);
-    if (integers == null) {
-      integers = new LinkedHashSet<>(3);
-      profileData.getReferences().put(pid, integers);
-    }
-    integers.add(id);
+    profileData.getReferences().add(pid, id);
   }
 
   public void resetCpuUsageData() {
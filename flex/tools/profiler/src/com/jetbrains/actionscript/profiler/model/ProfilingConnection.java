@@ -4,6 +4,7 @@ import com.intellij.javascript.flex.mxml.schema.CodeContext;
 import com.intellij.lang.javascript.psi.JSCommonTypeNames;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.ArrayUtil;
 import com.jetbrains.actionscript.profiler.sampler.*;
 import org.jetbrains.annotations.Nullable;
 
@@ -11,9 +12,7 @@ import java.io.*;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Map;
+import java.util.*;
 
 public class ProfilingConnection {
   private static final Logger LOG = Logger.getInstance(ProfilingConnection.class.getName());
@@ -23,6 +22,7 @@ public class ProfilingConnection {
   private DataInputStream myInputStream;
   private PacketProcessor myCurrentPacketProcessor;
   private final Map<String, PacketProcessor> myInitialString2ProcessorsMap = new HashMap<>();
+  private final String[] myMarkers;
   private final Callback myIoHandler;
   private final int myPort;
   private static final int ourAgentVersion = 4;
@@ -72,6 +72,7 @@ public class ProfilingConnection {
       new SampleInfoProcessor(sampleProcessor)
     );
 
+    myMarkers = ArrayUtil.toStringArray(myInitialString2ProcessorsMap.keySet());
     myIoHandler = ioHandler;
   }
 
@@ -101,31 +102,17 @@ public class ProfilingConnection {
     }
 
     ApplicationManager.getApplication().executeOnPooledThread(() -> {
+      final AgentMessage message = new AgentMessage();
       int bytesRead = 0;
       try {
         while (true) {
-          String x = myInputStream.readUTF();
-          if (x == null) break;
-          LOG.debug(x);
-          bytesRead += x.length();
+          message.readFrom(myInputStream);
+          if (LOG.isDebugEnabled()) {
+            LOG.debug(message.toString());
+          }
+          bytesRead += message.length();
           try {
-            if (myCurrentPacketProcessor == null) {
-              String marker = x;
-              int i = x.indexOf('\0');
-              if (i != -1) marker = x.substring(0, i + 1);
-              myCurrentPacketProcessor = myInitialString2ProcessorsMap.get(marker);
-              if (myCurrentPacketProcessor != null) {
-                myCurrentPacketProcessor.startingPacket(x);
-              }
-            }
-            if (myCurrentPacketProcessor != null) {
-              PacketProcessor.ProcessingResult processingResult = myCurrentPacketProcessor.process(x);
-              if (processingResult == PacketProcessor.ProcessingResult.FINISHED) myCurrentPacketProcessor = null;
-              if (processingResult == PacketProcessor.ProcessingResult.STOP) return;
-            }
-            else {
-              LOG.warn("No processing:" + x);
-            }
+            if (!dispatch(message)) return;
           }
           catch (Exception e) {
             LOG.error(e);
@@ -142,6 +129,40 @@ public class ProfilingConnection {
     });
   }
 
+  /**
+   * @return <code>false</code> if no more messages should be read from the connection
+   */
+  boolean dispatch(AgentMessage message) throws IOException {
+    if (myCurrentPacketProcessor == null) {
+      myCurrentPacketProcessor = findProcessor(message);
+      if (myCurrentPacketProcessor != null) {
+        myCurrentPacketProcessor.startingPacket(message);
+      }
+    }
+    if (myCurrentPacketProcessor != null) {
+      PacketProcessor.ProcessingResult processingResult = myCurrentPacketProcessor.process(message);
+      if (processingResult == PacketProcessor.ProcessingResult.FINISHED) myCurrentPacketProcessor = null;
+      if (processingResult == PacketProcessor.ProcessingResult.STOP) return false;
+    }
+    else {
+      LOG.warn("No processing:" + message);
+    }
+    return true;
+  }
+
+  /**
+   * Packet starts with a marker ending with the first <code>\0</code>, every sample is a packet
+   */
+  @Nullable
+  private PacketProcessor findProcessor(AgentMessage message) {
+    for (String marker : myMarkers) {
+      if (message.startsWith(marker)) {
+        return myInitialString2ProcessorsMap.get(marker);
+      }
+    }
+    return null;
+  }
+
   private void ensurePolicyServedEvenOnFlashSecurityPort() {
     ApplicationManager.getApplication().executeOnPooledThread(() -> {
       try {
@@ -234,10 +255,10 @@ public class ProfilingConnection {
       CONTINUE, FINISHED, STOP
     }
 
-    void startingPacket(String output) {
+    void startingPacket(AgentMessage message) {
     }
 
-    abstract ProcessingResult process(String output) throws IOException;
+    abstract ProcessingResult process(AgentMessage message) throws IOException;
   }
 
   class PolicyFileRequestProcessor extends PacketProcessor {
@@ -249,7 +270,7 @@ public class ProfilingConnection {
     }
 
     @Override
-    ProcessingResult process(String output) throws IOException {
+    ProcessingResult process(AgentMessage message) throws IOException {
       String s = policyFileRequestAnswer(myPort);
       synchronized (myOutputStream) {
         LOG.debug("policy served");     // TODO merge with FlexUnit code
@@ -274,22 +295,34 @@ public class ProfilingConnection {
     private static final String SAMPLE_MARKER = "s\0";
     private static final String CREATE_OBJECT_SAMPLE_MARKER = "c\0";
     private static final String DELETE_OBJECT_SAMPLE_MARKER = "d\0";
+    private static final String SAME_FRAMES_MARKER = "u>:";
+
+    private static final int CPU_SAMPLE = 1;
+    private static final int CREATE_OBJECT_SAMPLE = 2;
+    private static final int DELETE_OBJECT_SAMPLE = 3;
 
     private final ProfilerDataConsumer mySampleProcessor;
 
     private long sampleDuration = -1;
     private int frameIndex;
 
-    private final Map<String, String> dictionary = new HashMap<>(1000);
-    private final Map<String, String> typeDictionary = new HashMap<>(1000);
-    private FrameInfo[] frames;
-    private String type;
-    private String specialArgs;
+    // frames and class names are sent once, later they are referred to by number: frame ids start with 1, class ids with 0
+    private final List<FrameInfo> frameDictionary = new ArrayList<>(1000);
+    private final List<String> typeDictionary = new ArrayList<>(1000);
+    private final StackTrie stacks = new StackTrie();
+
+    private int sampleKind;
+    private int[] frameIds = new int[64];
+    private int frameCount;
+    private int objectId;
+    private String objectType;
+    private int objectSize;
+
     static final int INDEX = SAMPLE_MARKER.length();
     private int cpuSamples;
     private int memorySamples;
-    private Sample lastCpuSample;
-    private Sample lastCreateObjectSample;
+    private int lastCpuStack = -1;
+    private int lastCreateObjectStack = -1;
     private final FrameInfoBuilder frameInfoBuilder = new FrameInfoBuilder();
 
     public BatchSamplesProcessor(ProfilerDataConsumer sampleProcessor) {
@@ -297,145 +330,147 @@ public class ProfilingConnection {
     }
 
     @Override
-    ProcessingResult process(String output) throws IOException {
+    ProcessingResult process(AgentMessage message) throws IOException {
       if (frameIndex == -1) {
-        if (output.startsWith(BATCH_MARKER)) return ProcessingResult.FINISHED;
+        if (message.startsWith(BATCH_MARKER)) return ProcessingResult.FINISHED;
 
-        int i = INDEX + 1; //output.indexOf(' ', INDEX);
-        final boolean cpuSample = output.startsWith(SAMPLE_MARKER);
+        int i = INDEX + 1; //message.indexOf(' ', INDEX);
+        final int kind = message.startsWith(SAMPLE_MARKER) ? CPU_SAMPLE :
+                         message.startsWith(CREATE_OBJECT_SAMPLE_MARKER) ? CREATE_OBJECT_SAMPLE :
+                         message.startsWith(DELETE_OBJECT_SAMPLE_MARKER) ? DELETE_OBJECT_SAMPLE : 0;
 
-        if (cpuSample) {
-          i = output.indexOf(' ', INDEX);
-          sampleDuration = Long.parseLong(output.substring(INDEX, i));
+        if (kind == CPU_SAMPLE) {
+          i = message.indexOf(' ', INDEX);
+          sampleDuration = message.parseLong(INDEX, i);
           i += 2;
         }
 
-        if (cpuSample ||
-            output.startsWith(CREATE_OBJECT_SAMPLE_MARKER) ||
-            output.startsWith(DELETE_OBJECT_SAMPLE_MARKER)) {
-          int i2 = output.indexOf(' ', i);
-          int frameCount = Integer.parseInt(output.substring(i - 1, i2 != -1 ? i2 : output.length()));
-          frames = frameCount > 0 ? new FrameInfo[frameCount] : FrameInfo.EMPTY_FRAME_INFO_ARRAY;
+        if (kind != 0) {
+          int i2 = message.indexOf(' ', i);
+          frameCount = message.parseInt(i - 1, i2 != -1 ? i2 : message.length());
+          if (frameCount > frameIds.length) {
+            frameIds = new int[Math.max(frameCount, frameIds.length * 2)];
+          }
+          if (kind != CPU_SAMPLE) {
+            if (i2 == -1) {
+              LOG.warn("Unexpected:" + message);
+              return ProcessingResult.FINISHED;
+            }
+            parseObjectArgs(message, i2 + 1);
+          }
           frameIndex = 0;
-          type = output;
-          specialArgs = i2 != -1 ? output.substring(i2 + 1) : "";
+          sampleKind = kind;
 
           return maybeFinishSample();
         }
       }
 
-      if (frames != null && frameIndex >= 0 && frameIndex < frames.length) {
-
-        char ch = output.charAt(0);
-        if (output.startsWith("u>:")) {
-          int count = Integer.parseInt(output.substring(output.indexOf(':') + 1));
-          Sample s =
-            type.startsWith(CREATE_OBJECT_SAMPLE_MARKER) ? lastCreateObjectSample : type.startsWith(SAMPLE_MARKER) ? lastCpuSample : null;
-          for (int i = s.frames.length - count; i < s.frames.length; ++i) {
-            frames[frameIndex++] = s.frames[i];
+      if (sampleKind != 0 && frameIndex >= 0 && frameIndex < frameCount) {
+        if (message.startsWith(SAME_FRAMES_MARKER)) {
+          // bottom frames are the same as in the previous sample of this kind
+          int count = message.parseInt(SAME_FRAMES_MARKER.length(), message.length());
+          int s = sampleKind == CREATE_OBJECT_SAMPLE ? lastCreateObjectStack : sampleKind == CPU_SAMPLE ? lastCpuStack : -1;
+          if (s == -1) {
+            LOG.warn("Unexpected:" + message);
+            return ProcessingResult.FINISHED;
+          }
+          for (s = stacks.getBottom(s, count); s != StackTrie.EMPTY_STACK && frameIndex < frameCount; s = stacks.getParent(s)) {
+            frameIds[frameIndex++] = stacks.getTopFrameId(s);
           }
         }
+        else if (message.isDigitAt(0)) {
+          frameIds[frameIndex++] = message.parseInt(0, message.length());
+        }
         else {
-          if (Character.isDigit(ch)) {
-            output = dictionary.get(output);
-          }
-          else {
-            dictionary.put("" + (dictionary.size() + 1), output);
-          }
-
-          frames[frameIndex++] = frameInfoBuilder.buildInstance(output);
+          frameDictionary.add(frameInfoBuilder.buildInstance(message.toString()));
+          frameIds[frameIndex++] = frameDictionary.size();
         }
         return maybeFinishSample();
       }
 
-      LOG.warn("Unexpected:" + output);
+      LOG.warn("Unexpected:" + message);
 
       return ProcessingResult.FINISHED;
     }
 
+    private void parseObjectArgs(AgentMessage message, int start) {
+      final int endIndex = message.indexOf(' ', start);
+      int endIndex2 = message.indexOf(' ', endIndex + 1);
+      if (endIndex2 == -1) endIndex2 = message.length();
+
+      objectId = message.parseInt(start, endIndex);
+      objectType = getClassName(message, endIndex + 1, endIndex2);
+      objectSize = endIndex2 != message.length() ? message.parseInt(endIndex2 + 1, message.length()) : 0;
+    }
+
     private ProcessingResult maybeFinishSample() {
-      if (frameIndex == frames.length) {
-        Sample sample;
-        if (type.startsWith(CREATE_OBJECT_SAMPLE_MARKER)) {
-          ++memorySamples;
-          final int endIndex = specialArgs.indexOf(' ');
-          final int endIndex2 = specialArgs.indexOf(' ', endIndex + 1);
-
-          final int id = Integer.parseInt(specialArgs.substring(0, endIndex));
-          String className = specialArgs.substring(endIndex + 1, endIndex2);
-          className = getClassName(className);
-          final int size = Integer.parseInt(specialArgs.substring(endIndex2 + 1));
-          sample = new CreateObjectSample(
-            sampleDuration,
-            frames,
-            id,
-            className,
-            size
-          );
-          lastCreateObjectSample = sample;
-        }
-        else if (type.startsWith(DELETE_OBJECT_SAMPLE_MARKER)) {
-          ++memorySamples;
-          final int endIndex = specialArgs.indexOf(' ');
-          int endIndex2 = specialArgs.indexOf(' ', endIndex + 1);
-          if (endIndex2 == -1) endIndex2 = specialArgs.length();
-          final int id = Integer.parseInt(specialArgs.substring(0, endIndex));
-          String type = specialArgs.substring(endIndex + 1, endIndex2);
-          final int size = endIndex2 != specialArgs.length() ? Integer.parseInt(specialArgs.substring(endIndex2 + 1)) : 0;
-          if (type != null) {
-            type = getClassName(type);
-            mySampleProcessor.process(new DeleteObjectSample(sampleDuration, frames, id, type, size));
-          }
-          return ProcessingResult.FINISHED;
-        }
-        else {
-          ++cpuSamples;
-          sample = new Sample(sampleDuration, frames);
-          lastCpuSample = sample;
-        }
-        mySampleProcessor.process(sample);
-        frameIndex = -1;
-        return ProcessingResult.FINISHED;
+      if (frameIndex < frameCount) {
+        return ProcessingResult.CONTINUE;
+      }
+
+      int stack = StackTrie.EMPTY_STACK;
+      for (int i = frameCount - 1; i >= 0; i--) {
+        stack = stacks.getChild(stack, frameIds[i], frameDictionary.get(frameIds[i] - 1));
+      }
+      final FrameInfo[] frames = stacks.getFrames(stack);
+
+      final Sample sample;
+      if (sampleKind == CREATE_OBJECT_SAMPLE) {
+        ++memorySamples;
+        sample = new CreateObjectSample(sampleDuration, frames, objectId, objectType, objectSize);
+        lastCreateObjectStack = stack;
+      }
+      else if (sampleKind == DELETE_OBJECT_SAMPLE) {
+        ++memorySamples;
+        sample = new DeleteObjectSample(sampleDuration, frames, objectId, objectType, objectSize);
       }
       else {
-        return ProcessingResult.CONTINUE;
+        ++cpuSamples;
+        sample = new Sample(sampleDuration, frames);
+        lastCpuStack = stack;
       }
+      mySampleProcessor.process(sample);
+      frameIndex = -1;
+      return ProcessingResult.FINISHED;
     }
 
-    private String getClassName(String className) {
-      if (Character.isDigit(className.charAt(0))) {
-        className = typeDictionary.get(className);
+    private String getClassName(AgentMessage message, int start, int end) {
+      if (message.isDigitAt(start)) {
+        final int index = message.parseInt(start, end);
+        return index < typeDictionary.size() ? typeDictionary.get(index) : null;
       }
-      else {
-        className = className.replace("::", ".");
-        if (className.startsWith(CodeContext.AS3_VEC_VECTOR_QUALIFIED_NAME)) {
-          className = JSCommonTypeNames.VECTOR_CLASS_NAME + className.substring(CodeContext.AS3_VEC_VECTOR_QUALIFIED_NAME.length());
-        }
-        typeDictionary.put(String.valueOf(typeDictionary.size()), className);
+
+      String className = message.substring(start, end).replace("::", ".");
+      if (className.startsWith(CodeContext.AS3_VEC_VECTOR_QUALIFIED_NAME)) {
+        className = JSCommonTypeNames.VECTOR_CLASS_NAME + className.substring(CodeContext.AS3_VEC_VECTOR_QUALIFIED_NAME.length());
       }
+      typeDictionary.add(className);
       return className;
     }
 
-    void startingPacket(String output) {
-      if (output.startsWith(BATCH_MARKER)) {
+    @Override
+    void startingPacket(AgentMessage message) {
+      if (message.startsWith(BATCH_MARKER)) {
         if (LOG.isDebugEnabled()) {
-          LOG.debug(output + "," + System.currentTimeMillis() + "," + cpuSamples + "," + memorySamples);
+          LOG.debug(message + "," + System.currentTimeMillis() + "," + cpuSamples + "," + memorySamples + "," +
+                    frameDictionary.size() + " frames," + stacks.size() + " stacks");
         }
         memorySamples = 0;
         cpuSamples = 0;
       }
 
       frameIndex = -1;
-      frames = null;
-      type = null;
-      specialArgs = null;
+      frameCount = 0;
+      sampleKind = 0;
+      objectType = null;
     }
 
     private void clearProfilingState() {
-      dictionary.clear();
+      frameDictionary.clear();
       typeDictionary.clear();
-      lastCpuSample = null;
-      lastCreateObjectSample = null;
+      stacks.clear();
+      lastCpuStack = -1;
+      lastCreateObjectStack = -1;
       cpuSamples = 0;
       memorySamples = 0;
     }
@@ -445,12 +480,12 @@ public class ProfilingConnection {
     static final String END_COMMAND_MARKER = "e\0";
 
     @Override
-    ProcessingResult process(String output) throws IOException {
+    ProcessingResult process(AgentMessage message) throws IOException {
       Callback callback;
       synchronized (myOutputStream) {
         callback = callbacks.removeFirst();
       }
-      callback.finished(output, null);
+      callback.finished(message.toString(), null);
       return ProcessingResult.FINISHED;
     }
   }
@@ -459,7 +494,8 @@ public class ProfilingConnection {
     static final String VERSION_COMMAND_MARKER = "v\0";
 
     @Override
-    ProcessingResult process(String output) throws IOException {
+    ProcessingResult process(AgentMessage message) throws IOException {
+      final String output = message.toString();
       if (Integer.parseInt(output.substring(output.lastIndexOf(' ') + 1)) != ourAgentVersion) {
         LOG.warn("Version mismatch");
         myIoHandler.finished(null, new AgentVersionMismatchProblem());
@@ -479,22 +515,26 @@ public class ProfilingConnection {
     }
 
     @Override
-    ProcessingResult process(String output) throws IOException {
-      if (output.startsWith("EndSnapshot")) return ProcessingResult.FINISHED;
-      if (output.startsWith(COMMAND_MARKER)) return ProcessingResult.CONTINUE;
-      if (output.startsWith("cls:")) {
+    ProcessingResult process(AgentMessage message) throws IOException {
+      if (message.startsWith("EndSnapshot")) return ProcessingResult.FINISHED;
+      if (message.startsWith(COMMAND_MARKER)) return ProcessingResult.CONTINUE;
+      if (message.startsWith("cls:")) {
         return ProcessingResult.CONTINUE;
       }
 
-      int i = output.indexOf(',');
-      int id = Integer.parseInt(output.substring(0, i));
+      int i = message.indexOf(',', 0);
+      if (i == -1) {
+        LOG.warn("Unexpected:" + message);
+        return ProcessingResult.CONTINUE;
+      }
+      int id = message.parseInt(0, i);
 
       while (i != -1) {
-        int nextI = output.indexOf(',', i + 1);
-        if (nextI == -1) nextI = output.length();
-        int nextId = Integer.parseInt(output.substring(i + 1, nextI));
+        int nextI = message.indexOf(',', i + 1);
+        if (nextI == -1) nextI = message.length();
+        int nextId = message.parseInt(i + 1, nextI);
         myDataConsumer.referenced(id, nextId);
-        if (nextI == output.length()) break;
+        if (nextI == message.length()) break;
         i = nextI;
       }
       return ProcessingResult.CONTINUE;
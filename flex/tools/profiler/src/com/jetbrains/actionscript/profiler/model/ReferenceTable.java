@@ -0,0 +1,101 @@
+package com.jetbrains.actionscript.profiler.model;
+
+import gnu.trove.TIntHashSet;
+import gnu.trove.TIntIntHashMap;
+import gnu.trove.TIntObjectHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Object references reported by the agent: adjacency list of ids referenced by every referrer, referrers are kept in the order they
+ * were reported. Lists are plain int arrays; a hash set to skip duplicates is created only for long lists.
+ */
+public class ReferenceTable {
+  private static final int MAX_LINEAR_LOOKUP = 16;
+  private static final int[] EMPTY = new int[0];
+
+  // referrer -> row
+  private final TIntIntHashMap rows = new TIntIntHashMap();
+  private final TIntObjectHashMap<TIntHashSet> rowSets = new TIntObjectHashMap<>();
+  private int[] referrers = new int[64];
+  private int[][] references = new int[64][];
+  private int[] sizes = new int[64];
+  private int rowCount;
+
+  public void add(int referrer, int id) {
+    int row;
+    if (rows.containsKey(referrer)) {
+      row = rows.get(referrer);
+    }
+    else {
+      row = rowCount++;
+      if (row == referrers.length) {
+        referrers = Arrays.copyOf(referrers, row * 2);
+        references = Arrays.copyOf(references, row * 2);
+        sizes = Arrays.copyOf(sizes, row * 2);
+      }
+      referrers[row] = referrer;
+      references[row] = new int[2];
+      sizes[row] = 0;
+      rows.put(referrer, row);
+    }
+
+    if (contains(row, id)) {
+      return;
+    }
+
+    int[] list = references[row];
+    final int size = sizes[row];
+    if (size == list.length) {
+      list = references[row] = Arrays.copyOf(list, size * 2);
+    }
+    list[size] = id;
+    sizes[row] = size + 1;
+
+    if (size + 1 == MAX_LINEAR_LOOKUP) {
+      rowSets.put(row, new TIntHashSet(Arrays.copyOf(list, size + 1)));
+    }
+    else if (size + 1 > MAX_LINEAR_LOOKUP) {
+      rowSets.get(row).add(id);
+    }
+  }
+
+  private boolean contains(int row, int id) {
+    final int size = sizes[row];
+    if (size >= MAX_LINEAR_LOOKUP) {
+      return rowSets.get(row).contains(id);
+    }
+
+    final int[] list = references[row];
+    for (int i = 0; i < size; i++) {
+      if (list[i] == id) return true;
+    }
+    return false;
+  }
+
+  public int getReferrerCount() {
+    return rowCount;
+  }
+
+  public int getReferrer(int index) {
+    return referrers[index];
+  }
+
+  /**
+   * @return ids referenced by the object, in the order they were reported
+   */
+  public int[] getReferences(int referrer) {
+    if (!rows.containsKey(referrer)) {
+      return EMPTY;
+    }
+    final int row = rows.get(referrer);
+    return Arrays.copyOf(references[row], sizes[row]);
+  }
+
+  public void clear() {
+    rows.clear();
+    rowSets.clear();
+    Arrays.fill(references, 0, rowCount, null);
+    rowCount = 0;
+  }
+}
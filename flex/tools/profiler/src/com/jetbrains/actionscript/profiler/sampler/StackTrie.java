@@ -0,0 +1,108 @@
+package com.jetbrains.actionscript.profiler.sampler;
+
+import gnu.trove.TLongIntHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Call stacks of received samples interned to int ids. A stack is a node, its parent is the stack without the top frame,
+ * so samples taken in the same place share the node and its {@link FrameInfo} array.
+ */
+public class StackTrie {
+  public static final int EMPTY_STACK = 0;
+
+  private int[] parents = new int[1024];
+  private int[] frameIds = new int[1024];
+  private int[] depths = new int[1024];
+  private FrameInfo[] tops = new FrameInfo[1024];
+  private FrameInfo[][] frames = new FrameInfo[1024][];
+  private int size;
+
+  // (parent, frame id) -> child
+  private final TLongIntHashMap children = new TLongIntHashMap();
+
+  public StackTrie() {
+    clear();
+  }
+
+  public void clear() {
+    children.clear();
+    Arrays.fill(tops, null);
+    Arrays.fill(frames, null);
+    size = 1;
+    parents[EMPTY_STACK] = -1;
+    frameIds[EMPTY_STACK] = -1;
+    depths[EMPTY_STACK] = 0;
+    frames[EMPTY_STACK] = FrameInfo.EMPTY_FRAME_INFO_ARRAY;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return stack with the frame called from the parent stack
+   */
+  public int getChild(int parent, int frameId, FrameInfo frame) {
+    final long key = ((long)parent << 32) | (frameId & 0xffffffffL);
+    int child = children.get(key);
+    if (child == 0) {
+      child = size++;
+      ensureCapacity(size);
+      parents[child] = parent;
+      frameIds[child] = frameId;
+      depths[child] = depths[parent] + 1;
+      tops[child] = frame;
+      frames[child] = null;
+      children.put(key, child);
+    }
+    return child;
+  }
+
+  public int getParent(int stack) {
+    return parents[stack];
+  }
+
+  public int getTopFrameId(int stack) {
+    return frameIds[stack];
+  }
+
+  public int getDepth(int stack) {
+    return depths[stack];
+  }
+
+  /**
+   * @return bottom part of the stack containing the given number of frames
+   */
+  public int getBottom(int stack, int depth) {
+    for (int i = depths[stack] - depth; i > 0; i--) {
+      stack = parents[stack];
+    }
+    return stack;
+  }
+
+  /**
+   * @return frames of the stack, top frame first. The array is shared by all samples with this stack and must not be modified.
+   */
+  public FrameInfo[] getFrames(int stack) {
+    FrameInfo[] result = frames[stack];
+    if (result == null) {
+      result = new FrameInfo[depths[stack]];
+      for (int i = 0, node = stack; i < result.length; i++, node = parents[node]) {
+        result[i] = tops[node];
+      }
+      frames[stack] = result;
+    }
+    return result;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity <= parents.length) return;
+    final int newLength = Math.max(capacity, parents.length * 2);
+    parents = Arrays.copyOf(parents, newLength);
+    frameIds = Arrays.copyOf(frameIds, newLength);
+    depths = Arrays.copyOf(depths, newLength);
+    tops = Arrays.copyOf(tops, newLength);
+    frames = Arrays.copyOf(frames, newLength);
+  }
+}
@@ -0,0 +1,88 @@
+package com.jetbrains.actionscript.profiler.calltree;
+
+import com.intellij.openapi.util.Pair;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
+import com.jetbrains.actionscript.profiler.sampler.FrameUtil;
+import junit.framework.TestCase;
+
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Caller and callee queries over a synthetic deep tree, as a CPU snapshot view does when a user clicks through it
+ */
+public class CallTreeBenchmarkTest extends TestCase {
+  private static final int SAMPLES = 100000;
+  private static final int STACKS = 5000;
+  private static final int FUNCTIONS = 300;
+  private static final int MAX_DEPTH = 400;
+  private static final int QUERIES = 200;
+
+  public void testDeepTree() {
+    final Random random = new Random(42);
+    final FrameInfo[] functions = new FrameInfo[FUNCTIONS];
+    for (int i = 0; i < FUNCTIONS; i++) {
+      functions[i] = FrameUtil.getFrameInfo("f" + i);
+    }
+
+    // distinct stacks share bottom frames, as in a real application; stacks are bottom frame first here
+    final int[][] stacks = new int[STACKS][];
+    stacks[0] = new int[]{0};
+    for (int i = 1; i < STACKS; i++) {
+      final int[] base = stacks[random.nextInt(i)];
+      final int[] stack = new int[1 + random.nextInt(MAX_DEPTH)];
+      final int shared = Math.min(base.length, random.nextInt(stack.length));
+      System.arraycopy(base, 0, stack, 0, shared);
+      for (int j = shared; j < stack.length; j++) {
+        // recursion or a call of another function
+        stack[j] = j > 0 && random.nextInt(8) == 0 ? stack[j - 1] : random.nextInt(FUNCTIONS);
+      }
+      stacks[i] = stack;
+    }
+
+    final int[] sampleStacks = new int[SAMPLES];
+    final long[] durations = new long[SAMPLES];
+    long totalDuration = 0;
+    for (int sample = 0; sample < SAMPLES; sample++) {
+      sampleStacks[sample] = random.nextInt(STACKS);
+      durations[sample] = 1 + random.nextInt(100);
+      totalDuration += durations[sample];
+    }
+
+    final FrameInfo[][] queries = new FrameInfo[QUERIES][];
+    for (int i = 0; i < QUERIES; i++) {
+      queries[i] = i % 2 == 0
+                   ? new FrameInfo[]{functions[random.nextInt(FUNCTIONS)]}
+                   : new FrameInfo[]{functions[random.nextInt(FUNCTIONS)], functions[random.nextInt(FUNCTIONS)]};
+    }
+
+    final long expectedSelfTime = totalDuration;
+    PlatformTestUtil.startPerformanceTest("Call tree build and caller/callee queries", 5000, () -> {
+      final CallTree tree = new CallTree();
+      for (int sample = 0; sample < SAMPLES; sample++) {
+        final int[] stack = stacks[sampleStacks[sample]];
+        final FrameInfo[] frames = new FrameInfo[stack.length];
+        for (int i = 0; i < stack.length; i++) {
+          frames[stack.length - 1 - i] = functions[stack[i]];
+        }
+        tree.addFrames(frames, durations[sample]);
+      }
+
+      final Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> timeMaps = tree.getTimeMaps();
+      long totalSelfTime = 0;
+      for (long selfTime : timeMaps.getSecond().values()) {
+        totalSelfTime += selfTime;
+      }
+      assertEquals(expectedSelfTime, totalSelfTime);
+      assertSame(timeMaps, tree.getTimeMaps());
+
+      for (FrameInfo[] query : queries) {
+        assertSame(tree.getCallersTimeMaps(query), tree.getCallersTimeMaps(query));
+        assertSame(tree.getCalleesTimeMaps(query), tree.getCalleesTimeMaps(query));
+      }
+
+      assertEquals(tree.getNodeCount(), CallTreeUtil.filterSystemStuff(tree).getNodeCount());
+    }).assertTiming();
+  }
+}
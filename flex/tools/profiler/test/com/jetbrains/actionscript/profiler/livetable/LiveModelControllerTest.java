@@ -0,0 +1,56 @@
+package com.jetbrains.actionscript.profiler.livetable;
+
+import com.intellij.util.ui.ColumnInfo;
+import com.jetbrains.actionscript.profiler.base.SortableListTreeTableModel;
+import com.jetbrains.actionscript.profiler.sampler.CreateObjectSample;
+import com.jetbrains.actionscript.profiler.sampler.DeleteObjectSample;
+import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
+import com.jetbrains.actionscript.profiler.sampler.FrameUtil;
+import junit.framework.TestCase;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+
+public class LiveModelControllerTest extends TestCase {
+  private static final String CLASS_NAME = "com.test::Item";
+
+  private final FrameInfo[] frames = {FrameUtil.getFrameInfo("create"), FrameUtil.getFrameInfo("main")};
+  private final LiveModelController controller = new LiveModelController();
+  private final SortableListTreeTableModel model = new SortableListTreeTableModel(new DefaultMutableTreeNode(), new ColumnInfo[0]);
+
+  public void testCreateAndDelete() {
+    controller.processCreateSample(new CreateObjectSample(0, frames, 1, CLASS_NAME, 100));
+    controller.processCreateSample(new CreateObjectSample(0, frames, 2, CLASS_NAME, 30));
+    controller.apply(model);
+    checkClassNode(2, 130);
+
+    controller.processDeleteSample(new DeleteObjectSample(0, frames, 1, CLASS_NAME, 100));
+    controller.apply(model);
+    checkClassNode(1, 30);
+  }
+
+  public void testCreateAndDeleteInSameTick() {
+    controller.processCreateSample(new CreateObjectSample(0, frames, 1, CLASS_NAME, 100));
+    controller.apply(model);
+    checkClassNode(1, 100);
+
+    // the site nets zero objects, but its size changes
+    controller.processCreateSample(new CreateObjectSample(0, frames, 2, CLASS_NAME, 40));
+    controller.processDeleteSample(new DeleteObjectSample(0, frames, 1, CLASS_NAME, 100));
+    controller.apply(model);
+    checkClassNode(1, 40);
+  }
+
+  private void checkClassNode(int count, long size) {
+    final DefaultMutableTreeNode root = (DefaultMutableTreeNode)model.getRoot();
+    assertEquals(1, root.getChildCount());
+    SizeInfoNode node = (SizeInfoNode)root.getChildAt(0);
+    assertEquals(CLASS_NAME, node.getUserObject());
+    for (int i = 0; ; i++) {
+      assertEquals(count, node.getCount());
+      assertEquals(size, node.getSize());
+      if (i == frames.length) break;
+      assertEquals(1, node.getChildCount());
+      node = (SizeInfoNode)node.getChildAt(0);
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package com.jetbrains.actionscript.profiler.model;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.CharsetToolkit;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
+import com.jetbrains.actionscript.profiler.sampler.Sample;
+import junit.framework.TestCase;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Feeds an agent stream through {@link ProfilingConnection}: recorded one if <code>-Das.profiler.agent.stream=path</code> is specified
+ * (raw bytes the agent sent after the handshake), otherwise generated the way ProfilerAgent.as writes samples.
+ */
+public class SampleIngestionBenchmarkTest extends TestCase {
+  private static final int SAMPLES = 200000;
+  private static final int FUNCTIONS = 500;
+  private static final int CLASSES = 50;
+
+  public void testThroughput() throws IOException {
+    final String recordedStream = System.getProperty("as.profiler.agent.stream");
+    final byte[] stream;
+    List<int[]> expectedStacks = null;
+    if (recordedStream != null) {
+      stream = FileUtil.loadFileBytes(new File(recordedStream));
+    }
+    else {
+      expectedStacks = new ArrayList<>(SAMPLES);
+      stream = generateStream(expectedStacks);
+    }
+
+    final CountingConsumer consumer = ingest(stream);
+    if (expectedStacks != null) {
+      assertEquals(expectedStacks.size(), consumer.samples.size());
+      for (int i = 0; i < expectedStacks.size(); i++) {
+        final int[] expected = expectedStacks.get(i);
+        final FrameInfo[] frames = consumer.samples.get(i).frames;
+        assertEquals(expected.length, frames.length);
+        for (int j = 0; j < expected.length; j++) {
+          assertEquals(getMethodName(expected[j]), frames[j].getMethodName());
+        }
+      }
+    }
+
+    PlatformTestUtil.startPerformanceTest("Profiler sample ingestion", 3000,
+                                          () -> assertEquals(consumer.samples.size(), ingest(stream).samples.size())).assertTiming();
+  }
+
+  private static CountingConsumer ingest(byte[] stream) throws IOException {
+    final CountingConsumer consumer = new CountingConsumer();
+    final ProfilingConnection connection = new ProfilingConnection(0, consumer, (data, ex) -> {
+    });
+    final DataInputStream in = new DataInputStream(new ByteArrayInputStream(stream));
+    final AgentMessage message = new AgentMessage();
+    while (in.available() > 0) {
+      message.readFrom(in);
+      assertTrue(connection.dispatch(message));
+    }
+    return consumer;
+  }
+
+  private static byte[] generateStream(List<int[]> expectedStacks) throws IOException {
+    final Random random = new Random(42);
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bytes);
+
+    // call graph: every function calls a few others, so that stacks repeat as in a real application
+    final int[][] callees = new int[FUNCTIONS][];
+    for (int i = 0; i < FUNCTIONS; i++) {
+      callees[i] = new int[1 + random.nextInt(4)];
+      for (int j = 0; j < callees[i].length; j++) {
+        callees[i][j] = random.nextInt(FUNCTIONS);
+      }
+    }
+
+    final Map<Integer, String> frameDictionary = new HashMap<>();
+    final Map<Integer, String> typeDictionary = new HashMap<>();
+    int[] lastCpuStack = null;
+    int objectId = 0;
+    for (int sample = 0; sample < SAMPLES; sample++) {
+      if (sample % 1000 == 0) {
+        writeUTF(out, "b\0" + sample);
+      }
+
+      final int[] stack = new int[3 + random.nextInt(30)]; // top frame first
+      stack[stack.length - 1] = random.nextInt(4);
+      for (int i = stack.length - 2; i >= 0; i--) {
+        final int[] candidates = callees[stack[i + 1]];
+        stack[i] = candidates[random.nextInt(candidates.length)];
+      }
+      expectedStacks.add(stack);
+
+      if (sample % 10 == 9) {
+        final int type = random.nextInt(CLASSES);
+        String encodedType = typeDictionary.get(type);
+        if (encodedType == null) {
+          typeDictionary.put(type, String.valueOf(typeDictionary.size()));
+          encodedType = "com.test::Class" + type;
+        }
+        writeUTF(out, "c\0" + stack.length + " " + objectId++ + " " + encodedType + " " + random.nextInt(100));
+        writeStack(out, stack, stack.length, frameDictionary);
+      }
+      else {
+        int matchedCount = 0;
+        if (lastCpuStack != null) {
+          for (int i = lastCpuStack.length - 1, j = stack.length - 1; i >= 0 && j >= 0 && lastCpuStack[i] == stack[j]; --i, --j) {
+            matchedCount++;
+          }
+        }
+        writeUTF(out, "s\0" + random.nextInt(1000) + " " + stack.length);
+        writeStack(out, stack, stack.length - matchedCount, frameDictionary);
+        if (matchedCount != 0) writeUTF(out, "u>:" + matchedCount);
+        lastCpuStack = stack;
+      }
+    }
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  private static void writeStack(DataOutputStream out, int[] stack, int count, Map<Integer, String> frameDictionary) throws IOException {
+    for (int i = 0; i < count; i++) {
+      final String value = frameDictionary.get(stack[i]);
+      if (value == null) {
+        frameDictionary.put(stack[i], String.valueOf(frameDictionary.size() + 1));
+        writeUTF(out, "com.test.pkg" + stack[i] % 10 + "::Class" + stack[i] / 10 + "/" + getMethodName(stack[i]) +
+                     "()[C:\\work\\project\\src;com\\test\\pkg" + stack[i] % 10 + ";Class" + stack[i] / 10 + ".as:" + stack[i] + "]");
+      }
+      else {
+        writeUTF(out, value);
+      }
+    }
+  }
+
+  /**
+   * Unlike {@link DataOutputStream#writeUTF}, the agent writes <code>\0</code> as a zero byte
+   */
+  private static void writeUTF(DataOutputStream out, String s) throws IOException {
+    final byte[] bytes = s.getBytes(CharsetToolkit.UTF8_CHARSET);
+    out.writeShort(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String getMethodName(int function) {
+    return "method" + function;
+  }
+
+  private static class CountingConsumer extends ProfilerDataConsumer {
+    private final List<Sample> samples = new ArrayList<>(SAMPLES);
+
+    private CountingConsumer() {
+      super(null);
+    }
+
+    @Override
+    public void process(Sample sample) {
+      super.process(sample);
+      samples.add(sample);
+    }
+  }
+}